@@ -89,17 +89,37 @@ tasks.named("processResources") {
     dependsOn("generateVersionProperties")
 }
 
+// jdk.incubator.vector backs the SIMD kernels (and Lucene's); without it they fall back to scalar loops.
+// A jar manifest cannot add modules, so java -jar needs the flag on the command line (see README);
+// VectorKernelsTest checks the fallback in a JVM started without it.
 tasks.withType<JavaCompile> {
-    options.compilerArgs.addAll(listOf("--enable-preview"))
+    options.compilerArgs.addAll(listOf("--enable-preview", "--add-modules", "jdk.incubator.vector"))
 }
 
 tasks.withType<Test> {
     useJUnitPlatform()
-    jvmArgs("--enable-preview")
+    jvmArgs("--enable-preview", "--add-modules", "jdk.incubator.vector")
+}
+
+// Timing comparisons are noisy on shared CI machines; run them on demand with ./gradlew benchmark
+tasks.test {
+    useJUnitPlatform {
+        excludeTags("benchmark")
+    }
+}
+
+tasks.register<Test>("benchmark") {
+    description = "Runs the @Tag(\"benchmark\") timing tests."
+    group = "verification"
+    testClassesDirs = sourceSets.test.get().output.classesDirs
+    classpath = sourceSets.test.get().runtimeClasspath
+    useJUnitPlatform {
+        includeTags("benchmark")
+    }
 }
 
 tasks.withType<JavaExec> {
-    jvmArgs("--enable-preview", "--enable-native-access=ALL-UNNAMED")
+    jvmArgs("--enable-preview", "--enable-native-access=ALL-UNNAMED", "--add-modules", "jdk.incubator.vector")
 }
 
 graalvmNative {
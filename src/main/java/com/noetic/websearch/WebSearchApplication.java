@@ -164,8 +164,9 @@ public class WebSearchApplication {
                     --top-k=N               Number of results (default: 5)
                 
                   chunk <text>            Split content into chunks and cache
-                    --strategy=TYPE         sentence | token | semantic (default: sentence)
+                    --strategy=TYPE         sentence | token | semantic | tokenizer (default: sentence)
                     --max-chunk-size=N      Max tokens per chunk (default: 512)
+                    --reingest              Replace the chunks cached for --source-url
                 
                   sitemap <domain>        Discover URLs from domain sitemap
                     --max-urls=N            Maximum URLs to return (default: 50)
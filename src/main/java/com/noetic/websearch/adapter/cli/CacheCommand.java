@@ -28,6 +28,9 @@ public class CacheCommand implements Runnable {
     @Option(names = "--threshold", defaultValue = "0.0")
     private float similarityThreshold;
 
+    @Option(names = "--hybrid", description = "Fuse keyword (BM25) and semantic rankings")
+    private boolean hybrid;
+
     public CacheCommand(CacheService cacheService) {
         this.cacheService = cacheService;
     }
@@ -35,7 +38,8 @@ public class CacheCommand implements Runnable {
     @Override
     public void run() {
         try {
-            List<VectorMatch> matches = cacheService.query(query, topK, similarityThreshold, "default");
+            List<VectorMatch> matches = cacheService.query(query, topK, similarityThreshold,
+                    "default", null, hybrid);
             System.out.println(mapper.writeValueAsString(matches));
         } catch (Exception e) {
             System.err.println("Cache query failed: " + e.getMessage());
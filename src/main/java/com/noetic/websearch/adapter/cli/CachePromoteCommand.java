@@ -2,10 +2,12 @@ package com.noetic.websearch.adapter.cli;
 
 import com.noetic.websearch.provider.VectorStore;
 import com.noetic.websearch.provider.store.LuceneVectorStore;
+import com.noetic.websearch.provider.store.ShardedLuceneVectorStore;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import org.springframework.stereotype.Component;
 import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
 
 import java.util.Map;
 
@@ -17,6 +19,9 @@ public class CachePromoteCommand implements Runnable {
     private final ObjectMapper mapper = new ObjectMapper()
             .enable(SerializationFeature.INDENT_OUTPUT);
 
+    @Option(names = "--incremental", description = "Only promote entries written since the last promote")
+    boolean incremental;
+
     public CachePromoteCommand(VectorStore vectorStore) {
         this.vectorStore = vectorStore;
     }
@@ -24,8 +29,13 @@ public class CachePromoteCommand implements Runnable {
     @Override
     public void run() {
         try {
+            Integer promoted = null;
             if (vectorStore instanceof LuceneVectorStore lucene) {
-                int promoted = lucene.promoteToShared();
+                promoted = lucene.promoteToShared(incremental);
+            } else if (vectorStore instanceof ShardedLuceneVectorStore sharded) {
+                promoted = sharded.promoteToShared(incremental);
+            }
+            if (promoted != null) {
                 System.out.println(mapper.writeValueAsString(
                         Map.of("promoted", promoted, "status", promoted > 0 ? "ok" : "nothing_to_promote")));
             } else {
@@ -1,6 +1,7 @@
 package com.noetic.websearch.adapter.cli;
 
 import com.noetic.websearch.model.ContentChunk;
+import com.noetic.websearch.model.IngestRequest;
 import com.noetic.websearch.service.ChunkService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
@@ -33,6 +34,10 @@ public class ChunkCommand implements Runnable {
     @Option(names = "--source-url")
     private String sourceUrl;
 
+    @Option(names = "--reingest", description = "Replace the chunks stored for --source-url: "
+            + "embed only new chunks and delete vanished ones")
+    private boolean reingest;
+
     @Option(names = "--content", description = "Content to chunk (or pipe via stdin)")
     private String content;
 
@@ -50,8 +55,8 @@ public class ChunkCommand implements Runnable {
                 text = reader.lines().collect(Collectors.joining("\n"));
             }
 
-            List<ContentChunk> chunks = chunkService.chunk(text, strategy,
-                    maxChunkSize, overlap, sourceUrl, "default");
+            List<ContentChunk> chunks = chunkService.chunk(new IngestRequest(text, strategy,
+                    maxChunkSize, overlap, sourceUrl, "default", reingest));
             System.out.println(mapper.writeValueAsString(chunks));
         } catch (Exception e) {
             System.err.println("Chunk failed: " + e.getMessage());
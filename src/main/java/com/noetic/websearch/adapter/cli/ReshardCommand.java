@@ -0,0 +1,65 @@
+package com.noetic.websearch.adapter.cli;
+
+import com.noetic.websearch.provider.store.IndexLayout;
+import com.noetic.websearch.provider.store.ShardedLuceneVectorStore;
+import com.noetic.websearch.provider.store.VectorQuantization;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+@Component
+@Command(name = "reshard", description = "Rewrite the shared Lucene index into a different number of shards (offline)")
+public class ReshardCommand implements Callable<Integer> {
+
+    private final ObjectMapper mapper = new ObjectMapper()
+            .enable(SerializationFeature.INDENT_OUTPUT);
+
+    @Value("${websearch.store.lucene.index-path:${user.home}/.websearch/index}")
+    private String indexPath;
+
+    @Value("${websearch.store.lucene.shards:1}")
+    private int configuredShards;
+
+    @Value("${websearch.store.lucene.vector-encoding:float32}")
+    private String vectorEncoding;
+
+    @Value("${websearch.store.lucene.layout:single}")
+    private String layout;
+
+    @Option(names = "--shards", required = true, description = "Target shard count (1 = unsharded)")
+    private int shards;
+
+    @Option(names = "--from", description = "Current shard count (default: websearch.store.lucene.shards)")
+    private Integer from;
+
+    /** @return the exit code: 0 once the new layout is written, 1 if the reshard failed */
+    @Override
+    public Integer call() {
+        int fromShards = from != null ? from : configuredShards;
+        try {
+            if (IndexLayout.parse(layout) != IndexLayout.SINGLE) {
+                throw new IllegalStateException("Reshard only supports the single index layout, not '" + layout + "'");
+            }
+            long entries = ShardedLuceneVectorStore.reshard(Path.of(indexPath), fromShards, shards,
+                    VectorQuantization.parse(vectorEncoding));
+            System.out.println(mapper.writeValueAsString(Map.of(
+                    "status", "ok",
+                    "entries", entries,
+                    "from", fromShards,
+                    "shards", shards,
+                    "message", "Set websearch.store.lucene.shards=" + shards
+                            + " to use the new layout; the old one is left in place")));
+            return 0;
+        } catch (Exception e) {
+            System.err.println("Reshard failed: " + e.getMessage());
+            return 1;
+        }
+    }
+}
@@ -21,6 +21,7 @@ import org.springframework.stereotype.Component;
                 ChunkCommand.class,
                 CacheCommand.class,
                 CachePromoteCommand.class,
+                ReshardCommand.class,
                 InstallSkillCommand.class
         }
 )
@@ -28,7 +28,7 @@ public class BatchCrawlMcpTool {
                     "urls": { "type": "array", "items": { "type": "string" }, "description": "List of URLs to crawl" },
                     "domain": { "type": "string", "description": "Domain for sitemap discovery (e.g. example.com)" },
                     "fetchMode": { "type": "string", "description": "Fetch mode: auto, static, dynamic" },
-                    "chunkStrategy": { "type": "string", "description": "Chunking strategy: sentence, token, semantic" },
+                    "chunkStrategy": { "type": "string", "description": "Chunking strategy: sentence, token, semantic, tokenizer" },
                     "maxConcurrency": { "type": "integer", "description": "Max concurrent crawls" },
                     "rateLimitMs": { "type": "integer", "description": "Delay between requests in ms" },
                     "pathFilter": { "type": "string", "description": "Regex to filter URLs by path" },
@@ -2,6 +2,7 @@ package com.noetic.websearch.adapter.mcp;
 
 import com.noetic.websearch.provider.VectorStore;
 import com.noetic.websearch.provider.store.LuceneVectorStore;
+import com.noetic.websearch.provider.store.ShardedLuceneVectorStore;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.modelcontextprotocol.server.McpServerFeatures;
 import io.modelcontextprotocol.spec.McpSchema;
@@ -23,7 +24,12 @@ public class CachePromoteMcpTool {
             ObjectMapper objectMapper) {
 
         var schema = """
-                { "type": "object", "properties": {} }
+                {
+                  "type": "object",
+                  "properties": {
+                    "incremental": { "type": "boolean", "description": "Only promote entries written since the last promote (default false)" }
+                  }
+                }
                 """;
 
         return new McpServerFeatures.SyncToolSpecification(
@@ -35,8 +41,14 @@ public class CachePromoteMcpTool {
                         .inputSchema(McpToolHelper.parseSchema(schema))
                         .build(),
                 (exchange, args) -> {
+                    boolean incremental = Boolean.TRUE.equals(args.get("incremental"));
+                    Integer promoted = null;
                     if (vectorStore instanceof LuceneVectorStore lucene) {
-                        int promoted = lucene.promoteToShared();
+                        promoted = lucene.promoteToShared(incremental);
+                    } else if (vectorStore instanceof ShardedLuceneVectorStore sharded) {
+                        promoted = sharded.promoteToShared(incremental);
+                    }
+                    if (promoted != null) {
                         return McpToolHelper.toResult(objectMapper,
                                 Map.of("promoted", promoted, "status", promoted > 0 ? "ok" : "nothing_to_promote"));
                     }
@@ -1,5 +1,6 @@
 package com.noetic.websearch.adapter.mcp;
 
+import com.noetic.websearch.model.MetadataFilter;
 import com.noetic.websearch.service.CacheService;
 import com.noetic.websearch.service.NamespaceResolver;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -9,6 +10,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * MCP tool: cache_query
@@ -30,7 +32,18 @@ public class CacheQueryMcpTool {
                     "query": { "type": "string", "description": "Search query text" },
                     "topK": { "type": "integer", "description": "Number of results to return (default 5)" },
                     "similarityThreshold": { "type": "number", "description": "Minimum similarity score (0.0-1.0)" },
-                    "namespace": { "type": "string", "description": "Project namespace for cache isolation" }
+                    "namespace": { "type": "string", "description": "Project namespace for cache isolation" },
+                    "hybrid": { "type": "boolean", "description": "Also rank by keyword match and fuse with semantic ranking; use for exact identifiers, error codes, flags (default false)" },
+                    "filter": {
+                      "type": "object",
+                      "description": "Optional metadata filter applied inside the search",
+                      "properties": {
+                        "equals": { "type": "object", "description": "Exact field matches, e.g. {\"entryType\": \"crawl_chunk\", \"sourceUrl\": \"https://...\"}" },
+                        "contains": { "type": "object", "description": "Substring matches on field values, e.g. {\"sourceUrl\": \"docs.spring.io\"}" },
+                        "createdAfter": { "type": "string", "description": "Only entries created after this ISO-8601 timestamp" },
+                        "createdBefore": { "type": "string", "description": "Only entries created at or before this ISO-8601 timestamp" }
+                      }
+                    }
                   },
                   "required": ["query"]
                 }
@@ -41,7 +54,8 @@ public class CacheQueryMcpTool {
                         .name("cache_query")
                         .description("Search the local vector cache for content similar to your query. Returns "
                                 + "previously crawled and cached content ranked by semantic similarity. "
-                                + "Use after crawl_page or chunk_content to retrieve stored information.")
+                                + "Use after crawl_page or chunk_content to retrieve stored information. "
+                                + "Pass a filter to restrict results by entry type, source URL, or creation time.")
                         .inputSchema(McpToolHelper.parseSchema(schema))
                         .build(),
                 (exchange, args) -> {
@@ -49,9 +63,11 @@ public class CacheQueryMcpTool {
                     Integer topK = args.get("topK") instanceof Number n ? n.intValue() : null;
                     Float similarityThreshold = args.get("similarityThreshold") instanceof Number n ? n.floatValue() : null;
                     String namespace = (String) args.get("namespace");
+                    MetadataFilter filter = args.get("filter") instanceof Map<?, ?> f ? MetadataFilter.fromMap(f) : null;
+                    boolean hybrid = Boolean.TRUE.equals(args.get("hybrid"));
 
                     String ns = namespaceResolver.resolve(namespace);
-                    var result = cacheService.query(query, topK, similarityThreshold, ns);
+                    var result = cacheService.query(query, topK, similarityThreshold, ns, filter, hybrid);
 
                     return McpToolHelper.toResult(objectMapper, result);
                 }
@@ -1,18 +1,25 @@
 package com.noetic.websearch.adapter.mcp;
 
+import com.noetic.websearch.model.IngestRequest;
+import com.noetic.websearch.model.IngestStatus;
 import com.noetic.websearch.service.ChunkService;
+import com.noetic.websearch.service.IngestService;
 import com.noetic.websearch.service.NamespaceResolver;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.modelcontextprotocol.server.McpServerFeatures;
 import io.modelcontextprotocol.spec.McpSchema;
+import io.modelcontextprotocol.spec.McpSchema.CallToolResult;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.TimeoutException;
 
 /**
- * MCP tool: chunk_content
- * Splits content into chunks, embeds them, and stores in the vector cache.
+ * MCP tools: chunk_content, ingest_status
+ * Splits content into chunks, embeds them, and stores in the vector cache,
+ * either before returning or in the background behind an ingest ticket.
  */
 @Configuration
 public class ChunkContentMcpTool {
@@ -20,6 +27,7 @@ public class ChunkContentMcpTool {
     @Bean
     McpServerFeatures.SyncToolSpecification chunkContentTool(
             ChunkService chunkService,
+            IngestService ingestService,
             NamespaceResolver namespaceResolver,
             ObjectMapper objectMapper) {
 
@@ -28,11 +36,13 @@ public class ChunkContentMcpTool {
                   "type": "object",
                   "properties": {
                     "content": { "type": "string", "description": "The text content to chunk and cache" },
-                    "strategy": { "type": "string", "description": "Chunking strategy: sentence, token, semantic" },
-                    "maxChunkSize": { "type": "integer", "description": "Maximum chunk size in characters" },
-                    "overlap": { "type": "integer", "description": "Overlap between chunks in characters" },
+                    "strategy": { "type": "string", "description": "Chunking strategy: sentence, token, semantic, tokenizer" },
+                    "maxChunkSize": { "type": "integer", "description": "Maximum chunk size: characters for sentence and semantic, words for token, model tokens for tokenizer" },
+                    "overlap": { "type": "integer", "description": "Overlap between chunks, in the strategy's unit: words for token, model tokens for tokenizer (sentence and semantic ignore it)" },
                     "sourceUrl": { "type": "string", "description": "Source URL for metadata tracking" },
-                    "namespace": { "type": "string", "description": "Project namespace for cache isolation" }
+                    "namespace": { "type": "string", "description": "Project namespace for cache isolation" },
+                    "reingest": { "type": "boolean", "description": "Replace what is cached for sourceUrl: embed only new chunks and delete ones no longer present (default false)" },
+                    "async": { "type": "boolean", "description": "Queue the content and return an ingest ticket instead of waiting (default false)" }
                   },
                   "required": ["content"]
                 }
@@ -44,7 +54,10 @@ public class ChunkContentMcpTool {
                         .description("Split content into chunks, generate embeddings, and store in the vector "
                                 + "cache for future semantic retrieval. Choose a strategy: 'sentence' preserves "
                                 + "sentence boundaries, 'token' splits by word count, 'semantic' splits at "
-                                + "paragraph/section boundaries.")
+                                + "paragraph/section boundaries, 'tokenizer' fills the embedding model's token window "
+                                + "exactly. With sourceUrl and reingest=true, replaces the page's cached chunks, "
+                                + "embedding only changed ones. With async=true, returns a ticket at once; "
+                                + "check it with ingest_status.")
                         .inputSchema(McpToolHelper.parseSchema(schema))
                         .build(),
                 (exchange, args) -> {
@@ -54,12 +67,65 @@ public class ChunkContentMcpTool {
                     var overlap = args.get("overlap") instanceof Number n ? n.intValue() : null;
                     var sourceUrl = (String) args.get("sourceUrl");
                     var namespace = (String) args.get("namespace");
+                    var reingest = Boolean.TRUE.equals(args.get("reingest"));
+                    var async = Boolean.TRUE.equals(args.get("async"));
 
                     String ns = namespaceResolver.resolve(namespace);
-                    var result = chunkService.chunk(content, strategy, maxChunkSize, overlap, sourceUrl, ns);
+                    var request = new IngestRequest(content, strategy, maxChunkSize, overlap, sourceUrl, ns, reingest);
+                    if (async) {
+                        IngestStatus ticket = ingestService.submit(request);
+                        return McpToolHelper.toResult(objectMapper, ticket);
+                    }
+                    var result = chunkService.chunk(request);
 
                     return McpToolHelper.toResult(objectMapper, result);
                 }
         );
     }
+
+    @Bean
+    McpServerFeatures.SyncToolSpecification ingestStatusTool(
+            IngestService ingestService,
+            ObjectMapper objectMapper) {
+
+        var schema = """
+                {
+                  "type": "object",
+                  "properties": {
+                    "ticket": { "type": "string", "description": "The ticket returned by chunk_content with async=true" },
+                    "waitMs": { "type": "integer", "description": "Wait up to this long for the ingest to finish first" }
+                  },
+                  "required": ["ticket"]
+                }
+                """;
+
+        return new McpServerFeatures.SyncToolSpecification(
+                McpSchema.Tool.builder()
+                        .name("ingest_status")
+                        .description("Check a queued ingest. Returns its state (QUEUED, RUNNING, COMPLETED, "
+                                + "FAILED, INTERRUPTED) and, once completed, how many chunks were stored. Pass waitMs to "
+                                + "block until the content is searchable.")
+                        .inputSchema(McpToolHelper.parseSchema(schema))
+                        .build(),
+                (exchange, args) -> {
+                    var ticket = (String) args.get("ticket");
+                    var waitMs = args.get("waitMs") instanceof Number n ? n.longValue() : 0L;
+                    if (waitMs > 0 && ingestService.status(ticket) != null) {
+                        try {
+                            ingestService.await(ticket, Duration.ofMillis(waitMs));
+                        } catch (TimeoutException | RuntimeException e) {
+                            // Still running or failed; the status says which
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                    IngestStatus status = ingestService.status(ticket);
+                    if (status == null) {
+                        return new CallToolResult(
+                                List.of(new McpSchema.TextContent("Ingest ticket not found: " + ticket)), true);
+                    }
+                    return McpToolHelper.toResult(objectMapper, status);
+                }
+        );
+    }
 }
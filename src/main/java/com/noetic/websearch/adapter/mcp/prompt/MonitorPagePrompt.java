@@ -38,9 +38,10 @@ public class MonitorPagePrompt {
                                - New sections or content added
                                - Content that was removed
                                - Content that was modified
-                            5. Call `chunk_content` with the new content to update the cache.
+                            5. Call `chunk_content` with the new content, sourceUrl="%s" and reingest=true
+                               to update the cache: only changed chunks are embedded and removed ones deleted.
                             6. If no previous cache exists, report this is the first crawl and cache the content.
-                            """.formatted(url, url);
+                            """.formatted(url, url, url);
 
                     return new GetPromptResult(
                             "Monitor page: " + url,
@@ -1,5 +1,6 @@
 package com.noetic.websearch.adapter.rest;
 
+import com.noetic.websearch.model.MetadataFilter;
 import com.noetic.websearch.model.VectorMatch;
 import com.noetic.websearch.service.CacheService;
 import com.noetic.websearch.service.EvictionService;
@@ -37,9 +38,11 @@ public class CacheController {
         Float similarityThreshold = body.get("similarityThreshold") != null
                 ? ((Number) body.get("similarityThreshold")).floatValue() : null;
         String namespace = (String) body.get("namespace");
+        MetadataFilter filter = body.get("filter") instanceof Map<?, ?> f ? MetadataFilter.fromMap(f) : null;
+        boolean hybrid = Boolean.TRUE.equals(body.get("hybrid"));
 
         String ns = namespaceResolver.resolve(namespace, httpRequest);
-        return cacheService.query(query, topK, similarityThreshold, ns);
+        return cacheService.query(query, topK, similarityThreshold, ns, filter, hybrid);
     }
 
     /** Trigger TTL-based eviction (same as the scheduled job). */
@@ -1,13 +1,19 @@
 package com.noetic.websearch.adapter.rest;
 
 import com.noetic.websearch.model.ContentChunk;
+import com.noetic.websearch.model.IngestRequest;
+import com.noetic.websearch.model.IngestStatus;
 import com.noetic.websearch.service.ChunkService;
+import com.noetic.websearch.service.IngestService;
 import com.noetic.websearch.service.NamespaceResolver;
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeoutException;
 
 /**
  * REST adapter for content chunking operations.
@@ -17,10 +23,13 @@ import java.util.Map;
 public class ChunkController {
 
     private final ChunkService chunkService;
+    private final IngestService ingestService;
     private final NamespaceResolver namespaceResolver;
 
-    public ChunkController(ChunkService chunkService, NamespaceResolver namespaceResolver) {
+    public ChunkController(ChunkService chunkService, IngestService ingestService,
+                           NamespaceResolver namespaceResolver) {
         this.chunkService = chunkService;
+        this.ingestService = ingestService;
         this.namespaceResolver = namespaceResolver;
     }
 
@@ -33,8 +42,44 @@ public class ChunkController {
         Integer overlap = (Integer) body.get("overlap");
         String sourceUrl = (String) body.get("sourceUrl");
         String namespace = (String) body.get("namespace");
+        boolean reingest = Boolean.TRUE.equals(body.get("reingest"));
 
         String ns = namespaceResolver.resolve(namespace, httpRequest);
-        return chunkService.chunk(content, strategy, maxChunkSize, overlap, sourceUrl, ns);
+        return chunkService.chunk(new IngestRequest(content, strategy, maxChunkSize, overlap, sourceUrl, ns, reingest));
+    }
+
+    /** Queue content like {@code /chunk} and return a ticket without waiting for it to be stored. */
+    @PostMapping("/ingest")
+    public IngestStatus ingest(@RequestBody Map<String, Object> body,
+                               HttpServletRequest httpRequest) {
+        String content = (String) body.get("content");
+        String strategy = (String) body.get("strategy");
+        Integer maxChunkSize = (Integer) body.get("maxChunkSize");
+        Integer overlap = (Integer) body.get("overlap");
+        String sourceUrl = (String) body.get("sourceUrl");
+        String namespace = (String) body.get("namespace");
+        boolean reingest = Boolean.TRUE.equals(body.get("reingest"));
+
+        String ns = namespaceResolver.resolve(namespace, httpRequest);
+        return ingestService.submit(new IngestRequest(content, strategy, maxChunkSize, overlap, sourceUrl, ns, reingest));
+    }
+
+    /** Ticket status; with {@code waitMs}, first wait up to that long for the ticket to finish. */
+    @GetMapping("/ingest/{ticket}")
+    public ResponseEntity<IngestStatus> ingestStatus(@PathVariable String ticket,
+                                                     @RequestParam(required = false) Long waitMs)
+            throws InterruptedException {
+        if (waitMs != null && waitMs > 0 && ingestService.status(ticket) != null) {
+            try {
+                ingestService.await(ticket, Duration.ofMillis(waitMs));
+            } catch (TimeoutException | RuntimeException e) {
+                // Still running or failed; the status says which
+            }
+        }
+        IngestStatus status = ingestService.status(ticket);
+        if (status == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(status);
     }
 }
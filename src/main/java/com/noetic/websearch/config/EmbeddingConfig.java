@@ -0,0 +1,80 @@
+package com.noetic.websearch.config;
+
+import com.noetic.websearch.provider.EmbeddingProvider;
+import com.noetic.websearch.provider.embedding.CachingEmbeddingProvider;
+import com.noetic.websearch.provider.embedding.CoalescingEmbeddingProvider;
+import com.noetic.websearch.provider.embedding.OnnxEmbeddingProvider;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.nio.file.Path;
+
+/**
+ * Assembles the {@link EmbeddingProvider} the services inject: the active
+ * provider, wrapped in a {@link CoalescingEmbeddingProvider} when
+ * {@code websearch.embedding.coalesce.enabled} is set, and in a
+ * {@link CachingEmbeddingProvider} when {@code websearch.embedding.cache.enabled}
+ * is set. The cache sits outermost so hits never wait for a batch to fill.
+ *
+ * <p>Settings are read at runtime rather than via {@code @ConditionalOnProperty}
+ * so native images, whose conditions are fixed at build time, can toggle them.</p>
+ */
+@Configuration
+public class EmbeddingConfig {
+
+    private CachingEmbeddingProvider cache;
+
+    // The wrapped provider is a bean of its own and owns its lifecycle
+    @Bean(destroyMethod = "")
+    @Primary
+    EmbeddingProvider embeddingProvider(OnnxEmbeddingProvider active,
+                                        @Value("${websearch.embedding.coalesce.enabled:true}") boolean coalesce,
+                                        @Value("${websearch.embedding.coalesce.max-wait-ms:2}") long maxWaitMs,
+                                        @Value("${websearch.embedding.coalesce.max-batch:0}") int maxBatch,
+                                        @Value("${websearch.embedding.cache.enabled:true}") boolean cacheEnabled,
+                                        @Value("${websearch.embedding.cache.max-entries:10000}") int cacheMaxEntries,
+                                        @Value("${websearch.embedding.cache.disk.enabled:true}") boolean diskEnabled,
+                                        @Value("${websearch.embedding.cache.disk.path:${user.home}/.websearch/embedding-cache}") String diskPath,
+                                        @Value("${websearch.embedding.cache.disk.max-entries:65536}") int diskMaxEntries,
+                                        ObjectProvider<MeterRegistry> meterRegistry) {
+        EmbeddingProvider provider = active;
+        if (coalesce) {
+            provider = new CoalescingEmbeddingProvider(provider, maxWaitMs, maxBatch);
+        }
+        if (cacheEnabled) {
+            // One file per model and size, so switching models never serves stale vectors
+            Path diskFile = diskEnabled
+                    ? Path.of(diskPath).resolve(provider.model() + "-" + provider.dimensions() + ".bin")
+                    : null;
+            cache = new CachingEmbeddingProvider(provider, cacheMaxEntries, diskFile, diskMaxEntries);
+            meterRegistry.ifAvailable(this::registerCacheMetrics);
+            provider = cache;
+        }
+        return provider;
+    }
+
+    @PreDestroy
+    void closeCache() {
+        if (cache != null) {
+            cache.close();
+        }
+    }
+
+    private void registerCacheMetrics(MeterRegistry registry) {
+        CachingEmbeddingProvider c = cache;
+        FunctionCounter.builder("websearch.embedding.cache.requests", c, p -> p.stats().memoryHits())
+                .tag("result", "memory-hit").register(registry);
+        FunctionCounter.builder("websearch.embedding.cache.requests", c, p -> p.stats().diskHits())
+                .tag("result", "disk-hit").register(registry);
+        FunctionCounter.builder("websearch.embedding.cache.requests", c, p -> p.stats().misses())
+                .tag("result", "miss").register(registry);
+        Gauge.builder("websearch.embedding.cache.size", c, p -> p.stats().memorySize()).register(registry);
+    }
+}
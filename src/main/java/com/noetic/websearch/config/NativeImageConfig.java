@@ -2,6 +2,7 @@ package com.noetic.websearch.config;
 
 import com.noetic.websearch.model.*;
 import com.noetic.websearch.provider.fetcher.LocalFileFetcher;
+import com.noetic.websearch.provider.store.LuceneVectorStore;
 import com.noetic.websearch.service.BatchCrawlService;
 import com.noetic.websearch.service.EvictionService;
 import com.noetic.websearch.service.SitemapParser;
@@ -37,6 +38,9 @@ public class NativeImageConfig {
             // ---- Fetchers ----
             registerAllMembers(reflection, LocalFileFetcher.class);
 
+            // ---- Vector store shards (@Value fields injected via autowireBean at runtime) ----
+            registerAllMembers(reflection, LuceneVectorStore.class);
+
             // ---- Domain records (JSON serialization) ----
             registerAllMembers(reflection, FetchRequest.class);
             registerAllMembers(reflection, FetchResult.class);
@@ -56,6 +60,8 @@ public class NativeImageConfig {
             registerAllMembers(reflection, StoreCapabilities.class);
             registerAllMembers(reflection, ChunkRequest.class);
             registerAllMembers(reflection, ContentChunk.class);
+            registerAllMembers(reflection, IngestRequest.class);
+            registerAllMembers(reflection, IngestStatus.class);
             registerAllMembers(reflection, ProxyConfig.class);
             registerAllMembers(reflection, BatchCrawlService.BatchCrawlResult.class);
             registerAllMembers(reflection, BatchCrawlService.CrawlError.class);
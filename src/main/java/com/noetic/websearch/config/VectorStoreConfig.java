@@ -0,0 +1,35 @@
+package com.noetic.websearch.config;
+
+import com.noetic.websearch.provider.VectorStore;
+import com.noetic.websearch.provider.store.LuceneVectorStore;
+import com.noetic.websearch.provider.store.ShardedLuceneVectorStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Creates the {@link VectorStore}: a single {@link LuceneVectorStore}, or a
+ * {@link ShardedLuceneVectorStore} when {@code websearch.store.lucene.shards} is
+ * greater than 1.
+ *
+ * <p>The shard count is read at runtime rather than via {@code @ConditionalOnProperty}
+ * so native images, whose conditions are fixed at build time, can switch layouts.</p>
+ */
+@Configuration
+public class VectorStoreConfig {
+
+    @Bean
+    VectorStore vectorStore(AutowireCapableBeanFactory beanFactory,
+                            @Value("${websearch.store.lucene.shards:1}") int shards) {
+        if (shards <= 1) {
+            return new LuceneVectorStore();
+        }
+        // Shards are not beans themselves; inject the same store settings into each
+        return new ShardedLuceneVectorStore(shards, () -> {
+            LuceneVectorStore shard = new LuceneVectorStore();
+            beanFactory.autowireBean(shard);
+            return shard;
+        });
+    }
+}
@@ -0,0 +1,25 @@
+package com.noetic.websearch.kernel;
+
+import java.nio.FloatBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * The primitive loops behind {@link VectorKernels}, implemented once in plain
+ * Java and once with the JDK Vector API.
+ */
+interface Kernels {
+
+    /**
+     * Add every unmasked token vector of one row of a [batch, seqLen, hidden]
+     * buffer into {@code sum}, each weighted by its attention mask value.
+     *
+     * @return the total mask weight
+     */
+    float maskedSum(FloatBuffer hidden, LongBuffer mask, int row, int seqLen, float[] sum);
+
+    /** Dot product of the first {@code a.length} elements. */
+    float dot(float[] a, float[] b);
+
+    /** Multiply every element by {@code factor}. */
+    void scale(float[] v, float factor);
+}
@@ -0,0 +1,40 @@
+package com.noetic.websearch.kernel;
+
+import java.nio.FloatBuffer;
+import java.nio.LongBuffer;
+
+/** Plain loops; used wherever the Vector API is unavailable, including native images. */
+final class ScalarKernels implements Kernels {
+
+    @Override
+    public float maskedSum(FloatBuffer hidden, LongBuffer mask, int row, int seqLen, float[] sum) {
+        int hiddenSize = sum.length;
+        float maskSum = 0f;
+        for (int t = 0; t < seqLen; t++) {
+            float weight = mask.get(row * seqLen + t);
+            if (weight == 0f) continue;
+            maskSum += weight;
+            int offset = (row * seqLen + t) * hiddenSize;
+            for (int d = 0; d < hiddenSize; d++) {
+                sum[d] += hidden.get(offset + d) * weight;
+            }
+        }
+        return maskSum;
+    }
+
+    @Override
+    public float dot(float[] a, float[] b) {
+        float sum = 0f;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public void scale(float[] v, float factor) {
+        for (int i = 0; i < v.length; i++) {
+            v[i] *= factor;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.noetic.websearch.kernel;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * Vector API loops at the platform's preferred width, with scalar tails.
+ * Loaded reflectively by {@link VectorKernels} only when
+ * {@code jdk.incubator.vector} is in the boot layer, so nothing links against
+ * the incubator module otherwise.
+ */
+final class SimdKernels implements Kernels {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    /** Lanes per vector; below four the Vector API is slower than plain loops. */
+    static int lanes() {
+        return SPECIES.length();
+    }
+
+    @Override
+    public float maskedSum(FloatBuffer hidden, LongBuffer mask, int row, int seqLen, float[] sum) {
+        int hiddenSize = sum.length;
+        // Heap buffers are read through their array, direct ones through a memory segment
+        float[] array = hidden.hasArray() ? hidden.array() : null;
+        int arrayOffset = hidden.hasArray() ? hidden.arrayOffset() : 0;
+        MemorySegment segment = array == null ? MemorySegment.ofBuffer(hidden.duplicate().clear()) : null;
+        ByteOrder order = hidden.order();
+
+        float maskSum = 0f;
+        int bound = SPECIES.loopBound(hiddenSize);
+        for (int t = 0; t < seqLen; t++) {
+            float weight = mask.get(row * seqLen + t);
+            if (weight == 0f) continue;
+            maskSum += weight;
+            int offset = (row * seqLen + t) * hiddenSize;
+            int d = 0;
+            for (; d < bound; d += SPECIES.length()) {
+                FloatVector token = array != null
+                        ? FloatVector.fromArray(SPECIES, array, arrayOffset + offset + d)
+                        : FloatVector.fromMemorySegment(SPECIES, segment, (long) (offset + d) * Float.BYTES, order);
+                token.mul(weight).add(FloatVector.fromArray(SPECIES, sum, d)).intoArray(sum, d);
+            }
+            for (; d < hiddenSize; d++) {
+                sum[d] += hidden.get(offset + d) * weight;
+            }
+        }
+        return maskSum;
+    }
+
+    @Override
+    public float dot(float[] a, float[] b) {
+        FloatVector acc = FloatVector.zero(SPECIES);
+        int bound = SPECIES.loopBound(a.length);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            acc = FloatVector.fromArray(SPECIES, a, i).mul(FloatVector.fromArray(SPECIES, b, i)).add(acc);
+        }
+        float sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public void scale(float[] v, float factor) {
+        int bound = SPECIES.loopBound(v.length);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector.fromArray(SPECIES, v, i).mul(factor).intoArray(v, i);
+        }
+        for (; i < v.length; i++) {
+            v[i] *= factor;
+        }
+    }
+}
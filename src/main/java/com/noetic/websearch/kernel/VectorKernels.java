@@ -0,0 +1,171 @@
+package com.noetic.websearch.kernel;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.FloatBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * Float vector kernels for embedding pooling and in-process scoring.
+ *
+ * <p>Uses the JDK Vector API when the JVM runs with
+ * {@code --add-modules jdk.incubator.vector} (the Gradle run and test tasks
+ * do) and the CPU has at least 128-bit vectors; otherwise, including in the
+ * native image, falls back to plain loops with the same results up to float
+ * rounding. {@code -Dwebsearch.kernels.simd=false} forces the fallback.</p>
+ */
+public final class VectorKernels {
+
+    private static final Logger log = LoggerFactory.getLogger(VectorKernels.class);
+
+    private static final Kernels KERNELS = load();
+
+    private VectorKernels() {
+    }
+
+    /** True if the Vector API implementation is active. */
+    public static boolean simd() {
+        return !(KERNELS instanceof ScalarKernels);
+    }
+
+    /**
+     * Masked mean pooling: average the token vectors of one row of a flattened
+     * [batch, seqLen, hiddenSize] buffer, weighted by the attention mask so
+     * padding is ignored. Reads with absolute gets.
+     *
+     * @param hidden        flattened model output
+     * @param attentionMask flattened [batch, seqLen] mask (1 for real tokens, 0 for padding)
+     */
+    public static float[] meanPool(FloatBuffer hidden, LongBuffer attentionMask, int row, int seqLen, int hiddenSize) {
+        float[] sum = new float[hiddenSize];
+        float maskSum = KERNELS.maskedSum(hidden, attentionMask, row, seqLen, sum);
+        if (maskSum > 0f) {
+            KERNELS.scale(sum, 1f / maskSum);
+        }
+        return sum;
+    }
+
+    /** L2-normalize {@code v} in place so cosine similarity equals dot product; returns {@code v}. */
+    public static float[] normalize(float[] v) {
+        float norm = (float) Math.sqrt(KERNELS.dot(v, v));
+        if (norm > 0) {
+            KERNELS.scale(v, 1f / norm);
+        }
+        return v;
+    }
+
+    public static float dot(float[] a, float[] b) {
+        if (a.length != b.length) {
+            throw new IllegalArgumentException("Vector lengths differ: " + a.length + " vs " + b.length);
+        }
+        return KERNELS.dot(a, b);
+    }
+
+    /**
+     * Score every candidate by dot product with {@code query} and select the
+     * best {@code k}.
+     *
+     * @param scores receives every candidate's score; at least {@code candidates.length} long
+     * @return indexes of the top {@code k} candidates, best first
+     */
+    public static int[] topK(float[] query, float[][] candidates, int k, float[] scores) {
+        for (int i = 0; i < candidates.length; i++) {
+            scores[i] = dot(query, candidates[i]);
+        }
+        return topK(scores, candidates.length, k);
+    }
+
+    /**
+     * Select the {@code k} highest of {@code scores[0, count)} with a bounded
+     * heap, without sorting the rest. Ties keep the lower index first.
+     *
+     * @return their indexes, best first
+     */
+    public static int[] topK(float[] scores, int count, int k) {
+        int size = Math.min(Math.max(k, 0), count);
+        int[] heap = new int[size]; // min-heap: the worst kept index at the root
+        int filled = 0;
+        for (int i = 0; i < count; i++) {
+            if (filled < size) {
+                heap[filled] = i;
+                siftUp(heap, filled++, scores);
+            } else if (size > 0 && worse(heap[0], i, scores)) {
+                heap[0] = i;
+                siftDown(heap, size, scores);
+            }
+        }
+        // Pop worst-first into the back of the result
+        int[] result = new int[size];
+        for (int n = size; n > 0; n--) {
+            result[n - 1] = heap[0];
+            heap[0] = heap[n - 1];
+            siftDown(heap, n - 1, scores);
+        }
+        return result;
+    }
+
+    /** True if {@code a} ranks below {@code b}: lower score, or equal score and higher index. */
+    private static boolean worse(int a, int b, float[] scores) {
+        int cmp = Float.compare(scores[a], scores[b]);
+        return cmp < 0 || (cmp == 0 && a > b);
+    }
+
+    private static void siftUp(int[] heap, int i, float[] scores) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!worse(heap[i], heap[parent], scores)) break;
+            swap(heap, i, parent);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(int[] heap, int size, float[] scores) {
+        int i = 0;
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) break;
+            int child = left + 1 < size && worse(heap[left + 1], heap[left], scores) ? left + 1 : left;
+            if (!worse(heap[child], heap[i], scores)) break;
+            swap(heap, i, child);
+            i = child;
+        }
+    }
+
+    private static void swap(int[] heap, int i, int j) {
+        int tmp = heap[i];
+        heap[i] = heap[j];
+        heap[j] = tmp;
+    }
+
+    // ---- Implementation selection ----
+
+    static Kernels scalar() {
+        return new ScalarKernels();
+    }
+
+    /** The Vector API implementation, or null where it is unavailable. */
+    static Kernels simdOrNull() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            Class<?> type = Class.forName("com.noetic.websearch.kernel.SimdKernels");
+            int lanes = (int) type.getDeclaredMethod("lanes").invoke(null);
+            if (lanes < 4) {
+                return null;
+            }
+            return (Kernels) type.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            log.warn("Vector API unavailable, using scalar kernels: {}", e.toString());
+            return null;
+        }
+    }
+
+    private static Kernels load() {
+        Kernels simd = Boolean.parseBoolean(System.getProperty("websearch.kernels.simd", "true")) ? simdOrNull() : null;
+        Kernels kernels = simd != null ? simd : scalar();
+        log.debug("Vector kernels: {}", kernels.getClass().getSimpleName());
+        return kernels;
+    }
+}
@@ -1,11 +1,23 @@
 package com.noetic.websearch.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 /**
  * A chunk of content produced by a ChunkingStrategy.
+ *
+ * <p>{@code tokenIds} holds the chunk's WordPiece IDs (without [CLS]/[SEP]) when
+ * the strategy sized it with the embedding model's tokenizer, and is null
+ * otherwise. Embedding reuses them instead of tokenizing the text again; they
+ * are not serialized.</p>
  */
 public record ContentChunk(
         String chunkId,
         String text,
         int tokenCount,
-        boolean embeddingStored
-) {}
+        boolean embeddingStored,
+        @JsonIgnore int[] tokenIds
+) {
+    public ContentChunk(String chunkId, String text, int tokenCount, boolean embeddingStored) {
+        this(chunkId, text, tokenCount, embeddingStored, null);
+    }
+}
@@ -0,0 +1,74 @@
+package com.noetic.websearch.model;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Normalized content fingerprint used to detect duplicate entries.
+ *
+ * <p>Whitespace runs are collapsed and the text is trimmed before hashing, so
+ * the same chunk re-extracted with different line wrapping or indentation
+ * hashes identically. Case and punctuation are preserved -- they are
+ * significant for code and identifiers.</p>
+ */
+public final class ContentHash {
+
+    private ContentHash() {}
+
+    /**
+     * Hash normalized content to a 128-bit hex ID (first half of SHA-256).
+     *
+     * @param content the entry text
+     * @return 32 hex chars, e.g. "9f86d081884c7d659a2feaa0c55ad015"
+     */
+    public static String of(String content) {
+        return sha256Hex(normalize(content));
+    }
+
+    /**
+     * Stable ID for a chunk of a source document, derived from the namespace,
+     * the source URL and the chunk's {@link #of content hash}: re-chunking a page
+     * yields the same ID for every chunk whose text did not change.
+     *
+     * @return 32 hex chars (first half of SHA-256)
+     */
+    public static String chunkId(String namespace, String sourceUrl, String contentHash) {
+        return sha256Hex(namespace + '\n' + sourceUrl + '\n' + contentHash);
+    }
+
+    /** First 128 bits of SHA-256 over the UTF-8 bytes of {@code text}, as 32 hex chars. */
+    private static String sha256Hex(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(text.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is always available
+            throw new RuntimeException(e);
+        }
+    }
+
+    /** Collapse whitespace runs to a single space and trim. */
+    static String normalize(String content) {
+        if (content == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(content.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < content.length(); i++) {
+            char c = content.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = !sb.isEmpty();
+            } else {
+                if (pendingSpace) {
+                    sb.append(' ');
+                    pendingSpace = false;
+                }
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -12,6 +12,15 @@ public record EmbeddingBatchRequest(
         Integer outputDimensions,
         Map<String, Object> extra
 ) {
+    /**
+     * {@code extra} key for pre-tokenized input: a {@code List<int[]>} aligned
+     * with the texts, each entry the text's token IDs from the provider's
+     * {@link com.noetic.websearch.provider.EmbeddingProvider#tokenizer()} (as
+     * {@link com.noetic.websearch.provider.Tokenizer#tokenize} returns them) or null. The IDs must be the text's own; they never change the
+     * resulting vector, only skip the work. Providers without a tokenizer ignore it.
+     */
+    public static final String EXTRA_TOKEN_IDS = "tokenIds";
+
     public EmbeddingBatchRequest {
         if (texts == null || texts.isEmpty()) {
             throw new IllegalArgumentException("At least one text is required");
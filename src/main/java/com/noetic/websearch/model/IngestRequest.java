@@ -0,0 +1,29 @@
+package com.noetic.websearch.model;
+
+/**
+ * Content to chunk, embed and store; null options take the configured defaults.
+ *
+ * <p>With {@code reingest}, the content replaces everything previously stored
+ * for {@code sourceUrl} in the namespace: unchanged chunks are kept, only new
+ * ones are embedded and chunks no longer present are deleted.</p>
+ */
+public record IngestRequest(
+        String content,
+        String strategy,
+        Integer maxChunkSize,
+        Integer overlap,
+        String sourceUrl,
+        String namespace,
+        boolean reingest
+) {
+    public IngestRequest {
+        if (content == null || content.isBlank()) {
+            throw new IllegalArgumentException("Content is required");
+        }
+    }
+
+    public IngestRequest(String content, String strategy, Integer maxChunkSize, Integer overlap,
+                         String sourceUrl, String namespace) {
+        this(content, strategy, maxChunkSize, overlap, sourceUrl, namespace, false);
+    }
+}
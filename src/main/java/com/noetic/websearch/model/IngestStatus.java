@@ -0,0 +1,27 @@
+package com.noetic.websearch.model;
+
+import java.time.Instant;
+
+/**
+ * Status of a queued ingest, identified by the ticket returned when it was submitted.
+ *
+ * <p>{@code chunks} and {@code stored} are known once the ingest has completed.</p>
+ */
+public record IngestStatus(
+        String ticket,
+        State state,
+        int chunks,
+        int stored,
+        String error,
+        Instant submittedAt,
+        Instant completedAt
+) {
+    public enum State {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED,
+        /** Stopped before finishing; the request stays queued and is replayed on the next start. */
+        INTERRUPTED
+    }
+}
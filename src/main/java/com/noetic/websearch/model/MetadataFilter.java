@@ -1,6 +1,8 @@
 package com.noetic.websearch.model;
 
 import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -28,4 +30,47 @@ public record MetadataFilter(
     public static MetadataFilter byTypeOlderThan(String entryType, Instant cutoff) {
         return new MetadataFilter(Map.of("entryType", entryType), Map.of(), null, cutoff);
     }
+
+    /**
+     * Build a filter from a JSON-style map with optional {@code equals} and
+     * {@code contains} objects and ISO-8601 {@code createdAfter}/{@code createdBefore}
+     * strings, as accepted by the REST and MCP cache query adapters.
+     *
+     * @return the filter, or null if the map is null or empty
+     * @throws IllegalArgumentException if a timestamp is not valid ISO-8601
+     */
+    public static MetadataFilter fromMap(Map<?, ?> map) {
+        if (map == null || map.isEmpty()) {
+            return null;
+        }
+        return new MetadataFilter(
+                stringMap(map.get("equals")),
+                stringMap(map.get("contains")),
+                instant(map.get("createdAfter"), "createdAfter"),
+                instant(map.get("createdBefore"), "createdBefore"));
+    }
+
+    private static Map<String, String> stringMap(Object value) {
+        if (!(value instanceof Map<?, ?> raw)) {
+            return Map.of();
+        }
+        Map<String, String> result = new LinkedHashMap<>();
+        raw.forEach((k, v) -> {
+            if (k != null && v != null) {
+                result.put(k.toString(), v.toString());
+            }
+        });
+        return result;
+    }
+
+    private static Instant instant(Object value, String name) {
+        if (value == null || value.toString().isBlank()) {
+            return null;
+        }
+        try {
+            return Instant.parse(value.toString());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid " + name + " timestamp (expected ISO-8601): " + value);
+        }
+    }
 }
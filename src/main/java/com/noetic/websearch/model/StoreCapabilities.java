@@ -1,7 +1,13 @@
 package com.noetic.websearch.model;
 
+import java.time.Duration;
+
 /**
  * Declares what a VectorStore implementation supports.
+ *
+ * <p>{@code durabilityWindow} is the longest a write can be acknowledged before it
+ * is durable on disk: {@link Duration#ZERO} if every write is committed before it
+ * returns, {@code null} if writes are only made durable when the store is closed.</p>
  */
 public record StoreCapabilities(
         boolean supportsNamespaces,
@@ -10,5 +16,7 @@ public record StoreCapabilities(
         boolean supportsGet,
         boolean supportsNativeTtl,
         boolean requiresExplicitDimensions,
-        int maxBatchSize
+        boolean supportsHybridSearch,
+        int maxBatchSize,
+        Duration durabilityWindow
 ) {}
@@ -4,15 +4,21 @@ import com.noetic.websearch.model.ChunkRequest;
 import com.noetic.websearch.model.ContentChunk;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Provider interface for splitting content into chunks.
  */
 public interface ChunkingStrategy {
 
-    /** Strategy type identifier (e.g. "sentence", "token", "semantic"). */
+    /** Strategy type identifier (e.g. "sentence", "token", "semantic", "tokenizer"). */
     String type();
 
     /** Split content into chunks according to the strategy. */
     List<ContentChunk> chunk(ChunkRequest request);
+
+    /** Split content and hand each chunk to {@code sink} in order as soon as it is complete. */
+    default void chunk(ChunkRequest request, Consumer<ContentChunk> sink) {
+        chunk(request).forEach(sink);
+    }
 }
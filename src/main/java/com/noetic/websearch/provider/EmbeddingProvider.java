@@ -6,6 +6,7 @@ import com.noetic.websearch.model.EmbeddingRequest;
 import com.noetic.websearch.model.EmbeddingResult;
 
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Provider interface for generating vector embeddings.
@@ -32,4 +33,14 @@ public interface EmbeddingProvider {
 
     /** Active model name. */
     String model();
+
+    /**
+     * The tokenizer the model embeds with, for callers that size or
+     * pre-tokenize text in model tokens (see
+     * {@link EmbeddingBatchRequest#EXTRA_TOKEN_IDS}). Empty for providers that
+     * tokenize remotely or are not ready yet.
+     */
+    default Optional<Tokenizer> tokenizer() {
+        return Optional.empty();
+    }
 }
@@ -0,0 +1,19 @@
+package com.noetic.websearch.provider;
+
+/**
+ * A model's local tokenizer, for callers that size or pre-tokenize text in the
+ * model's own tokens (see {@link EmbeddingProvider#tokenizer()}).
+ */
+public interface Tokenizer {
+
+    /** Vocabulary IDs of the text's tokens, without the model's special tokens and not truncated. */
+    int[] tokenize(String text);
+
+    /** Number of tokens {@link #tokenize} returns for the text. */
+    default int count(String text) {
+        return tokenize(text).length;
+    }
+
+    /** Most text tokens one model input holds, not counting its special tokens. */
+    int maxTokens();
+}
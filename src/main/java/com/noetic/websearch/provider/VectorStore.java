@@ -2,7 +2,9 @@ package com.noetic.websearch.provider;
 
 import com.noetic.websearch.model.*;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -52,6 +54,57 @@ public interface VectorStore extends AutoCloseable {
     /** Search for similar vectors. */
     List<VectorMatch> search(VectorSearchRequest request);
 
+    /**
+     * Search combining lexical (keyword) and vector similarity rankings.
+     * Stores without a lexical index fall back to plain vector search.
+     *
+     * @param request   vector search parameters, filters apply to both rankings
+     * @param queryText the raw query text to match lexically
+     */
+    default List<VectorMatch> hybridSearch(VectorSearchRequest request, String queryText) {
+        return search(request);
+    }
+
+    // -- Deduplication --
+
+    /**
+     * Look up entries in a namespace by normalized content hash ({@link ContentHash}).
+     * Only entries of the same source count: those whose {@code sourceUrl} metadata
+     * equals {@code sourceUrl}, or that have none when it is null. A re-ingest
+     * deletes its page's vanished entries, so an entry reused by another page
+     * would disappear from under it. Stores that do not index content hashes
+     * report nothing as existing.
+     *
+     * @return content hash to the ID of an existing entry with that content
+     */
+    default Map<String, String> findByContentHash(String namespace, String sourceUrl,
+                                                  Collection<String> contentHashes) {
+        return Map.of();
+    }
+
+    /**
+     * List the entries in a namespace whose {@code sourceUrl} metadata equals
+     * {@code sourceUrl}, so a re-ingest of that page can tell which of its chunks
+     * are unchanged and which have vanished. Stores that cannot filter on
+     * metadata report nothing, and re-ingest then only adds.
+     *
+     * @return entry ID to its content hash
+     */
+    default Map<String, String> findBySource(String namespace, String sourceUrl) {
+        return Map.of();
+    }
+
+    /**
+     * Re-stamp existing entries as freshly written: reset {@code createdAt} to now and
+     * merge in the given metadata, keeping the stored vector and content. Lets a
+     * re-ingest of unchanged content extend its TTL without recomputing embeddings.
+     *
+     * @return number of entries refreshed (0 if unsupported)
+     */
+    default int touch(Collection<String> ids, Map<String, String> metadata) {
+        return 0;
+    }
+
     // -- Maintenance --
 
     /** Total number of entries in the store. */
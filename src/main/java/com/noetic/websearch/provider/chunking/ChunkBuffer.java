@@ -0,0 +1,83 @@
+package com.noetic.websearch.provider.chunking;
+
+import com.noetic.websearch.model.ContentChunk;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * A chunk under construction: ranges of the source text, each followed by a
+ * separator, with the chunk's length and token count kept up to date as
+ * ranges are added. The text is only built when the chunk is emitted.
+ *
+ * <p>Ranges must not start or end with {@code \s} characters, so every
+ * separator is its own whitespace run and the token count of the joined text
+ * is the sum of the ranges' counts.</p>
+ */
+final class ChunkBuffer {
+
+    private final CharSequence text;
+    private int[] bounds = new int[32];
+    private String[] separators = new String[16];
+    private int count;
+    private int length;
+    private int tokens;
+
+    ChunkBuffer(CharSequence text) {
+        this.text = text;
+    }
+
+    /** Add {@code text[start, end)}, holding {@code rangeTokens} tokens, followed by {@code separator}. */
+    void add(int start, int end, int rangeTokens, String separator) {
+        if (count == separators.length) {
+            bounds = Arrays.copyOf(bounds, bounds.length * 2);
+            separators = Arrays.copyOf(separators, separators.length * 2);
+        }
+        bounds[2 * count] = start;
+        bounds[2 * count + 1] = end;
+        separators[count++] = separator;
+        length += end - start + separator.length();
+        tokens += rangeTokens;
+    }
+
+    /** Move every range of {@code other} to the end of this buffer. */
+    void takeAll(ChunkBuffer other) {
+        for (int i = 0; i < other.count; i++) {
+            add(other.bounds[2 * i], other.bounds[2 * i + 1], 0, other.separators[i]);
+        }
+        tokens += other.tokens;
+        other.clear();
+    }
+
+    /** Characters the joined text would have, trailing separator included. */
+    int length() {
+        return length;
+    }
+
+    boolean isEmpty() {
+        return count == 0;
+    }
+
+    void clear() {
+        count = 0;
+        length = 0;
+        tokens = 0;
+    }
+
+    /** Build the trimmed text and clear the buffer. */
+    ContentChunk emit() {
+        StringBuilder joined = new StringBuilder(length);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                joined.append(separators[i - 1]);
+            }
+            joined.append(text, bounds[2 * i], bounds[2 * i + 1]);
+        }
+        String raw = joined.toString();
+        String trimmed = raw.trim();
+        // Trimming only removes more than the separator when a range starts with a control character
+        int tokenCount = trimmed.length() == raw.length() ? tokens : TextScan.tokenCount(trimmed);
+        clear();
+        return new ContentChunk(UUID.randomUUID().toString(), trimmed, tokenCount, false);
+    }
+}
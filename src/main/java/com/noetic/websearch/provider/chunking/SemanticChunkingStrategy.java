@@ -7,19 +7,20 @@ import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
-import java.util.regex.Pattern;
+import java.util.function.Consumer;
 
 /**
  * Splits content at semantic boundaries (paragraphs, headings, section breaks).
  * Falls back to sentence splitting for very long sections.
+ *
+ * <p>Scans the text once: a paragraph ends at any whitespace run holding two
+ * line breaks, a long paragraph's sentences end at whitespace after
+ * {@code .}, {@code !} or {@code ?}, and both are tracked as offsets until a
+ * chunk is emitted.</p>
  */
 @Component
 public class SemanticChunkingStrategy implements ChunkingStrategy {
 
-    private static final Pattern PARAGRAPH_SPLIT = Pattern.compile("\\n\\s*\\n");
-    private static final Pattern HEADING_SPLIT = Pattern.compile("(?m)^#{1,6}\\s");
-
     @Override
     public String type() {
         return "semantic";
@@ -27,62 +28,91 @@ public class SemanticChunkingStrategy implements ChunkingStrategy {
 
     @Override
     public List<ContentChunk> chunk(ChunkRequest request) {
-        // Split on paragraph boundaries first
-        String[] paragraphs = PARAGRAPH_SPLIT.split(request.content());
         List<ContentChunk> chunks = new ArrayList<>();
+        chunk(request, chunks::add);
+        return chunks;
+    }
 
-        StringBuilder current = new StringBuilder();
+    @Override
+    public void chunk(ChunkRequest request, Consumer<ContentChunk> sink) {
+        chunk(request.content(), request.maxChunkSize(), sink);
+    }
 
-        for (String para : paragraphs) {
-            String trimmed = para.trim();
-            if (trimmed.isEmpty()) continue;
+    /**
+     * Chunk {@code text} into runs of whole paragraphs of at most
+     * {@code maxChunkSize} characters; a paragraph longer than that is split
+     * into sentence runs instead.
+     */
+    public void chunk(CharSequence text, int maxChunkSize, Consumer<ContentChunk> sink) {
+        ChunkBuffer current = new ChunkBuffer(text);
+        ChunkBuffer sentences = new ChunkBuffer(text);
 
-            // If adding this paragraph would exceed max, emit current and start new
-            if (current.length() + trimmed.length() > request.maxChunkSize()
-                    && !current.isEmpty()) {
-                chunks.add(createChunk(current.toString().trim()));
-                current = new StringBuilder();
+        int length = text.length();
+        int paragraphStart = 0;
+        int i = 0;
+        while (i < length) {
+            if (!TextScan.isSpace(text.charAt(i))) {
+                i++;
+                continue;
             }
-
-            // If a single paragraph exceeds max, split it further
-            if (trimmed.length() > request.maxChunkSize()) {
-                if (!current.isEmpty()) {
-                    chunks.add(createChunk(current.toString().trim()));
-                    current = new StringBuilder();
-                }
-                // Split long paragraph by sentences
-                String[] sentences = trimmed.split("(?<=[.!?])\\s+");
-                StringBuilder sentBuf = new StringBuilder();
-                for (String sent : sentences) {
-                    if (sentBuf.length() + sent.length() > request.maxChunkSize()
-                            && !sentBuf.isEmpty()) {
-                        chunks.add(createChunk(sentBuf.toString().trim()));
-                        sentBuf = new StringBuilder();
-                    }
-                    sentBuf.append(sent).append(" ");
-                }
-                if (!sentBuf.isEmpty()) {
-                    current.append(sentBuf);
-                }
-            } else {
-                current.append(trimmed).append("\n\n");
+            int runStart = i;
+            int lineBreaks = 0;
+            for (; i < length && TextScan.isSpace(text.charAt(i)); i++) {
+                if (text.charAt(i) == '\n') lineBreaks++;
+            }
+            if (lineBreaks >= 2) {
+                paragraph(text, paragraphStart, runStart, maxChunkSize, current, sentences, sink);
+                paragraphStart = i;
             }
         }
+        paragraph(text, paragraphStart, length, maxChunkSize, current, sentences, sink);
 
         if (!current.isEmpty()) {
-            chunks.add(createChunk(current.toString().trim()));
+            sink.accept(current.emit());
         }
+    }
 
-        return chunks;
+    private void paragraph(CharSequence text, int start, int end, int maxChunkSize,
+                           ChunkBuffer current, ChunkBuffer sentences, Consumer<ContentChunk> sink) {
+        int from = TextScan.trimStart(text, start, end);
+        int to = TextScan.trimEnd(text, from, end);
+        if (from == to) return;
+
+        // If adding this paragraph would exceed max, emit current and start new
+        if (current.length() + (to - from) > maxChunkSize && !current.isEmpty()) {
+            sink.accept(current.emit());
+        }
+
+        if (to - from <= maxChunkSize) {
+            current.add(from, to, TextScan.tokensInRange(text, from, to), "\n\n");
+            return;
+        }
+
+        // Split a long paragraph by sentences; current is empty here
+        int sentenceStart = from;
+        int i = from;
+        while (i < to) {
+            if (TextScan.isSpace(text.charAt(i)) && isSentenceEnd(text.charAt(i - 1))) {
+                sentence(text, sentenceStart, i, maxChunkSize, sentences, sink);
+                while (i < to && TextScan.isSpace(text.charAt(i))) i++;
+                sentenceStart = i;
+            } else {
+                i++;
+            }
+        }
+        sentence(text, sentenceStart, to, maxChunkSize, sentences, sink);
+        current.takeAll(sentences);
+    }
+
+    private void sentence(CharSequence text, int from, int to, int maxChunkSize,
+                          ChunkBuffer sentences, Consumer<ContentChunk> sink) {
+        if (sentences.length() + (to - from) > maxChunkSize && !sentences.isEmpty()) {
+            sink.accept(sentences.emit());
+        }
+        sentences.add(from, to, TextScan.tokensInRange(text, from, to), " ");
     }
 
-    private ContentChunk createChunk(String text) {
-        int tokenEstimate = text.split("\\s+").length;
-        return new ContentChunk(
-                UUID.randomUUID().toString(),
-                text,
-                tokenEstimate,
-                false
-        );
+    private static boolean isSentenceEnd(char c) {
+        return c == '.' || c == '!' || c == '?';
     }
 }
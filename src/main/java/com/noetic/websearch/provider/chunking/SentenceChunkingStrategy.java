@@ -9,11 +9,14 @@ import java.text.BreakIterator;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
-import java.util.UUID;
+import java.util.function.Consumer;
 
 /**
  * Splits content into chunks at sentence boundaries.
  * Maintains complete sentences and supports overlap.
+ *
+ * <p>Scans the text once: sentences are tracked as offsets and a chunk's text
+ * is built only when the chunk is emitted.</p>
  */
 @Component
 public class SentenceChunkingStrategy implements ChunkingStrategy {
@@ -25,66 +28,42 @@ public class SentenceChunkingStrategy implements ChunkingStrategy {
 
     @Override
     public List<ContentChunk> chunk(ChunkRequest request) {
-        List<String> sentences = splitIntoSentences(request.content());
         List<ContentChunk> chunks = new ArrayList<>();
-
-        StringBuilder current = new StringBuilder();
-        List<String> currentSentences = new ArrayList<>();
-
-        for (String sentence : sentences) {
-            int projectedLength = current.length() + sentence.length();
-
-            if (projectedLength > request.maxChunkSize() && !current.isEmpty()) {
-                // Emit current chunk
-                chunks.add(createChunk(current.toString().trim()));
-
-                // Apply overlap by keeping last N characters of sentences
-                current = new StringBuilder();
-                currentSentences.clear();
-
-                if (request.overlap() > 0) {
-                    // Re-add the last sentence for overlap
-                    current.append(sentence);
-                    currentSentences.add(sentence);
-                    continue;
-                }
-            }
-
-            current.append(sentence);
-            currentSentences.add(sentence);
-        }
-
-        if (!current.isEmpty()) {
-            chunks.add(createChunk(current.toString().trim()));
-        }
-
+        chunk(request, chunks::add);
         return chunks;
     }
 
-    private List<String> splitIntoSentences(String text) {
-        List<String> sentences = new ArrayList<>();
+    @Override
+    public void chunk(ChunkRequest request, Consumer<ContentChunk> sink) {
+        chunk(request.content(), request.maxChunkSize(), sink);
+    }
+
+    /**
+     * Chunk {@code text} into runs of whole sentences, each sentence trimmed
+     * and followed by one space, emitting a chunk before the next sentence
+     * would take it past {@code maxChunkSize} characters.
+     */
+    public void chunk(CharSequence text, int maxChunkSize, Consumer<ContentChunk> sink) {
         BreakIterator iterator = BreakIterator.getSentenceInstance(Locale.US);
-        iterator.setText(text);
+        iterator.setText(new TextScan.CharSequenceIterator(text));
+        ChunkBuffer current = new ChunkBuffer(text);
 
         int start = iterator.first();
         for (int end = iterator.next(); end != BreakIterator.DONE;
              start = end, end = iterator.next()) {
-            String sentence = text.substring(start, end).trim();
-            if (!sentence.isEmpty()) {
-                sentences.add(sentence + " ");
+            int from = TextScan.trimStart(text, start, end);
+            int to = TextScan.trimEnd(text, from, end);
+            if (from == to) continue;
+
+            // The sentence counts with the space that follows it
+            if (current.length() + (to - from) + 1 > maxChunkSize && !current.isEmpty()) {
+                sink.accept(current.emit());
             }
+            current.add(from, to, TextScan.tokensInRange(text, from, to), " ");
         }
 
-        return sentences;
-    }
-
-    private ContentChunk createChunk(String text) {
-        int tokenEstimate = text.split("\\s+").length;
-        return new ContentChunk(
-                UUID.randomUUID().toString(),
-                text,
-                tokenEstimate,
-                false
-        );
+        if (!current.isEmpty()) {
+            sink.accept(current.emit());
+        }
     }
 }
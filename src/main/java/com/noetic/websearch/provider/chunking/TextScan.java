@@ -0,0 +1,153 @@
+package com.noetic.websearch.provider.chunking;
+
+import java.text.CharacterIterator;
+
+/**
+ * Character-level helpers that stand in for the regular expressions the
+ * chunkers used to split on, with the same definitions: {@code \s} is
+ * {@code [ \t\n\x0B\f\r]} and trimming drops everything up to U+0020, as
+ * {@link String#trim()} does.
+ */
+final class TextScan {
+
+    private TextScan() {
+    }
+
+    /** True for the characters regex {@code \s} matches. */
+    static boolean isSpace(char c) {
+        return c == ' ' || (c >= '\t' && c <= '\r');
+    }
+
+    /** True for the characters {@link String#trim()} removes. */
+    static boolean isTrimmed(char c) {
+        return c <= ' ';
+    }
+
+    /** First index in {@code [from, to)} not removed by trimming, or {@code to}. */
+    static int trimStart(CharSequence text, int from, int to) {
+        while (from < to && isTrimmed(text.charAt(from))) {
+            from++;
+        }
+        return from;
+    }
+
+    /** End of {@code [from, to)} once trailing trimmed characters are removed. */
+    static int trimEnd(CharSequence text, int from, int to) {
+        while (to > from && isTrimmed(text.charAt(to - 1))) {
+            to--;
+        }
+        return to;
+    }
+
+    /**
+     * Tokens in {@code text[from, to)}, a range that neither starts nor ends
+     * with {@code \s}: one more than its number of whitespace runs.
+     */
+    static int tokensInRange(CharSequence text, int from, int to) {
+        int tokens = 1;
+        boolean inSpace = false;
+        for (int i = from; i < to; i++) {
+            boolean space = isSpace(text.charAt(i));
+            if (space && !inSpace) {
+                tokens++;
+            }
+            inSpace = space;
+        }
+        return tokens;
+    }
+
+    /** Same as {@code text.toString().split("\\s+").length}, without the regex or the array. */
+    static int tokenCount(CharSequence text) {
+        int length = text.length();
+        if (length == 0) {
+            return 1;
+        }
+        int words = 0;
+        int i = 0;
+        boolean leadingSpace = isSpace(text.charAt(0));
+        while (i < length) {
+            while (i < length && isSpace(text.charAt(i))) i++;
+            if (i == length) break;
+            words++;
+            while (i < length && !isSpace(text.charAt(i))) i++;
+        }
+        // split() keeps a leading empty string only when something follows it
+        return words == 0 ? 0 : words + (leadingSpace ? 1 : 0);
+    }
+
+    /** A {@link CharacterIterator} over any {@link CharSequence}, for {@link java.text.BreakIterator}. */
+    static final class CharSequenceIterator implements CharacterIterator {
+
+        private final CharSequence text;
+        private int index;
+
+        CharSequenceIterator(CharSequence text) {
+            this.text = text;
+        }
+
+        @Override
+        public char first() {
+            index = 0;
+            return current();
+        }
+
+        @Override
+        public char last() {
+            index = text.isEmpty() ? 0 : text.length() - 1;
+            return current();
+        }
+
+        @Override
+        public char current() {
+            return index < text.length() ? text.charAt(index) : DONE;
+        }
+
+        @Override
+        public char next() {
+            if (index < text.length()) {
+                index++;
+            }
+            return current();
+        }
+
+        @Override
+        public char previous() {
+            if (index == 0) {
+                return DONE;
+            }
+            index--;
+            return current();
+        }
+
+        @Override
+        public char setIndex(int position) {
+            if (position < 0 || position > text.length()) {
+                throw new IllegalArgumentException("Invalid index: " + position);
+            }
+            index = position;
+            return current();
+        }
+
+        @Override
+        public int getBeginIndex() {
+            return 0;
+        }
+
+        @Override
+        public int getEndIndex() {
+            return text.length();
+        }
+
+        @Override
+        public int getIndex() {
+            return index;
+        }
+
+        @Override
+        public Object clone() {
+            CharSequenceIterator copy = new CharSequenceIterator(text);
+            copy.index = index;
+            return copy;
+        }
+    }
+}
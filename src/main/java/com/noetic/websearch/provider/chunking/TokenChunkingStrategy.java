@@ -6,12 +6,17 @@ import com.noetic.websearch.provider.ChunkingStrategy;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 /**
  * Splits content into chunks based on approximate token count (word-based).
  * Simple and predictable chunking strategy.
+ *
+ * <p>Scans the text once, keeping only the word offsets of the chunk being
+ * filled; chunks start every {@code maxChunkSize - overlap} words.</p>
  */
 @Component
 public class TokenChunkingStrategy implements ChunkingStrategy {
@@ -23,28 +28,102 @@ public class TokenChunkingStrategy implements ChunkingStrategy {
 
     @Override
     public List<ContentChunk> chunk(ChunkRequest request) {
-        String[] words = request.content().split("\\s+");
         List<ContentChunk> chunks = new ArrayList<>();
+        chunk(request, chunks::add);
+        return chunks;
+    }
 
-        int maxTokens = request.maxChunkSize();
-        int overlapTokens = request.overlap();
+    @Override
+    public void chunk(ChunkRequest request, Consumer<ContentChunk> sink) {
+        chunk(request.content(), request.maxChunkSize(), request.overlap(), sink);
+    }
 
+    /**
+     * Chunk {@code text} into runs of {@code maxTokens} whitespace-separated
+     * words joined by single spaces, consecutive chunks sharing
+     * {@code overlapTokens} words.
+     */
+    public void chunk(CharSequence text, int maxTokens, int overlapTokens, Consumer<ContentChunk> sink) {
+        WordWindow window = new WordWindow(text, maxTokens, Math.max(1, maxTokens - overlapTokens), sink);
+        int length = text.length();
+        if (length == 0) {
+            window.add(0, 0);
+        }
+        // Leading whitespace yields an empty first word, as with split("\\s+")
+        boolean leadingSpace = length > 0 && TextScan.isSpace(text.charAt(0));
         int i = 0;
-        while (i < words.length) {
-            int end = Math.min(i + maxTokens, words.length);
-            String chunkText = String.join(" ", java.util.Arrays.copyOfRange(words, i, end));
+        while (i < length) {
+            while (i < length && TextScan.isSpace(text.charAt(i))) i++;
+            if (i == length) break;
+            int start = i;
+            while (i < length && !TextScan.isSpace(text.charAt(i))) i++;
+            if (leadingSpace) {
+                window.add(0, 0);
+                leadingSpace = false;
+            }
+            window.add(start, i);
+        }
+        window.finish();
+    }
+
+    /** Word offsets from the start of the next chunk on, emitting each chunk once it is full. */
+    private static final class WordWindow {
+
+        private final CharSequence text;
+        private final int maxTokens;
+        private final int step;
+        private final Consumer<ContentChunk> sink;
+        private int[] bounds;
+        private int size;
 
-            chunks.add(new ContentChunk(
+        WordWindow(CharSequence text, int maxTokens, int step, Consumer<ContentChunk> sink) {
+            this.text = text;
+            this.maxTokens = maxTokens;
+            this.step = step;
+            this.sink = sink;
+            this.bounds = new int[2 * Math.min(maxTokens, 256)];
+        }
+
+        void add(int start, int end) {
+            if (2 * size == bounds.length) {
+                bounds = Arrays.copyOf(bounds, 2 * Math.min(maxTokens, 2 * size));
+            }
+            bounds[2 * size] = start;
+            bounds[2 * size + 1] = end;
+            if (++size == maxTokens) {
+                emit(0, size);
+                // The next chunk starts step words in; its first words are already here
+                int keep = size - step;
+                System.arraycopy(bounds, 2 * step, bounds, 0, 2 * keep);
+                size = keep;
+            }
+        }
+
+        /** Emit the chunks that start in the words still held; they all run to the end of the text. */
+        void finish() {
+            for (int from = 0; from < size; from += step) {
+                emit(from, size);
+            }
+        }
+
+        private void emit(int from, int to) {
+            int chars = to - from - 1;
+            for (int w = from; w < to; w++) {
+                chars += bounds[2 * w + 1] - bounds[2 * w];
+            }
+            StringBuilder chunkText = new StringBuilder(chars);
+            for (int w = from; w < to; w++) {
+                if (w > from) {
+                    chunkText.append(' ');
+                }
+                chunkText.append(text, bounds[2 * w], bounds[2 * w + 1]);
+            }
+            sink.accept(new ContentChunk(
                     UUID.randomUUID().toString(),
-                    chunkText,
-                    end - i,
+                    chunkText.toString(),
+                    to - from,
                     false
             ));
-
-            i += maxTokens - overlapTokens;
-            if (i >= words.length) break;
         }
-
-        return chunks;
     }
 }
@@ -0,0 +1,158 @@
+package com.noetic.websearch.provider.chunking;
+
+import com.noetic.websearch.model.ChunkRequest;
+import com.noetic.websearch.model.ContentChunk;
+import com.noetic.websearch.provider.ChunkingStrategy;
+import com.noetic.websearch.provider.EmbeddingProvider;
+import com.noetic.websearch.provider.Tokenizer;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Splits content into chunks measured in the embedding model's own WordPiece
+ * tokens, so every chunk fits the model's window without truncation and fills
+ * it as far as whole words allow.
+ *
+ * <p>{@code maxChunkSize} and {@code overlap} count WordPiece tokens, and the
+ * chunk size is capped at the tokenizer's {@link Tokenizer#maxTokens()}. Words
+ * are tokenized one at a time as the text is scanned; WordPiece never crosses
+ * whitespace, so a chunk's IDs are its words' IDs in order. Each chunk carries
+ * them in {@link ContentChunk#tokenIds()} so embedding does not tokenize it
+ * again. Chunk text is the source from the chunk's first word to its last,
+ * whitespace kept as is.</p>
+ *
+ * <p>A single word longer than the chunk size becomes a chunk of its own, its
+ * IDs cut at the chunk size as the model would truncate it.</p>
+ *
+ * <p>The tokenizer is the active {@link EmbeddingProvider#tokenizer()}; with a
+ * provider that has none, chunking with this strategy fails.</p>
+ */
+@Component
+public class TokenizerChunkingStrategy implements ChunkingStrategy {
+
+    private final EmbeddingProvider embeddingProvider;
+
+    public TokenizerChunkingStrategy(EmbeddingProvider embeddingProvider) {
+        this.embeddingProvider = embeddingProvider;
+    }
+
+    @Override
+    public String type() {
+        return "tokenizer";
+    }
+
+    @Override
+    public List<ContentChunk> chunk(ChunkRequest request) {
+        List<ContentChunk> chunks = new ArrayList<>();
+        chunk(request, chunks::add);
+        return chunks;
+    }
+
+    @Override
+    public void chunk(ChunkRequest request, Consumer<ContentChunk> sink) {
+        chunk(request.content(), request.maxChunkSize(), request.overlap(), sink);
+    }
+
+    /**
+     * Chunk {@code text} into runs of whole words of at most {@code maxTokens}
+     * WordPiece tokens, each chunk after the first starting with the last words
+     * of the previous one that fit in {@code overlapTokens} tokens.
+     */
+    public void chunk(CharSequence text, int maxTokens, int overlapTokens, Consumer<ContentChunk> sink) {
+        Tokenizer tokenizer = embeddingProvider.tokenizer()
+                .orElseThrow(() -> new IllegalStateException("Chunking strategy 'tokenizer' needs an embedding "
+                        + "provider with a local tokenizer; '" + embeddingProvider.type() + "' has none"));
+        int budget = Math.max(1, Math.min(maxTokens, tokenizer.maxTokens()));
+        TokenWindow window = new TokenWindow(text, budget, Math.clamp(overlapTokens, 0, budget - 1), sink);
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && TextScan.isSpace(text.charAt(i))) i++;
+            if (i == length) break;
+            int start = i;
+            while (i < length && !TextScan.isSpace(text.charAt(i))) i++;
+            window.add(new Word(start, i, tokenizer.tokenize(text.subSequence(start, i).toString())));
+        }
+        window.finish();
+    }
+
+    private record Word(int start, int end, int[] pieces) {
+    }
+
+    /** Words of the chunk being filled, emitting it when the next word would not fit. */
+    private static final class TokenWindow {
+
+        private final CharSequence text;
+        private final int budget;
+        private final int overlap;
+        private final Consumer<ContentChunk> sink;
+        private final ArrayDeque<Word> words = new ArrayDeque<>();
+        private int tokens;
+        /** Words at the front repeated from the previous chunk; a window of only these is not emitted. */
+        private int carried;
+
+        TokenWindow(CharSequence text, int budget, int overlap, Consumer<ContentChunk> sink) {
+            this.text = text;
+            this.budget = budget;
+            this.overlap = overlap;
+            this.sink = sink;
+        }
+
+        void add(Word word) {
+            int size = word.pieces().length;
+            if (tokens + size > budget) {
+                if (words.size() > carried) {
+                    emit();
+                }
+                // Give up overlap rather than overflow: drop carried words until the new one fits
+                while (!words.isEmpty() && tokens + size > budget) {
+                    tokens -= words.removeFirst().pieces().length;
+                    carried--;
+                }
+            }
+            words.addLast(word);
+            tokens += size;
+        }
+
+        void finish() {
+            if (words.size() > carried) {
+                emit();
+            }
+        }
+
+        /** Emit the window, then keep the longest run of trailing words within the overlap. */
+        private void emit() {
+            int[] ids = new int[Math.min(tokens, budget)];
+            int n = 0;
+            for (Word word : words) {
+                int take = Math.min(word.pieces().length, ids.length - n);
+                System.arraycopy(word.pieces(), 0, ids, n, take);
+                n += take;
+            }
+            String chunkText = text.subSequence(words.getFirst().start(), words.getLast().end()).toString();
+            sink.accept(new ContentChunk(UUID.randomUUID().toString(), chunkText, ids.length, false, ids));
+
+            int keep = 0;
+            int kept = 0;
+            for (Iterator<Word> it = words.descendingIterator(); it.hasNext(); ) {
+                int size = it.next().pieces().length;
+                if (kept + size > overlap) {
+                    break;
+                }
+                kept += size;
+                keep++;
+            }
+            while (words.size() > keep) {
+                words.removeFirst();
+            }
+            tokens = kept;
+            carried = keep;
+        }
+    }
+}
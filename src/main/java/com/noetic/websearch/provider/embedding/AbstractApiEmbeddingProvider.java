@@ -4,16 +4,37 @@ import com.noetic.websearch.model.*;
 import com.noetic.websearch.provider.EmbeddingProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 
+import java.io.IOException;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Shared base for API-key authenticated embedding providers (OpenAI, Cohere, Voyage).
  * Handles HTTP client, API key header, rate limiting, retry, and batch splitting.
+ *
+ * <p>{@link #embedBatch} splits a request into sub-batches of at most
+ * {@code capabilities().maxBatchSize()} texts and roughly
+ * {@code websearch.embedding.api.max-batch-tokens} tokens, sends up to
+ * {@code max-concurrent-requests} of them at once with
+ * {@link HttpClient#sendAsync}, and reassembles the results in request order.
+ * Rate limits (429), server errors (5xx) and I/O failures are retried with
+ * exponential backoff and jitter, waiting as long as a {@code Retry-After}
+ * header asks when one is sent.</p>
  */
 public abstract class AbstractApiEmbeddingProvider implements EmbeddingProvider {
 
@@ -23,12 +44,39 @@ public abstract class AbstractApiEmbeddingProvider implements EmbeddingProvider
             .connectTimeout(Duration.ofSeconds(10))
             .build();
 
+    /** Sub-batches in flight at once per {@link #embedBatch} call. */
+    @Value("${websearch.embedding.api.max-concurrent-requests:4}")
+    private int maxConcurrentRequests = 4;
+
+    /** Estimated tokens per sub-batch; 0 splits by batch size only. */
+    @Value("${websearch.embedding.api.max-batch-tokens:100000}")
+    private int maxBatchTokens = 100_000;
+
+    /** Retries per sub-batch after the first attempt. */
+    @Value("${websearch.embedding.api.max-retries:5}")
+    private int maxRetries = 5;
+
+    @Value("${websearch.embedding.api.initial-backoff-ms:500}")
+    private long initialBackoffMs = 500;
+
+    @Value("${websearch.embedding.api.max-backoff-ms:30000}")
+    private long maxBackoffMs = 30_000;
+
     protected abstract String baseUrl();
     protected abstract String apiKey();
     protected abstract HttpRequest buildRequest(EmbeddingBatchRequest request);
     protected abstract List<EmbeddingResult> parseResponse(HttpResponse<String> response);
     protected abstract String mapInputType(InputType inputType);
 
+    /**
+     * Rough token count used for the per-request token budget; about four
+     * characters per token for English text. Providers with a tokenizer can
+     * override this.
+     */
+    protected int estimateTokens(String text) {
+        return text.length() / 4 + 1;
+    }
+
     @Override
     public EmbeddingResult embed(EmbeddingRequest request) {
         var batchRequest = new EmbeddingBatchRequest(
@@ -40,28 +88,155 @@ public abstract class AbstractApiEmbeddingProvider implements EmbeddingProvider
 
     @Override
     public List<EmbeddingResult> embedBatch(EmbeddingBatchRequest request) {
+        List<EmbeddingBatchRequest> parts = split(request);
+        List<CompletableFuture<List<EmbeddingResult>>> pending = new ArrayList<>(parts.size());
+        Semaphore permits = new Semaphore(Math.max(1, maxConcurrentRequests));
         try {
-            HttpRequest httpRequest = buildRequest(request);
-            HttpResponse<String> response = httpClient.send(httpRequest,
-                    HttpResponse.BodyHandlers.ofString());
-
-            if (response.statusCode() == 429) {
-                log.warn("Rate limited by {}, retrying after delay", type());
-                Thread.sleep(2000);
-                response = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString());
+            for (EmbeddingBatchRequest part : parts) {
+                permits.acquire();
+                if (pending.stream().anyMatch(CompletableFuture::isCompletedExceptionally)) {
+                    permits.release();
+                    break; // a sub-batch already failed: don't send the rest
+                }
+                pending.add(send(part, 0).whenComplete((results, error) -> permits.release()));
             }
 
-            if (response.statusCode() >= 400) {
-                throw new RuntimeException("Embedding API error " + response.statusCode()
-                        + " from " + type() + ": " + response.body());
+            List<EmbeddingResult> all = new ArrayList<>(request.texts().size());
+            for (CompletableFuture<List<EmbeddingResult>> future : pending) {
+                all.addAll(future.join());
             }
-
-            return parseResponse(response);
+            return all;
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
+            pending.forEach(future -> future.cancel(true));
             throw new RuntimeException("Embedding interrupted", e);
-        } catch (Exception e) {
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw new RuntimeException("Embedding failed via " + type() + ": " + cause.getMessage(), cause);
+        } catch (RuntimeException e) {
             throw new RuntimeException("Embedding failed via " + type() + ": " + e.getMessage(), e);
         }
     }
+
+    // ---- Batching ----
+
+    /**
+     * Split a request into consecutive sub-batches within the provider's batch
+     * size and the token budget. A single text over the budget is sent alone.
+     */
+    List<EmbeddingBatchRequest> split(EmbeddingBatchRequest request) {
+        int maxBatch = capabilities().maxBatchSize() > 0 ? capabilities().maxBatchSize() : Integer.MAX_VALUE;
+        List<String> texts = request.texts();
+        List<EmbeddingBatchRequest> parts = new ArrayList<>();
+        int start = 0;
+        long tokens = 0;
+        for (int i = 0; i < texts.size(); i++) {
+            int textTokens = estimateTokens(texts.get(i));
+            boolean full = i - start == maxBatch
+                    || (maxBatchTokens > 0 && i > start && tokens + textTokens > maxBatchTokens);
+            if (full) {
+                parts.add(subRequest(request, start, i));
+                start = i;
+                tokens = 0;
+            }
+            tokens += textTokens;
+        }
+        parts.add(subRequest(request, start, texts.size()));
+        return parts;
+    }
+
+    private static EmbeddingBatchRequest subRequest(EmbeddingBatchRequest request, int from, int to) {
+        if (from == 0 && to == request.texts().size()) {
+            return request;
+        }
+        return new EmbeddingBatchRequest(request.texts().subList(from, to), request.inputType(),
+                request.outputDimensions(), request.extra());
+    }
+
+    // ---- Sending and retry ----
+
+    private CompletableFuture<List<EmbeddingResult>> send(EmbeddingBatchRequest part, int attempt) {
+        return httpClient.sendAsync(buildRequest(part), HttpResponse.BodyHandlers.ofString())
+                .handle((response, error) -> {
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause() : error;
+                        if (cause instanceof IOException && attempt < maxRetries) {
+                            Duration delay = backoff(attempt);
+                            log.warn("Request to {} failed ({}), retry {} of {} in {} ms",
+                                    type(), cause.getMessage(), attempt + 1, maxRetries, delay.toMillis());
+                            return retry(part, attempt, delay);
+                        }
+                        return CompletableFuture.<List<EmbeddingResult>>failedFuture(cause);
+                    }
+
+                    int status = response.statusCode();
+                    if (isRetryable(status) && attempt < maxRetries) {
+                        Duration delay = retryAfter(response.headers().firstValue("Retry-After").orElse(null),
+                                Instant.now());
+                        if (delay == null) {
+                            delay = backoff(attempt);
+                        }
+                        log.warn("{} from {}, retry {} of {} in {} ms",
+                                status == 429 ? "Rate limited" : "Error " + status, type(),
+                                attempt + 1, maxRetries, delay.toMillis());
+                        return retry(part, attempt, delay);
+                    }
+                    if (status >= 400) {
+                        return CompletableFuture.<List<EmbeddingResult>>failedFuture(new RuntimeException(
+                                "Embedding API error " + status + " from " + type() + ": " + response.body()));
+                    }
+
+                    List<EmbeddingResult> results = parseResponse(response);
+                    if (results.size() != part.texts().size()) {
+                        return CompletableFuture.<List<EmbeddingResult>>failedFuture(new IllegalStateException(
+                                "Expected " + part.texts().size() + " embeddings from " + type()
+                                        + " but got " + results.size()));
+                    }
+                    return CompletableFuture.completedFuture(results);
+                })
+                .thenCompose(future -> future);
+    }
+
+    private CompletableFuture<List<EmbeddingResult>> retry(EmbeddingBatchRequest part, int attempt, Duration delay) {
+        return CompletableFuture.supplyAsync(() -> null,
+                        CompletableFuture.delayedExecutor(delay.toMillis(), TimeUnit.MILLISECONDS))
+                .thenCompose(ignored -> send(part, attempt + 1));
+    }
+
+    private static boolean isRetryable(int status) {
+        return status == 429 || status == 500 || status == 502 || status == 503 || status == 504;
+    }
+
+    /**
+     * Exponential backoff with jitter: a random delay between half and all of
+     * {@code initialBackoff * 2^attempt}, capped at the maximum backoff.
+     */
+    Duration backoff(int attempt) {
+        long ceiling = Math.min(maxBackoffMs, initialBackoffMs << Math.min(attempt, 20));
+        long half = ceiling / 2;
+        return Duration.ofMillis(half + ThreadLocalRandom.current().nextLong(ceiling - half + 1));
+    }
+
+    /**
+     * Parse a {@code Retry-After} header: delay seconds or an HTTP date.
+     *
+     * @return the delay, or null if the header is absent or unparseable
+     */
+    static Duration retryAfter(String value, Instant now) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(value.trim())));
+        } catch (NumberFormatException e) {
+            // not delay-seconds; try an HTTP date
+        }
+        try {
+            Instant at = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+            return at.isAfter(now) ? Duration.between(now, at) : Duration.ZERO;
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
 }
@@ -1,21 +1,27 @@
 package com.noetic.websearch.provider.embedding;
 
+import com.noetic.websearch.provider.Tokenizer;
+
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.text.Normalizer;
-import java.util.ArrayList;
-import java.util.LinkedHashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.Arrays;
 
 /**
  * Pure Java BERT WordPiece tokenizer.
  *
  * <p>Implements the same tokenization pipeline as the HuggingFace BERT tokenizer:
  * normalize, basic tokenize (whitespace + punctuation), WordPiece sub-tokenize,
- * then encode with special tokens [CLS]/[SEP] and padding.</p>
+ * then encode with special tokens [CLS]/[SEP]. Padding is applied per batch,
+ * only up to the longest sequence in it.</p>
+ *
+ * <p>The vocabulary is a {@link VocabularyTrie}, so greedy longest-match walks
+ * the text in place instead of looking up every candidate substring. Pure-ASCII
+ * input skips Unicode normalization (lowercasing is done during the walk), and
+ * IDs are written to a primitive buffer; scanning stops once the sequence is
+ * full, so long crawled pages cost no more than their first 512 tokens.</p>
  *
  * <p>This avoids the Rust JNI dependency ({@code ai.djl.huggingface:tokenizers})
  * which crashes in GraalVM native image.</p>
@@ -23,7 +29,7 @@ import java.util.Map;
  * <p>Compatible with all BERT-based models using uncased WordPiece vocabularies
  * (all-MiniLM-L6-v2, BERT-base-uncased, etc.).</p>
  */
-public class BertWordPieceTokenizer {
+public class BertWordPieceTokenizer implements Tokenizer {
 
     private static final String UNK_TOKEN = "[UNK]";
     private static final String CLS_TOKEN = "[CLS]";
@@ -32,13 +38,30 @@ public class BertWordPieceTokenizer {
     private static final String WORDPIECE_PREFIX = "##";
     private static final int MAX_WORD_LENGTH = 200;
 
-    private final Map<String, Integer> vocab;
+    // Character classes after cleaning: separators are dropped, punctuation and CJK stand alone
+    private static final byte WORD = 0;
+    private static final byte SPACE = 1;
+    private static final byte SINGLE = 2;
+    private static final byte[] ASCII_CLASS = new byte[128];
+
+    static {
+        for (char c = 0; c < 128; c++) {
+            ASCII_CLASS[c] = classify(c);
+        }
+    }
+
+    private final VocabularyTrie vocab;
+    /** Trie node for the ## prefix: continuation pieces are matched from here. */
+    private final int continuationRoot;
     private final int clsId;
     private final int sepId;
     private final int padId;
     private final int unkId;
     private final int maxLength;
 
+    /** Per-thread ID buffer for {@link #tokenIds(String)}; sized to {@code maxLength}. */
+    private final ThreadLocal<int[]> buffers;
+
     /**
      * Create a tokenizer from a vocab.txt file.
      *
@@ -47,68 +70,111 @@ public class BertWordPieceTokenizer {
      */
     public BertWordPieceTokenizer(Path vocabPath, int maxLength) throws IOException {
         this.vocab = loadVocab(vocabPath);
+        this.continuationRoot = vocab.node(WORDPIECE_PREFIX);
         this.maxLength = maxLength;
-        this.clsId = vocab.getOrDefault(CLS_TOKEN, 101);
-        this.sepId = vocab.getOrDefault(SEP_TOKEN, 102);
-        this.padId = vocab.getOrDefault(PAD_TOKEN, 0);
-        this.unkId = vocab.getOrDefault(UNK_TOKEN, 100);
+        this.clsId = idOrDefault(CLS_TOKEN, 101);
+        this.sepId = idOrDefault(SEP_TOKEN, 102);
+        this.padId = idOrDefault(PAD_TOKEN, 0);
+        this.unkId = idOrDefault(UNK_TOKEN, 100);
+        this.buffers = ThreadLocal.withInitial(() -> new int[Math.max(maxLength, 2)]);
     }
 
     /**
-     * Encode text into BERT input tensors.
+     * Encode text into BERT input tensors, unpadded: the arrays are exactly as
+     * long as the token sequence.
      *
      * @param text the input text
      * @return encoding with inputIds, attentionMask, and tokenTypeIds
      */
     public Encoding encode(String text) {
-        // 1. Normalize: lowercase + strip accents
-        String normalized = normalize(text);
+        long[] inputIds = tokenIds(text);
+        long[] attentionMask = new long[inputIds.length];
+        Arrays.fill(attentionMask, 1);
+        return new Encoding(inputIds, attentionMask, new long[inputIds.length]);
+    }
 
-        // 2. Basic tokenize: whitespace + punctuation split
-        List<String> basicTokens = basicTokenize(normalized);
-
-        // 3. WordPiece sub-tokenize
-        List<Integer> tokenIds = new ArrayList<>();
-        tokenIds.add(clsId); // [CLS]
-
-        for (String token : basicTokens) {
-            List<Integer> subIds = wordPieceTokenize(token);
-            // Check if adding these would exceed maxLength - 1 (reserve for [SEP])
-            if (tokenIds.size() + subIds.size() >= maxLength - 1) {
-                // Add as many as fit
-                int remaining = maxLength - 1 - tokenIds.size();
-                for (int i = 0; i < remaining && i < subIds.size(); i++) {
-                    tokenIds.add(subIds.get(i));
-                }
-                break;
-            }
-            tokenIds.addAll(subIds);
+    /**
+     * Tokenize text to vocabulary IDs wrapped in [CLS] ... [SEP], truncated to
+     * {@code maxLength} and not padded.
+     */
+    public long[] tokenIds(String text) {
+        int[] buffer = buffers.get();
+        int count = tokenIds(text, buffer);
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = buffer[i];
         }
+        return ids;
+    }
 
-        tokenIds.add(sepId); // [SEP]
+    /**
+     * Tokenize text into {@code buffer}: [CLS], then as many WordPiece IDs as
+     * fit in {@code min(maxLength, buffer.length)}, then [SEP].
+     *
+     * @return the number of IDs written
+     */
+    public int tokenIds(String text, int[] buffer) {
+        int limit = Math.min(maxLength, buffer.length);
+        if (limit < 2) {
+            throw new IllegalArgumentException("Buffer must hold at least [CLS] and [SEP]: " + limit);
+        }
+        buffer[0] = clsId;
+        int count = 1 + wordPieceIds(normalize(text), buffer, 1, limit - 1);
+        buffer[count++] = sepId;
+        return count;
+    }
 
-        int seqLen = tokenIds.size();
+    /**
+     * Tokenize the whole text to WordPiece IDs, without [CLS]/[SEP] and without
+     * truncation, for callers that split long inputs into windows.
+     */
+    public int[] wordPieceIds(String text) {
+        String normalized = normalize(text);
+        // Every piece consumes at least one character, so this never overflows
+        int[] ids = new int[normalized.length()];
+        return Arrays.copyOf(ids, wordPieceIds(normalized, ids, 0, ids.length));
+    }
 
-        // 4. Pad to maxLength
-        long[] inputIds = new long[maxLength];
-        long[] attentionMask = new long[maxLength];
-        long[] tokenTypeIds = new long[maxLength]; // all zeros for single segment
+    /** Same as {@link #wordPieceIds}. */
+    @Override
+    public int[] tokenize(String text) {
+        return wordPieceIds(text);
+    }
 
-        for (int i = 0; i < seqLen; i++) {
-            inputIds[i] = tokenIds.get(i);
-            attentionMask[i] = 1;
-        }
-        for (int i = seqLen; i < maxLength; i++) {
-            inputIds[i] = padId;
-            attentionMask[i] = 0;
+    /** Wrap {@code pieces[from, to)} from {@link #wordPieceIds} in [CLS] ... [SEP]. */
+    public long[] sequence(int[] pieces, int from, int to) {
+        long[] ids = new long[to - from + 2];
+        ids[0] = clsId;
+        for (int i = from; i < to; i++) {
+            ids[i - from + 1] = pieces[i];
         }
+        ids[ids.length - 1] = sepId;
+        return ids;
+    }
 
-        return new Encoding(inputIds, attentionMask, tokenTypeIds);
+    /** Longest {@link #tokenIds} sequence, including [CLS] and [SEP]. */
+    public int maxLength() {
+        return maxLength;
+    }
+
+    /** {@link #maxLength()} less [CLS] and [SEP]. */
+    @Override
+    public int maxTokens() {
+        return maxLength - 2;
+    }
+
+    /** ID of the [PAD] token, for callers that pad batches of {@link #tokenIds} output. */
+    public long padId() {
+        return padId;
     }
 
     // ---- Normalization ----
 
-    private String normalize(String text) {
+    /** Lowercase and strip accents; pure-ASCII text is returned as is and lowercased while matching. */
+    private static String normalize(String text) {
+        if (isAscii(text)) {
+            return text;
+        }
         // Lowercase
         String lower = text.toLowerCase();
         // Strip accents: NFD decompose, then remove combining marks
@@ -123,92 +189,105 @@ public class BertWordPieceTokenizer {
         return sb.toString();
     }
 
-    // ---- Basic Tokenization ----
-
-    /**
-     * Split on whitespace and punctuation. Punctuation characters become
-     * separate tokens. Whitespace is consumed.
-     */
-    private List<String> basicTokenize(String text) {
-        // Clean: replace control chars and zero-width chars with space
-        StringBuilder cleaned = new StringBuilder(text.length());
+    private static boolean isAscii(String text) {
         for (int i = 0; i < text.length(); i++) {
-            char c = text.charAt(i);
-            if (c == 0 || c == 0xFFFD || Character.isISOControl(c)) {
-                cleaned.append(' ');
-            } else if (Character.isWhitespace(c)) {
-                cleaned.append(' ');
-            } else {
-                cleaned.append(c);
+            if (text.charAt(i) >= 128) {
+                return false;
             }
         }
+        return true;
+    }
 
-        // Add whitespace around punctuation and CJK characters
-        StringBuilder spaced = new StringBuilder(cleaned.length() * 2);
-        for (int i = 0; i < cleaned.length(); i++) {
-            char c = cleaned.charAt(i);
-            if (isPunctuation(c) || isCjkCharacter(c)) {
-                spaced.append(' ').append(c).append(' ');
-            } else {
-                spaced.append(c);
-            }
-        }
+    // ---- Basic + WordPiece Tokenization ----
 
-        // Split on whitespace
-        List<String> tokens = new ArrayList<>();
-        for (String token : spaced.toString().split("\\s+")) {
-            if (!token.isEmpty()) {
-                tokens.add(token);
+    /**
+     * Split normalized text on whitespace and punctuation, WordPiece each word
+     * and write the IDs from {@code offset}, stopping at {@code limit}.
+     * Punctuation and CJK characters are words of their own.
+     *
+     * @return the number of IDs written
+     */
+    private int wordPieceIds(String text, int[] ids, int offset, int limit) {
+        int count = offset;
+        int length = text.length();
+        int i = 0;
+        while (i < length && count < limit) {
+            char c = text.charAt(i);
+            byte type = c < 128 ? ASCII_CLASS[c] : classify(c);
+            if (type == SPACE) {
+                i++;
+            } else if (type == SINGLE) {
+                count = wordPiece(text, i, i + 1, ids, count, limit);
+                i++;
+            } else {
+                int end = i + 1;
+                while (end < length) {
+                    char next = text.charAt(end);
+                    if ((next < 128 ? ASCII_CLASS[next] : classify(next)) != WORD) {
+                        break;
+                    }
+                    end++;
+                }
+                count = wordPiece(text, i, end, ids, count, limit);
+                i = end;
             }
         }
-        return tokens;
+        return count - offset;
     }
 
-    // ---- WordPiece Tokenization ----
-
     /**
-     * Apply the WordPiece algorithm to a single basic token.
-     * Greedily matches the longest prefix in the vocabulary.
+     * Apply the WordPiece algorithm to the word {@code text[from, to)}: greedily
+     * take the longest vocabulary entry at each position, continuation pieces
+     * being looked up with the ## prefix. A character no entry starts with
+     * becomes [UNK].
+     *
+     * @return the new ID count
      */
-    private List<Integer> wordPieceTokenize(String token) {
-        if (token.length() > MAX_WORD_LENGTH) {
-            return List.of(unkId);
+    private int wordPiece(String text, int from, int to, int[] ids, int count, int limit) {
+        if (to - from > MAX_WORD_LENGTH) {
+            ids[count++] = unkId;
+            return count;
         }
-
-        List<Integer> ids = new ArrayList<>();
-        int start = 0;
-        while (start < token.length()) {
-            int end = token.length();
-            Integer foundId = null;
-
-            while (start < end) {
-                String substr = token.substring(start, end);
-                if (start > 0) {
-                    substr = WORDPIECE_PREFIX + substr;
+        int start = from;
+        while (start < to && count < limit) {
+            int node = start == from ? VocabularyTrie.ROOT : continuationRoot;
+            int foundId = -1;
+            int foundEnd = start;
+            for (int i = start; i < to && node >= 0; i++) {
+                node = vocab.child(node, lower(text.charAt(i)));
+                if (node >= 0 && vocab.id(node) >= 0) {
+                    foundId = vocab.id(node);
+                    foundEnd = i + 1;
                 }
-                Integer id = vocab.get(substr);
-                if (id != null) {
-                    foundId = id;
-                    break;
-                }
-                end--;
             }
 
-            if (foundId == null) {
+            if (foundId < 0) {
                 // Character not in vocab at all
-                ids.add(unkId);
+                ids[count++] = unkId;
                 start++;
             } else {
-                ids.add(foundId);
-                start = end;
+                ids[count++] = foundId;
+                start = foundEnd;
             }
         }
-        return ids;
+        return count;
     }
 
     // ---- Character Classification ----
 
-    private boolean isPunctuation(char c) {
+    private static char lower(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    /** Control and zero-width characters count as whitespace, as in HuggingFace's cleaning step. */
+    private static byte classify(char c) {
+        if (c == 0 || c == 0xFFFD || Character.isISOControl(c) || Character.isWhitespace(c)) {
+            return SPACE;
+        }
+        return isPunctuation(c) || isCjkCharacter(c) ? SINGLE : WORD;
+    }
+
+    private static boolean isPunctuation(char c) {
         int type = Character.getType(c);
         // ASCII punctuation range
         if ((c >= 33 && c <= 47) || (c >= 58 && c <= 64) ||
@@ -225,18 +304,17 @@ public class BertWordPieceTokenizer {
                 type == Character.FINAL_QUOTE_PUNCTUATION;
     }
 
-    private boolean isCjkCharacter(char c) {
+    private static boolean isCjkCharacter(char c) {
         // CJK Unified Ideographs and common CJK ranges
         return (c >= 0x4E00 && c <= 0x9FFF) ||
                 (c >= 0x3400 && c <= 0x4DBF) ||
-                (c >= 0xF900 && c <= 0xFAFF) ||
-                (c >= 0x2F800 && c <= 0x2FA1F);
+                (c >= 0xF900 && c <= 0xFAFF);
     }
 
     // ---- Vocabulary Loading ----
 
-    private static Map<String, Integer> loadVocab(Path vocabPath) throws IOException {
-        Map<String, Integer> vocab = new LinkedHashMap<>();
+    private static VocabularyTrie loadVocab(Path vocabPath) throws IOException {
+        VocabularyTrie vocab = new VocabularyTrie();
         try (BufferedReader reader = Files.newBufferedReader(vocabPath)) {
             String line;
             int id = 0;
@@ -247,6 +325,11 @@ public class BertWordPieceTokenizer {
         return vocab;
     }
 
+    private int idOrDefault(String token, int defaultId) {
+        int id = vocab.get(token);
+        return id >= 0 ? id : defaultId;
+    }
+
     // ---- Result Record ----
 
     /**
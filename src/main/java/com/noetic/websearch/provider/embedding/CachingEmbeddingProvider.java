@@ -0,0 +1,284 @@
+package com.noetic.websearch.provider.embedding;
+
+import com.noetic.websearch.model.*;
+import com.noetic.websearch.provider.EmbeddingProvider;
+import com.noetic.websearch.provider.Tokenizer;
+import com.noetic.websearch.provider.embedding.EmbeddingDiskCache.CachedEmbedding;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decorator that remembers embeddings, so recurring queries, snippets repeated
+ * across search results and re-crawled chunks are embedded once.
+ *
+ * <p>Entries are keyed by a 128-bit hash of the model, its dimensions, the
+ * input type, the requested output dimensions and the text. Lookups try an
+ * in-memory LRU tier first, then an optional {@link EmbeddingDiskCache} that
+ * survives restarts. Requests carrying provider-specific {@code extra}
+ * parameters bypass the cache, except pre-tokenized input
+ * ({@link EmbeddingBatchRequest#EXTRA_TOKEN_IDS}), which never changes the
+ * vector: only the misses' IDs are passed on.</p>
+ */
+public class CachingEmbeddingProvider implements EmbeddingProvider, Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(CachingEmbeddingProvider.class);
+
+    private final EmbeddingProvider delegate;
+    private final Map<Key, CachedEmbedding> memory;
+    private final int maxEntries;
+    private final EmbeddingDiskCache disk;
+
+    private final LongAdder memoryHits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param delegate   provider that computes misses
+     * @param maxEntries in-memory capacity; 0 disables the memory tier
+     * @param diskFile   disk tier file, or null for memory only
+     * @param diskMaxEntries disk tier capacity
+     */
+    public CachingEmbeddingProvider(EmbeddingProvider delegate, int maxEntries, Path diskFile, int diskMaxEntries) {
+        this.delegate = delegate;
+        this.maxEntries = Math.max(0, maxEntries);
+        this.memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CachedEmbedding> eldest) {
+                return size() > CachingEmbeddingProvider.this.maxEntries;
+            }
+        };
+        this.disk = diskFile == null ? null : openDisk(diskFile, delegate.dimensions(), diskMaxEntries);
+    }
+
+    @Override
+    public String type() {
+        return delegate.type();
+    }
+
+    @Override
+    public EmbeddingCapabilities capabilities() {
+        return delegate.capabilities();
+    }
+
+    @Override
+    public EmbeddingResult embed(EmbeddingRequest request) {
+        if (!cacheable(request.extra())) {
+            return delegate.embed(request);
+        }
+        Key key = key(request.text(), request.inputType(), request.outputDimensions());
+        CachedEmbedding cached = lookup(key);
+        if (cached != null) {
+            return result(cached);
+        }
+        misses.increment();
+        EmbeddingResult result = delegate.embed(request);
+        store(key, result);
+        return result;
+    }
+
+    /** Looks up every text, then embeds the distinct misses in one delegate call. */
+    @Override
+    public List<EmbeddingResult> embedBatch(EmbeddingBatchRequest request) {
+        if (!cacheable(request.extra())) {
+            return delegate.embedBatch(request);
+        }
+        List<String> texts = request.texts();
+        List<?> tokenIds = request.extra().get(EmbeddingBatchRequest.EXTRA_TOKEN_IDS) instanceof List<?> ids
+                && ids.size() == texts.size() ? ids : null;
+        List<Object> missingTokenIds = new ArrayList<>();
+        EmbeddingResult[] results = new EmbeddingResult[texts.size()];
+        Map<Key, List<Integer>> missing = new LinkedHashMap<>();
+        List<String> missingTexts = new ArrayList<>();
+        for (int i = 0; i < texts.size(); i++) {
+            Key key = key(texts.get(i), request.inputType(), request.outputDimensions());
+            List<Integer> rows = missing.get(key);
+            if (rows != null) {
+                rows.add(i); // repeated within the batch: embed once
+                continue;
+            }
+            CachedEmbedding cached = lookup(key);
+            if (cached != null) {
+                results[i] = result(cached);
+            } else {
+                misses.increment();
+                rows = new ArrayList<>(2);
+                rows.add(i);
+                missing.put(key, rows);
+                missingTexts.add(texts.get(i));
+                if (tokenIds != null) {
+                    missingTokenIds.add(tokenIds.get(i));
+                }
+            }
+        }
+
+        if (!missingTexts.isEmpty()) {
+            Map<String, Object> extra = tokenIds != null
+                    ? Map.of(EmbeddingBatchRequest.EXTRA_TOKEN_IDS, missingTokenIds) : Map.of();
+            List<EmbeddingResult> computed = delegate.embedBatch(new EmbeddingBatchRequest(
+                    missingTexts, request.inputType(), request.outputDimensions(), extra));
+            if (computed.size() != missingTexts.size()) {
+                throw new IllegalStateException("Expected " + missingTexts.size() + " embeddings from "
+                        + type() + " but got " + computed.size());
+            }
+            int next = 0;
+            for (Map.Entry<Key, List<Integer>> entry : missing.entrySet()) {
+                EmbeddingResult result = computed.get(next++);
+                store(entry.getKey(), result);
+                List<Integer> rows = entry.getValue();
+                results[rows.getFirst()] = result;
+                for (int r = 1; r < rows.size(); r++) {
+                    results[rows.get(r)] = copy(result);
+                }
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+
+    @Override
+    public String model() {
+        return delegate.model();
+    }
+
+    @Override
+    public Optional<Tokenizer> tokenizer() {
+        return delegate.tokenizer();
+    }
+
+    /** Hit and miss counts since startup. */
+    public CacheStats stats() {
+        int size;
+        synchronized (memory) {
+            size = memory.size();
+        }
+        return new CacheStats(memoryHits.sum(), diskHits.sum(), misses.sum(), size);
+    }
+
+    /** Flushes and closes the disk tier. The delegate is left open. */
+    @Override
+    public void close() {
+        if (disk != null) {
+            try {
+                disk.close();
+            } catch (IOException e) {
+                log.warn("Failed to close embedding disk cache {}: {}", disk.path(), e.getMessage());
+            }
+        }
+    }
+
+    // ---- Tiers ----
+
+    private CachedEmbedding lookup(Key key) {
+        CachedEmbedding cached = null;
+        if (maxEntries > 0) {
+            synchronized (memory) {
+                cached = memory.get(key);
+            }
+        }
+        if (cached != null) {
+            memoryHits.increment();
+            return cached;
+        }
+        if (disk != null) {
+            cached = disk.get(key.hi(), key.lo());
+            if (cached != null) {
+                diskHits.increment();
+                remember(key, cached);
+                return cached;
+            }
+        }
+        return null;
+    }
+
+    private void store(Key key, EmbeddingResult result) {
+        // Keep a private copy: callers own the vector they were handed
+        CachedEmbedding cached = new CachedEmbedding(result.vector().clone(), result.tokenCount());
+        remember(key, cached);
+        if (disk != null && cached.vector().length == disk.dimensions()) {
+            disk.put(key.hi(), key.lo(), cached.vector(), cached.tokenCount());
+        }
+    }
+
+    private void remember(Key key, CachedEmbedding cached) {
+        if (maxEntries > 0) {
+            synchronized (memory) {
+                memory.put(key, cached);
+            }
+        }
+    }
+
+    private EmbeddingResult result(CachedEmbedding cached) {
+        float[] vector = cached.vector().clone();
+        return new EmbeddingResult(vector, vector.length, cached.tokenCount(), model(), Map.of());
+    }
+
+    private static EmbeddingResult copy(EmbeddingResult result) {
+        return new EmbeddingResult(result.vector().clone(), result.dimensions(), result.tokenCount(),
+                result.model(), result.providerMeta());
+    }
+
+    private static EmbeddingDiskCache openDisk(Path file, int dimensions, int maxEntries) {
+        try {
+            EmbeddingDiskCache disk = EmbeddingDiskCache.open(file, dimensions, maxEntries);
+            log.info("Embedding disk cache opened at {} ({} dimensions)", file, dimensions);
+            return disk;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open embedding disk cache: " + file, e);
+        }
+    }
+
+    // ---- Keys ----
+
+    /** Only pre-tokenized input may ride along: any other extra parameter could change the vector. */
+    private static boolean cacheable(Map<String, Object> extra) {
+        return extra.isEmpty() || (extra.size() == 1 && extra.containsKey(EmbeddingBatchRequest.EXTRA_TOKEN_IDS));
+    }
+
+    /** First 128 bits of SHA-256 over the model, dimensions, input type and text. */
+    private Key key(String text, InputType inputType, Integer outputDimensions) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        digest.update((model() + '\0' + dimensions() + '\0' + inputType + '\0' + outputDimensions + '\0')
+                .getBytes(StandardCharsets.UTF_8));
+        ByteBuffer hash = ByteBuffer.wrap(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        long hi = hash.getLong();
+        long lo = hash.getLong();
+        return new Key(hi, lo == 0 && hi == 0 ? 1 : lo); // all-zero marks an empty disk slot
+    }
+
+    private record Key(long hi, long lo) {
+    }
+
+    /**
+     * Cache counters.
+     *
+     * @param memoryHits lookups served from memory
+     * @param diskHits   lookups served from the disk tier
+     * @param misses     texts passed to the wrapped provider
+     * @param memorySize entries currently held in memory
+     */
+    public record CacheStats(long memoryHits, long diskHits, long misses, int memorySize) {
+        public double hitRate() {
+            long total = memoryHits + diskHits + misses;
+            return total == 0 ? 0.0 : (double) (memoryHits + diskHits) / total;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.noetic.websearch.provider.embedding;
+
+import com.noetic.websearch.model.*;
+import com.noetic.websearch.provider.EmbeddingProvider;
+import com.noetic.websearch.provider.Tokenizer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decorator that coalesces concurrent single-text {@link #embed} calls into one
+ * {@link EmbeddingProvider#embedBatch} call on the wrapped provider.
+ *
+ * <p>The first caller to arrive opens a batch and becomes its leader; callers
+ * with the same input type, dimensions and extra parameters join it. The leader
+ * dispatches when the batch is full or {@code maxWait} has passed, on its own
+ * thread, and every caller then takes its row of the result. A leader only
+ * waits while other callers are in flight and could still join, so a lone
+ * sequential caller pays no added latency.</p>
+ *
+ * <p>Works with any provider that supports batching: the local ONNX model
+ * amortizes a forward pass, the HTTP providers a round trip. Batch calls pass
+ * straight through.</p>
+ */
+public class CoalescingEmbeddingProvider implements EmbeddingProvider {
+
+    private final EmbeddingProvider delegate;
+    private final long maxWaitNanos;
+    private final int maxBatchSize;
+
+    /** Open batches by request parameters; also the monitor leaders wait on. */
+    private final Map<BatchKey, PendingBatch> pending = new HashMap<>();
+
+    /** Callers currently inside {@link #embed}, batched or not yet. */
+    private int inFlight;
+
+    /**
+     * @param delegate     provider that runs the coalesced batches
+     * @param maxWaitMs    longest a batch leader waits for more callers
+     * @param maxBatchSize most texts per batch; 0 uses the delegate's maximum
+     */
+    public CoalescingEmbeddingProvider(EmbeddingProvider delegate, long maxWaitMs, int maxBatchSize) {
+        this.delegate = delegate;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxWaitMs));
+        EmbeddingCapabilities capabilities = delegate.capabilities();
+        int limit = capabilities.supportsBatch() ? Math.max(1, capabilities.maxBatchSize()) : 1;
+        this.maxBatchSize = maxBatchSize > 0 ? Math.min(maxBatchSize, limit) : limit;
+    }
+
+    @Override
+    public String type() {
+        return delegate.type();
+    }
+
+    @Override
+    public EmbeddingCapabilities capabilities() {
+        return delegate.capabilities();
+    }
+
+    @Override
+    public EmbeddingResult embed(EmbeddingRequest request) {
+        if (maxBatchSize <= 1) {
+            return delegate.embed(request);
+        }
+
+        BatchKey key = new BatchKey(request.inputType(), request.outputDimensions(), request.extra());
+        PendingBatch batch;
+        int row;
+        boolean leader;
+        synchronized (pending) {
+            inFlight++;
+            batch = pending.get(key);
+            leader = batch == null;
+            if (leader) {
+                batch = new PendingBatch();
+                pending.put(key, batch);
+            }
+            row = batch.texts.size();
+            batch.texts.add(request.text());
+            if (batch.texts.size() >= maxBatchSize) {
+                pending.remove(key);
+            }
+            pending.notifyAll();
+        }
+
+        try {
+            if (leader) {
+                awaitBatch(key, batch);
+                dispatch(key, batch);
+            }
+            return batch.results.join().get(row);
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new RuntimeException("Embedding failed via " + type() + ": " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            synchronized (pending) {
+                inFlight--;
+            }
+        }
+    }
+
+    @Override
+    public List<EmbeddingResult> embedBatch(EmbeddingBatchRequest request) {
+        return delegate.embedBatch(request);
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+
+    @Override
+    public String model() {
+        return delegate.model();
+    }
+
+    @Override
+    public Optional<Tokenizer> tokenizer() {
+        return delegate.tokenizer();
+    }
+
+    /**
+     * Wait until the batch is full, {@code maxWait} has passed, or every caller
+     * in flight has already joined it; then close it to newcomers.
+     */
+    private void awaitBatch(BatchKey key, PendingBatch batch) {
+        long deadline = System.nanoTime() + maxWaitNanos;
+        synchronized (pending) {
+            try {
+                while (pending.get(key) == batch && inFlight > batch.texts.size()) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(pending, remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt(); // dispatch what we have
+            } finally {
+                pending.remove(key, batch);
+            }
+        }
+    }
+
+    private void dispatch(BatchKey key, PendingBatch batch) {
+        try {
+            List<EmbeddingResult> results = delegate.embedBatch(new EmbeddingBatchRequest(
+                    List.copyOf(batch.texts), key.inputType(), key.outputDimensions(), key.extra()));
+            if (results.size() != batch.texts.size()) {
+                throw new IllegalStateException("Expected " + batch.texts.size() + " embeddings from "
+                        + type() + " but got " + results.size());
+            }
+            batch.results.complete(results);
+        } catch (RuntimeException e) {
+            batch.results.completeExceptionally(e);
+        }
+    }
+
+    /** Requests may only share a batch if the provider would treat them identically. */
+    private record BatchKey(InputType inputType, Integer outputDimensions, Map<String, Object> extra) {
+    }
+
+    /** Texts collected for one batch; closed once removed from {@link #pending}. */
+    private static final class PendingBatch {
+        final List<String> texts = new ArrayList<>();
+        final CompletableFuture<List<EmbeddingResult>> results = new CompletableFuture<>();
+    }
+}
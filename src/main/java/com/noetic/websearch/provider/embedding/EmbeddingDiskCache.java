@@ -0,0 +1,193 @@
+package com.noetic.websearch.provider.embedding;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Fixed-size, memory-mapped table of embedding vectors keyed by a 128-bit
+ * hash, so vectors survive process restarts and are shared by the CLI, MCP
+ * and server processes on one machine.
+ *
+ * <p>The file is a header followed by a power-of-two number of slots, each
+ * holding the key, the token count, a checksum and the vector. Keys are
+ * placed by open addressing over a short probe window; when the window is
+ * full, one of its slots is overwritten, so the file never grows and old
+ * entries are dropped roughly at random. Readers never lock: a slot is
+ * trusted only if its checksum matches, which also rejects slots torn by a
+ * crash or by another process writing the same slot.</p>
+ */
+final class EmbeddingDiskCache implements Closeable {
+
+    private static final long MAGIC = 0x4E4F455449434543L; // "NOETICEC"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int PROBES = 8;
+
+    // Slot layout: key hi (8) | key lo (8) | token count (4) | checksum (4) | vector
+    private static final int KEY_HI = 0;
+    private static final int KEY_LO = 8;
+    private static final int TOKENS = 16;
+    private static final int CHECKSUM = 20;
+    private static final int VECTOR = 24;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int dimensions;
+    private final int slots;
+    private final int slotBytes;
+
+    private EmbeddingDiskCache(Path path, FileChannel channel, MappedByteBuffer buffer, int dimensions, int slots) {
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.dimensions = dimensions;
+        this.slots = slots;
+        this.slotBytes = VECTOR + dimensions * Float.BYTES;
+    }
+
+    /**
+     * Opens the cache file at {@code path}, creating it if needed. A file
+     * written for other dimensions or another slot count is started afresh.
+     *
+     * @param maxEntries capacity, rounded up to a power of two
+     */
+    static EmbeddingDiskCache open(Path path, int dimensions, int maxEntries) throws IOException {
+        if (dimensions <= 0) {
+            throw new IllegalArgumentException("Dimensions must be positive: " + dimensions);
+        }
+        int slots = Integer.highestOneBit(Math.max(maxEntries - 1, PROBES)) << 1;
+        long size = HEADER_BYTES + (long) slots * (VECTOR + dimensions * Float.BYTES);
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Embedding disk cache of " + slots + " x " + dimensions
+                    + " floats exceeds 2 GB; lower max-entries");
+        }
+
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            boolean fresh = channel.size() != size;
+            if (fresh) {
+                channel.truncate(0);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (fresh || buffer.getLong(0) != MAGIC || buffer.getInt(8) != VERSION
+                    || buffer.getInt(12) != dimensions || buffer.getInt(16) != slots) {
+                for (long offset = HEADER_BYTES; offset < size; offset += VECTOR + dimensions * Float.BYTES) {
+                    buffer.putLong((int) offset + KEY_HI, 0L);
+                    buffer.putLong((int) offset + KEY_LO, 0L);
+                }
+                buffer.putInt(8, VERSION);
+                buffer.putInt(12, dimensions);
+                buffer.putInt(16, slots);
+                buffer.putLong(0, MAGIC); // written last: a crash mid-reset leaves an invalid header
+            }
+            return new EmbeddingDiskCache(path, channel, buffer, dimensions, slots);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    Path path() {
+        return path;
+    }
+
+    int dimensions() {
+        return dimensions;
+    }
+
+    /**
+     * Looks up a vector.
+     *
+     * @return the cached entry, or null if absent or unreadable
+     */
+    CachedEmbedding get(long hi, long lo) {
+        for (int probe = 0; probe < PROBES; probe++) {
+            int offset = slotOffset(hi, probe);
+            long slotHi = buffer.getLong(offset + KEY_HI);
+            long slotLo = buffer.getLong(offset + KEY_LO);
+            if (slotHi == 0 && slotLo == 0) {
+                return null;
+            }
+            if (slotHi == hi && slotLo == lo) {
+                float[] vector = new float[dimensions];
+                for (int d = 0; d < dimensions; d++) {
+                    vector[d] = buffer.getFloat(offset + VECTOR + d * Float.BYTES);
+                }
+                int tokenCount = buffer.getInt(offset + TOKENS);
+                if (buffer.getInt(offset + CHECKSUM) != checksum(lo, tokenCount, vector)
+                        || buffer.getLong(offset + KEY_LO) != lo) {
+                    return null;
+                }
+                return new CachedEmbedding(vector, tokenCount);
+            }
+        }
+        return null;
+    }
+
+    /** Stores a vector of exactly {@link #dimensions()} floats. */
+    synchronized void put(long hi, long lo, float[] vector, int tokenCount) {
+        int target = -1;
+        for (int probe = 0; probe < PROBES; probe++) {
+            int offset = slotOffset(hi, probe);
+            long slotHi = buffer.getLong(offset + KEY_HI);
+            long slotLo = buffer.getLong(offset + KEY_LO);
+            if ((slotHi == hi && slotLo == lo) || (slotHi == 0 && slotLo == 0)) {
+                target = offset;
+                break;
+            }
+        }
+        if (target < 0) {
+            target = slotOffset(hi, (int) (lo & (PROBES - 1)));
+        }
+
+        // Clear the key first so a reader never pairs it with a half-written vector
+        buffer.putLong(target + KEY_LO, 0L);
+        buffer.putLong(target + KEY_HI, 0L);
+        for (int d = 0; d < dimensions; d++) {
+            buffer.putFloat(target + VECTOR + d * Float.BYTES, vector[d]);
+        }
+        buffer.putInt(target + TOKENS, tokenCount);
+        buffer.putInt(target + CHECKSUM, checksum(lo, tokenCount, vector));
+        buffer.putLong(target + KEY_HI, hi);
+        buffer.putLong(target + KEY_LO, lo);
+    }
+
+    /** Flushes dirty pages to disk and closes the file. */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            buffer.force();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private int slotOffset(long hi, int probe) {
+        int slot = (int) ((hi + probe) & (slots - 1));
+        return HEADER_BYTES + slot * slotBytes;
+    }
+
+    private static int checksum(long lo, int tokenCount, float[] vector) {
+        int h = Long.hashCode(lo) * 31 + tokenCount;
+        for (float v : vector) {
+            h = h * 31 + Float.floatToRawIntBits(v);
+        }
+        return h;
+    }
+
+    /** A vector read back from a cache tier. */
+    record CachedEmbedding(float[] vector, int tokenCount) {
+    }
+}
@@ -0,0 +1,90 @@
+package com.noetic.websearch.provider.embedding;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.List;
+
+/**
+ * Reusable direct buffers holding one padded [batch, length] BERT input:
+ * input IDs, attention mask and token type IDs, row-major.
+ *
+ * <p>Buffers grow to the largest batch seen and are then refilled in place, so
+ * steady-state inference does not allocate input tensors. Direct, native-order
+ * memory lets ONNX Runtime wrap them without a copy. Not thread-safe: each
+ * pooled inference slot owns one instance.</p>
+ */
+final class InputBuffers {
+
+    private LongBuffer inputIds = allocate(0);
+    private LongBuffer attentionMask = allocate(0);
+    private LongBuffer tokenTypeIds = allocate(0); // single segment: stays all zeros
+    private int batchSize;
+    private int seqLength;
+
+    /**
+     * Load token sequences, padding each with {@code padId} up to the longest
+     * one. Afterwards each buffer is positioned at 0 with exactly
+     * {@code batchSize * seqLength} elements remaining.
+     */
+    void load(List<long[]> sequences, long padId) {
+        int length = 0;
+        for (long[] sequence : sequences) {
+            length = Math.max(length, sequence.length);
+        }
+        int size = sequences.size() * length;
+        ensureCapacity(size);
+
+        inputIds.clear();
+        attentionMask.clear();
+        for (long[] sequence : sequences) {
+            for (int i = 0; i < length; i++) {
+                boolean real = i < sequence.length;
+                inputIds.put(real ? sequence[i] : padId);
+                attentionMask.put(real ? 1 : 0);
+            }
+        }
+        inputIds.flip();
+        attentionMask.flip();
+        tokenTypeIds.clear().limit(size);
+
+        this.batchSize = sequences.size();
+        this.seqLength = length;
+    }
+
+    LongBuffer inputIds() {
+        return inputIds;
+    }
+
+    LongBuffer attentionMask() {
+        return attentionMask;
+    }
+
+    LongBuffer tokenTypeIds() {
+        return tokenTypeIds;
+    }
+
+    int batchSize() {
+        return batchSize;
+    }
+
+    int seqLength() {
+        return seqLength;
+    }
+
+    private void ensureCapacity(int size) {
+        if (inputIds.capacity() >= size) {
+            return;
+        }
+        int capacity = Integer.highestOneBit(Math.max(size - 1, 1)) << 1;
+        inputIds = allocate(capacity);
+        attentionMask = allocate(capacity);
+        tokenTypeIds = allocate(capacity);
+    }
+
+    private static LongBuffer allocate(int elements) {
+        return ByteBuffer.allocateDirect(elements * Long.BYTES)
+                .order(ByteOrder.nativeOrder())
+                .asLongBuffer();
+    }
+}
@@ -0,0 +1,36 @@
+package com.noetic.websearch.provider.embedding;
+
+/**
+ * How {@link OnnxEmbeddingProvider} embeds texts longer than the model's
+ * 512-token window. Set globally with {@code websearch.embedding.onnx.long-text.mode}
+ * or per request with the {@code longText} entry of the request's extra parameters.
+ */
+public enum LongTextMode {
+    /** Embed only the first window; the rest of the text is dropped. */
+    TRUNCATE,
+    /**
+     * Embed overlapping windows in one batched inference and average them,
+     * weighted by tokens per window, into a single vector.
+     */
+    POOL,
+    /**
+     * Embed overlapping windows and return each window's vector as well, under
+     * {@link OnnxEmbeddingProvider#META_WINDOW_VECTORS}; the main vector is pooled.
+     */
+    WINDOWS;
+
+    /**
+     * Parse a mode string ({@code truncate}, {@code pool}, {@code windows}),
+     * returning POOL for null/unknown values.
+     */
+    public static LongTextMode parse(String value) {
+        if (value == null || value.isBlank()) {
+            return POOL;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return POOL;
+        }
+    }
+}
@@ -3,13 +3,21 @@ package com.noetic.websearch.provider.embedding;
 import ai.djl.inference.Predictor;
 import ai.djl.ndarray.NDList;
 import ai.djl.ndarray.NDManager;
+import ai.djl.ndarray.types.DataType;
+import ai.djl.ndarray.types.Shape;
 import ai.djl.repository.zoo.Criteria;
 import ai.djl.repository.zoo.ZooModel;
 import ai.djl.translate.Batchifier;
 import ai.djl.translate.Translator;
 import ai.djl.translate.TranslatorContext;
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import com.noetic.websearch.kernel.VectorKernels;
 import com.noetic.websearch.model.*;
 import com.noetic.websearch.provider.EmbeddingProvider;
+import com.noetic.websearch.provider.Tokenizer;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
@@ -19,12 +27,22 @@ import org.springframework.stereotype.Component;
 
 import java.io.InputStream;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 /**
  * Local embedding provider using DJL with ONNX Runtime for the all-MiniLM-L6-v2 model.
@@ -36,6 +54,35 @@ import java.util.Map;
  * <p>The model and tokenizer are downloaded from Hugging Face on first use (~23MB)
  * and cached at {@code ~/.websearch/models/}. Subsequent startups use the cached files.</p>
  *
+ * <p>Inputs are padded only to the longest sequence in a forward pass, and
+ * {@link #embedBatch} runs each bucket of similar-length texts as one [B, L]
+ * inference instead of one 1x512 pass per text.</p>
+ *
+ * <p>Inference runs on a bounded pool of long-lived predictors (one per core by
+ * default), each with its own reusable direct input buffers, so concurrent
+ * callers scale across cores without per-call predictor setup.</p>
+ *
+ * <p>With {@code websearch.embedding.onnx.engine=ort} the provider bypasses
+ * DJL and calls the ONNX Runtime session API directly, reading the hidden
+ * states in place from a direct output buffer. The DJL path stays selectable
+ * for parity checks.</p>
+ *
+ * <p>{@code websearch.embedding.onnx.variant=int8} swaps in the dynamically
+ * quantized export of the same model for lower CPU per embedding, reported
+ * as its own {@link #model()} since its vectors differ slightly; session
+ * threading, graph optimization level and the CPU memory arena are tunable
+ * under {@code websearch.embedding.onnx.session}.</p>
+ *
+ * <p>Texts longer than the 512-token window are not silently truncated: by
+ * default they are split into overlapping windows that run in the same
+ * batched inference and are pooled into one vector (see {@link LongTextMode}).
+ * {@link EmbeddingResult#tokenCount()} always reports the text's full token
+ * count, so callers can tell how much did not fit.</p>
+ *
+ * <p>Callers that already tokenized their texts with {@link #tokenizer()}, such
+ * as the {@code tokenizer} chunking strategy, can pass the WordPiece IDs under
+ * {@link EmbeddingBatchRequest#EXTRA_TOKEN_IDS} and skip tokenizing them again.</p>
+ *
  * <p>Produces 384-dimensional L2-normalized vectors.</p>
  */
 @Component
@@ -44,18 +91,93 @@ public class OnnxEmbeddingProvider implements EmbeddingProvider {
     private static final Logger log = LoggerFactory.getLogger(OnnxEmbeddingProvider.class);
     private static final int DIMENSIONS = 384;
     private static final String MODEL_NAME = "all-MiniLM-L6-v2";
+    private static final int MAX_SEQ_LENGTH = 512;
+
+    /** Largest number of texts run through the model in one forward pass. */
+    private static final int MAX_BATCH_SIZE = 64;
+
+    /** Cap on padded positions (rows x length) per forward pass, to bound activation memory. */
+    private static final int MAX_BATCH_TOKENS = 16_384;
+
+    /** Request {@code extra} key overriding the {@link LongTextMode} for that request. */
+    public static final String EXTRA_LONG_TEXT = "longText";
+
+    /** Result metadata: number of windows a long text was embedded in. */
+    public static final String META_WINDOWS = "windows";
 
-    private static final String DEFAULT_MODEL_URL =
-            "https://huggingface.co/sentence-transformers/all-MiniLM-L6-v2/resolve/main/onnx/model.onnx";
+    /** Result metadata: tokens left out because of truncation or the window cap. */
+    public static final String META_DROPPED_TOKENS = "droppedTokens";
+
+    /** Result metadata in {@link LongTextMode#WINDOWS} mode: {@code List<float[]>} of per-window vectors. */
+    public static final String META_WINDOW_VECTORS = "windowVectors";
+
+    private static final String MODEL_BASE_URL =
+            "https://huggingface.co/sentence-transformers/all-MiniLM-L6-v2/resolve/main/onnx/";
     private static final String DEFAULT_VOCAB_URL =
             "https://huggingface.co/sentence-transformers/all-MiniLM-L6-v2/resolve/main/vocab.txt";
 
     @Value("${websearch.embedding.onnx.cache-dir:#{null}}")
     private String cacheDir;
 
+    /** Concurrent inferences; 0 means one per available core. */
+    @Value("${websearch.embedding.onnx.pool-size:0}")
+    private int poolSize;
+
+    @Value("${websearch.embedding.onnx.engine:djl}")
+    private String engineName;
+
+    /** fp32, int8 (dynamically quantized, per CPU architecture), or a path to a local .onnx file. */
+    @Value("${websearch.embedding.onnx.variant:fp32}")
+    private String variant;
+
+    /**
+     * Threads per operator in each inference; 0 splits the cores across the pool
+     * ({@link #defaultIntraOpThreads}) so concurrent inferences do not oversubscribe the CPU.
+     */
+    @Value("${websearch.embedding.onnx.session.intra-op-threads:0}")
+    private int intraOpThreads;
+
+    /** Threads across independent graph nodes; 0 leaves ONNX Runtime's default. */
+    @Value("${websearch.embedding.onnx.session.inter-op-threads:0}")
+    private int interOpThreads;
+
+    @Value("${websearch.embedding.onnx.session.optimization-level:all}")
+    private String optimizationLevel;
+
+    @Value("${websearch.embedding.onnx.session.cpu-arena:true}")
+    private boolean cpuArena;
+
+    @Value("${websearch.embedding.onnx.long-text.mode:pool}")
+    private String longTextModeName;
+
+    /** Tokens shared by consecutive windows of a long text. */
+    @Value("${websearch.embedding.onnx.long-text.overlap:64}")
+    private int windowOverlap;
+
+    /** Most windows embedded per text; 0 means no limit. */
+    @Value("${websearch.embedding.onnx.long-text.max-windows:16}")
+    private int maxWindows;
+
+    /** Model name reported with each vector; distinguishes variants whose vectors differ. */
+    private String modelName = MODEL_NAME;
+
     private BertWordPieceTokenizer tokenizer;
+    private OnnxEngine engine;
+    private LongTextMode longTextMode;
+
+    /** DJL engine: the loaded model, shared by all predictors. */
     private ZooModel<NDList, NDList> model;
 
+    /** ORT engine: the session (thread-safe, shared by all slots) and its I/O names. */
+    private OrtEnvironment ortEnvironment;
+    private OrtSession session;
+    private String hiddenStateOutput;
+    private boolean takesTokenTypeIds;
+
+    /** Idle inference slots; a caller borrows one for the duration of a forward pass. */
+    private BlockingQueue<InferenceSlot> slots;
+    private final List<InferenceSlot> allSlots = new ArrayList<>();
+
     @PostConstruct
     public void initialize() {
         try {
@@ -65,19 +187,41 @@ public class OnnxEmbeddingProvider implements EmbeddingProvider {
 
             // Initialize pure Java WordPiece tokenizer
             Path vocabPath = resolveFile(cache, "vocab.txt", DEFAULT_VOCAB_URL);
-            this.tokenizer = new BertWordPieceTokenizer(vocabPath, 512);
+            this.tokenizer = new BertWordPieceTokenizer(vocabPath, MAX_SEQ_LENGTH);
+
+            Path modelPath = resolveModel(cache);
+            int cores = Runtime.getRuntime().availableProcessors();
+            int size = poolSize > 0 ? poolSize : cores;
+            Map<String, String> sessionOptions = sessionOptions(size, cores);
+            this.engine = OnnxEngine.parse(engineName);
+            this.longTextMode = LongTextMode.parse(longTextModeName);
+            if (engine == OnnxEngine.ORT) {
+                this.ortEnvironment = OrtEnvironment.getEnvironment();
+                this.session = ortEnvironment.createSession(modelPath.toString(), toOrtOptions(sessionOptions));
+                this.hiddenStateOutput = session.getOutputNames().iterator().next();
+                this.takesTokenTypeIds = session.getInputNames().contains("token_type_ids");
+            } else {
+                // Load ONNX model via DJL
+                Criteria<NDList, NDList> criteria = Criteria.builder()
+                        .setTypes(NDList.class, NDList.class)
+                        .optModelUrls(modelPath.toUri().toString())
+                        .optEngine("OnnxRuntime")
+                        .optOptions(sessionOptions)
+                        .optTranslator(new PassthroughTranslator())
+                        .build();
+                this.model = criteria.loadModel();
+            }
 
-            // Load ONNX model via DJL
-            Path modelPath = resolveFile(cache, "model.onnx", DEFAULT_MODEL_URL);
-            Criteria<NDList, NDList> criteria = Criteria.builder()
-                    .setTypes(NDList.class, NDList.class)
-                    .optModelUrls(modelPath.toUri().toString())
-                    .optEngine("OnnxRuntime")
-                    .optTranslator(new PassthroughTranslator())
-                    .build();
-            this.model = criteria.loadModel();
+            // Long-lived slots: the ORT session is shared and thread-safe, a DJL predictor is not
+            this.slots = new ArrayBlockingQueue<>(size);
+            for (int i = 0; i < size; i++) {
+                InferenceSlot slot = engine == OnnxEngine.ORT ? new OrtSlot() : new DjlSlot(model.newPredictor());
+                allSlots.add(slot);
+                slots.add(slot);
+            }
 
-            log.info("ONNX embedding provider initialized successfully");
+            log.info("ONNX embedding provider initialized successfully (engine={}, model file={}, pool size={}, session={})",
+                    engine, modelPath.getFileName(), size, sessionOptions);
 
         } catch (Exception e) {
             throw new RuntimeException("Failed to initialize ONNX embedding provider", e);
@@ -86,9 +230,18 @@ public class OnnxEmbeddingProvider implements EmbeddingProvider {
 
     @PreDestroy
     public void shutdown() {
+        allSlots.forEach(InferenceSlot::close);
+        allSlots.clear();
         if (model != null) {
             model.close();
         }
+        if (session != null) {
+            try {
+                session.close();
+            } catch (OrtException e) {
+                log.warn("Failed to close ONNX Runtime session: {}", e.getMessage());
+            }
+        }
         log.info("ONNX embedding provider closed");
     }
 
@@ -103,8 +256,8 @@ public class OnnxEmbeddingProvider implements EmbeddingProvider {
                 false,      // supportsInputType
                 false,      // supportsDimensionOverride
                 true,       // supportsBatch
-                64,         // maxBatchSize
-                512,        // maxTokensPerText
+                MAX_BATCH_SIZE,  // maxBatchSize
+                MAX_SEQ_LENGTH,  // maxTokensPerText
                 DIMENSIONS, // defaultDimensions
                 AuthType.NONE
         );
@@ -112,18 +265,19 @@ public class OnnxEmbeddingProvider implements EmbeddingProvider {
 
     @Override
     public EmbeddingResult embed(EmbeddingRequest request) {
-        float[] vector = computeEmbedding(request.text());
-        return new EmbeddingResult(vector, vector.length, 0, MODEL_NAME, Map.of());
+        return embedTexts(List.of(request.text()), longTextMode(request.extra()),
+                tokenIds(request.extra(), 1)).getFirst();
     }
 
+    /**
+     * Embeds texts in length buckets: inputs are sorted by token count and each
+     * bucket of similar lengths runs as a single [B, L] forward pass padded only
+     * to its longest member. Results come back in request order.
+     */
     @Override
     public List<EmbeddingResult> embedBatch(EmbeddingBatchRequest request) {
-        List<EmbeddingResult> results = new ArrayList<>();
-        for (String text : request.texts()) {
-            float[] vector = computeEmbedding(text);
-            results.add(new EmbeddingResult(vector, vector.length, 0, MODEL_NAME, Map.of()));
-        }
-        return results;
+        return embedTexts(request.texts(), longTextMode(request.extra()),
+                tokenIds(request.extra(), request.texts().size()));
     }
 
     @Override
@@ -133,104 +287,300 @@ public class OnnxEmbeddingProvider implements EmbeddingProvider {
 
     @Override
     public String model() {
-        return MODEL_NAME;
+        return modelName;
+    }
+
+    /** The {@link BertWordPieceTokenizer} this provider embeds with; available once initialized. */
+    @Override
+    public Optional<Tokenizer> tokenizer() {
+        return Optional.ofNullable(tokenizer);
     }
 
     // ---- Core embedding logic (Symmetry pattern) ----
 
-    private float[] computeEmbedding(String text) {
-        if (text == null || text.isEmpty()) {
-            throw new IllegalArgumentException("Text cannot be null or empty");
+    /**
+     * Tokenize every text, cut long ones into windows and run all windows of
+     * all texts through {@link #lengthBuckets}, so a long document's windows
+     * share forward passes with each other and with the short texts.
+     *
+     * @param pretokenized WordPiece IDs per text from {@link EmbeddingBatchRequest#EXTRA_TOKEN_IDS}, or null
+     */
+    private List<EmbeddingResult> embedTexts(List<String> texts, LongTextMode mode, List<int[]> pretokenized) {
+        int window = tokenizer.maxLength() - 2; // room for [CLS] and [SEP]
+        List<long[]> sequences = new ArrayList<>();
+        List<int[]> ranges = new ArrayList<>();
+        int[] firstWindow = new int[texts.size() + 1];
+        int[] tokenCounts = new int[texts.size()];
+        for (int i = 0; i < texts.size(); i++) {
+            int[] pieces = pretokenized != null && pretokenized.get(i) != null
+                    ? pretokenized.get(i) : tokenize(texts.get(i));
+            tokenCounts[i] = pieces.length + 2;
+            firstWindow[i] = sequences.size();
+            int limit = mode == LongTextMode.TRUNCATE ? 1 : maxWindows;
+            for (int[] range : windowRanges(pieces.length, window, windowOverlap, limit)) {
+                sequences.add(tokenizer.sequence(pieces, range[0], range[1]));
+                ranges.add(range);
+            }
+        }
+        firstWindow[texts.size()] = sequences.size();
+
+        long[][] tokenIds = sequences.toArray(long[][]::new);
+        float[][] vectors = new float[tokenIds.length][];
+        for (int[] bucket : lengthBuckets(tokenIds, MAX_BATCH_SIZE, MAX_BATCH_TOKENS)) {
+            List<long[]> batch = new ArrayList<>(bucket.length);
+            for (int index : bucket) {
+                batch.add(tokenIds[index]);
+            }
+            float[][] embedded = computeEmbeddings(batch);
+            for (int row = 0; row < bucket.length; row++) {
+                vectors[bucket[row]] = embedded[row];
+            }
         }
 
-        try (NDManager manager = NDManager.newBaseManager();
-             Predictor<NDList, NDList> predictor = model.newPredictor()) {
-
-            // Tokenize using pure Java WordPiece tokenizer
-            var encoding = tokenizer.encode(text);
-            long[] inputIds = encoding.inputIds();
-            long[] attentionMask = encoding.attentionMask();
-
-            // Create input tensors with correct shape directly (ORT NDArray has limited op support)
-            var inputIdsTensor = manager.create(new long[][]{inputIds});
-            var attentionMaskTensor = manager.create(new long[][]{attentionMask});
-            var tokenTypeIdsTensor = manager.create(new long[][]{encoding.tokenTypeIds()});
+        List<EmbeddingResult> results = new ArrayList<>(texts.size());
+        for (int i = 0; i < texts.size(); i++) {
+            int from = firstWindow[i];
+            int to = firstWindow[i + 1];
+            float[][] windowVectors = Arrays.copyOfRange(vectors, from, to);
+            int[] weights = new int[to - from];
+            for (int w = 0; w < weights.length; w++) {
+                weights[w] = ranges.get(from + w)[1] - ranges.get(from + w)[0];
+            }
+            float[] vector = weights.length == 1 ? windowVectors[0] : poolWindows(windowVectors, weights);
 
-            NDList input = new NDList(inputIdsTensor, attentionMaskTensor, tokenTypeIdsTensor);
+            Map<String, Object> meta = new LinkedHashMap<>();
+            if (weights.length > 1) {
+                meta.put(META_WINDOWS, weights.length);
+            }
+            int dropped = tokenCounts[i] - 2 - ranges.get(to - 1)[1];
+            if (dropped > 0) {
+                meta.put(META_DROPPED_TOKENS, dropped);
+            }
+            if (mode == LongTextMode.WINDOWS && weights.length > 1) {
+                meta.put(META_WINDOW_VECTORS, List.of(windowVectors));
+            }
+            results.add(new EmbeddingResult(vector, vector.length, tokenCounts[i], modelName,
+                    meta.isEmpty() ? Map.of() : meta));
+        }
+        return results;
+    }
 
-            // Run inference
-            NDList output = predictor.predict(input);
+    private LongTextMode longTextMode(Map<String, Object> extra) {
+        Object override = extra.get(EXTRA_LONG_TEXT);
+        return override != null ? LongTextMode.parse(override.toString()) : longTextMode;
+    }
 
-            // Extract raw output: [1, seq_len, hidden_size] -> float[]
-            float[] rawOutput = output.get(0).toFloatArray();
-            int seqLen = inputIds.length;
+    /** The {@link EmbeddingBatchRequest#EXTRA_TOKEN_IDS} list, or null if absent or not one entry per text. */
+    @SuppressWarnings("unchecked")
+    private static List<int[]> tokenIds(Map<String, Object> extra, int texts) {
+        return extra.get(EmbeddingBatchRequest.EXTRA_TOKEN_IDS) instanceof List<?> ids && ids.size() == texts ? (List<int[]>) ids : null;
+    }
 
-            // Mean pooling + L2 normalization in pure Java (ORT NDArray doesn't support expandDims/broadcast)
-            float[] embedding = meanPoolJava(rawOutput, attentionMask, seqLen, DIMENSIONS);
-            return normalize(embedding);
+    private int[] tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            throw new IllegalArgumentException("Text cannot be null or empty");
+        }
+        return tokenizer.wordPieceIds(text);
+    }
 
+    /**
+     * Run one forward pass over token sequences padded to the longest of them.
+     *
+     * @return one L2-normalized embedding per sequence, in input order
+     */
+    private float[][] computeEmbeddings(List<long[]> sequences) {
+        InferenceSlot slot = borrowSlot();
+        try {
+            return slot.embed(sequences);
         } catch (Exception e) {
-            log.error("Failed to generate embedding for text (length={}): {}", text.length(), e.getMessage(), e);
+            log.error("Failed to generate embeddings (batch={}): {}", sequences.size(), e.getMessage(), e);
             throw new RuntimeException("Failed to generate embedding", e);
+        } finally {
+            slots.add(slot);
+        }
+    }
+
+    private InferenceSlot borrowSlot() {
+        try {
+            return slots.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted waiting for an embedding slot", e);
         }
     }
 
     /**
-     * Apply mean pooling in pure Java.
+     * Group sequences into buckets of similar length for batched inference.
+     * Sequences are sorted by length so each bucket pads to little more than its
+     * shortest member; a bucket closes at {@code maxBatchSize} rows or when
+     * padding everything to its longest member would exceed {@code maxBatchTokens}.
      *
-     * <p>The raw output from ONNX is a flat float[] representing [1, seqLen, hiddenSize].
-     * We average all token embeddings weighted by the attention mask to ignore padding.</p>
+     * @return buckets of indexes into {@code sequences}, each sorted by length
+     */
+    static List<int[]> lengthBuckets(long[][] sequences, int maxBatchSize, int maxBatchTokens) {
+        Integer[] order = new Integer[sequences.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt(i -> sequences[i].length));
+
+        List<int[]> buckets = new ArrayList<>();
+        int start = 0;
+        while (start < order.length) {
+            int end = start + 1;
+            // Ascending order: the candidate is always the longest row of the bucket so far
+            while (end < order.length && end - start < maxBatchSize
+                    && (long) (end - start + 1) * sequences[order[end]].length <= maxBatchTokens) {
+                end++;
+            }
+            int[] bucket = new int[end - start];
+            for (int i = start; i < end; i++) {
+                bucket[i - start] = order[i];
+            }
+            buckets.add(bucket);
+            start = end;
+        }
+        return buckets;
+    }
+
+    /**
+     * Split {@code tokens} WordPiece IDs into windows of at most {@code window}
+     * tokens, each starting {@code overlap} tokens before the previous one ends.
+     * The last window ends at the text's end unless {@code maxWindows} (0 for
+     * no limit) cuts the text short. A text with no tokens yields one empty window.
      *
-     * @param rawOutput flattened model output [1 * seqLen * hiddenSize]
-     * @param attentionMask attention mask (1 for real tokens, 0 for padding)
-     * @param seqLen sequence length
-     * @param hiddenSize embedding dimensions (384)
+     * @return [from, to) token ranges, in order
      */
-    private float[] meanPoolJava(float[] rawOutput, long[] attentionMask, int seqLen, int hiddenSize) {
-        float[] sum = new float[hiddenSize];
-        float maskSum = 0f;
-
-        for (int t = 0; t < seqLen; t++) {
-            float mask = attentionMask[t];
-            if (mask == 0f) continue;
-            maskSum += mask;
-            int offset = t * hiddenSize;
-            for (int d = 0; d < hiddenSize; d++) {
-                sum[d] += rawOutput[offset + d] * mask;
+    static List<int[]> windowRanges(int tokens, int window, int overlap, int maxWindows) {
+        int stride = Math.max(1, window - Math.max(0, overlap));
+        List<int[]> ranges = new ArrayList<>();
+        int from = 0;
+        while (true) {
+            int to = Math.min(tokens, from + window);
+            ranges.add(new int[]{from, to});
+            if (to == tokens || (maxWindows > 0 && ranges.size() == maxWindows)) {
+                return ranges;
             }
+            from += stride;
         }
+    }
 
-        // Average
-        if (maskSum > 0f) {
-            for (int d = 0; d < hiddenSize; d++) {
-                sum[d] /= maskSum;
+    /**
+     * Average window vectors weighted by their token counts, so a short tail
+     * window does not count as much as a full one, then L2-normalize.
+     */
+    static float[] poolWindows(float[][] vectors, int[] weights) {
+        float[] pooled = new float[vectors[0].length];
+        for (int w = 0; w < vectors.length; w++) {
+            for (int d = 0; d < pooled.length; d++) {
+                pooled[d] += vectors[w][d] * weights[w];
             }
         }
-        return sum;
+        return VectorKernels.normalize(pooled);
     }
 
+    /** Mean-pool and normalize every row of a [B, L, hidden] output. */
+    private static float[][] poolRows(FloatBuffer hiddenStates, InputBuffers buffers) {
+        float[][] embeddings = new float[buffers.batchSize()][];
+        for (int row = 0; row < buffers.batchSize(); row++) {
+            embeddings[row] = VectorKernels.normalize(VectorKernels.meanPool(hiddenStates,
+                    buffers.attentionMask(), row, buffers.seqLength(), DIMENSIONS));
+        }
+        return embeddings;
+    }
+
+    // ---- Session tuning ----
+
     /**
-     * L2-normalize the embedding vector so cosine similarity equals dot product.
+     * ONNX Runtime session settings, keyed by DJL's OrtModel option names so the
+     * DJL engine can take them as-is; {@link #toOrtOptions} applies the same map
+     * to a direct session.
      */
-    private float[] normalize(float[] embedding) {
-        float norm = 0.0f;
-        for (float v : embedding) {
-            norm += v * v;
+    private Map<String, String> sessionOptions(int poolSize, int cores) {
+        Map<String, String> options = new LinkedHashMap<>();
+        int intraOp = intraOpThreads > 0 ? intraOpThreads : defaultIntraOpThreads(cores, poolSize);
+        options.put("intraOpNumThreads", Integer.toString(intraOp));
+        if (interOpThreads > 0) {
+            options.put("interOpNumThreads", Integer.toString(interOpThreads));
         }
-        norm = (float) Math.sqrt(norm);
+        options.put("optLevel", parseOptLevel(optimizationLevel).name());
+        options.put("cpuArenaAllocator", Boolean.toString(cpuArena));
+        return options;
+    }
 
-        if (norm > 0) {
-            float[] normalized = new float[embedding.length];
-            for (int i = 0; i < embedding.length; i++) {
-                normalized[i] = embedding[i] / norm;
-            }
-            return normalized;
+    /**
+     * Intra-op threads per inference when none are configured: the cores divided
+     * across the pool's concurrent inferences, at least one. ONNX Runtime's own
+     * default of one thread per core would run pool size x cores threads at full load.
+     */
+    static int defaultIntraOpThreads(int cores, int poolSize) {
+        return Math.max(1, cores / Math.max(1, poolSize));
+    }
+
+    private static OrtSession.SessionOptions toOrtOptions(Map<String, String> options) throws OrtException {
+        OrtSession.SessionOptions sessionOptions = new OrtSession.SessionOptions();
+        if (options.containsKey("intraOpNumThreads")) {
+            sessionOptions.setIntraOpNumThreads(Integer.parseInt(options.get("intraOpNumThreads")));
+        }
+        if (options.containsKey("interOpNumThreads")) {
+            sessionOptions.setInterOpNumThreads(Integer.parseInt(options.get("interOpNumThreads")));
         }
-        return embedding;
+        sessionOptions.setOptimizationLevel(OrtSession.SessionOptions.OptLevel.valueOf(options.get("optLevel")));
+        sessionOptions.setCPUArenaAllocator(Boolean.parseBoolean(options.get("cpuArenaAllocator")));
+        return sessionOptions;
+    }
+
+    /**
+     * Parse a graph optimization level ({@code none}, {@code basic},
+     * {@code extended}, {@code all}), returning ALL_OPT for null/unknown values.
+     */
+    static OrtSession.SessionOptions.OptLevel parseOptLevel(String value) {
+        if (value == null) {
+            return OrtSession.SessionOptions.OptLevel.ALL_OPT;
+        }
+        return switch (value.trim().toLowerCase()) {
+            case "none" -> OrtSession.SessionOptions.OptLevel.NO_OPT;
+            case "basic" -> OrtSession.SessionOptions.OptLevel.BASIC_OPT;
+            case "extended" -> OrtSession.SessionOptions.OptLevel.EXTENDED_OPT;
+            default -> OrtSession.SessionOptions.OptLevel.ALL_OPT;
+        };
     }
 
     // ---- File resolution ----
 
+    /**
+     * Resolve the model file for the configured variant, downloading published
+     * variants on first use. The int8 variants are the dynamically quantized
+     * exports published with the model, picked per CPU architecture.
+     */
+    private Path resolveModel(Path cacheDirectory) {
+        String selected = variant == null || variant.isBlank() ? "fp32" : variant.trim();
+        return switch (selected.toLowerCase()) {
+            case "fp32" -> resolveFile(cacheDirectory, "model.onnx", MODEL_BASE_URL + "model.onnx");
+            case "int8" -> {
+                String filename = int8ModelFile(System.getProperty("os.arch"));
+                modelName = MODEL_NAME + "-int8";
+                yield resolveFile(cacheDirectory, filename, MODEL_BASE_URL + filename);
+            }
+            default -> {
+                Path local = Path.of(selected);
+                if (!Files.isRegularFile(local)) {
+                    throw new IllegalArgumentException("ONNX model variant is not fp32, int8 or an existing file: " + selected);
+                }
+                modelName = MODEL_NAME + "-" + local.getFileName().toString().replaceFirst("\\.onnx$", "");
+                yield local;
+            }
+        };
+    }
+
+    /** The int8 export suited to {@code osArch}: signed int8 with ARM kernels, unsigned int8 with AVX2 otherwise. */
+    static String int8ModelFile(String osArch) {
+        return "aarch64".equals(osArch) || "arm64".equals(osArch)
+                ? "model_qint8_arm64.onnx"
+                : "model_quint8_avx2.onnx";
+    }
+
+
     private Path resolveCacheDirectory() {
         Path dir;
         if (cacheDir != null && !cacheDir.isBlank()) {
@@ -267,6 +617,128 @@ public class OnnxEmbeddingProvider implements EmbeddingProvider {
         return targetPath;
     }
 
+    // ---- Inference pool ----
+
+    /**
+     * One pooled inference context with the input buffers it reuses across
+     * calls. Used by one thread at a time.
+     */
+    private interface InferenceSlot {
+
+        /** Run one forward pass over sequences padded to the longest of them. */
+        float[][] embed(List<long[]> sequences) throws Exception;
+
+        void close();
+    }
+
+    /** DJL engine: a long-lived predictor fed from direct input buffers. */
+    private final class DjlSlot implements InferenceSlot {
+
+        private final Predictor<NDList, NDList> predictor;
+        private final InputBuffers buffers = new InputBuffers();
+
+        DjlSlot(Predictor<NDList, NDList> predictor) {
+            this.predictor = predictor;
+        }
+
+        @Override
+        public float[][] embed(List<long[]> sequences) throws Exception {
+            try (NDManager manager = model.getNDManager().newSubManager()) {
+                buffers.load(sequences, tokenizer.padId());
+
+                // Wrap the direct buffers as [B, L] input tensors (ORT NDArray has limited op support)
+                Shape shape = new Shape(buffers.batchSize(), buffers.seqLength());
+                NDList input = new NDList(
+                        manager.create(buffers.inputIds(), shape, DataType.INT64),
+                        manager.create(buffers.attentionMask(), shape, DataType.INT64),
+                        manager.create(buffers.tokenTypeIds(), shape, DataType.INT64));
+
+                // Run inference; outputs are attached to the input manager and freed with it
+                NDList output = predictor.predict(input);
+
+                // Extract raw output: [B, L, hidden_size] -> float[]
+                float[] rawOutput = output.get(0).toFloatArray();
+
+                // Mean pooling + L2 normalization in pure Java (ORT NDArray doesn't support expandDims/broadcast)
+                return poolRows(FloatBuffer.wrap(rawOutput), buffers);
+            }
+        }
+
+        @Override
+        public void close() {
+            predictor.close();
+        }
+    }
+
+    /**
+     * ORT engine: inputs wrap direct buffers without a copy, and the hidden
+     * states are written into a pinned direct output buffer that pooling reads
+     * in place. In steady state a call allocates only tensor handles and the
+     * returned vectors.
+     */
+    private final class OrtSlot implements InferenceSlot {
+
+        /** Largest float buffer a direct {@link ByteBuffer} can back. */
+        private static final int MAX_OUTPUT_FLOATS = Integer.MAX_VALUE / Float.BYTES;
+
+        private final InputBuffers buffers = new InputBuffers();
+        private final Map<String, OnnxTensor> inputs = new HashMap<>(4);
+        private final Map<String, OnnxTensor> outputs = new HashMap<>(2);
+        private FloatBuffer hiddenStates = allocateFloats(0);
+
+        @Override
+        public float[][] embed(List<long[]> sequences) throws OrtException {
+            buffers.load(sequences, tokenizer.padId());
+            int batchSize = buffers.batchSize();
+            int seqLength = buffers.seqLength();
+
+            long outputSize = (long) batchSize * seqLength * DIMENSIONS;
+            if (outputSize > MAX_OUTPUT_FLOATS) {
+                throw new IllegalArgumentException("Batch output of " + outputSize + " floats exceeds a direct buffer");
+            }
+            if (hiddenStates.capacity() < outputSize) {
+                // Grow to the next power of two, capped at the largest direct buffer
+                hiddenStates = allocateFloats((int) Math.min(Long.highestOneBit(outputSize - 1) << 1, MAX_OUTPUT_FLOATS));
+            }
+            hiddenStates.clear().limit((int) outputSize);
+
+            long[] inputShape = {batchSize, seqLength};
+            try (OnnxTensor inputIds = OnnxTensor.createTensor(ortEnvironment, buffers.inputIds(), inputShape);
+                 OnnxTensor attentionMask = OnnxTensor.createTensor(ortEnvironment, buffers.attentionMask(), inputShape);
+                 OnnxTensor tokenTypeIds = OnnxTensor.createTensor(ortEnvironment, buffers.tokenTypeIds(), inputShape);
+                 OnnxTensor output = OnnxTensor.createTensor(ortEnvironment, hiddenStates,
+                         new long[]{batchSize, seqLength, DIMENSIONS})) {
+                inputs.put("input_ids", inputIds);
+                inputs.put("attention_mask", attentionMask);
+                if (takesTokenTypeIds) {
+                    inputs.put("token_type_ids", tokenTypeIds);
+                }
+                outputs.put(hiddenStateOutput, output);
+                // The hidden states land in the pinned buffer; the result only needs releasing
+                OrtSession.Result result = session.run(inputs, outputs);
+                try {
+                    return poolRows(hiddenStates, buffers);
+                } finally {
+                    result.close();
+                }
+            } finally {
+                inputs.clear();
+                outputs.clear();
+            }
+        }
+
+        @Override
+        public void close() {
+            // Direct buffers are released with the slot
+        }
+
+        private static FloatBuffer allocateFloats(int elements) {
+            return ByteBuffer.allocateDirect(elements * Float.BYTES)
+                    .order(ByteOrder.nativeOrder())
+                    .asFloatBuffer();
+        }
+    }
+
     // ---- Passthrough translator ----
 
     /**
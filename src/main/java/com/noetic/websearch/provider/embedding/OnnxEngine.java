@@ -0,0 +1,32 @@
+package com.noetic.websearch.provider.embedding;
+
+/**
+ * How {@link OnnxEmbeddingProvider} calls ONNX Runtime.
+ *
+ * <p>Both engines run the same model file through the same ONNX Runtime build;
+ * they differ only in the Java layer around it, so their embeddings match.</p>
+ */
+public enum OnnxEngine {
+    /** Through DJL's predictor and NDArray wrappers. */
+    DJL,
+    /**
+     * Straight through the {@code ai.onnxruntime} session API, reading the
+     * model output in place from a reusable direct buffer.
+     */
+    ORT;
+
+    /**
+     * Parse an engine string ({@code djl}, {@code ort}),
+     * returning DJL for null/unknown values.
+     */
+    public static OnnxEngine parse(String value) {
+        if (value == null || value.isBlank()) {
+            return DJL;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return DJL;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.noetic.websearch.provider.embedding;
+
+import java.util.Arrays;
+
+/**
+ * Character trie over a WordPiece vocabulary, so greedy longest-match walks
+ * the input one character at a time instead of hashing every candidate
+ * substring.
+ *
+ * <p>Nodes are ints and every edge lives in one open-addressing table keyed by
+ * (parent, character), so a lookup allocates nothing and the whole trie is a
+ * handful of primitive arrays. Not thread-safe while being built; read-only
+ * use afterwards is safe from any thread.</p>
+ */
+final class VocabularyTrie {
+
+    static final int ROOT = 0;
+
+    private long[] edgeKeys = new long[1 << 16];
+    private int[] edgeTargets = new int[1 << 16]; // 0 = empty slot: no edge ever points at the root
+    private int edgeCount;
+    private int mask = edgeKeys.length - 1;
+    private int shift = 64 - 16;
+
+    private int[] ids = new int[1 << 14];
+    private int nodeCount = 1;
+
+    VocabularyTrie() {
+        ids[ROOT] = -1;
+    }
+
+    /** Adds {@code token} with {@code id}, replacing the ID of an earlier duplicate. */
+    void put(String token, int id) {
+        int node = ROOT;
+        for (int i = 0; i < token.length(); i++) {
+            int next = child(node, token.charAt(i));
+            if (next < 0) {
+                next = addNode();
+                addEdge(node, token.charAt(i), next);
+            }
+            node = next;
+        }
+        ids[node] = id;
+    }
+
+    /** ID of {@code token}, or -1 if it is not in the vocabulary. */
+    int get(String token) {
+        int node = node(token);
+        return node < 0 ? -1 : ids[node];
+    }
+
+    /** Node reached by {@code prefix} from the root, or -1 if no token starts with it. */
+    int node(String prefix) {
+        int node = ROOT;
+        for (int i = 0; i < prefix.length() && node >= 0; i++) {
+            node = child(node, prefix.charAt(i));
+        }
+        return node;
+    }
+
+    /** Child of {@code node} along {@code c}, or -1. */
+    int child(int node, char c) {
+        long key = edgeKey(node, c);
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            int target = edgeTargets[slot];
+            if (target == 0) {
+                return -1;
+            }
+            if (edgeKeys[slot] == key) {
+                return target;
+            }
+        }
+    }
+
+    /** Token ID ending at {@code node}, or -1 if the node is only a prefix. */
+    int id(int node) {
+        return ids[node];
+    }
+
+    private int addNode() {
+        if (nodeCount == ids.length) {
+            ids = Arrays.copyOf(ids, ids.length * 2);
+        }
+        ids[nodeCount] = -1;
+        return nodeCount++;
+    }
+
+    private void addEdge(int node, char c, int target) {
+        if (2 * (edgeCount + 1) > edgeKeys.length) {
+            grow();
+        }
+        insert(edgeKey(node, c), target);
+        edgeCount++;
+    }
+
+    private void insert(long key, int target) {
+        int slot = slot(key);
+        while (edgeTargets[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        edgeKeys[slot] = key;
+        edgeTargets[slot] = target;
+    }
+
+    private void grow() {
+        long[] oldKeys = edgeKeys;
+        int[] oldTargets = edgeTargets;
+        edgeKeys = new long[oldKeys.length * 2];
+        edgeTargets = new int[oldTargets.length * 2];
+        mask = edgeKeys.length - 1;
+        shift--;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldTargets[i] != 0) {
+                insert(oldKeys[i], oldTargets[i]);
+            }
+        }
+    }
+
+    private int slot(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+
+    private static long edgeKey(int node, char c) {
+        return ((long) node << 16) | c;
+    }
+}
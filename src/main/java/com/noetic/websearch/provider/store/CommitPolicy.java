@@ -0,0 +1,32 @@
+package com.noetic.websearch.provider.store;
+
+/**
+ * When the Lucene store makes writes durable with an fsync'ing {@code commit()}.
+ *
+ * <p>Regardless of policy, searches see new entries immediately through
+ * near-real-time refresh; the policy only controls how much acknowledged
+ * work can be lost if the process dies before the next commit.</p>
+ */
+public enum CommitPolicy {
+    /** Commit after every upsert/delete call. Nothing acknowledged is ever lost. */
+    PER_OP,
+    /** Commit every N milliseconds or N buffered documents, whichever comes first. */
+    GROUP,
+    /** Commit only when the store is closed. Fastest, but a crash loses everything since startup. */
+    SHUTDOWN;
+
+    /**
+     * Parse a policy string ({@code per-op}, {@code group}, {@code shutdown}),
+     * returning PER_OP for null/unknown values.
+     */
+    public static CommitPolicy parse(String value) {
+        if (value == null || value.isBlank()) {
+            return PER_OP;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase().replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            return PER_OP;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.noetic.websearch.provider.store;
+
+/**
+ * How the Lucene store lays out namespaces on disk.
+ *
+ * <p>With one index, every namespace shares a single HNSW graph and namespace
+ * isolation is a filter term, so a namespace-scoped kNN query walks a graph sized
+ * by the whole store. Partitioning gives each namespace its own index, graph and
+ * writer, so a query only pays for the namespace it targets.</p>
+ */
+public enum IndexLayout {
+    /** One index for all namespaces, directly under the index path. */
+    SINGLE,
+    /** One sub-index per namespace under {@code <index-path>/ns/<namespace>/}, opened on demand. */
+    PER_NAMESPACE;
+
+    /**
+     * Parse a layout string ({@code single}, {@code per-namespace}),
+     * returning SINGLE for null/unknown values.
+     */
+    public static IndexLayout parse(String value) {
+        if (value == null || value.isBlank()) {
+            return SINGLE;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase().replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            return SINGLE;
+        }
+    }
+}
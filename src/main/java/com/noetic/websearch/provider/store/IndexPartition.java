@@ -0,0 +1,255 @@
+package com.noetic.websearch.provider.store;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.store.FSDirectory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One physical Lucene index inside {@link LuceneVectorStore}: its directory, a
+ * writer (absent for read-only indexes) and a long-lived {@link SearcherManager}.
+ *
+ * <p>Writable partitions refresh near-real-time from their writer; read-only
+ * partitions follow commits made by other processes. Each partition tracks its
+ * own commit backlog and staleness, so partitions commit and refresh
+ * independently.</p>
+ *
+ * <p>Operations {@link #pin} the partitions they use, and idle eviction only
+ * {@link #retire retires} one nobody has pinned, so a partition is never closed
+ * under a reader or writer.</p>
+ */
+final class IndexPartition implements Closeable {
+
+    private final FSDirectory directory;
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+
+    /** Documents written since the last commit (group and shutdown policies). */
+    private final AtomicLong uncommittedWrites = new AtomicLong();
+
+    /**
+     * Process-wide write clock, ticked after every write to any partition. A
+     * thread remembers the tick of its last write so its reads can wait for it.
+     */
+    private static final AtomicLong WRITE_CLOCK = new AtomicLong();
+    private static final ThreadLocal<long[]> THREAD_CLOCK = ThreadLocal.withInitial(() -> new long[1]);
+
+    /** Clock tick of the latest write to this partition. */
+    private final AtomicLong lastWriteTick = new AtomicLong();
+
+    /** Every write ticked at or before this is visible to the current searcher. */
+    private final AtomicLong searcherTick = new AtomicLong();
+
+    private volatile long lastUsedNanos = System.nanoTime();
+
+    /** Operations using this partition, or -1 once it is retired for closing. */
+    private final AtomicInteger pins = new AtomicInteger();
+
+    private IndexPartition(FSDirectory directory, IndexWriter writer, SearcherManager searcherManager) {
+        this.directory = directory;
+        this.writer = writer;
+        this.searcherManager = searcherManager;
+    }
+
+    /** Opens (creating if needed) a writable index at {@code path}. */
+    static IndexPartition openWritable(Path path, IndexWriterConfig config,
+                                       SearcherFactory searcherFactory) throws IOException {
+        Files.createDirectories(path);
+        FSDirectory directory = FSDirectory.open(path);
+        IndexWriter writer = null;
+        try {
+            writer = new IndexWriter(directory, config);
+            writer.commit();
+            return new IndexPartition(directory, writer, new SearcherManager(writer, searcherFactory));
+        } catch (IOException | RuntimeException e) {
+            if (writer != null) {
+                writer.rollback();
+            }
+            directory.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens an existing index at {@code path} for reading only.
+     *
+     * @return the partition, or null if no index has been committed there yet
+     */
+    static IndexPartition openReadOnly(Path path, SearcherFactory searcherFactory) throws IOException {
+        if (!Files.isDirectory(path)) {
+            return null;
+        }
+        FSDirectory directory = FSDirectory.open(path);
+        try {
+            if (!DirectoryReader.indexExists(directory)) {
+                directory.close();
+                return null;
+            }
+            return new IndexPartition(directory, null, new SearcherManager(directory, searcherFactory));
+        } catch (IOException | RuntimeException e) {
+            directory.close();
+            throw e;
+        }
+    }
+
+    FSDirectory directory() {
+        return directory;
+    }
+
+    /** The writer, or null for a read-only partition. */
+    IndexWriter writer() {
+        return writer;
+    }
+
+    /**
+     * Acquires a point-in-time searcher. Writes made by the calling thread are
+     * always visible, refreshing first if the searcher is behind them. Other
+     * threads' writes are only waited for when {@code includeAllWrites} is set
+     * (no background refresher); otherwise they become visible at the next
+     * background refresh, so readers never queue behind a busy writer. Must be
+     * paired with {@link #release}.
+     */
+    IndexSearcher acquire(boolean includeAllWrites) throws IOException {
+        lastUsedNanos = System.nanoTime();
+        long required = includeAllWrites
+                ? lastWriteTick.get()
+                : Math.min(THREAD_CLOCK.get()[0], lastWriteTick.get());
+        if (searcherTick.get() < required) {
+            refreshBlocking();
+        }
+        return searcherManager.acquire();
+    }
+
+    void release(IndexSearcher searcher) throws IOException {
+        searcherManager.release(searcher);
+    }
+
+    /**
+     * Applies the commit policy after a write and records its generation. The
+     * searcher is not reopened here, so bursts of writes do not pay for an NRT
+     * reopen each. Safe to call from concurrent writers.
+     *
+     * @param docs number of documents (or delete operations) the write touched
+     */
+    void afterWrite(int docs, CommitPolicy commitPolicy, int commitMaxDocs) throws IOException {
+        lastUsedNanos = System.nanoTime();
+        switch (commitPolicy) {
+            case PER_OP -> writer.commit();
+            case GROUP -> {
+                if (uncommittedWrites.addAndGet(docs) >= commitMaxDocs) {
+                    commitPending();
+                }
+            }
+            case SHUTDOWN -> uncommittedWrites.addAndGet(docs);
+        }
+        long tick = WRITE_CLOCK.incrementAndGet();
+        lastWriteTick.accumulateAndGet(tick, Math::max);
+        THREAD_CLOCK.get()[0] = tick;
+    }
+
+    /** Commits if any writes are outstanding. IndexWriter.commit is thread-safe. */
+    void commitPending() throws IOException {
+        long pending = uncommittedWrites.getAndSet(0);
+        if (pending > 0) {
+            try {
+                writer.commit();
+            } catch (IOException e) {
+                uncommittedWrites.addAndGet(pending);
+                throw e;
+            }
+        }
+    }
+
+    /** Refreshes the searcher if it is behind and another thread is not already doing so. */
+    void maybeRefresh() throws IOException {
+        long target = WRITE_CLOCK.get();
+        if (writer == null || searcherTick.get() < lastWriteTick.get()) {
+            if (searcherManager.maybeRefresh()) {
+                searcherTick.accumulateAndGet(target, Math::max);
+            }
+        }
+    }
+
+    /** Refreshes the searcher, waiting behind a refresh already in flight. */
+    void refreshBlocking() throws IOException {
+        long target = WRITE_CLOCK.get();
+        searcherManager.maybeRefreshBlocking();
+        searcherTick.accumulateAndGet(target, Math::max);
+    }
+
+    /** Clock tick of the calling thread's latest write, to hand to another thread. */
+    static long threadWriteTick() {
+        return THREAD_CLOCK.get()[0];
+    }
+
+    /**
+     * Makes the calling thread's reads see writes up to {@code tick}, so work
+     * handed to a pool thread still reads the submitter's writes.
+     */
+    static void adoptWriteTick(long tick) {
+        long[] clock = THREAD_CLOCK.get();
+        clock[0] = Math.max(clock[0], tick);
+    }
+
+    /**
+     * Keeps the partition open for an operation. Must be paired with {@link #unpin}.
+     *
+     * @return false if the partition has been retired and is closing
+     */
+    boolean pin() {
+        for (int n = pins.get(); n >= 0; n = pins.get()) {
+            if (pins.compareAndSet(n, n + 1)) {
+                lastUsedNanos = System.nanoTime();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void unpin() {
+        lastUsedNanos = System.nanoTime();
+        pins.decrementAndGet();
+    }
+
+    /**
+     * Retires the partition for closing if no operation has it pinned; a retired
+     * partition can never be pinned again.
+     *
+     * @return whether the caller may now close it
+     */
+    boolean retire() {
+        return pins.compareAndSet(0, -1);
+    }
+
+    long idleMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastUsedNanos);
+    }
+
+    /** Closes the searcher manager, commits and closes the writer, then the directory. */
+    @Override
+    public void close() throws IOException {
+        try {
+            searcherManager.close();
+        } finally {
+            try {
+                if (writer != null) {
+                    writer.commit();
+                    writer.close();
+                }
+            } finally {
+                directory.close();
+            }
+        }
+    }
+}
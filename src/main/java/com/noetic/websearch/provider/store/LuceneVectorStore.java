@@ -1,19 +1,25 @@
 package com.noetic.websearch.provider.store;
 
+import com.noetic.websearch.kernel.VectorKernels;
 import com.noetic.websearch.model.*;
 import com.noetic.websearch.provider.VectorStore;
 import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.stereotype.Component;
 
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.codecs.KnnVectorsFormat;
+import org.apache.lucene.codecs.lucene101.Lucene101Codec;
 import org.apache.lucene.document.*;
 import org.apache.lucene.index.*;
 import org.apache.lucene.search.*;
+import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.store.FSDirectory;
 import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.QueryBuilder;
 
 import java.io.IOException;
 import java.nio.file.Files;
@@ -21,6 +27,10 @@ import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Stream;
 
@@ -37,8 +47,38 @@ import java.util.stream.Stream;
  *
  * <p>Searches use Lucene {@link MultiReader} to query both the agent's own index
  * and the shared index simultaneously.</p>
+ *
+ * <p>Readers are long-lived: a near-real-time {@link SearcherManager} tracks the
+ * {@link IndexWriter}, and in agent mode a second manager tracks commits to the
+ * shared index. Both are refreshed after writes and on a background schedule, so
+ * queries reuse warm segment readers and HNSW graphs instead of reopening the index.</p>
+ *
+ * <p>Durability is governed by a {@link CommitPolicy}: commit per operation, group
+ * commit every N ms / N docs, or commit only on shutdown. Visibility never waits on
+ * a commit -- new entries are searchable as soon as the NRT searcher refreshes.</p>
+ *
+ * <p>The vector field can be stored scalar- or binary-quantized (see
+ * {@link VectorQuantization}) to shrink the HNSW working set; quantized searches
+ * can oversample candidates and rescore them against the raw float vectors.</p>
+ *
+ * <p>{@link MetadataFilter}s are translated into a Lucene pre-filter for the kNN
+ * query, so filtered searches run in one pass without losing recall. Filter
+ * bitsets are cached per segment in a store-wide {@link LRUQueryCache}, which
+ * stays valid across NRT refreshes for segments that did not change.</p>
+ *
+ * <p>Content is also indexed as analyzed text, so {@link #hybridSearch} can fuse
+ * BM25 and kNN rankings over the same searcher with reciprocal-rank fusion.</p>
+ *
+ * <p>Every entry carries a normalized {@link ContentHash} term so ingest can find
+ * existing copies of a chunk and skip re-embedding it.</p>
+ *
+ * <p>With the {@link IndexLayout#PER_NAMESPACE} layout each namespace gets its own
+ * {@link IndexPartition} (index, HNSW graph and writer) under {@code ns/}, in both
+ * tiers. Namespace-scoped operations touch only that partition, so their cost
+ * tracks the namespace's size; operations without a namespace fan out over all
+ * partitions. Partitions open on first use and are closed again after sitting
+ * idle. Entry IDs are unique per namespace in this layout.</p>
  */
-@Component
 public class LuceneVectorStore implements VectorStore {
 
     private static final Logger log = LoggerFactory.getLogger(LuceneVectorStore.class);
@@ -48,6 +88,29 @@ public class LuceneVectorStore implements VectorStore {
     static final String FIELD_ENTRY_TYPE = "entryType";
     static final String FIELD_NAMESPACE = "namespace";
     static final String FIELD_CREATED_AT = "createdAt";
+    static final String FIELD_CREATED_AT_EPOCH = FIELD_CREATED_AT + "_epoch";
+    static final String FIELD_CONTENT_HASH = "contentHash";
+    static final String FIELD_INDEXED_AT_EPOCH = "indexedAt_epoch";
+
+    /** Commit user data key (plus agent ID) holding that agent's last promote time. */
+    static final String PROMOTE_WATERMARK_PREFIX = "promote.watermark.";
+
+    /** Reciprocal-rank fusion constant (the k in 1/(k + rank)); 60 is the usual choice. */
+    private static final int RRF_RANK_CONSTANT = 60;
+
+    /** Each side of a hybrid search retrieves this many times topK candidates before fusion. */
+    private static final int HYBRID_DEPTH_FACTOR = 4;
+    private static final int HYBRID_MIN_DEPTH = 20;
+
+    /** Sub-directory of an index path that holds per-namespace partitions. */
+    static final String NAMESPACE_DIR = "ns";
+
+    /** Partition key of the whole index in the single layout. */
+    private static final String SINGLE_PARTITION = "";
+
+    /** Upper bounds for the per-segment filter bitset cache. */
+    private static final int FILTER_CACHE_MAX_QUERIES = 256;
+    private static final long FILTER_CACHE_MAX_RAM_BYTES = 32L * 1024 * 1024;
 
     @Value("${websearch.store.lucene.index-path:${user.home}/.websearch/index}")
     private String sharedIndexPath;
@@ -58,14 +121,81 @@ public class LuceneVectorStore implements VectorStore {
     @Value("${websearch.store.lucene.agents-dir:${user.home}/.websearch/agents}")
     private String agentsDir;
 
-    /** The writable index -- either the shared index or an agent-specific index. */
-    private FSDirectory writeDirectory;
-    private IndexWriter writer;
+    @Value("${websearch.store.lucene.refresh-interval-ms:1000}")
+    private long refreshIntervalMs;
+
+    @Value("${websearch.store.lucene.commit.policy:per-op}")
+    private String commitPolicyName;
+
+    @Value("${websearch.store.lucene.commit.interval-ms:1000}")
+    private long commitIntervalMs;
+
+    @Value("${websearch.store.lucene.commit.max-docs:1000}")
+    private int commitMaxDocs;
+
+    @Value("${websearch.store.lucene.vector-encoding:float32}")
+    private String vectorEncodingName;
+
+    @Value("${websearch.store.lucene.rescore-oversample:0}")
+    private int rescoreOversample;
+
+    @Value("${websearch.store.lucene.layout:single}")
+    private String layoutName;
+
+    @Value("${websearch.store.lucene.partition-idle-timeout-ms:300000}")
+    private long partitionIdleTimeoutMs;
+
+    /** Root of the writable tier -- either the shared index or an agent-specific index. */
+    private Path writeRoot;
+
+    /** Root of the shared tier read in agent mode (null if this IS the shared index). */
+    private Path sharedRoot;
+
+    /** Open writable partitions by key; the single layout has exactly one. */
+    private final Map<String, IndexPartition> partitions = new ConcurrentHashMap<>();
 
-    /** The shared index opened read-only (null if this IS the shared index). */
-    private FSDirectory sharedDirectory;
+    /** Open read-only shared partitions in agent mode, added once the index exists. */
+    private final Map<String, IndexPartition> sharedPartitions = new ConcurrentHashMap<>();
 
-    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    /** Runs searcher refreshes, group commits and idle partition eviction in the background. */
+    private ScheduledExecutorService scheduler;
+
+    private CommitPolicy commitPolicy = CommitPolicy.PER_OP;
+
+    private VectorQuantization vectorEncoding = VectorQuantization.FLOAT32;
+
+    private IndexLayout layout = IndexLayout.SINGLE;
+
+    /** Roots set by {@link #configureAsShard}; null for a standalone store. */
+    private Path shardSharedRoot;
+    private Path shardAgentRoot;
+
+    /**
+     * Caches filter bitsets per segment. Lucene's usage-tracking policy only
+     * caches filters that recur, so the namespace/metadata pre-filters searches
+     * repeat stay cached while one-off ID, hash and source lookups cannot evict
+     * them; {@link #forEachMatch} bypasses the cache entirely.
+     */
+    private final LRUQueryCache filterCache = new LRUQueryCache(
+            FILTER_CACHE_MAX_QUERIES, FILTER_CACHE_MAX_RAM_BYTES, leaf -> true, 10f);
+    private final QueryCachingPolicy filterCachingPolicy = new UsageTrackingQueryCachingPolicy();
+    /** Analyzes hybrid query text the same way content is indexed. */
+    private final QueryBuilder lexicalQueryBuilder = new QueryBuilder(new StandardAnalyzer());
+
+    private final SearcherFactory searcherFactory = new SearcherFactory() {
+        @Override
+        public IndexSearcher newSearcher(IndexReader reader, IndexReader previousReader) {
+            return newCachingSearcher(reader);
+        }
+    };
+
+    /**
+     * Guards partition lifecycle, not data. Reads and writes share the read side and
+     * run concurrently -- IndexWriter is thread-safe and searchers are point-in-time
+     * snapshots. Only close and promote take the write side; idle eviction relies
+     * on {@link IndexPartition#pin} instead, so it never stalls other namespaces.
+     */
+    private final ReentrantReadWriteLock lifecycleLock = new ReentrantReadWriteLock();
 
     private boolean isAgentMode;
 
@@ -76,8 +206,13 @@ public class LuceneVectorStore implements VectorStore {
 
     @Override
     public StoreCapabilities capabilities() {
+        Duration durabilityWindow = switch (commitPolicy) {
+            case PER_OP -> Duration.ZERO;
+            case GROUP -> Duration.ofMillis(commitIntervalMs);
+            case SHUTDOWN -> null;
+        };
         return new StoreCapabilities(
-                true, true, true, true, false, false, 1000);
+                true, true, true, true, false, false, true, 1000, durabilityWindow);
     }
 
     @Override
@@ -85,6 +220,9 @@ public class LuceneVectorStore implements VectorStore {
     public void initialize() {
         try {
             isAgentMode = agentId != null && !agentId.isBlank();
+            commitPolicy = CommitPolicy.parse(commitPolicyName);
+            vectorEncoding = VectorQuantization.parse(vectorEncodingName);
+            layout = IndexLayout.parse(layoutName);
 
             // Clean up stale agent directories from previous MCP sessions.
             // Each STDIO session generates a unique agent-id (mcp-<uuid>); over
@@ -94,71 +232,82 @@ public class LuceneVectorStore implements VectorStore {
 
             if (isAgentMode) {
                 // Agent mode: write to per-agent index, read from both
-                Path agentPath = Path.of(agentsDir, agentId);
-                Files.createDirectories(agentPath);
-                writeDirectory = FSDirectory.open(agentPath);
-
-                IndexWriterConfig config = new IndexWriterConfig(new StandardAnalyzer());
-                config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
-                writer = new IndexWriter(writeDirectory, config);
-                writer.commit();
-
-                // Open shared index read-only (if it exists)
-                Path sharedPath = Path.of(sharedIndexPath);
-                if (Files.exists(sharedPath) && Files.exists(sharedPath.resolve("segments_1").resolveSibling("write.lock").getParent())) {
-                    try {
-                        sharedDirectory = FSDirectory.open(sharedPath);
-                        // Verify it's a valid index by trying to open a reader
-                        if (DirectoryReader.indexExists(sharedDirectory)) {
-                            log.info("Agent '{}' will also search shared index at: {}", agentId, sharedIndexPath);
-                        } else {
-                            sharedDirectory.close();
-                            sharedDirectory = null;
-                        }
-                    } catch (IOException e) {
-                        log.debug("Shared index not available for reading: {}", e.getMessage());
-                        sharedDirectory = null;
-                    }
-                }
-
-                log.info("LuceneVectorStore initialized in agent mode: agent={}, path={}", agentId, agentPath);
+                writeRoot = shardAgentRoot != null ? shardAgentRoot : Path.of(agentsDir, agentId);
+                sharedRoot = shardSharedRoot != null ? shardSharedRoot : Path.of(sharedIndexPath);
             } else {
                 // Server mode: write directly to the shared index
-                Path path = Path.of(sharedIndexPath);
-                Files.createDirectories(path);
-                writeDirectory = FSDirectory.open(path);
+                writeRoot = shardSharedRoot != null ? shardSharedRoot : Path.of(sharedIndexPath);
+            }
+            Files.createDirectories(writeRoot);
 
-                IndexWriterConfig config = new IndexWriterConfig(new StandardAnalyzer());
-                config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
-                writer = new IndexWriter(writeDirectory, config);
-                writer.commit();
+            if (layout == IndexLayout.SINGLE) {
+                writablePartition(SINGLE_PARTITION).unpin();
+                // The shared index may not exist yet; the refresher picks it up once one appears
+                IndexPartition shared = isAgentMode ? sharedPartition(SINGLE_PARTITION) : null;
+                if (shared != null) {
+                    shared.unpin();
+                    log.info("Agent '{}' will also search shared index at: {}", agentId, sharedIndexPath);
+                }
+            }
 
-                log.info("LuceneVectorStore initialized at: {}", sharedIndexPath);
+            if (isAgentMode) {
+                log.info("LuceneVectorStore initialized in agent mode: agent={}, path={} (layout: {})",
+                        agentId, writeRoot, layout);
+            } else {
+                log.info("LuceneVectorStore initialized at: {} (commit policy: {}, vector encoding: {}, layout: {})",
+                        writeRoot, commitPolicy, vectorEncoding, layout);
             }
+
+            startBackgroundTasks();
         } catch (IOException e) {
             throw new RuntimeException("Failed to initialize Lucene index: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Points this store at one shard's directories instead of the configured index
+     * and agent paths. Must be called before {@link #initialize()}.
+     *
+     * @param sharedRoot the shard's directory in the shared index
+     * @param agentRoot  the shard's directory in this agent's index (used in agent mode)
+     */
+    void configureAsShard(Path sharedRoot, Path agentRoot) {
+        this.shardSharedRoot = sharedRoot;
+        this.shardAgentRoot = agentRoot;
+    }
+
     @Override
     public void close() {
-        lock.writeLock().lock();
-        try {
-            if (writer != null) {
-                writer.commit();
-                writer.close();
+        if (scheduler != null) {
+            // Let an in-flight refresh or commit finish: interrupting Lucene I/O closes the writer
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
-            if (writeDirectory != null) {
-                writeDirectory.close();
+        }
+        lifecycleLock.writeLock().lock();
+        try {
+            for (IndexPartition partition : sharedPartitions.values()) {
+                closeQuietly(partition);
             }
-            if (sharedDirectory != null) {
-                sharedDirectory.close();
+            sharedPartitions.clear();
+            for (IndexPartition partition : partitions.values()) {
+                closeQuietly(partition);
             }
+            partitions.clear();
             log.info("LuceneVectorStore closed");
+        } finally {
+            lifecycleLock.writeLock().unlock();
+        }
+    }
+
+    private void closeQuietly(IndexPartition partition) {
+        try {
+            partition.close();
         } catch (IOException e) {
             log.error("Error closing LuceneVectorStore: {}", e.getMessage());
-        } finally {
-            lock.writeLock().unlock();
         }
     }
 
@@ -166,82 +315,106 @@ public class LuceneVectorStore implements VectorStore {
 
     @Override
     public void upsert(VectorEntry entry) {
-        lock.writeLock().lock();
+        lifecycleLock.readLock().lock();
         try {
-            writer.deleteDocuments(new Term(FIELD_ID, entry.id()));
-            writer.addDocument(createDocument(entry));
-            writer.commit();
+            IndexPartition partition = writablePartition(partitionKey(entry.namespace()));
+            try {
+                partition.writer().updateDocument(new Term(FIELD_ID, entry.id()), createDocument(entry));
+                partition.afterWrite(1, commitPolicy, commitMaxDocs);
+            } finally {
+                partition.unpin();
+            }
         } catch (IOException e) {
             throw new RuntimeException("Upsert failed: " + e.getMessage(), e);
         } finally {
-            lock.writeLock().unlock();
+            lifecycleLock.readLock().unlock();
         }
     }
 
     @Override
     public void upsertBatch(List<VectorEntry> entries) {
-        lock.writeLock().lock();
+        lifecycleLock.readLock().lock();
         try {
+            Map<String, List<VectorEntry>> byPartition = new LinkedHashMap<>();
             for (VectorEntry entry : entries) {
-                writer.deleteDocuments(new Term(FIELD_ID, entry.id()));
-                writer.addDocument(createDocument(entry));
+                byPartition.computeIfAbsent(partitionKey(entry.namespace()), k -> new ArrayList<>()).add(entry);
+            }
+            for (Map.Entry<String, List<VectorEntry>> group : byPartition.entrySet()) {
+                IndexPartition partition = writablePartition(group.getKey());
+                try {
+                    for (VectorEntry entry : group.getValue()) {
+                        // Atomic delete+add, so concurrent upserts of one ID never leave two copies
+                        partition.writer().updateDocument(new Term(FIELD_ID, entry.id()), createDocument(entry));
+                    }
+                    partition.afterWrite(group.getValue().size(), commitPolicy, commitMaxDocs);
+                } finally {
+                    partition.unpin();
+                }
             }
-            writer.commit();
         } catch (IOException e) {
             throw new RuntimeException("Batch upsert failed: " + e.getMessage(), e);
         } finally {
-            lock.writeLock().unlock();
+            lifecycleLock.readLock().unlock();
         }
     }
 
     @Override
     public void delete(String id) {
-        lock.writeLock().lock();
+        lifecycleLock.readLock().lock();
+        List<IndexPartition> pinned = List.of();
         try {
-            writer.deleteDocuments(new Term(FIELD_ID, id));
-            writer.commit();
+            pinned = allWritablePartitions();
+            for (IndexPartition partition : pinned) {
+                partition.writer().deleteDocuments(new Term(FIELD_ID, id));
+                partition.afterWrite(1, commitPolicy, commitMaxDocs);
+            }
         } catch (IOException e) {
             throw new RuntimeException("Delete failed: " + e.getMessage(), e);
         } finally {
-            lock.writeLock().unlock();
+            unpinAll(pinned);
+            lifecycleLock.readLock().unlock();
         }
     }
 
     @Override
     public void deleteBatch(List<String> ids) {
-        lock.writeLock().lock();
+        lifecycleLock.readLock().lock();
+        List<IndexPartition> pinned = List.of();
         try {
-            for (String id : ids) {
-                writer.deleteDocuments(new Term(FIELD_ID, id));
+            pinned = allWritablePartitions();
+            for (IndexPartition partition : pinned) {
+                for (String id : ids) {
+                    partition.writer().deleteDocuments(new Term(FIELD_ID, id));
+                }
+                partition.afterWrite(ids.size(), commitPolicy, commitMaxDocs);
             }
-            writer.commit();
         } catch (IOException e) {
             throw new RuntimeException("Batch delete failed: " + e.getMessage(), e);
         } finally {
-            lock.writeLock().unlock();
+            unpinAll(pinned);
+            lifecycleLock.readLock().unlock();
         }
     }
 
     @Override
     public void deleteByMetadata(MetadataFilter filter) {
-        lock.writeLock().lock();
+        Query query = toFilterQuery(filter);
+        if (query == null) {
+            return; // an empty filter deletes nothing
+        }
+        lifecycleLock.readLock().lock();
+        List<IndexPartition> pinned = List.of();
         try {
-            BooleanQuery.Builder queryBuilder = new BooleanQuery.Builder();
-            for (Map.Entry<String, String> eq : filter.equals().entrySet()) {
-                queryBuilder.add(new TermQuery(new Term(eq.getKey(), eq.getValue())),
-                        BooleanClause.Occur.MUST);
-            }
-            if (filter.createdBefore() != null) {
-                queryBuilder.add(LongPoint.newRangeQuery(FIELD_CREATED_AT + "_epoch",
-                        Long.MIN_VALUE, filter.createdBefore().toEpochMilli()),
-                        BooleanClause.Occur.MUST);
-            }
-            writer.deleteDocuments(queryBuilder.build());
-            writer.commit();
+            pinned = allWritablePartitions();
+            for (IndexPartition partition : pinned) {
+                partition.writer().deleteDocuments(query);
+                partition.afterWrite(1, commitPolicy, commitMaxDocs);
+            }
         } catch (IOException e) {
             throw new RuntimeException("DeleteByMetadata failed: " + e.getMessage(), e);
         } finally {
-            lock.writeLock().unlock();
+            unpinAll(pinned);
+            lifecycleLock.readLock().unlock();
         }
     }
 
@@ -249,83 +422,421 @@ public class LuceneVectorStore implements VectorStore {
 
     @Override
     public Optional<VectorEntry> get(String id) {
-        lock.readLock().lock();
-        try (IndexReader reader = openMultiReader()) {
-            IndexSearcher searcher = new IndexSearcher(reader);
+        lifecycleLock.readLock().lock();
+        try (SearcherLease lease = acquireSearcher(null)) {
+            IndexSearcher searcher = lease.searcher();
             Query query = new TermQuery(new Term(FIELD_ID, id));
             TopDocs topDocs = searcher.search(query, 1);
             if (topDocs.totalHits.value() == 0) {
                 return Optional.empty();
             }
-            Document doc = searcher.storedFields().document(topDocs.scoreDocs[0].doc);
-            return Optional.of(documentToEntry(doc));
+            int docId = topDocs.scoreDocs[0].doc;
+            Document doc = searcher.storedFields().document(docId);
+            float[] vector = readVector(searcher.getIndexReader(), docId);
+            return vector != null ? Optional.of(documentToEntry(doc, vector)) : Optional.empty();
         } catch (IOException e) {
             throw new RuntimeException("Get failed: " + e.getMessage(), e);
         } finally {
-            lock.readLock().unlock();
+            lifecycleLock.readLock().unlock();
         }
     }
 
     @Override
     public List<VectorMatch> search(VectorSearchRequest request) {
-        lock.readLock().lock();
-        try (IndexReader reader = openMultiReader()) {
-            IndexSearcher searcher = new IndexSearcher(reader);
-
-            Query knnQuery;
-            if (request.namespace() != null && !request.namespace().isBlank()) {
-                BooleanQuery.Builder nsFilter = new BooleanQuery.Builder();
-                nsFilter.add(new TermQuery(new Term(FIELD_NAMESPACE, request.namespace())),
-                        BooleanClause.Occur.SHOULD);
-                if ("default".equals(request.namespace())) {
-                    nsFilter.add(new BooleanQuery.Builder()
-                            .add(new MatchAllDocsQuery(), BooleanClause.Occur.MUST)
-                            .add(new TermQuery(new Term(FIELD_NAMESPACE, request.namespace())),
-                                    BooleanClause.Occur.MUST_NOT)
-                            .build(), BooleanClause.Occur.SHOULD);
-                }
-                knnQuery = new KnnFloatVectorQuery(FIELD_VECTOR,
-                        request.queryVector(), request.topK(), nsFilter.build());
-            } else {
-                knnQuery = new KnnFloatVectorQuery(FIELD_VECTOR,
-                        request.queryVector(), request.topK());
-            }
-
-            TopDocs topDocs = searcher.search(knnQuery, request.topK());
+        lifecycleLock.readLock().lock();
+        try (SearcherLease lease = acquireSearcher(request.namespace())) {
+            IndexSearcher searcher = lease.searcher();
+            ScoreDoc[] hits = vectorHits(searcher, request, buildPreFilter(request), request.topK());
 
+            StoredFields storedFields = searcher.storedFields();
             List<VectorMatch> matches = new ArrayList<>();
-            for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+            for (ScoreDoc scoreDoc : hits) {
                 if (scoreDoc.score < request.similarityThreshold()) continue;
-                Document doc = searcher.storedFields().document(scoreDoc.doc);
-                String id = doc.get(FIELD_ID);
-                String content = doc.get(FIELD_CONTENT);
-                Map<String, String> metadata = new HashMap<>();
-                for (IndexableField field : doc.getFields()) {
-                    String name = field.name();
-                    if (!name.equals(FIELD_ID) && !name.equals(FIELD_VECTOR)
-                            && !name.equals(FIELD_CONTENT)) {
-                        metadata.put(name, field.stringValue());
-                    }
-                }
-                matches.add(new VectorMatch(id, scoreDoc.score, content, metadata));
+                matches.add(toMatch(storedFields, scoreDoc.doc, scoreDoc.score));
             }
             return matches;
         } catch (IOException e) {
             throw new RuntimeException("Search failed: " + e.getMessage(), e);
         } finally {
-            lock.readLock().unlock();
+            lifecycleLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Runs BM25 over the analyzed content field and kNN over the vector field on the
+     * same point-in-time searcher, then merges the two rankings with reciprocal-rank
+     * fusion. Namespace and metadata filters apply to both sides. The similarity
+     * threshold prunes kNN candidates only; returned scores are fused RRF scores.
+     */
+    @Override
+    public List<VectorMatch> hybridSearch(VectorSearchRequest request, String queryText) {
+        Query lexicalQuery = queryText != null
+                ? lexicalQueryBuilder.createBooleanQuery(FIELD_CONTENT, queryText) : null;
+        if (lexicalQuery == null) {
+            return search(request); // nothing to match lexically (blank or all stop words)
+        }
+
+        lifecycleLock.readLock().lock();
+        try (SearcherLease lease = acquireSearcher(request.namespace())) {
+            IndexSearcher searcher = lease.searcher();
+            int depth = Math.max(request.topK() * HYBRID_DEPTH_FACTOR, HYBRID_MIN_DEPTH);
+            Query preFilter = buildPreFilter(request);
+
+            ScoreDoc[] vectorHits = vectorHits(searcher, request, preFilter, depth);
+            if (preFilter != null) {
+                lexicalQuery = new BooleanQuery.Builder()
+                        .add(lexicalQuery, BooleanClause.Occur.MUST)
+                        .add(preFilter, BooleanClause.Occur.FILTER)
+                        .build();
+            }
+            ScoreDoc[] lexicalHits = searcher.search(lexicalQuery, depth).scoreDocs;
+
+            Map<Integer, Float> fused = new HashMap<>();
+            int rank = 0;
+            for (ScoreDoc hit : vectorHits) {
+                if (hit.score < request.similarityThreshold()) continue;
+                fused.merge(hit.doc, 1f / (RRF_RANK_CONSTANT + ++rank), Float::sum);
+            }
+            rank = 0;
+            for (ScoreDoc hit : lexicalHits) {
+                fused.merge(hit.doc, 1f / (RRF_RANK_CONSTANT + ++rank), Float::sum);
+            }
+
+            StoredFields storedFields = searcher.storedFields();
+            List<VectorMatch> matches = new ArrayList<>();
+            List<Map.Entry<Integer, Float>> ranked = new ArrayList<>(fused.entrySet());
+            ranked.sort(Map.Entry.<Integer, Float>comparingByValue().reversed());
+            for (Map.Entry<Integer, Float> entry : ranked.subList(0, Math.min(request.topK(), ranked.size()))) {
+                matches.add(toMatch(storedFields, entry.getKey(), entry.getValue()));
+            }
+            return matches;
+        } catch (IOException e) {
+            throw new RuntimeException("Hybrid search failed: " + e.getMessage(), e);
+        } finally {
+            lifecycleLock.readLock().unlock();
         }
     }
 
     @Override
     public long count() {
-        lock.readLock().lock();
-        try (IndexReader reader = openMultiReader()) {
-            return reader.numDocs();
+        lifecycleLock.readLock().lock();
+        try (SearcherLease lease = acquireSearcher(null)) {
+            return lease.searcher().getIndexReader().numDocs();
         } catch (IOException e) {
             throw new RuntimeException("Count failed: " + e.getMessage(), e);
         } finally {
-            lock.readLock().unlock();
+            lifecycleLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Combined namespace and metadata pre-filter for a search request. A namespace
+     * partition holds only that namespace, so partitioned searches skip the
+     * namespace clause.
+     *
+     * @return the filter, or null if the request is unfiltered
+     */
+    private Query buildPreFilter(VectorSearchRequest request) {
+        BooleanQuery.Builder preFilter = new BooleanQuery.Builder();
+        boolean filtered = false;
+        if (layout == IndexLayout.SINGLE && request.namespace() != null && !request.namespace().isBlank()) {
+            BooleanQuery.Builder nsFilter = new BooleanQuery.Builder();
+            nsFilter.add(new TermQuery(new Term(FIELD_NAMESPACE, request.namespace())),
+                    BooleanClause.Occur.SHOULD);
+            if ("default".equals(request.namespace())) {
+                nsFilter.add(new BooleanQuery.Builder()
+                        .add(new MatchAllDocsQuery(), BooleanClause.Occur.MUST)
+                        .add(new TermQuery(new Term(FIELD_NAMESPACE, request.namespace())),
+                                BooleanClause.Occur.MUST_NOT)
+                        .build(), BooleanClause.Occur.SHOULD);
+            }
+            preFilter.add(nsFilter.build(), BooleanClause.Occur.FILTER);
+            filtered = true;
+        }
+        Query metadataFilter = request.filter() != null ? toFilterQuery(request.filter()) : null;
+        if (metadataFilter != null) {
+            preFilter.add(metadataFilter, BooleanClause.Occur.FILTER);
+            filtered = true;
+        }
+        return filtered ? preFilter.build() : null;
+    }
+
+    /**
+     * Top {@code k} kNN hits under the pre-filter. Quantized scores are approximate,
+     * so when rescoring is enabled this oversamples and rescores at full precision.
+     */
+    private ScoreDoc[] vectorHits(IndexSearcher searcher, VectorSearchRequest request,
+                                  Query preFilter, int k) throws IOException {
+        boolean rescore = vectorEncoding.isQuantized() && rescoreOversample > 1;
+        int candidates = rescore ? k * rescoreOversample : k;
+
+        Query knnQuery = preFilter != null
+                ? new KnnFloatVectorQuery(FIELD_VECTOR, request.queryVector(), candidates, preFilter)
+                : new KnnFloatVectorQuery(FIELD_VECTOR, request.queryVector(), candidates);
+
+        ScoreDoc[] hits = searcher.search(knnQuery, candidates).scoreDocs;
+        return rescore ? rescore(searcher, hits, request.queryVector(), k) : hits;
+    }
+
+    /** Loads a hit's stored fields into a match; all non-core fields become metadata. */
+    private static VectorMatch toMatch(StoredFields storedFields, int docId, float score) throws IOException {
+        Document doc = storedFields.document(docId);
+        Map<String, String> metadata = new HashMap<>();
+        for (IndexableField field : doc.getFields()) {
+            String name = field.name();
+            if (!name.equals(FIELD_ID) && !name.equals(FIELD_VECTOR)
+                    && !name.equals(FIELD_CONTENT) && !name.equals(FIELD_CONTENT_HASH)) {
+                metadata.put(name, field.stringValue());
+            }
+        }
+        return new VectorMatch(doc.get(FIELD_ID), score, doc.get(FIELD_CONTENT), metadata);
+    }
+
+    /**
+     * Translates a {@link MetadataFilter} into a non-scoring Lucene query:
+     * {@code equals} become term filters, {@code contains} become substring
+     * wildcards over the keyword value, and the created-after/before bounds
+     * become a point range on {@code createdAt_epoch} (after is exclusive,
+     * before is inclusive, matching eviction's cutoff semantics).
+     *
+     * @return the filter query, or null if the filter constrains nothing
+     */
+    static Query toFilterQuery(MetadataFilter filter) {
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        boolean constrained = false;
+        for (Map.Entry<String, String> eq : filter.equals().entrySet()) {
+            builder.add(new TermQuery(new Term(eq.getKey(), eq.getValue())), BooleanClause.Occur.FILTER);
+            constrained = true;
+        }
+        for (Map.Entry<String, String> contains : filter.contains().entrySet()) {
+            builder.add(new WildcardQuery(new Term(contains.getKey(),
+                    "*" + escapeWildcard(contains.getValue()) + "*")), BooleanClause.Occur.FILTER);
+            constrained = true;
+        }
+        if (filter.createdAfter() != null || filter.createdBefore() != null) {
+            long lower = filter.createdAfter() != null
+                    ? Math.addExact(filter.createdAfter().toEpochMilli(), 1) : Long.MIN_VALUE;
+            long upper = filter.createdBefore() != null
+                    ? filter.createdBefore().toEpochMilli() : Long.MAX_VALUE;
+            builder.add(LongPoint.newRangeQuery(FIELD_CREATED_AT_EPOCH, lower, upper),
+                    BooleanClause.Occur.FILTER);
+            constrained = true;
+        }
+        return constrained ? builder.build() : null;
+    }
+
+    private static String escapeWildcard(String value) {
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == WildcardQuery.WILDCARD_STRING || c == WildcardQuery.WILDCARD_CHAR
+                    || c == WildcardQuery.WILDCARD_ESCAPE) {
+                sb.append(WildcardQuery.WILDCARD_ESCAPE);
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Re-scores kNN candidates against the raw float32 vectors (which quantized
+     * formats keep alongside the quantized copy) using the field's own similarity
+     * function, then keeps the best {@code topK}. The similarity is Lucene's own
+     * vectorized implementation, so stored scores and thresholds keep their scale.
+     */
+    private ScoreDoc[] rescore(IndexSearcher searcher, ScoreDoc[] candidates,
+                               float[] queryVector, int topK) throws IOException {
+        List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+        ScoreDoc[] byDoc = candidates.clone();
+        Arrays.sort(byDoc, Comparator.comparingInt(sd -> sd.doc));
+
+        int currentLeaf = -1;
+        FloatVectorValues vectors = null;
+        KnnVectorValues.DocIndexIterator iterator = null;
+        VectorSimilarityFunction similarity = null;
+
+        for (ScoreDoc candidate : byDoc) {
+            int leafIndex = ReaderUtil.subIndex(candidate.doc, leaves);
+            LeafReaderContext leaf = leaves.get(leafIndex);
+            if (leafIndex != currentLeaf) {
+                currentLeaf = leafIndex;
+                vectors = leaf.reader().getFloatVectorValues(FIELD_VECTOR);
+                iterator = vectors != null ? vectors.iterator() : null;
+                FieldInfo info = leaf.reader().getFieldInfos().fieldInfo(FIELD_VECTOR);
+                similarity = info != null ? info.getVectorSimilarityFunction() : null;
+            }
+            if (iterator == null || similarity == null) {
+                continue; // keep the approximate score
+            }
+            int localDoc = candidate.doc - leaf.docBase;
+            int current = iterator.docID();
+            if (current < localDoc) {
+                current = iterator.advance(localDoc);
+            }
+            if (current == localDoc) {
+                candidate.score = similarity.compare(queryVector, vectors.vectorValue(iterator.index()));
+            }
+        }
+
+        // Partial selection: only the kept hits are ordered
+        float[] scores = new float[byDoc.length];
+        for (int i = 0; i < byDoc.length; i++) {
+            scores[i] = byDoc[i].score;
+        }
+        int[] best = VectorKernels.topK(scores, scores.length, topK);
+        ScoreDoc[] top = new ScoreDoc[best.length];
+        for (int i = 0; i < best.length; i++) {
+            top[i] = byDoc[best[i]];
+        }
+        return top;
+    }
+
+    // -- Deduplication --
+
+    /**
+     * Finds existing entries by content hash, across the writable index and (in
+     * agent mode) the shared index. Namespaces match exactly; entries of other
+     * sources are skipped as they are read.
+     */
+    @Override
+    public Map<String, String> findByContentHash(String namespace, String sourceUrl,
+                                                 Collection<String> contentHashes) {
+        if (contentHashes.isEmpty()) {
+            return Map.of();
+        }
+        List<BytesRef> terms = contentHashes.stream().distinct().map(BytesRef::new).toList();
+        Query query = new BooleanQuery.Builder()
+                .add(new TermInSetQuery(FIELD_CONTENT_HASH, terms), BooleanClause.Occur.FILTER)
+                .add(new TermQuery(new Term(FIELD_NAMESPACE, namespace != null ? namespace : "default")),
+                        BooleanClause.Occur.FILTER)
+                .build();
+
+        lifecycleLock.readLock().lock();
+        try (SearcherLease lease = acquireSearcher(namespace != null ? namespace : "default")) {
+            IndexSearcher searcher = lease.searcher();
+            Map<String, String> existing = new HashMap<>();
+            forEachMatch(searcher, query, Set.of(FIELD_ID, FIELD_CONTENT_HASH, "sourceUrl"), (leaf, doc) -> {
+                if (Objects.equals(doc.get("sourceUrl"), sourceUrl)) {
+                    existing.putIfAbsent(doc.get(FIELD_CONTENT_HASH), doc.get(FIELD_ID));
+                }
+            });
+            return existing;
+        } catch (IOException e) {
+            throw new RuntimeException("Content hash lookup failed: " + e.getMessage(), e);
+        } finally {
+            lifecycleLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Lists entries by their {@code sourceUrl} metadata field, across the same
+     * indexes as {@link #findByContentHash}.
+     */
+    @Override
+    public Map<String, String> findBySource(String namespace, String sourceUrl) {
+        Query query = new BooleanQuery.Builder()
+                .add(new TermQuery(new Term("sourceUrl", sourceUrl)), BooleanClause.Occur.FILTER)
+                .add(new TermQuery(new Term(FIELD_NAMESPACE, namespace != null ? namespace : "default")),
+                        BooleanClause.Occur.FILTER)
+                .build();
+
+        lifecycleLock.readLock().lock();
+        try (SearcherLease lease = acquireSearcher(namespace != null ? namespace : "default")) {
+            IndexSearcher searcher = lease.searcher();
+            Map<String, String> found = new HashMap<>();
+            forEachMatch(searcher, query, Set.of(FIELD_ID, FIELD_CONTENT_HASH),
+                    (leaf, doc) -> found.put(doc.get(FIELD_ID), doc.get(FIELD_CONTENT_HASH)));
+            return found;
+        } catch (IOException e) {
+            throw new RuntimeException("Source lookup failed: " + e.getMessage(), e);
+        } finally {
+            lifecycleLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Re-writes each entry with {@code createdAt} set to now and the given metadata
+     * merged in. The vector is read back from the index, so nothing is re-embedded.
+     * Only entries in the writable tier can be touched; shared-index entries seen
+     * from agent mode are left as they are.
+     */
+    @Override
+    public int touch(Collection<String> ids, Map<String, String> metadata) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        List<BytesRef> terms = ids.stream().distinct().map(BytesRef::new).toList();
+        Query query = new TermInSetQuery(FIELD_ID, terms);
+
+        lifecycleLock.readLock().lock();
+        List<IndexPartition> pinned = List.of();
+        try {
+            int touched = 0;
+            Instant now = Instant.now();
+            pinned = allWritablePartitions();
+            for (IndexPartition partition : pinned) {
+                IndexSearcher searcher = partition.acquire(true); // rewrites what it reads, so see everything
+                List<VectorEntry> refreshed = new ArrayList<>();
+                try {
+                    forEachMatch(searcher, query, null, (leaf, doc) -> {
+                        float[] vector = readVector(searcher.getIndexReader(), leaf);
+                        if (vector == null) return;
+                        VectorEntry old = documentToEntry(doc, vector);
+                        Map<String, String> merged = new HashMap<>(old.metadata());
+                        merged.putAll(metadata);
+                        refreshed.add(new VectorEntry(old.id(), vector, old.content(), old.entryType(),
+                                old.namespace(), now, merged));
+                    });
+                } finally {
+                    partition.release(searcher);
+                }
+
+                for (VectorEntry entry : refreshed) {
+                    partition.writer().updateDocument(new Term(FIELD_ID, entry.id()), createDocument(entry));
+                }
+                if (!refreshed.isEmpty()) {
+                    partition.afterWrite(refreshed.size(), commitPolicy, commitMaxDocs);
+                }
+                touched += refreshed.size();
+            }
+            return touched;
+        } catch (IOException e) {
+            throw new RuntimeException("Touch failed: " + e.getMessage(), e);
+        } finally {
+            unpinAll(pinned);
+            lifecycleLock.readLock().unlock();
+        }
+    }
+
+    /** Receives each live document matching a query, with its top-level doc ID. */
+    @FunctionalInterface
+    private interface MatchConsumer {
+        void accept(int docId, Document doc) throws IOException;
+    }
+
+    /**
+     * Visits every live document matching {@code query} without scoring or a top-N cap.
+     * The query is a one-off lookup, so it skips the filter cache.
+     *
+     * @param fields stored fields to load, or null for all
+     */
+    private static void forEachMatch(IndexSearcher searcher, Query query, Set<String> fields,
+                                     MatchConsumer consumer) throws IOException {
+        IndexSearcher uncached = new IndexSearcher(searcher.getIndexReader());
+        uncached.setQueryCache(null);
+        Weight weight = uncached.createWeight(uncached.rewrite(query), ScoreMode.COMPLETE_NO_SCORES, 1f);
+        for (LeafReaderContext leaf : uncached.getIndexReader().leaves()) {
+            Scorer scorer = weight.scorer(leaf);
+            if (scorer == null) continue;
+            Bits liveDocs = leaf.reader().getLiveDocs();
+            StoredFields storedFields = leaf.reader().storedFields();
+            DocIdSetIterator it = scorer.iterator();
+            for (int doc = it.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = it.nextDoc()) {
+                if (liveDocs != null && !liveDocs.get(doc)) continue;
+                Document stored = fields != null
+                        ? storedFields.document(doc, fields) : storedFields.document(doc);
+                consumer.accept(leaf.docBase + doc, stored);
+            }
         }
     }
 
@@ -338,70 +849,137 @@ public class LuceneVectorStore implements VectorStore {
      * @return number of entries promoted
      */
     public int promoteToShared() {
+        return promoteToShared(false);
+    }
+
+    /**
+     * Promote entries from the agent's local index to the shared main index.
+     *
+     * <p>Selected agent segments are merged in bulk with
+     * {@link IndexWriter#addIndexes(CodecReader...)}, carrying over every indexed
+     * structure (vectors, postings, points) instead of rebuilding documents one by
+     * one on the heap. Shared entries with the same ID are deleted first, so a
+     * promoted entry replaces any older copy.</p>
+     *
+     * <p>Each promote records a per-agent watermark in the shared index's commit
+     * user data, committed atomically with the promoted segments. In incremental
+     * mode only entries written at or after that watermark are promoted; with no
+     * watermark yet it falls back to a full promote.</p>
+     *
+     * <p>Holds the lifecycle lock exclusively, so no write can land between the
+     * agent commit and the recorded watermark and be skipped by the next
+     * incremental promote.</p>
+     *
+     * @param incremental promote only entries written since this agent's last promote
+     * @return number of entries promoted
+     */
+    public int promoteToShared(boolean incremental) {
         if (!isAgentMode) {
             log.info("Not in agent mode -- nothing to promote");
             return 0;
         }
 
-        lock.readLock().lock();
+        lifecycleLock.writeLock().lock();
         try {
-            // Read all entries from agent index (stored fields + vectors)
-            DirectoryReader agentReader = DirectoryReader.open(writeDirectory);
-            StoredFields storedFields = agentReader.storedFields();
-            List<Document> docs = new ArrayList<>();
-            Bits liveDocs = MultiBits.getLiveDocs(agentReader);
-
-            for (int i = 0; i < agentReader.maxDoc(); i++) {
-                if (liveDocs != null && !liveDocs.get(i)) continue; // skip deleted
-                Document storedDoc = storedFields.document(i);
-
-                // Rebuild full document with vector (KnnFloatVectorField is not stored)
-                // Read the vector from the FloatVectorValues for this leaf
-                Document fullDoc = new Document();
-                for (IndexableField field : storedDoc.getFields()) {
-                    fullDoc.add(field);
+            int promoted = 0;
+            for (String key : partitionKeys(writeRoot)) {
+                IndexPartition partition = writablePartition(key);
+                try {
+                    promoted += promotePartition(partition, partitionPath(sharedRoot, key), incremental);
+                } finally {
+                    partition.unpin();
                 }
 
-                // Extract vector from the index
-                float[] vector = readVector(agentReader, i);
-                if (vector != null) {
-                    fullDoc.add(new KnnFloatVectorField(FIELD_VECTOR, vector));
+                IndexPartition shared = sharedPartition(key);
+                if (shared != null) {
+                    try {
+                        shared.refreshBlocking();
+                    } finally {
+                        shared.unpin();
+                    }
                 }
+            }
+
+            log.info("Promoted {} entries from agent '{}' to shared index ({})",
+                    promoted, agentId, incremental ? "incremental" : "full");
+            return promoted;
+
+        } catch (IOException e) {
+            throw new RuntimeException("Promote failed: " + e.getMessage(), e);
+        } finally {
+            lifecycleLock.writeLock().unlock();
+        }
+    }
 
-                docs.add(fullDoc);
+    /** Promotes one agent partition into the shared index at {@code sharedPath}. */
+    private int promotePartition(IndexPartition partition, Path sharedPath, boolean incremental) throws IOException {
+        // Anything written from here on is past the new watermark
+        long promoteStartedAt = System.currentTimeMillis();
+
+        // Promote reads committed segments, so flush anything the commit policy is holding back
+        partition.commitPending();
+
+        Files.createDirectories(sharedPath);
+        try (DirectoryReader agentReader = DirectoryReader.open(partition.directory());
+             FSDirectory sharedDir = FSDirectory.open(sharedPath);
+             IndexWriter sharedWriter = new IndexWriter(sharedDir, newWriterConfig(vectorEncoding))) {
+
+            Map<String, String> commitData = new HashMap<>();
+            Iterable<Map.Entry<String, String>> liveCommitData = sharedWriter.getLiveCommitData();
+            if (liveCommitData != null) {
+                liveCommitData.forEach(e -> commitData.put(e.getKey(), e.getValue()));
             }
-            agentReader.close();
+            String watermarkKey = PROMOTE_WATERMARK_PREFIX + agentId;
+            String watermark = incremental ? commitData.get(watermarkKey) : null;
 
-            if (docs.isEmpty()) {
-                log.info("No entries to promote");
+            Query selection = watermark != null
+                    ? LongPoint.newRangeQuery(FIELD_INDEXED_AT_EPOCH, Long.parseLong(watermark), Long.MAX_VALUE)
+                    : new MatchAllDocsQuery();
+
+            List<CodecReader> segments = new ArrayList<>();
+            List<BytesRef> ids = new ArrayList<>();
+            selectForPromote(agentReader, selection, segments, ids);
+
+            if (ids.isEmpty()) {
+                log.info("No entries to promote{} in {}", watermark != null ? " since last promote" : "", sharedPath);
                 return 0;
             }
 
-            // Write to shared index
-            Path sharedPath = Path.of(sharedIndexPath);
-            Files.createDirectories(sharedPath);
-            try (FSDirectory sharedDir = FSDirectory.open(sharedPath)) {
-                IndexWriterConfig config = new IndexWriterConfig(new StandardAnalyzer());
-                config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
-                try (IndexWriter sharedWriter = new IndexWriter(sharedDir, config)) {
-                    for (Document doc : docs) {
-                        String id = doc.get(FIELD_ID);
-                        if (id != null) {
-                            sharedWriter.deleteDocuments(new Term(FIELD_ID, id));
-                        }
-                        sharedWriter.addDocument(doc);
-                    }
-                    sharedWriter.commit();
-                }
-            }
+            sharedWriter.deleteDocuments(new TermInSetQuery(FIELD_ID, ids));
+            sharedWriter.addIndexes(segments.toArray(CodecReader[]::new));
+            commitData.put(watermarkKey, Long.toString(promoteStartedAt));
+            sharedWriter.setLiveCommitData(commitData.entrySet());
+            sharedWriter.commit();
+            return ids.size();
+        }
+    }
 
-            log.info("Promoted {} entries from agent '{}' to shared index", docs.size(), agentId);
-            return docs.size();
+    /**
+     * Collect, per agent segment, the live documents matching {@code selection} as a
+     * {@link CodecReader} that hides everything else, plus the IDs being promoted.
+     */
+    private static void selectForPromote(DirectoryReader reader, Query selection,
+                                         List<CodecReader> segments, List<BytesRef> ids) throws IOException {
+        IndexSearcher searcher = new IndexSearcher(reader);
+        searcher.setQueryCache(null);
+        Weight weight = searcher.createWeight(searcher.rewrite(selection), ScoreMode.COMPLETE_NO_SCORES, 1f);
 
-        } catch (IOException e) {
-            throw new RuntimeException("Promote failed: " + e.getMessage(), e);
-        } finally {
-            lock.readLock().unlock();
+        for (LeafReaderContext leaf : reader.leaves()) {
+            Scorer scorer = weight.scorer(leaf);
+            if (scorer == null) continue;
+            LeafReader leafReader = leaf.reader();
+            Bits liveDocs = leafReader.getLiveDocs();
+            StoredFields storedFields = leafReader.storedFields();
+            FixedBitSet selected = new FixedBitSet(leafReader.maxDoc());
+            DocIdSetIterator it = scorer.iterator();
+            for (int doc = it.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = it.nextDoc()) {
+                if (liveDocs != null && !liveDocs.get(doc)) continue;
+                selected.set(doc);
+                ids.add(new BytesRef(storedFields.document(doc, Set.of(FIELD_ID)).get(FIELD_ID)));
+            }
+            if (selected.cardinality() > 0) {
+                segments.add(SelectedDocsReader.of(leafReader, selected));
+            }
         }
     }
 
@@ -409,20 +987,16 @@ public class LuceneVectorStore implements VectorStore {
      * Read the float vector for a document from the index.
      * Navigates through leaf readers to find the correct segment.
      */
-    private float[] readVector(DirectoryReader reader, int docId) {
+    private float[] readVector(IndexReader reader, int docId) {
         try {
-            for (LeafReaderContext leaf : reader.leaves()) {
+            List<LeafReaderContext> leaves = reader.leaves();
+            LeafReaderContext leaf = leaves.get(ReaderUtil.subIndex(docId, leaves));
+            FloatVectorValues vectors = leaf.reader().getFloatVectorValues(FIELD_VECTOR);
+            if (vectors != null) {
                 int localDoc = docId - leaf.docBase;
-                if (localDoc >= 0 && localDoc < leaf.reader().maxDoc()) {
-                    FloatVectorValues vectors = leaf.reader().getFloatVectorValues(FIELD_VECTOR);
-                    if (vectors == null) continue;
-
-                    // Iterate through the vector values to find our doc
-                    var iter = vectors.iterator();
-                    int ord = iter.advance(localDoc);
-                    if (ord == localDoc) {
-                        return vectors.vectorValue(iter.index()).clone();
-                    }
+                var iter = vectors.iterator();
+                if (iter.advance(localDoc) == localDoc) {
+                    return vectors.vectorValue(iter.index()).clone();
                 }
             }
         } catch (IOException e) {
@@ -467,12 +1041,20 @@ public class LuceneVectorStore implements VectorStore {
         }
     }
 
-    /** Returns true if the directory contains a Lucene write.lock held by a live process. */
+    /**
+     * Returns true if the directory, or any shard or namespace partition inside it,
+     * contains a Lucene write.lock held by a live process.
+     */
     private static boolean hasActiveLock(Path dir) {
-        Path lockFile = dir.resolve("write.lock");
-        if (!Files.exists(lockFile)) {
-            return false;
+        try (Stream<Path> lockFiles = Files.find(dir, 5,
+                (path, attrs) -> path.getFileName().toString().equals("write.lock"))) {
+            return lockFiles.anyMatch(LuceneVectorStore::isLockHeld);
+        } catch (IOException e) {
+            return true; // assume in use if we can't check
         }
+    }
+
+    private static boolean isLockHeld(Path lockFile) {
         // If the lock file exists, try to acquire it briefly. If we can't,
         // another process holds it and the directory is in use.
         try (var channel = java.nio.channels.FileChannel.open(lockFile,
@@ -502,24 +1084,346 @@ public class LuceneVectorStore implements VectorStore {
     }
 
     /**
-     * Opens a reader that searches both the writable index and the shared index
-     * (in agent mode). In server mode, just opens the writable (shared) index.
+     * Writer config shared by the writable index, promote and reshard, so every
+     * segment is written with the configured vector encoding.
+     */
+    static IndexWriterConfig newWriterConfig(VectorQuantization vectorEncoding) {
+        IndexWriterConfig config = new IndexWriterConfig(new StandardAnalyzer());
+        config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+        KnnVectorsFormat vectorsFormat = vectorEncoding.knnVectorsFormat();
+        config.setCodec(new Lucene101Codec() {
+            @Override
+            public KnnVectorsFormat getKnnVectorsFormatForField(String field) {
+                return FIELD_VECTOR.equals(field) ? vectorsFormat : super.getKnnVectorsFormatForField(field);
+            }
+        });
+        return config;
+    }
+
+    // -- Partitions --
+
+    /** Partition key for a namespace: its directory name, or the whole index in the single layout. */
+    private String partitionKey(String namespace) {
+        return layout == IndexLayout.SINGLE ? SINGLE_PARTITION : partitionName(namespace);
+    }
+
+    /**
+     * Directory name for a namespace partition. Plain names are used as-is; anything
+     * that is not a safe file name is replaced by a hash of the namespace.
+     */
+    static String partitionName(String namespace) {
+        String ns = namespace == null || namespace.isBlank() ? "default" : namespace;
+        if (ns.length() <= 64 && ns.matches("[A-Za-z0-9_][A-Za-z0-9._-]*")) {
+            return ns;
+        }
+        return "ns-" + ContentHash.of(ns);
+    }
+
+    private Path partitionPath(Path root, String key) {
+        return key.equals(SINGLE_PARTITION) ? root : root.resolve(NAMESPACE_DIR).resolve(key);
+    }
+
+    /** Keys of every partition under a root: the open ones plus those on disk. */
+    private Set<String> partitionKeys(Path root) throws IOException {
+        if (layout == IndexLayout.SINGLE) {
+            return Set.of(SINGLE_PARTITION);
+        }
+        Set<String> keys = new TreeSet<>(root.equals(writeRoot) ? partitions.keySet() : sharedPartitions.keySet());
+        Path nsRoot = root.resolve(NAMESPACE_DIR);
+        if (Files.isDirectory(nsRoot)) {
+            try (Stream<Path> dirs = Files.list(nsRoot)) {
+                dirs.filter(Files::isDirectory).forEach(dir -> keys.add(dir.getFileName().toString()));
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * The writable partition for a key, opening (and creating) it on first use.
+     * It is returned pinned, so the caller must {@link IndexPartition#unpin} it.
+     */
+    private IndexPartition writablePartition(String key) throws IOException {
+        while (true) {
+            IndexPartition partition = partitions.get(key);
+            if (partition == null) {
+                synchronized (partitions) {
+                    partition = partitions.get(key);
+                    if (partition == null) {
+                        partition = IndexPartition.openWritable(partitionPath(writeRoot, key),
+                                newWriterConfig(vectorEncoding), searcherFactory);
+                        partitions.put(key, partition);
+                    }
+                }
+            }
+            if (partition.pin()) {
+                return partition;
+            }
+            awaitEviction(partitions);
+        }
+    }
+
+    /** Every writable partition, including those not opened yet, each pinned. */
+    private List<IndexPartition> allWritablePartitions() throws IOException {
+        List<IndexPartition> all = new ArrayList<>();
+        try {
+            for (String key : partitionKeys(writeRoot)) {
+                all.add(writablePartition(key));
+            }
+            return all;
+        } catch (IOException | RuntimeException e) {
+            unpinAll(all);
+            throw e;
+        }
+    }
+
+    /**
+     * The writable partition for a key if it exists, pinned, without creating one
+     * for a namespace that has never been written.
+     */
+    private IndexPartition existingWritablePartition(String key) throws IOException {
+        if (!partitions.containsKey(key) && !Files.isDirectory(partitionPath(writeRoot, key))) {
+            return null;
+        }
+        return writablePartition(key);
+    }
+
+    /**
+     * The read-only shared partition for a key in agent mode, pinned.
+     *
+     * @return the partition, or null outside agent mode or if the shared index does not exist yet
+     */
+    private IndexPartition sharedPartition(String key) throws IOException {
+        if (!isAgentMode) {
+            return null;
+        }
+        while (true) {
+            IndexPartition partition = sharedPartitions.get(key);
+            if (partition == null) {
+                synchronized (sharedPartitions) {
+                    partition = sharedPartitions.get(key);
+                    if (partition == null) {
+                        partition = IndexPartition.openReadOnly(partitionPath(sharedRoot, key), searcherFactory);
+                        if (partition == null) {
+                            return null;
+                        }
+                        sharedPartitions.put(key, partition);
+                    }
+                }
+            }
+            if (partition.pin()) {
+                return partition;
+            }
+            awaitEviction(sharedPartitions);
+        }
+    }
+
+    /**
+     * Waits out an eviction in progress. Eviction retires, removes and closes a
+     * partition while holding the map's monitor, so once it is free the retired
+     * partition is gone and its key can be opened again.
+     */
+    private static void awaitEviction(Map<String, IndexPartition> open) {
+        synchronized (open) {
+            // nothing to do: acquiring the monitor is the wait
+        }
+    }
+
+    private static void unpinAll(List<IndexPartition> pinned) {
+        for (IndexPartition partition : pinned) {
+            partition.unpin();
+        }
+    }
+
+    // -- Searcher management --
+
+    /**
+     * Acquires a point-in-time searcher over the partitions holding {@code namespace}
+     * (all partitions if null or blank) in the writable tier and, in agent mode, the
+     * shared tier. The returned lease must be closed to release the readers.
+     */
+    private SearcherLease acquireSearcher(String namespace) throws IOException {
+        Collection<String> keys;
+        if (layout == IndexLayout.SINGLE) {
+            keys = Set.of(SINGLE_PARTITION);
+        } else if (namespace != null && !namespace.isBlank()) {
+            keys = Set.of(partitionName(namespace));
+        } else {
+            keys = new TreeSet<>(partitionKeys(writeRoot));
+            if (isAgentMode) {
+                keys.addAll(partitionKeys(sharedRoot));
+            }
+        }
+
+        SearcherLease lease = new SearcherLease();
+        try {
+            for (String key : keys) {
+                lease.pin(existingWritablePartition(key));
+                lease.pin(sharedPartition(key));
+            }
+            lease.acquireAll(refreshIntervalMs <= 0);
+            lease.combine();
+            return lease;
+        } catch (IOException | RuntimeException e) {
+            lease.close();
+            throw e;
+        }
+    }
+
+    /** Creates a searcher that shares the store-wide filter cache. */
+    private IndexSearcher newCachingSearcher(IndexReader reader) {
+        IndexSearcher searcher = new IndexSearcher(reader);
+        searcher.setQueryCache(filterCache);
+        searcher.setQueryCachingPolicy(filterCachingPolicy);
+        return searcher;
+    }
+
+    /**
+     * Starts the background refresher, the periodic committer under the group policy,
+     * and idle partition eviction under the per-namespace layout. Writes through this
+     * store refresh the writable searcher on the next read; the refresh schedule
+     * covers commits made to the shared index by other processes.
      */
-    private IndexReader openMultiReader() throws IOException {
-        DirectoryReader writeReader = DirectoryReader.open(writeDirectory);
+    private void startBackgroundTasks() {
+        boolean refresh = refreshIntervalMs > 0;
+        boolean groupCommit = commitPolicy == CommitPolicy.GROUP && commitIntervalMs > 0;
+        boolean evict = layout == IndexLayout.PER_NAMESPACE && partitionIdleTimeoutMs > 0;
+        if (!refresh && !groupCommit && !evict) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "lucene-store-maintenance");
+            t.setDaemon(true);
+            return t;
+        });
+        if (refresh) {
+            scheduler.scheduleWithFixedDelay(this::refreshSearchers,
+                    refreshIntervalMs, refreshIntervalMs, TimeUnit.MILLISECONDS);
+        }
+        if (groupCommit) {
+            scheduler.scheduleWithFixedDelay(this::groupCommit,
+                    commitIntervalMs, commitIntervalMs, TimeUnit.MILLISECONDS);
+        }
+        if (evict) {
+            long period = Math.max(partitionIdleTimeoutMs / 2, 1000);
+            scheduler.scheduleWithFixedDelay(this::evictIdlePartitions,
+                    period, period, TimeUnit.MILLISECONDS);
+        }
+    }
 
-        if (isAgentMode && sharedDirectory != null) {
+    // -- Background maintenance --
+
+    private void groupCommit() {
+        for (IndexPartition partition : partitions.values()) {
             try {
-                if (DirectoryReader.indexExists(sharedDirectory)) {
-                    DirectoryReader sharedReader = DirectoryReader.open(sharedDirectory);
-                    return new MultiReader(writeReader, sharedReader);
+                partition.commitPending();
+            } catch (IOException | AlreadyClosedException e) {
+                log.warn("Group commit failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void refreshSearchers() {
+        try {
+            for (IndexPartition partition : partitions.values()) {
+                partition.maybeRefresh();
+            }
+            for (IndexPartition partition : sharedPartitions.values()) {
+                partition.maybeRefresh();
+            }
+            if (isAgentMode && layout == IndexLayout.SINGLE) {
+                IndexPartition shared = sharedPartition(SINGLE_PARTITION);
+                if (shared != null) {
+                    shared.unpin();
+                }
+            }
+        } catch (IOException | AlreadyClosedException e) {
+            log.debug("Searcher refresh failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Closes namespace partitions nobody has used for the idle timeout, committing
+     * their writers first. A partition is only closed once no operation has it
+     * pinned; operations on other partitions carry on meanwhile.
+     */
+    private void evictIdlePartitions() {
+        evictIdle(partitions);
+        evictIdle(sharedPartitions);
+    }
+
+    private void evictIdle(Map<String, IndexPartition> open) {
+        for (Map.Entry<String, IndexPartition> entry : open.entrySet()) {
+            IndexPartition partition = entry.getValue();
+            if (partition.idleMillis() < partitionIdleTimeoutMs) {
+                continue;
+            }
+            // Under the monitor that opening takes, so the key is not reopened until this one is closed
+            synchronized (open) {
+                if (partition.retire()) {
+                    open.remove(entry.getKey(), partition);
+                    closeQuietly(partition);
+                    log.debug("Closed idle index partition: {}", entry.getKey());
                 }
-            } catch (IOException e) {
-                log.debug("Could not open shared index for reading: {}", e.getMessage());
             }
         }
+    }
+
+    /**
+     * Searchers acquired from one or more pinned partitions, combined into one
+     * searcher. Closing the lease releases each underlying searcher back to its
+     * partition, then unpins the partitions.
+     */
+    private final class SearcherLease implements AutoCloseable {
+        private final List<IndexPartition> sources = new ArrayList<>();
+        private final List<IndexSearcher> acquired = new ArrayList<>();
+        private IndexSearcher searcher;
+
+        /** Takes over a partition pinned by the caller; null is ignored. */
+        void pin(IndexPartition source) {
+            if (source != null) {
+                sources.add(source);
+            }
+        }
+
+        void acquireAll(boolean includeAllWrites) throws IOException {
+            for (IndexPartition source : sources) {
+                acquired.add(source.acquire(includeAllWrites));
+            }
+        }
+
+        /** Uses a single searcher directly; several are wrapped in a MultiReader. */
+        void combine() throws IOException {
+            if (acquired.size() == 1) {
+                searcher = acquired.getFirst();
+                return;
+            }
+            // MultiReader over already-open readers is cheap: it only increments their refcounts
+            IndexReader[] readers = acquired.stream().map(IndexSearcher::getIndexReader).toArray(IndexReader[]::new);
+            searcher = newCachingSearcher(new MultiReader(readers, false));
+        }
+
+        IndexSearcher searcher() {
+            return searcher;
+        }
 
-        return writeReader;
+        @Override
+        public void close() throws IOException {
+            IOException failure = null;
+            if (searcher != null && acquired.size() != 1) {
+                searcher.getIndexReader().close();
+            }
+            for (int i = 0; i < acquired.size(); i++) {
+                try {
+                    sources.get(i).release(acquired.get(i));
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            unpinAll(sources);
+            if (failure != null) {
+                throw failure;
+            }
+        }
     }
 
     static Document createDocument(VectorEntry entry) {
@@ -527,33 +1431,37 @@ public class LuceneVectorStore implements VectorStore {
         doc.add(new StringField(FIELD_ID, entry.id(), Field.Store.YES));
         doc.add(new KnnFloatVectorField(FIELD_VECTOR, entry.vector()));
         doc.add(new StoredField(FIELD_CONTENT, entry.content()));
+        doc.add(new TextField(FIELD_CONTENT, entry.content(), Field.Store.NO));
+        doc.add(new StringField(FIELD_CONTENT_HASH, ContentHash.of(entry.content()), Field.Store.YES));
         doc.add(new StringField(FIELD_ENTRY_TYPE, entry.entryType(), Field.Store.YES));
         doc.add(new StringField(FIELD_NAMESPACE, entry.namespace(), Field.Store.YES));
         doc.add(new StringField(FIELD_CREATED_AT,
                 entry.createdAt().toString(), Field.Store.YES));
-        doc.add(new LongPoint(FIELD_CREATED_AT + "_epoch",
+        doc.add(new LongPoint(FIELD_CREATED_AT_EPOCH,
                 entry.createdAt().toEpochMilli()));
+        // Write time, independent of the caller-supplied createdAt; drives incremental promote
+        doc.add(new LongPoint(FIELD_INDEXED_AT_EPOCH, System.currentTimeMillis()));
         for (Map.Entry<String, String> meta : entry.metadata().entrySet()) {
             doc.add(new StringField(meta.getKey(), meta.getValue(), Field.Store.YES));
         }
         return doc;
     }
 
-    private VectorEntry documentToEntry(Document doc) {
+    private VectorEntry documentToEntry(Document doc, float[] vector) {
         Map<String, String> metadata = new HashMap<>();
         for (IndexableField field : doc.getFields()) {
             String name = field.name();
             if (!name.equals(FIELD_ID) && !name.equals(FIELD_VECTOR)
                     && !name.equals(FIELD_CONTENT) && !name.equals(FIELD_ENTRY_TYPE)
                     && !name.equals(FIELD_NAMESPACE) && !name.equals(FIELD_CREATED_AT)
-                    && !name.endsWith("_epoch")) {
+                    && !name.equals(FIELD_CONTENT_HASH) && !name.endsWith("_epoch")) {
                 metadata.put(name, field.stringValue());
             }
         }
         String namespace = doc.get(FIELD_NAMESPACE);
         return new VectorEntry(
                 doc.get(FIELD_ID),
-                new float[0],
+                vector,
                 doc.get(FIELD_CONTENT),
                 doc.get(FIELD_ENTRY_TYPE),
                 namespace != null ? namespace : "default",
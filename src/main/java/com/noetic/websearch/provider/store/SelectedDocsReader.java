@@ -0,0 +1,54 @@
+package com.noetic.websearch.provider.store;
+
+import org.apache.lucene.index.CodecReader;
+import org.apache.lucene.index.FilterCodecReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.SlowCodecReaderWrapper;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.FixedBitSet;
+
+import java.io.IOException;
+
+/**
+ * A segment view whose live docs are a caller-chosen subset. {@code addIndexes}
+ * drops non-live documents while merging, so passing this to
+ * {@link org.apache.lucene.index.IndexWriter#addIndexes(CodecReader...)} copies
+ * only the selection, with all of its indexed structures.
+ */
+final class SelectedDocsReader extends FilterCodecReader {
+
+    private final FixedBitSet selected;
+    private final int numDocs;
+
+    private SelectedDocsReader(CodecReader in, FixedBitSet selected) {
+        super(in);
+        this.selected = selected;
+        this.numDocs = selected.cardinality();
+    }
+
+    /** @param selected docs to keep; must already exclude deleted docs */
+    static CodecReader of(LeafReader reader, FixedBitSet selected) throws IOException {
+        CodecReader codecReader = reader instanceof CodecReader cr ? cr : SlowCodecReaderWrapper.wrap(reader);
+        return new SelectedDocsReader(codecReader, selected);
+    }
+
+    @Override
+    public Bits getLiveDocs() {
+        return selected;
+    }
+
+    @Override
+    public int numDocs() {
+        return numDocs;
+    }
+
+    @Override
+    public CacheHelper getCoreCacheHelper() {
+        return null;
+    }
+
+    @Override
+    public CacheHelper getReaderCacheHelper() {
+        return null;
+    }
+}
@@ -0,0 +1,457 @@
+package com.noetic.websearch.provider.store;
+
+import com.noetic.websearch.model.*;
+import com.noetic.websearch.provider.VectorStore;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+
+import org.apache.lucene.index.*;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.Lock;
+import org.apache.lucene.store.LockObtainFailedException;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.StringHelper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Lucene vector store split into N hash-partitioned shards.
+ *
+ * <p>Each shard is a full {@link LuceneVectorStore} over its own directory
+ * ({@code <index-path>/shards-N/shard-<i>/}, and likewise under the agent directory
+ * in agent mode), with its own {@code IndexWriter}, lock, searchers and commit
+ * schedule. Entries are routed by a hash of their ID, so ID operations touch one
+ * shard. Searches and batch writes fan out across shards on a dedicated executor;
+ * search results are merged by score into one top-K.</p>
+ *
+ * <p>Enabled with {@code websearch.store.lucene.shards} greater than 1. An existing
+ * index is moved to a different shard count offline with {@link #reshard}.</p>
+ */
+public class ShardedLuceneVectorStore implements VectorStore {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardedLuceneVectorStore.class);
+
+    @Value("${websearch.store.lucene.index-path:${user.home}/.websearch/index}")
+    private String sharedIndexPath;
+
+    @Value("${websearch.store.agent-id:#{null}}")
+    private String agentId;
+
+    @Value("${websearch.store.lucene.agents-dir:${user.home}/.websearch/agents}")
+    private String agentsDir;
+
+    private final int shardCount;
+    private final Supplier<LuceneVectorStore> shardFactory;
+    private final List<LuceneVectorStore> shards = new ArrayList<>();
+
+    /** Runs per-shard work for fan-out operations. */
+    private ExecutorService shardExecutor;
+
+    /**
+     * @param shardCount   number of shards, at least 2
+     * @param shardFactory creates a configured, not yet initialized shard store
+     */
+    public ShardedLuceneVectorStore(int shardCount, Supplier<LuceneVectorStore> shardFactory) {
+        if (shardCount < 2) {
+            throw new IllegalArgumentException("A sharded store needs at least 2 shards, got " + shardCount);
+        }
+        this.shardCount = shardCount;
+        this.shardFactory = shardFactory;
+    }
+
+    @Override
+    public String type() {
+        return "lucene";
+    }
+
+    @Override
+    public StoreCapabilities capabilities() {
+        return shards.getFirst().capabilities();
+    }
+
+    @Override
+    @PostConstruct
+    public void initialize() {
+        AtomicInteger threadId = new AtomicInteger();
+        shardExecutor = Executors.newFixedThreadPool(shardCount, r -> {
+            Thread t = new Thread(r, "lucene-shard-" + threadId.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+
+        Path sharedRoot = shardsRoot(Path.of(sharedIndexPath), shardCount);
+        Path agentRoot = agentId != null && !agentId.isBlank()
+                ? shardsRoot(Path.of(agentsDir, agentId), shardCount) : null;
+        for (int i = 0; i < shardCount; i++) {
+            LuceneVectorStore shard = shardFactory.get();
+            shard.configureAsShard(shardPath(sharedRoot, i), agentRoot != null ? shardPath(agentRoot, i) : null);
+            shard.initialize();
+            shards.add(shard);
+        }
+        log.info("ShardedLuceneVectorStore initialized with {} shards at: {}", shardCount, sharedRoot);
+    }
+
+    @Override
+    public void close() {
+        if (shardExecutor != null) {
+            // Let in-flight shard operations finish: interrupting Lucene I/O closes the writer
+            shardExecutor.shutdown();
+            try {
+                shardExecutor.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (LuceneVectorStore shard : shards) {
+            shard.close();
+        }
+        log.info("ShardedLuceneVectorStore closed");
+    }
+
+    // -- Write operations --
+
+    @Override
+    public void upsert(VectorEntry entry) {
+        shardFor(entry.id()).upsert(entry);
+    }
+
+    @Override
+    public void upsertBatch(List<VectorEntry> entries) {
+        Map<LuceneVectorStore, List<VectorEntry>> byShard = groupByShard(entries, VectorEntry::id);
+        fanOut(byShard.keySet(), shard -> {
+            shard.upsertBatch(byShard.get(shard));
+            return null;
+        });
+    }
+
+    @Override
+    public void delete(String id) {
+        shardFor(id).delete(id);
+    }
+
+    @Override
+    public void deleteBatch(List<String> ids) {
+        Map<LuceneVectorStore, List<String>> byShard = groupByShard(ids, Function.identity());
+        fanOut(byShard.keySet(), shard -> {
+            shard.deleteBatch(byShard.get(shard));
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteByMetadata(MetadataFilter filter) {
+        fanOut(shards, shard -> {
+            shard.deleteByMetadata(filter);
+            return null;
+        });
+    }
+
+    // -- Read operations --
+
+    @Override
+    public Optional<VectorEntry> get(String id) {
+        return shardFor(id).get(id);
+    }
+
+    @Override
+    public List<VectorMatch> search(VectorSearchRequest request) {
+        return mergeTopK(fanOut(shards, shard -> shard.search(request)), request.topK());
+    }
+
+    /**
+     * Each shard fuses its own BM25 and kNN rankings; the per-shard fused scores are
+     * then merged like plain scores. Shards hold disjoint random samples of the data,
+     * so their ranks, and therefore their RRF scores, are directly comparable.
+     */
+    @Override
+    public List<VectorMatch> hybridSearch(VectorSearchRequest request, String queryText) {
+        return mergeTopK(fanOut(shards, shard -> shard.hybridSearch(request, queryText)), request.topK());
+    }
+
+    @Override
+    public long count() {
+        return fanOut(shards, LuceneVectorStore::count).stream().mapToLong(Long::longValue).sum();
+    }
+
+    @Override
+    public Map<String, String> findByContentHash(String namespace, String sourceUrl,
+                                                 Collection<String> contentHashes) {
+        Map<String, String> existing = new HashMap<>();
+        for (Map<String, String> found : fanOut(shards,
+                shard -> shard.findByContentHash(namespace, sourceUrl, contentHashes))) {
+            found.forEach(existing::putIfAbsent);
+        }
+        return existing;
+    }
+
+    @Override
+    public Map<String, String> findBySource(String namespace, String sourceUrl) {
+        Map<String, String> found = new HashMap<>();
+        fanOut(shards, shard -> shard.findBySource(namespace, sourceUrl)).forEach(found::putAll);
+        return found;
+    }
+
+    @Override
+    public int touch(Collection<String> ids, Map<String, String> metadata) {
+        Map<LuceneVectorStore, List<String>> byShard = groupByShard(ids, Function.identity());
+        return fanOut(byShard.keySet(), shard -> shard.touch(byShard.get(shard), metadata))
+                .stream().mapToInt(Integer::intValue).sum();
+    }
+
+    /**
+     * Promote each shard of the agent index into the same shard of the shared index.
+     *
+     * @see LuceneVectorStore#promoteToShared(boolean)
+     */
+    public int promoteToShared(boolean incremental) {
+        return fanOut(shards, shard -> shard.promoteToShared(incremental))
+                .stream().mapToInt(Integer::intValue).sum();
+    }
+
+    // -- Routing --
+
+    /** Shard index for an entry ID: a stable hash, identical across processes and restarts. */
+    static int shardOf(String id, int shardCount) {
+        BytesRef bytes = new BytesRef(id);
+        return Math.floorMod(StringHelper.murmurhash3_x86_32(bytes, 0), shardCount);
+    }
+
+    /** Directory holding all shards of an index root for a given shard count. */
+    static Path shardsRoot(Path indexRoot, int shardCount) {
+        return indexRoot.resolve("shards-" + shardCount);
+    }
+
+    static Path shardPath(Path shardsRoot, int shard) {
+        return shardsRoot.resolve("shard-" + shard);
+    }
+
+    private LuceneVectorStore shardFor(String id) {
+        return shards.get(shardOf(id, shardCount));
+    }
+
+    private <T> Map<LuceneVectorStore, List<T>> groupByShard(Collection<T> items, Function<T, String> id) {
+        Map<LuceneVectorStore, List<T>> byShard = new LinkedHashMap<>();
+        for (T item : items) {
+            byShard.computeIfAbsent(shardFor(id.apply(item)), k -> new ArrayList<>()).add(item);
+        }
+        return byShard;
+    }
+
+    /**
+     * Runs {@code operation} on each shard in parallel and returns the results in
+     * shard order. A single shard runs on the calling thread. Pool threads carry
+     * the caller's write tick both ways, so the caller keeps seeing its own writes.
+     */
+    private <T> List<T> fanOut(Collection<LuceneVectorStore> targets, Function<LuceneVectorStore, T> operation) {
+        if (targets.size() == 1) {
+            return Collections.singletonList(operation.apply(targets.iterator().next()));
+        }
+        long callerTick = IndexPartition.threadWriteTick();
+        List<Future<T>> futures = new ArrayList<>(targets.size());
+        List<CompletableFuture<Long>> ticks = new ArrayList<>(targets.size());
+        for (LuceneVectorStore shard : targets) {
+            CompletableFuture<Long> tick = new CompletableFuture<>();
+            ticks.add(tick);
+            futures.add(shardExecutor.submit(() -> {
+                IndexPartition.adoptWriteTick(callerTick);
+                try {
+                    return operation.apply(shard);
+                } finally {
+                    tick.complete(IndexPartition.threadWriteTick());
+                }
+            }));
+        }
+        List<T> results = new ArrayList<>(futures.size());
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            for (CompletableFuture<Long> tick : ticks) {
+                IndexPartition.adoptWriteTick(tick.getNow(0L));
+            }
+        } catch (InterruptedException e) {
+            // Only unstarted shard operations are dropped; running ones must not be interrupted
+            futures.forEach(f -> f.cancel(false));
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted waiting for shards", e);
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(false));
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new RuntimeException("Shard operation failed: " + e.getCause().getMessage(), e.getCause());
+        }
+        return results;
+    }
+
+    private static List<VectorMatch> mergeTopK(List<List<VectorMatch>> perShard, int topK) {
+        return perShard.stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparingDouble(VectorMatch::score).reversed())
+                .limit(topK)
+                .toList();
+    }
+
+    // -- Offline resharding --
+
+    /**
+     * Rewrites an index into a different number of shards. Every source segment is
+     * split by ID hash and each target shard receives its documents through
+     * {@code IndexWriter.addIndexes}, so vectors and postings are merged rather than
+     * re-indexed. The source is only read and stays in place.
+     *
+     * <p>Runs offline: writes committed to the source after the reshard starts are
+     * not carried over, so stop servers writing to the index first. Only the single
+     * index layout is supported. A target that already holds an empty index, as a
+     * store opened on it leaves behind, is written into.</p>
+     *
+     * @param indexRoot  the configured index path
+     * @param fromShards current shard count (1 = unsharded index directly under indexRoot)
+     * @param toShards   target shard count (1 = unsharded)
+     * @return number of entries written to the new layout
+     * @throws IllegalStateException if the source is missing or per-namespace, or a target
+     *                               holds entries or is open in a running store
+     */
+    public static long reshard(Path indexRoot, int fromShards, int toShards,
+                               VectorQuantization vectorEncoding) throws IOException {
+        if (fromShards == toShards) {
+            throw new IllegalArgumentException("Index already has " + toShards + " shard(s)");
+        }
+        List<Path> sources = layoutPaths(indexRoot, fromShards);
+        List<Path> targets = layoutPaths(indexRoot, toShards);
+        for (Path source : sources) {
+            if (Files.isDirectory(source.resolve(LuceneVectorStore.NAMESPACE_DIR))) {
+                throw new IllegalStateException("Index at " + source + " uses the per-namespace layout, "
+                        + "which reshard does not support");
+            }
+        }
+        for (Path target : targets) {
+            checkTarget(target);
+        }
+
+        List<FSDirectory> sourceDirs = new ArrayList<>();
+        List<DirectoryReader> readers = new ArrayList<>();
+        try {
+            for (Path source : sources) {
+                FSDirectory dir = FSDirectory.open(source);
+                sourceDirs.add(dir);
+                if (!DirectoryReader.indexExists(dir)) {
+                    throw new IllegalStateException("No index to reshard at " + source);
+                }
+                readers.add(DirectoryReader.open(dir));
+            }
+            // Route every source segment once; each target shard then gets a filtered view per segment
+            List<List<CodecReader>> selections = new ArrayList<>();
+            for (int i = 0; i < toShards; i++) {
+                selections.add(new ArrayList<>());
+            }
+            for (DirectoryReader reader : readers) {
+                for (LeafReaderContext leaf : reader.leaves()) {
+                    splitByShard(leaf.reader(), selections);
+                }
+            }
+
+            long written = 0;
+            for (int shard = 0; shard < targets.size(); shard++) {
+                List<CodecReader> selection = selections.get(shard);
+                Files.createDirectories(targets.get(shard));
+                try (FSDirectory dir = FSDirectory.open(targets.get(shard));
+                     IndexWriter writer = new IndexWriter(dir, LuceneVectorStore.newWriterConfig(vectorEncoding))) {
+                    writer.addIndexes(selection.toArray(CodecReader[]::new));
+                    writer.commit();
+                    written += writer.getDocStats().numDocs;
+                }
+                log.info("Reshard: wrote shard {}/{} ({} entries so far)", shard + 1, toShards, written);
+            }
+            return written;
+        } finally {
+            for (DirectoryReader reader : readers) {
+                reader.close();
+            }
+            for (FSDirectory dir : sourceDirs) {
+                dir.close();
+            }
+        }
+    }
+
+    /**
+     * Fails unless {@code target} is free to write: no index, or an empty one that
+     * no running store has open.
+     */
+    private static void checkTarget(Path target) throws IOException {
+        if (!Files.isDirectory(target)) {
+            return;
+        }
+        try (FSDirectory dir = FSDirectory.open(target)) {
+            if (!DirectoryReader.indexExists(dir)) {
+                return;
+            }
+            try (DirectoryReader reader = DirectoryReader.open(dir)) {
+                if (reader.numDocs() > 0) {
+                    throw new IllegalStateException("Target already holds " + reader.numDocs()
+                            + " entries: " + target);
+                }
+            }
+            try (Lock lock = dir.obtainLock(IndexWriter.WRITE_LOCK_NAME)) {
+                lock.ensureValid();
+            } catch (LockObtainFailedException e) {
+                throw new IllegalStateException("Target index is open in a running store: " + target
+                        + ". Stop it, or if it is this process's own store, run with "
+                        + "websearch.store.lucene.shards set to the current shard count", e);
+            }
+        }
+    }
+
+    /** Index directories of a layout with the given shard count. */
+    static List<Path> layoutPaths(Path indexRoot, int shardCount) {
+        if (shardCount <= 1) {
+            return List.of(indexRoot);
+        }
+        Path root = shardsRoot(indexRoot, shardCount);
+        List<Path> paths = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            paths.add(shardPath(root, i));
+        }
+        return paths;
+    }
+
+    /** Adds, for each target shard, a view of the segment's live documents that route to it. */
+    private static void splitByShard(LeafReader reader, List<List<CodecReader>> selections) throws IOException {
+        int shardCount = selections.size();
+        Bits liveDocs = reader.getLiveDocs();
+        StoredFields storedFields = reader.storedFields();
+        FixedBitSet[] selected = new FixedBitSet[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            selected[i] = new FixedBitSet(reader.maxDoc());
+        }
+        Set<String> idField = Set.of(LuceneVectorStore.FIELD_ID);
+        for (int doc = 0; doc < reader.maxDoc(); doc++) {
+            if (liveDocs != null && !liveDocs.get(doc)) continue;
+            String id = storedFields.document(doc, idField).get(LuceneVectorStore.FIELD_ID);
+            if (id != null) {
+                selected[shardOf(id, shardCount)].set(doc);
+            }
+        }
+        for (int i = 0; i < shardCount; i++) {
+            if (selected[i].cardinality() > 0) {
+                selections.get(i).add(SelectedDocsReader.of(reader, selected[i]));
+            }
+        }
+    }
+}
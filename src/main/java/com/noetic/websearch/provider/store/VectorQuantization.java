@@ -0,0 +1,58 @@
+package com.noetic.websearch.provider.store;
+
+import org.apache.lucene.codecs.KnnVectorsFormat;
+import org.apache.lucene.codecs.lucene102.Lucene102HnswBinaryQuantizedVectorsFormat;
+import org.apache.lucene.codecs.lucene99.Lucene99HnswScalarQuantizedVectorsFormat;
+import org.apache.lucene.codecs.lucene99.Lucene99HnswVectorsFormat;
+
+/**
+ * On-disk encoding of the HNSW vector field in the Lucene store.
+ *
+ * <p>Quantized encodings keep the graph and the vectors it scores against
+ * small enough to stay in page cache. The raw float32 vectors are still
+ * written alongside, so search results can be rescored at full precision.</p>
+ */
+public enum VectorQuantization {
+    /** Full-precision float32 vectors (Lucene's default format). */
+    FLOAT32,
+    /** Scalar-quantized bytes. Lucene quantizes to 7 bits, which keeps dot products in signed-byte range. */
+    INT8,
+    /** Scalar-quantized nibbles, packed two per byte. */
+    INT4,
+    /** One bit per dimension (RaBitQ-style binary quantization). */
+    BINARY;
+
+    /**
+     * Parse an encoding string ({@code float32}, {@code int8}, {@code int4}, {@code binary}),
+     * returning FLOAT32 for null/unknown values.
+     */
+    public static VectorQuantization parse(String value) {
+        if (value == null || value.isBlank()) {
+            return FLOAT32;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return FLOAT32;
+        }
+    }
+
+    /** True if search scores are approximate and benefit from full-precision rescoring. */
+    public boolean isQuantized() {
+        return this != FLOAT32;
+    }
+
+    /** The per-field Lucene vectors format implementing this encoding. */
+    public KnnVectorsFormat knnVectorsFormat() {
+        return switch (this) {
+            case FLOAT32 -> new Lucene99HnswVectorsFormat();
+            case INT8 -> new Lucene99HnswScalarQuantizedVectorsFormat(
+                    Lucene99HnswVectorsFormat.DEFAULT_MAX_CONN, Lucene99HnswVectorsFormat.DEFAULT_BEAM_WIDTH,
+                    Lucene99HnswVectorsFormat.DEFAULT_NUM_MERGE_WORKER, 7, false, null, null);
+            case INT4 -> new Lucene99HnswScalarQuantizedVectorsFormat(
+                    Lucene99HnswVectorsFormat.DEFAULT_MAX_CONN, Lucene99HnswVectorsFormat.DEFAULT_BEAM_WIDTH,
+                    Lucene99HnswVectorsFormat.DEFAULT_NUM_MERGE_WORKER, 4, true, null, null);
+            case BINARY -> new Lucene102HnswBinaryQuantizedVectorsFormat();
+        };
+    }
+}
@@ -1,6 +1,7 @@
 package com.noetic.websearch.service;
 
 import com.noetic.websearch.model.FetchResult;
+import com.noetic.websearch.model.IngestRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -10,11 +11,19 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.*;
 
 /**
  * Orchestrates multi-page crawling with sitemap discovery, concurrency
  * control, rate limiting, and automatic chunking/caching.
+ *
+ * <p>Auto-chunked pages are handed to {@link IngestService} as they are
+ * crawled, so embedding overlaps the remaining fetches and pages share
+ * embedding batches. The crawl still returns only once every page's ingest
+ * has finished (or {@code websearch.batch-crawl.ingest-timeout-ms} has passed),
+ * so {@code chunked} counts pages actually stored; one-shot CLI runs halt as
+ * soon as the result is printed.</p>
  */
 @Service
 public class BatchCrawlService {
@@ -22,32 +31,35 @@ public class BatchCrawlService {
     private static final Logger log = LoggerFactory.getLogger(BatchCrawlService.class);
 
     private final CrawlService crawlService;
-    private final ChunkService chunkService;
+    private final IngestService ingestService;
     private final SitemapParser sitemapParser;
     private final int defaultMaxConcurrency;
     private final long defaultRateLimitMs;
     private final int defaultMaxUrls;
     private final boolean autoChunk;
     private final String chunkStrategy;
+    private final long ingestTimeoutMs;
 
     public BatchCrawlService(
             CrawlService crawlService,
-            ChunkService chunkService,
+            IngestService ingestService,
             SitemapParser sitemapParser,
             @Value("${websearch.batch-crawl.max-concurrency:3}") int defaultMaxConcurrency,
             @Value("${websearch.batch-crawl.rate-limit-ms:1000}") long defaultRateLimitMs,
             @Value("${websearch.batch-crawl.max-urls:100}") int defaultMaxUrls,
             @Value("${websearch.batch-crawl.auto-chunk:true}") boolean autoChunk,
-            @Value("${websearch.batch-crawl.chunk-strategy:sentence}") String chunkStrategy
+            @Value("${websearch.batch-crawl.chunk-strategy:sentence}") String chunkStrategy,
+            @Value("${websearch.batch-crawl.ingest-timeout-ms:600000}") long ingestTimeoutMs
     ) {
         this.crawlService = crawlService;
-        this.chunkService = chunkService;
+        this.ingestService = ingestService;
         this.sitemapParser = sitemapParser;
         this.defaultMaxConcurrency = defaultMaxConcurrency;
         this.defaultRateLimitMs = defaultRateLimitMs;
         this.defaultMaxUrls = defaultMaxUrls;
         this.autoChunk = autoChunk;
         this.chunkStrategy = chunkStrategy;
+        this.ingestTimeoutMs = ingestTimeoutMs;
     }
 
     public SitemapParser.SitemapResult discoverSitemap(String domain, Integer maxUrls,
@@ -87,6 +99,7 @@ public class BatchCrawlService {
         var crawledCount = new java.util.concurrent.atomic.AtomicInteger(0);
         var chunkedCount = new java.util.concurrent.atomic.AtomicInteger(0);
         var failedCount = new java.util.concurrent.atomic.AtomicInteger(0);
+        Map<String, String> ticketsByUrl = new ConcurrentHashMap<>();
 
         List<Future<?>> futures = new ArrayList<>();
 
@@ -100,10 +113,10 @@ public class BatchCrawlService {
                                 false, false, null);
                         crawledCount.incrementAndGet();
 
-                        // Auto-chunk and cache
+                        // Auto-chunk and cache in the background, replacing the page's earlier chunks
                         if (autoChunk && result.content() != null && !result.content().isBlank()) {
-                            chunkService.chunk(result.content(), strategy, null, null, url, "default");
-                            chunkedCount.incrementAndGet();
+                            ticketsByUrl.put(url, ingestService.submit(new IngestRequest(result.content(),
+                                    strategy, null, null, url, "default", true)).ticket());
                         }
                     } finally {
                         // Delay before releasing for next request
@@ -129,6 +142,27 @@ public class BatchCrawlService {
 
         executor.shutdown();
 
+        // Wait for the queued pages to be embedded and stored
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ingestTimeoutMs);
+        for (Map.Entry<String, String> ticket : ticketsByUrl.entrySet()) {
+            try {
+                ingestService.await(ticket.getValue(),
+                        Duration.ofNanos(Math.max(0, deadline - System.nanoTime())));
+                chunkedCount.incrementAndGet();
+            } catch (TimeoutException e) {
+                errors.add(new CrawlError(ticket.getKey(), "Chunking still queued (ticket " + ticket.getValue() + ")"));
+            } catch (CancellationException e) {
+                errors.add(new CrawlError(ticket.getKey(),
+                        "Chunking interrupted; replayed on restart (ticket " + ticket.getValue() + ")"));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                errors.add(new CrawlError(ticket.getKey(), "Chunking failed: " + e.getMessage()));
+                log.warn("Chunking failed for {}: {}", ticket.getKey(), e.getMessage());
+            }
+        }
+
         Duration elapsed = Duration.between(start, Instant.now());
         log.info("Batch crawl complete: {} total, {} crawled, {} chunked, {} failed in {}s",
                 targetUrls.size(), crawledCount.get(), chunkedCount.get(),
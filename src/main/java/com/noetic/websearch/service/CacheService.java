@@ -27,16 +27,46 @@ public class CacheService {
 
     public List<VectorMatch> query(String queryText, Integer topK, Float similarityThreshold,
                                     String namespace) {
+        return query(queryText, topK, similarityThreshold, namespace, null);
+    }
+
+    /**
+     * Semantic search restricted by a metadata filter (entry type, source URL,
+     * creation window). The filter is applied inside the vector search, so
+     * {@code topK} results are returned without over-fetching.
+     *
+     * @param filter metadata constraints, or null for none
+     */
+    public List<VectorMatch> query(String queryText, Integer topK, Float similarityThreshold,
+                                    String namespace, MetadataFilter filter) {
+        return query(queryText, topK, similarityThreshold, namespace, filter, false);
+    }
+
+    /**
+     * Semantic search with optional hybrid retrieval. In hybrid mode the store also
+     * ranks entries by keyword relevance (BM25) and fuses both rankings, so exact
+     * identifiers -- API names, error codes, flags -- surface even when the
+     * embedding misses them. Fused scores are rank-based, not cosine similarities.
+     *
+     * @param filter metadata constraints, or null for none
+     * @param hybrid true to fuse lexical and vector rankings
+     */
+    public List<VectorMatch> query(String queryText, Integer topK, Float similarityThreshold,
+                                    String namespace, MetadataFilter filter, boolean hybrid) {
         int k = topK != null ? topK : 5;
         float threshold = similarityThreshold != null ? similarityThreshold : 0.0f;
 
         EmbeddingResult queryEmbedding = embeddingProvider.embed(
                 EmbeddingRequest.of(queryText, InputType.QUERY));
 
-        List<VectorMatch> matches = vectorStore.search(
-                VectorSearchRequest.of(queryEmbedding.vector(), k, threshold, namespace));
+        VectorSearchRequest request = new VectorSearchRequest(
+                queryEmbedding.vector(), k, threshold, filter, namespace);
+        List<VectorMatch> matches = hybrid
+                ? vectorStore.hybridSearch(request, queryText)
+                : vectorStore.search(request);
 
-        log.info("Cache query for '{}' (ns={}) returned {} matches", queryText, namespace, matches.size());
+        log.info("Cache query for '{}' (ns={}, filter={}, hybrid={}) returned {} matches",
+                queryText, namespace, filter, hybrid, matches.size());
         return matches;
     }
 }
@@ -4,6 +4,7 @@ import com.noetic.websearch.model.*;
 import com.noetic.websearch.provider.ChunkingStrategy;
 import com.noetic.websearch.provider.EmbeddingProvider;
 import com.noetic.websearch.provider.VectorStore;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -11,26 +12,73 @@ import org.springframework.stereotype.Service;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
  * Orchestrates content chunking, embedding, and storage.
+ *
+ * <p>Chunks are deduplicated by {@link ContentHash} before embedding: a chunk whose
+ * normalized text the same source already has in the namespace (or earlier in
+ * the same call) reuses the existing entry's ID instead of costing another
+ * inference and write.
+ * With {@code websearch.chunking.dedup=refresh} (default) the existing entries are
+ * re-stamped so their TTL restarts, keeping their metadata; {@code skip} leaves
+ * them untouched and {@code off} always embeds.</p>
+ *
+ * <p>Chunks with a source URL get content-defined IDs
+ * ({@link ContentHash#chunkId}), so the same text from the same page always
+ * maps to the same entry. A {@link IngestRequest#reingest() re-ingest} diffs
+ * the page's new chunks against those stored for its URL: unchanged chunks are
+ * kept (and re-stamped), only new ones are embedded, and once all of them are
+ * stored the ones that vanished are deleted in one {@code deleteBatch}. Each
+ * page owns its chunks: pages never share an entry, which a re-ingest of one
+ * of them could otherwise delete from under the others.</p>
+ *
+ * <p>New chunks go through {@code embedBatch} in provider-sized batches
+ * ({@code websearch.chunking.embed-batch-size}, 0 = the provider's maximum)
+ * and are written with {@code upsertBatch} on a store thread while the next
+ * batch embeds; at most {@code websearch.chunking.pipeline-depth} embedded
+ * batches wait for the writer. Failures are still reported per chunk.</p>
+ *
+ * <p>Only embedding and storing overlap. Chunking runs to completion before the
+ * first batch embeds, even with a streaming strategy: dedup resolves every
+ * hash in one {@code findByContentHash} lookup, and a re-ingest needs the
+ * page's full chunk set to know which stored chunks vanished.</p>
  */
 @Service
 public class ChunkService {
 
     private static final Logger log = LoggerFactory.getLogger(ChunkService.class);
 
+    /** Tells the store thread that no more batches follow. */
+    private static final List<PendingEntry> END_OF_BATCHES = List.of();
+
     private final Map<String, ChunkingStrategy> strategies;
     private final EmbeddingProvider embeddingProvider;
     private final VectorStore vectorStore;
     private final String defaultStrategy;
     private final int defaultMaxChunkSize;
     private final int defaultOverlap;
+    private final String dedupMode;
+    private final int embedBatchSize;
+    private final int pipelineDepth;
+    private final ExecutorService storeExecutor;
 
     public ChunkService(
             List<ChunkingStrategy> strategies,
@@ -38,7 +86,10 @@ public class ChunkService {
             VectorStore vectorStore,
             @Value("${websearch.chunking.default-strategy:sentence}") String defaultStrategy,
             @Value("${websearch.chunking.max-chunk-size:512}") int defaultMaxChunkSize,
-            @Value("${websearch.chunking.overlap:50}") int defaultOverlap
+            @Value("${websearch.chunking.overlap:50}") int defaultOverlap,
+            @Value("${websearch.chunking.dedup:refresh}") String dedupMode,
+            @Value("${websearch.chunking.embed-batch-size:0}") int embedBatchSize,
+            @Value("${websearch.chunking.pipeline-depth:2}") int pipelineDepth
     ) {
         this.strategies = strategies.stream()
                 .collect(Collectors.toMap(ChunkingStrategy::type, Function.identity()));
@@ -47,62 +98,418 @@ public class ChunkService {
         this.defaultStrategy = defaultStrategy;
         this.defaultMaxChunkSize = defaultMaxChunkSize;
         this.defaultOverlap = defaultOverlap;
+        this.dedupMode = dedupMode.toLowerCase();
+        this.embedBatchSize = embedBatchSize;
+        this.pipelineDepth = Math.max(1, pipelineDepth);
+        AtomicInteger threadId = new AtomicInteger();
+        this.storeExecutor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "chunk-store-" + threadId.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
     }
 
     public List<ContentChunk> chunk(String content, String strategy, Integer maxChunkSize,
                                       Integer overlap, String sourceUrl, String namespace) {
+        return chunk(new IngestRequest(content, strategy, maxChunkSize, overlap, sourceUrl, namespace));
+    }
+
+    public List<ContentChunk> chunk(IngestRequest request) {
+        return chunkAll(List.of(request)).getFirst();
+    }
+
+    /**
+     * Chunk several documents and embed all their new chunks in shared
+     * batches, so many small documents cost as few embedding calls as one
+     * large one.
+     *
+     * @return each request's chunks, in request order
+     */
+    public List<List<ContentChunk>> chunkAll(List<IngestRequest> requests) {
+        List<Document> documents = new ArrayList<>(requests.size());
+        List<ContentChunk> all = new ArrayList<>();
+        List<Document> owners = new ArrayList<>();
+        for (IngestRequest request : requests) {
+            Document document = split(request, all.size());
+            documents.add(document);
+            all.addAll(document.chunks);
+            document.chunks.forEach(c -> owners.add(document));
+        }
+
+        // Embed and store new chunks; a repeat within this call waits on its first occurrence
+        boolean dedup = !"off".equals(dedupMode);
+        Map<String, Integer> firstByKey = new HashMap<>();
+        List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < all.size(); i++) {
+            Document document = owners.get(i);
+            String hash = document.hashes.get(i - document.offset);
+            String existingId = document.existing.get(hash);
+            if (existingId != null) {
+                document.reusedIds.add(existingId);
+            } else if (!dedup || firstByKey.putIfAbsent(document.key(hash), i) == null) {
+                pending.add(i);
+            }
+        }
+        boolean[] stored = embedAndStore(all, owners, pending);
+
+        List<List<ContentChunk>> results = new ArrayList<>(documents.size());
+        for (Document document : documents) {
+            List<ContentChunk> storedChunks = new ArrayList<>(document.chunks.size());
+            int embedded = 0;
+            for (int n = 0; n < document.chunks.size(); n++) {
+                int i = document.offset + n;
+                ContentChunk chunk = all.get(i);
+                String hash = document.hashes.get(n);
+                String existingId = document.existing.get(hash);
+                int first = dedup && existingId == null ? firstByKey.get(document.key(hash)) : i;
+                if (existingId != null) {
+                    storedChunks.add(new ContentChunk(existingId, chunk.text(), chunk.tokenCount(), true));
+                } else if (stored[first]) {
+                    String id = all.get(first).chunkId();
+                    storedChunks.add(new ContentChunk(id, chunk.text(), chunk.tokenCount(), true));
+                    if (dedup) {
+                        document.existing.put(hash, id);
+                    }
+                    if (first == i) {
+                        embedded++;
+                    }
+                } else {
+                    storedChunks.add(chunk);
+                }
+            }
+
+            // Existing entries already in storedChunks; restart their TTL if configured (only the timestamp)
+            document.reusedIds.retainAll(document.previouslyStored);
+            if (("refresh".equals(dedupMode) || document.reingest) && !document.reusedIds.isEmpty()) {
+                try {
+                    vectorStore.touch(document.reusedIds, Map.of());
+                } catch (Exception e) {
+                    log.warn("Failed to refresh {} duplicate chunks: {}", document.reusedIds.size(), e.getMessage());
+                }
+            }
+            int removed = document.reingest ? removeVanished(document, storedChunks) : 0;
 
-        String strat = strategy != null ? strategy : defaultStrategy;
-        int chunkSize = maxChunkSize != null ? maxChunkSize : defaultMaxChunkSize;
-        int ovlp = overlap != null ? overlap : defaultOverlap;
+            log.info("Chunked content into {} chunks (strategy={}, stored={}, embedded={}, removed={})",
+                    storedChunks.size(), document.strategy,
+                    storedChunks.stream().filter(ContentChunk::embeddingStored).count(),
+                    embedded, removed);
+            results.add(storedChunks);
+        }
+        return results;
+    }
 
-        ChunkingStrategy chunkingStrategy = strategies.get(strat);
+    /**
+     * Fail fast on a strategy name this service cannot chunk with.
+     *
+     * @throws IllegalArgumentException if the strategy is unknown
+     */
+    public void checkStrategy(String strategy) {
+        strategyFor(strategy != null ? strategy : defaultStrategy);
+    }
+
+    private ChunkingStrategy strategyFor(String strategy) {
+        ChunkingStrategy chunkingStrategy = strategies.get(strategy);
         if (chunkingStrategy == null) {
-            throw new IllegalArgumentException("Unknown chunking strategy: " + strat
+            throw new IllegalArgumentException("Unknown chunking strategy: " + strategy
                     + ". Available: " + strategies.keySet());
         }
+        return chunkingStrategy;
+    }
+
+    /** Split one document and resolve which of its chunks the namespace already stores. */
+    private Document split(IngestRequest request, int offset) {
+        String strat = request.strategy() != null ? request.strategy() : defaultStrategy;
+        int chunkSize = request.maxChunkSize() != null ? request.maxChunkSize() : defaultMaxChunkSize;
+        int ovlp = request.overlap() != null ? request.overlap() : defaultOverlap;
+
+        ChunkingStrategy chunkingStrategy = strategyFor(strat);
+        List<ContentChunk> chunks = chunkingStrategy.chunk(new ChunkRequest(request.content(), strat, chunkSize, ovlp));
+        List<String> hashes = chunks.stream().map(c -> ContentHash.of(c.text())).toList();
+        String sourceUrl = request.sourceUrl();
+        String namespace = request.namespace() != null ? request.namespace() : "default";
+
+        Map<String, String> metadata = new HashMap<>();
+        metadata.put("strategy", strat);
+        if (sourceUrl != null) {
+            metadata.put("sourceUrl", sourceUrl);
+            List<ContentChunk> identified = new ArrayList<>(chunks.size());
+            for (int i = 0; i < chunks.size(); i++) {
+                ContentChunk c = chunks.get(i);
+                identified.add(new ContentChunk(ContentHash.chunkId(namespace, sourceUrl, hashes.get(i)),
+                        c.text(), c.tokenCount(), c.embeddingStored(), c.tokenIds()));
+            }
+            chunks = identified;
+        }
 
-        ChunkRequest request = new ChunkRequest(content, strat, chunkSize, ovlp);
-        List<ContentChunk> chunks = chunkingStrategy.chunk(request);
+        // Re-ingest: resolve chunks the page already has stored
+        Map<String, String> existing = new HashMap<>();
+        Set<String> sourceIds = Set.of();
+        boolean reingest = request.reingest() && sourceUrl != null;
+        if (reingest) {
+            try {
+                Map<String, String> stored = vectorStore.findBySource(request.namespace(), sourceUrl);
+                stored.forEach((id, hash) -> {
+                    // The page may hold the same text twice; keep its content-defined entry
+                    if (!existing.containsKey(hash) || id.equals(ContentHash.chunkId(namespace, sourceUrl, hash))) {
+                        existing.put(hash, id);
+                    }
+                });
+                sourceIds = Set.copyOf(stored.keySet());
+            } catch (Exception e) {
+                log.warn("Source lookup for {} failed, adding chunks without removing old ones: {}",
+                        sourceUrl, e.getMessage());
+                reingest = false;
+            }
+        }
 
-        // Embed and store each chunk
-        List<ContentChunk> storedChunks = new ArrayList<>();
-        for (ContentChunk chunk : chunks) {
+        // Otherwise resolve chunks whose content is already stored in this namespace
+        if (!reingest && !"off".equals(dedupMode) && !chunks.isEmpty()) {
             try {
-                EmbeddingResult embedding = embeddingProvider.embed(
-                        EmbeddingRequest.of(chunk.text(), InputType.DOCUMENT));
+                existing.putAll(vectorStore.findByContentHash(request.namespace(), sourceUrl, hashes));
+            } catch (Exception e) {
+                log.warn("Content hash lookup failed, embedding all chunks: {}", e.getMessage());
+            }
+        }
+        return new Document(strat, request.namespace(), sourceUrl, reingest, metadata, chunks, hashes, offset,
+                existing, sourceIds);
+    }
 
-                Map<String, String> metadata = new java.util.HashMap<>();
-                metadata.put("strategy", strat);
-                if (sourceUrl != null) {
-                    metadata.put("sourceUrl", sourceUrl);
+    /**
+     * Delete the entries stored for a re-ingested page that its new chunks no
+     * longer include, in one batch. Nothing is deleted unless every new chunk
+     * was stored, so a failed embed or write never leaves the page with less
+     * than it had; the next re-ingest removes what vanished.
+     *
+     * @return number of entries deleted
+     */
+    private int removeVanished(Document document, List<ContentChunk> storedChunks) {
+        long missing = storedChunks.stream().filter(c -> !c.embeddingStored()).count();
+        if (missing > 0) {
+            log.warn("Keeping the old chunks of {}: {} of its new chunks were not stored", document.sourceUrl, missing);
+            return 0;
+        }
+        Set<String> kept = storedChunks.stream().map(ContentChunk::chunkId).collect(Collectors.toSet());
+        List<String> vanished = document.sourceIds.stream().filter(id -> !kept.contains(id)).toList();
+        if (vanished.isEmpty()) {
+            return 0;
+        }
+        try {
+            vectorStore.deleteBatch(vanished);
+            return vanished.size();
+        } catch (Exception e) {
+            log.warn("Failed to remove {} vanished chunks of {}: {}", vanished.size(), document.sourceUrl,
+                    e.getMessage());
+            return 0;
+        }
+    }
+
+    // ---- Embed/store pipeline ----
+
+    /**
+     * Embed the chunks at {@code pending} with {@code embedBatch} in
+     * provider-sized batches and hand each batch to a store thread through a
+     * bounded queue, so the next batch is embedded while the previous one is
+     * written. A batch call that fails is retried one chunk at a time, so one
+     * bad chunk only fails itself.
+     *
+     * @return per chunk index, whether its embedding was stored
+     */
+    private boolean[] embedAndStore(List<ContentChunk> chunks, List<Document> owners, List<Integer> pending) {
+        boolean[] stored = new boolean[chunks.size()];
+        int batchSize = embedBatchSize();
+        List<List<Integer>> batches = new ArrayList<>();
+        for (int i = 0; i < pending.size(); i += batchSize) {
+            batches.add(pending.subList(i, Math.min(i + batchSize, pending.size())));
+        }
+        if (batches.size() <= 1) {
+            for (List<Integer> batch : batches) {
+                store(embed(chunks, owners, batch), stored);
+            }
+            return stored;
+        }
+
+        BlockingQueue<List<PendingEntry>> queue = new ArrayBlockingQueue<>(pipelineDepth);
+        Future<?> writer = storeExecutor.submit(() -> {
+            try {
+                for (List<PendingEntry> entries = queue.take(); entries != END_OF_BATCHES; entries = queue.take()) {
+                    store(entries, stored);
                 }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        boolean interrupted = false;
+        try {
+            for (List<Integer> batch : batches) {
+                List<PendingEntry> entries = embed(chunks, owners, batch);
+                if (!entries.isEmpty()) {
+                    queue.put(entries);
+                }
+            }
+        } catch (InterruptedException e) {
+            interrupted = true;
+            log.warn("Interrupted while embedding chunks; chunks not yet embedded are reported as not stored");
+        }
+        if (finishStoring(queue, writer) || interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return stored;
+    }
+
+    /**
+     * Queue the end marker and wait for the store thread to write every batch
+     * before it. The store thread is never interrupted: an interrupt during
+     * Lucene I/O closes the index writer.
+     *
+     * @return whether the calling thread was interrupted while waiting
+     */
+    private static boolean finishStoring(BlockingQueue<List<PendingEntry>> queue, Future<?> writer) {
+        boolean interrupted = false;
+        while (!writer.isDone()) {
+            try {
+                if (queue.offer(END_OF_BATCHES, 100, TimeUnit.MILLISECONDS)) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        while (true) {
+            try {
+                writer.get();
+                return interrupted;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            } catch (ExecutionException e) {
+                log.warn("Chunk store thread failed: {}", e.getCause().getMessage());
+                return interrupted;
+            }
+        }
+    }
 
-                VectorEntry entry = new VectorEntry(
+    private List<PendingEntry> embed(List<ContentChunk> chunks, List<Document> owners, List<Integer> batch) {
+        List<EmbeddingResult> embeddings = null;
+        try {
+            embeddings = embeddingProvider.embedBatch(new EmbeddingBatchRequest(
+                    batch.stream().map(i -> chunks.get(i).text()).toList(), InputType.DOCUMENT, null,
+                    tokenIds(chunks, batch)));
+            if (embeddings.size() != batch.size()) {
+                throw new IllegalStateException("Expected " + batch.size() + " embeddings, got " + embeddings.size());
+            }
+        } catch (Exception e) {
+            log.warn("Batch embedding of {} chunks failed, retrying one at a time: {}", batch.size(), e.getMessage());
+            embeddings = null;
+        }
+
+        List<PendingEntry> entries = new ArrayList<>(batch.size());
+        for (int n = 0; n < batch.size(); n++) {
+            ContentChunk chunk = chunks.get(batch.get(n));
+            Document owner = owners.get(batch.get(n));
+            try {
+                EmbeddingResult embedding = embeddings != null ? embeddings.get(n)
+                        : embeddingProvider.embed(EmbeddingRequest.of(chunk.text(), InputType.DOCUMENT));
+                entries.add(new PendingEntry(batch.get(n), new VectorEntry(
                         chunk.chunkId(),
                         embedding.vector(),
                         chunk.text(),
                         "crawl_chunk",
-                        namespace,
+                        owner.namespace,
                         Instant.now(),
-                        metadata
-                );
-
-                vectorStore.upsert(entry);
+                        owner.metadata
+                )));
+            } catch (Exception e) {
+                log.warn("Failed to embed/store chunk {}: {}", chunk.chunkId(), e.getMessage());
+            }
+        }
+        return entries;
+    }
 
-                storedChunks.add(new ContentChunk(
-                        chunk.chunkId(), chunk.text(), chunk.tokenCount(), true));
+    /** Pass on the WordPiece IDs of chunks a tokenizer-sized strategy produced, so they are not tokenized twice. */
+    private static Map<String, Object> tokenIds(List<ContentChunk> chunks, List<Integer> batch) {
+        List<int[]> ids = batch.stream().map(i -> chunks.get(i).tokenIds()).toList();
+        return ids.stream().allMatch(Objects::isNull) ? Map.of() : Map.of(EmbeddingBatchRequest.EXTRA_TOKEN_IDS, ids);
+    }
 
+    private void store(List<PendingEntry> entries, boolean[] stored) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        try {
+            vectorStore.upsertBatch(entries.stream().map(PendingEntry::entry).toList());
+            for (PendingEntry pending : entries) {
+                stored[pending.index()] = true;
+            }
+            return;
+        } catch (Exception e) {
+            log.warn("Batch upsert of {} chunks failed, retrying one at a time: {}", entries.size(), e.getMessage());
+        }
+        for (PendingEntry pending : entries) {
+            try {
+                vectorStore.upsert(pending.entry());
+                stored[pending.index()] = true;
             } catch (Exception e) {
-                log.warn("Failed to embed/store chunk {}: {}", chunk.chunkId(), e.getMessage());
-                storedChunks.add(chunk);
+                log.warn("Failed to embed/store chunk {}: {}", pending.entry().id(), e.getMessage());
             }
         }
+    }
 
-        log.info("Chunked content into {} chunks (strategy={}, stored={})",
-                storedChunks.size(), strat,
-                storedChunks.stream().filter(ContentChunk::embeddingStored).count());
+    private int embedBatchSize() {
+        EmbeddingCapabilities capabilities = embeddingProvider.capabilities();
+        int limit = capabilities.supportsBatch() ? Math.max(1, capabilities.maxBatchSize()) : 1;
+        return embedBatchSize > 0 ? Math.min(embedBatchSize, limit) : limit;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        // Let in-flight writes finish: interrupting Lucene I/O closes the index writer
+        storeExecutor.shutdown();
+        try {
+            storeExecutor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** One request's chunks and dedup state while a {@link #chunkAll} call runs. */
+    private static final class Document {
+
+        final String strategy;
+        final String namespace;
+        final String sourceUrl;
+        final boolean reingest;
+        final Map<String, String> metadata;
+        final List<ContentChunk> chunks;
+        final List<String> hashes;
+        final int offset;
+        final Map<String, String> existing;
+        /** Re-ingest: every entry stored for the page before this call. */
+        final Set<String> sourceIds;
+        final Set<String> previouslyStored;
+        final Set<String> reusedIds = new LinkedHashSet<>();
+
+        Document(String strategy, String namespace, String sourceUrl, boolean reingest, Map<String, String> metadata,
+                 List<ContentChunk> chunks, List<String> hashes, int offset, Map<String, String> existing,
+                 Set<String> sourceIds) {
+            this.strategy = strategy;
+            this.namespace = namespace;
+            this.sourceUrl = sourceUrl;
+            this.reingest = reingest;
+            this.metadata = metadata;
+            this.chunks = chunks;
+            this.hashes = hashes;
+            this.offset = offset;
+            this.existing = existing;
+            this.sourceIds = sourceIds;
+            this.previouslyStored = Set.copyOf(existing.values());
+        }
+
+        /** Repeats of a chunk within one call share an entry, but only within the same source. */
+        String key(String hash) {
+            return namespace + '\n' + sourceUrl + '\n' + hash;
+        }
+    }
 
-        return storedChunks;
+    /** An embedded chunk waiting to be written, with its position in the chunk list. */
+    private record PendingEntry(int index, VectorEntry entry) {
     }
 }
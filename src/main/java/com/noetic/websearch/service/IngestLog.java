@@ -0,0 +1,389 @@
+package com.noetic.websearch.service;
+
+import com.noetic.websearch.model.IngestRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, segmented log of ingest requests, so queued work survives a
+ * crash or restart.
+ *
+ * <p>Each segment ({@code ingest-<n>.log}) is a sequence of frames
+ * {@code length | crc32 | payload}, where the payload is either a submitted
+ * request or the completion marker of an earlier one. On open, every segment
+ * is replayed; a request without a completion marker is handed back as
+ * pending. A frame with a bad length or checksum ends its segment, which
+ * drops a record torn by a crash mid-append, and writing always resumes in a
+ * fresh segment. A segment is deleted once it and every older segment hold
+ * no pending request, so completion markers are never lost while the request
+ * they complete is still on disk.</p>
+ *
+ * <p>One process at a time owns a log directory, through a lock on its
+ * {@code ingest.lock} file. Every request is recorded with the identity of the
+ * store it is meant for, and only requests for the opening process's store are
+ * replayed. Pending requests for another store are kept for their owner by
+ * copying them into each new segment, so they never hold older segments on
+ * disk. Requests recorded without a store, by versions that did not write
+ * one, cannot be attributed to an index and are dropped with a warning.</p>
+ */
+final class IngestLog implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestLog.class);
+
+    private static final String PREFIX = "ingest-";
+    private static final String SUFFIX = ".log";
+    private static final byte SUBMITTED = 1;
+    private static final byte COMPLETED = 2;
+    private static final int FRAME_HEADER = 8;
+    private static final String LOCK_FILE = "ingest.lock";
+
+    private final Path directory;
+    private final String store;
+    private final long segmentBytes;
+    private final boolean fsync;
+    /** Pending tickets per segment, oldest segment first. */
+    private final TreeMap<Long, Set<String>> pendingBySegment = new TreeMap<>();
+    private final Map<String, Long> segmentOf = new HashMap<>();
+    /** Payloads of pending requests for another store, copied into every new segment. */
+    private final Map<String, byte[]> foreign = new LinkedHashMap<>();
+    private final List<Entry> replayed;
+    private final FileChannel lockChannel;
+    private long activeSegment;
+    private FileChannel active;
+
+    private IngestLog(Path directory, String store, long segmentBytes, boolean fsync, FileChannel lockChannel) {
+        this.directory = directory;
+        this.store = store;
+        this.segmentBytes = segmentBytes;
+        this.fsync = fsync;
+        this.lockChannel = lockChannel;
+        this.replayed = new ArrayList<>();
+    }
+
+    /**
+     * Opens the log in {@code directory}, creating it if needed, locks it and
+     * replays existing segments.
+     *
+     * @param store        identity of the store this process ingests into
+     * @param segmentBytes size after which appends roll to a new segment
+     * @param fsync        force every append to disk before it returns
+     * @throws LockedException if another process has the directory open
+     */
+    static IngestLog open(Path directory, String store, long segmentBytes, boolean fsync) throws IOException {
+        Files.createDirectories(directory);
+        FileChannel lockChannel = FileChannel.open(directory.resolve(LOCK_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        IngestLog ingestLog = new IngestLog(directory, store, segmentBytes, fsync, lockChannel);
+        try {
+            if (!tryLock(lockChannel)) {
+                throw new LockedException(directory);
+            }
+            ingestLog.load();
+            return ingestLog;
+        } catch (IOException | RuntimeException e) {
+            ingestLog.close();
+            throw e;
+        }
+    }
+
+    /** True if a process holds the lock of the log in {@code directory}. */
+    static boolean inUse(Path directory) {
+        Path lockFile = directory.resolve(LOCK_FILE);
+        if (!Files.exists(lockFile)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.WRITE)) {
+            return !tryLock(channel); // released when the channel closes
+        } catch (IOException e) {
+            return true; // assume in use if we can't check
+        }
+    }
+
+    private static boolean tryLock(FileChannel channel) throws IOException {
+        try {
+            FileLock lock = channel.tryLock();
+            return lock != null;
+        } catch (OverlappingFileLockException e) {
+            return false; // held within this JVM
+        }
+    }
+
+    private void load() throws IOException {
+        List<Long> segments;
+        try (Stream<Path> files = Files.list(directory)) {
+            segments = files.map(p -> segmentId(p.getFileName().toString()))
+                    .filter(id -> id >= 0)
+                    .sorted()
+                    .toList();
+        }
+
+        Map<String, Entry> pending = new LinkedHashMap<>();
+        Set<String> ownerless = new LinkedHashSet<>();
+        for (long segment : segments) {
+            pendingBySegment.put(segment, new HashSet<>());
+            replay(segment, pending, ownerless);
+        }
+        if (!ownerless.isEmpty()) {
+            log.warn("Dropped {} pending ingest requests in {} recorded without a store",
+                    ownerless.size(), directory);
+        }
+        replayed.addAll(pending.values());
+        roll(segments.isEmpty() ? 1 : segments.getLast() + 1);
+        deleteCompletedSegments();
+        if (!pending.isEmpty()) {
+            log.info("Replayed {} pending ingest requests from {}", pending.size(), directory);
+        }
+        if (!foreign.isEmpty()) {
+            log.warn("Keeping {} pending ingest requests for other stores in {}", foreign.size(), directory);
+        }
+    }
+
+    /** Requests submitted but not completed when the log was opened, oldest first. */
+    List<Entry> replayed() {
+        return List.copyOf(replayed);
+    }
+
+    /** Durably record a submitted request. */
+    synchronized void append(String ticket, IngestRequest request) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(request.content().length() + 128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(SUBMITTED);
+        writeString(out, ticket);
+        writeString(out, request.content());
+        writeString(out, request.strategy());
+        writeInteger(out, request.maxChunkSize());
+        writeInteger(out, request.overlap());
+        writeString(out, request.sourceUrl());
+        writeString(out, request.namespace());
+        out.writeBoolean(request.reingest());
+        writeString(out, store);
+        write(bytes.toByteArray());
+        segmentOf.put(ticket, activeSegment);
+        pendingBySegment.get(activeSegment).add(ticket);
+    }
+
+    /** Record that a request no longer needs replaying; unknown tickets are ignored. */
+    synchronized void complete(String ticket) throws IOException {
+        Long segment = segmentOf.remove(ticket);
+        if (segment == null) {
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(COMPLETED);
+        writeString(out, ticket);
+        write(bytes.toByteArray());
+        pendingBySegment.get(segment).remove(ticket);
+        deleteCompletedSegments();
+    }
+
+    /** Number of requests not yet completed. */
+    synchronized int pending() {
+        return segmentOf.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            if (active != null) {
+                active.force(true);
+                active.close();
+                active = null;
+            }
+        } finally {
+            lockChannel.close(); // releases the lock
+        }
+    }
+
+    /** A submitted request and its ticket. */
+    record Entry(String ticket, IngestRequest request) {
+    }
+
+    /** Thrown by {@link #open} when another process owns the log directory. */
+    static final class LockedException extends IOException {
+        LockedException(Path directory) {
+            super("Ingest log " + directory + " is in use by another process");
+        }
+    }
+
+    // ---- Segments ----
+
+    private void write(byte[] payload) throws IOException {
+        if (active == null) {
+            throw new IOException("Ingest log is closed");
+        }
+        if (active.size() > 0 && active.size() + FRAME_HEADER + payload.length > segmentBytes) {
+            FileChannel previous = active;
+            roll(activeSegment + 1);
+            previous.close();
+            deleteCompletedSegments();
+        }
+        writeFrame(payload);
+        if (fsync) {
+            active.force(false);
+        }
+    }
+
+    private void writeFrame(byte[] payload) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER + payload.length);
+        frame.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+        while (frame.hasRemaining()) {
+            active.write(frame);
+        }
+    }
+
+    /** Start a new segment, carrying other stores' pending requests into it before older segments go. */
+    private void roll(long segment) throws IOException {
+        active = FileChannel.open(segmentPath(segment),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        activeSegment = segment;
+        pendingBySegment.put(segment, new HashSet<>());
+        for (byte[] payload : foreign.values()) {
+            writeFrame(payload);
+        }
+        if (!foreign.isEmpty()) {
+            active.force(false);
+        }
+    }
+
+    private void deleteCompletedSegments() throws IOException {
+        while (!pendingBySegment.isEmpty()) {
+            long oldest = pendingBySegment.firstKey();
+            if (oldest == activeSegment || !pendingBySegment.get(oldest).isEmpty()) {
+                return;
+            }
+            Files.deleteIfExists(segmentPath(oldest));
+            pendingBySegment.remove(oldest);
+        }
+    }
+
+    private void replay(long segment, Map<String, Entry> pending, Set<String> ownerless) throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(segmentPath(segment)));
+        while (data.remaining() >= FRAME_HEADER) {
+            int length = data.getInt();
+            int checksum = data.getInt();
+            if (length <= 0 || length > data.remaining()) {
+                log.warn("Ingest log segment {} ends in a torn record; ignoring its last {} bytes",
+                        segment, data.remaining() + FRAME_HEADER);
+                return;
+            }
+            byte[] payload = new byte[length];
+            data.get(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) {
+                log.warn("Ingest log segment {} has a corrupt record; ignoring the rest of it", segment);
+                return;
+            }
+            try {
+                readRecord(segment, payload, pending, ownerless);
+            } catch (IOException | IllegalArgumentException e) {
+                log.warn("Skipping unreadable ingest record in segment {}: {}", segment, e.getMessage());
+            }
+        }
+    }
+
+    private void readRecord(long segment, byte[] payload, Map<String, Entry> pending, Set<String> ownerless)
+            throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte type = in.readByte();
+        String ticket = readString(in);
+        if (type == SUBMITTED) {
+            IngestRequest request = new IngestRequest(readString(in), readString(in), readInteger(in),
+                    readInteger(in), readString(in), readString(in),
+                    in.available() > 0 && in.readBoolean()); // absent from records written before re-ingest
+            String owner = in.available() > 0 ? readString(in) : null;
+            if (owner == null) {
+                ownerless.add(ticket); // no way to tell which index it was meant for
+            } else if (!owner.equals(store)) {
+                foreign.put(ticket, payload); // replaying it here would write into the wrong index
+            } else {
+                pending.put(ticket, new Entry(ticket, request));
+                segmentOf.put(ticket, segment);
+                pendingBySegment.get(segment).add(ticket);
+            }
+        } else if (type == COMPLETED) {
+            pending.remove(ticket);
+            ownerless.remove(ticket);
+            foreign.remove(ticket);
+            Long submittedIn = segmentOf.remove(ticket);
+            if (submittedIn != null) {
+                pendingBySegment.get(submittedIn).remove(ticket);
+            }
+        }
+    }
+
+    private Path segmentPath(long segment) {
+        return directory.resolve(PREFIX + String.format("%08d", segment) + SUFFIX);
+    }
+
+    private static long segmentId(String fileName) {
+        if (!fileName.startsWith(PREFIX) || !fileName.endsWith(SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(fileName.substring(PREFIX.length(), fileName.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // ---- Encoding ----
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        return new String(in.readNBytes(length), StandardCharsets.UTF_8);
+    }
+
+    private static void writeInteger(DataOutputStream out, Integer value) throws IOException {
+        out.writeBoolean(value != null);
+        out.writeInt(value != null ? value : 0);
+    }
+
+    private static Integer readInteger(DataInputStream in) throws IOException {
+        boolean present = in.readBoolean();
+        int value = in.readInt();
+        return present ? value : null;
+    }
+}
@@ -0,0 +1,441 @@
+package com.noetic.websearch.service;
+
+import com.noetic.websearch.model.ContentChunk;
+import com.noetic.websearch.model.IngestRequest;
+import com.noetic.websearch.model.IngestStatus;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Accepts content for chunking, embedding and storage without making the
+ * caller wait for it.
+ *
+ * <p>{@link #submit} appends the request to an on-disk {@link IngestLog}
+ * under {@code websearch.ingest.path} and returns a ticket at once. Worker
+ * threads ({@code websearch.ingest.workers}) drain the queue, handing up to
+ * {@code websearch.ingest.max-batch} queued requests at a time to
+ * {@link ChunkService#chunkAll} so their chunks share embedding batches.
+ * Requests still in the log at startup, because the process stopped or
+ * crashed before finishing them, are queued again. Callers that need to read
+ * their writes can {@link #await} a ticket.</p>
+ *
+ * <p>Each store has its own queue directory, named after the index it writes
+ * and a hash of the store's identity: the canonical path of that index (the
+ * shared index, or the agent's under {@code agents-dir}), its shard count and
+ * its layout. So the CLI's index and the server's, or an agent's and the
+ * shared one, never replay each other's backlog; agent queues live under
+ * {@code agents/}. A directory is locked by the process using it; a second
+ * process for the same store takes the next free sibling ({@code <name>-1},
+ * {@code <name>-2}, ...), and replays whatever a crashed process left there.
+ * Agent queues unused for a day are purged, as their agent indexes are.</p>
+ */
+@Service
+public class IngestService {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestService.class);
+
+    /** Queue directories tried per store before giving up. */
+    private static final int MAX_QUEUE_SLOTS = 8;
+
+    /** Age after which an unlocked agent queue is purged, matching the agent index purge. */
+    private static final Duration AGENT_QUEUE_MAX_AGE = Duration.ofHours(24);
+
+    private final ChunkService chunkService;
+    private final Map<String, Ticket> tickets = new ConcurrentHashMap<>();
+    private final Deque<String> finished = new ArrayDeque<>();
+    private final BlockingQueue<IngestLog.Entry> queue = new LinkedBlockingQueue<>();
+
+    @Value("${websearch.ingest.path:${user.home}/.websearch/ingest}")
+    private String path;
+
+    @Value("${websearch.ingest.workers:2}")
+    private int workers = 2;
+
+    @Value("${websearch.ingest.max-batch:16}")
+    private int maxBatch = 16;
+
+    @Value("${websearch.ingest.segment-size-mb:64}")
+    private int segmentSizeMb = 64;
+
+    @Value("${websearch.ingest.fsync:true}")
+    private boolean fsync = true;
+
+    @Value("${websearch.ingest.retain-completed:1000}")
+    private int retainCompleted = 1000;
+
+    @Value("${websearch.store.agent-id:#{null}}")
+    private String agentId;
+
+    @Value("${websearch.store.lucene.index-path:${user.home}/.websearch/index}")
+    private String indexPath;
+
+    @Value("${websearch.store.lucene.agents-dir:${user.home}/.websearch/agents}")
+    private String agentsDir;
+
+    @Value("${websearch.store.lucene.shards:1}")
+    private int shards = 1;
+
+    @Value("${websearch.store.lucene.layout:single}")
+    private String layout = "single";
+
+    /** Identity of the index this process ingests into, recorded with every request. */
+    private String store;
+    /** Queue directory this process holds. */
+    private Path directory;
+    private IngestLog ingestLog;
+    private ExecutorService executor;
+    private volatile boolean stopping;
+
+    public IngestService(ChunkService chunkService) {
+        this.chunkService = chunkService;
+    }
+
+    @PostConstruct
+    public void start() {
+        boolean agentMode = agentId != null && !agentId.isBlank();
+        Path writeRoot = canonical(agentMode ? Path.of(agentsDir, agentId) : Path.of(indexPath));
+        store = "lucene:" + writeRoot + "?shards=" + Math.max(1, shards) + "&layout=" + layout.toLowerCase();
+        String queueName = writeRoot.getFileName() + "-" + shortHash(store);
+        Path agentsRoot = Path.of(path, "agents");
+        if (agentMode) {
+            purgeStaleAgentQueues(agentsRoot, queueName);
+        }
+        directory = openLog(agentMode ? agentsRoot.resolve(queueName) : Path.of(path, queueName));
+        for (IngestLog.Entry entry : ingestLog.replayed()) {
+            tickets.put(entry.ticket(), new Ticket(entry.ticket(), Instant.now()));
+            queue.add(entry);
+        }
+
+        AtomicInteger threadId = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Math.max(1, workers), r -> {
+            Thread t = new Thread(r, "ingest-worker-" + threadId.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+        for (int i = 0; i < Math.max(1, workers); i++) {
+            executor.submit(this::drain);
+        }
+        log.info("Ingest queue started (path={}, workers={}, pending={})", directory, Math.max(1, workers),
+                queue.size());
+    }
+
+    /** Open the first queue directory for {@link #store} that no other process holds. */
+    private Path openLog(Path base) {
+        for (int slot = 0; slot < MAX_QUEUE_SLOTS; slot++) {
+            Path directory = slot == 0 ? base : base.resolveSibling(base.getFileName() + "-" + slot);
+            try {
+                ingestLog = IngestLog.open(directory, store, (long) segmentSizeMb << 20, fsync);
+                return directory;
+            } catch (IngestLog.LockedException e) {
+                log.debug(e.getMessage());
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to open ingest log at " + directory + ": " + e.getMessage(), e);
+            }
+        }
+        throw new IllegalStateException("All " + MAX_QUEUE_SLOTS + " ingest queues for " + base
+                + " are in use by other processes");
+    }
+
+    /**
+     * Removes agent queue directories older than {@link #AGENT_QUEUE_MAX_AGE}
+     * that no running process holds. Each MCP STDIO session is its own agent,
+     * so without this their queues would accumulate.
+     */
+    private void purgeStaleAgentQueues(Path agentsRoot, String queueName) {
+        if (!Files.isDirectory(agentsRoot)) {
+            return;
+        }
+        Instant cutoff = Instant.now().minus(AGENT_QUEUE_MAX_AGE);
+        try (Stream<Path> dirs = Files.list(agentsRoot)) {
+            dirs.filter(Files::isDirectory)
+                    .filter(dir -> !isOwnQueue(dir.getFileName().toString(), queueName))
+                    .filter(dir -> isOlderThan(dir, cutoff))
+                    .filter(dir -> !IngestLog.inUse(dir))
+                    .forEach(IngestService::deleteQuietly);
+        } catch (IOException e) {
+            log.debug("Could not list agent ingest queues for cleanup: {}", e.getMessage());
+        }
+    }
+
+    private static boolean isOwnQueue(String name, String queueName) {
+        return name.equals(queueName) || name.startsWith(queueName + "-");
+    }
+
+    /**
+     * The path with its longest existing prefix resolved to the real path, so
+     * the same index is named the same way whether or not it exists yet.
+     */
+    private static Path canonical(Path path) {
+        Path absolute = path.toAbsolutePath().normalize();
+        Path existing = absolute;
+        while (existing != null && !Files.exists(existing)) {
+            existing = existing.getParent();
+        }
+        if (existing == null) {
+            return absolute;
+        }
+        try {
+            return existing.toRealPath().resolve(existing.relativize(absolute));
+        } catch (IOException e) {
+            return absolute;
+        }
+    }
+
+    /** First 32 bits of SHA-256, in hex: enough to keep queue directory names apart. */
+    private static String shortHash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 4);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static boolean isOlderThan(Path dir, Instant cutoff) {
+        try {
+            return Files.getLastModifiedTime(dir).toInstant().isBefore(cutoff);
+        } catch (IOException e) {
+            return false; // can't determine age, leave it alone
+        }
+    }
+
+    private static void deleteQuietly(Path dir) {
+        try (Stream<Path> walk = Files.walk(dir)) {
+            walk.sorted(Comparator.reverseOrder()).forEach(p -> {
+                try {
+                    Files.deleteIfExists(p);
+                } catch (IOException ignored) {
+                }
+            });
+            log.debug("Purged stale agent ingest queue: {}", dir.getFileName());
+        } catch (IOException e) {
+            log.debug("Could not purge agent ingest queue {}: {}", dir.getFileName(), e.getMessage());
+        }
+    }
+
+    /**
+     * Queue content for chunking, embedding and storage.
+     *
+     * @return the ticket's initial status; the request is on disk when this returns
+     * @throws IllegalArgumentException if the content is blank or the strategy unknown
+     */
+    public IngestStatus submit(IngestRequest request) {
+        if (stopping) {
+            throw new IllegalStateException("Ingest queue is shutting down");
+        }
+        chunkService.checkStrategy(request.strategy());
+        String ticketId = UUID.randomUUID().toString();
+        Ticket ticket = new Ticket(ticketId, Instant.now());
+        tickets.put(ticketId, ticket);
+        try {
+            ingestLog.append(ticketId, request);
+        } catch (IOException e) {
+            tickets.remove(ticketId);
+            throw new RuntimeException("Ingest submit failed: " + e.getMessage(), e);
+        }
+        IngestStatus queued = ticket.status();
+        queue.add(new IngestLog.Entry(ticketId, request));
+        return queued;
+    }
+
+    /** Status of a ticket, or null if it is unknown or has aged out of the completed history. */
+    public IngestStatus status(String ticketId) {
+        Ticket ticket = tickets.get(ticketId);
+        return ticket != null ? ticket.status() : null;
+    }
+
+    /**
+     * Wait until a ticket's content is stored and searchable.
+     *
+     * <p>A ticket that is no longer known finished long enough ago to have aged
+     * out of the completed history, so it counts as done.</p>
+     *
+     * @return the stored chunks, or empty if the ticket's details were evicted
+     * @throws TimeoutException      if it is still queued or running after {@code timeout}
+     * @throws CancellationException if its worker was interrupted; the request is replayed on the next start
+     */
+    public Optional<List<ContentChunk>> await(String ticketId, Duration timeout)
+            throws TimeoutException, InterruptedException {
+        Ticket ticket = tickets.get(ticketId);
+        if (ticket == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(ticket.result.get(timeout.toMillis(), TimeUnit.MILLISECONDS));
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Ingest " + ticketId + " failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Stop taking work and let the batches being processed finish. Workers are
+     * not interrupted: an interrupt during Lucene I/O closes the index writer.
+     * Requests still queued stay in the log and are replayed on the next start.
+     */
+    @PreDestroy
+    public void stop() {
+        stopping = true;
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                    log.warn("Ingest workers still busy after 30s; their requests will be replayed");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (ingestLog != null) {
+            try {
+                ingestLog.close();
+            } catch (IOException e) {
+                log.warn("Failed to close ingest log: {}", e.getMessage());
+            }
+        }
+    }
+
+    // ---- Workers ----
+
+    private void drain() {
+        List<IngestLog.Entry> batch = new ArrayList<>();
+        while (!stopping) {
+            IngestLog.Entry first;
+            try {
+                first = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (first == null) {
+                continue;
+            }
+            batch.add(first);
+            queue.drainTo(batch, Math.max(1, maxBatch) - 1);
+            process(batch);
+            batch.clear();
+        }
+    }
+
+    private void process(List<IngestLog.Entry> batch) {
+        batch.forEach(entry -> ticket(entry).state = IngestStatus.State.RUNNING);
+        List<List<ContentChunk>> results;
+        try {
+            results = chunkService.chunkAll(batch.stream().map(IngestLog.Entry::request).toList());
+        } catch (Exception e) {
+            if (batch.size() > 1) {
+                // Find the request that failed instead of failing the others with it
+                for (IngestLog.Entry entry : batch) {
+                    process(List.of(entry));
+                }
+            } else {
+                log.warn("Ingest {} failed: {}", batch.getFirst().ticket(), e.getMessage());
+                finish(batch.getFirst(), null, e);
+            }
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            finish(batch.get(i), results.get(i), null);
+        }
+    }
+
+    private void finish(IngestLog.Entry entry, List<ContentChunk> chunks, Exception failure) {
+        Ticket ticket = ticket(entry);
+        ticket.completedAt = Instant.now();
+        if (Thread.currentThread().isInterrupted()) {
+            // The work may be incomplete, so leave it in the log for replay but wake any waiters
+            ticket.error = "Interrupted; replayed on the next start";
+            ticket.state = IngestStatus.State.INTERRUPTED;
+            retire(entry);
+            ticket.result.cancel(false);
+            return;
+        }
+        try {
+            ingestLog.complete(entry.ticket());
+        } catch (IOException e) {
+            log.warn("Failed to mark ingest {} complete; it will be replayed: {}", entry.ticket(), e.getMessage());
+        }
+        if (failure == null) {
+            ticket.chunks = chunks.size();
+            ticket.stored = (int) chunks.stream().filter(ContentChunk::embeddingStored).count();
+            ticket.state = IngestStatus.State.COMPLETED;
+        } else {
+            ticket.error = failure.getMessage();
+            ticket.state = IngestStatus.State.FAILED;
+        }
+        // Record the ticket before waking waiters, so the history they see is current
+        retire(entry);
+        if (failure == null) {
+            ticket.result.complete(chunks);
+        } else {
+            ticket.result.completeExceptionally(failure);
+        }
+    }
+
+    /** Add a finished ticket to the completed history, evicting the oldest beyond {@code retainCompleted}. */
+    private void retire(IngestLog.Entry entry) {
+        synchronized (finished) {
+            finished.addLast(entry.ticket());
+            while (finished.size() > Math.max(0, retainCompleted)) {
+                tickets.remove(finished.removeFirst());
+            }
+        }
+    }
+
+    private Ticket ticket(IngestLog.Entry entry) {
+        return tickets.computeIfAbsent(entry.ticket(), id -> new Ticket(id, Instant.now()));
+    }
+
+    private static final class Ticket {
+        final String id;
+        final Instant submittedAt;
+        final CompletableFuture<List<ContentChunk>> result = new CompletableFuture<>();
+        volatile IngestStatus.State state = IngestStatus.State.QUEUED;
+        volatile int chunks;
+        volatile int stored;
+        volatile String error;
+        volatile Instant completedAt;
+
+        Ticket(String id, Instant submittedAt) {
+            this.id = id;
+            this.submittedAt = submittedAt;
+        }
+
+        IngestStatus status() {
+            return new IngestStatus(id, state, chunks, stored, error, submittedAt, completedAt);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.noetic.websearch.integration;
+
+import com.noetic.websearch.model.EmbeddingBatchRequest;
+import com.noetic.websearch.model.EmbeddingResult;
+import com.noetic.websearch.provider.embedding.OnnxEmbeddingProvider;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Parity tests for the local embedding model variants and engines.
+ * These download the fp32 and int8 models from Hugging Face on first run.
+ *
+ * <p>Cached vectors are compared against fresh query embeddings, so switching
+ * to the int8 model must keep vectors close to fp32 and keep nearest
+ * neighbours unchanged, or cache hit rates drop.</p>
+ */
+@Tag("integration")
+@DisplayName("ONNX model variant parity")
+class OnnxModelVariantParityTest {
+
+    private static final double MIN_INT8_COSINE = 0.95;
+    private static final double MEAN_INT8_COSINE = 0.98;
+    private static final double MIN_ENGINE_COSINE = 0.9999;
+
+    private static final List<String> DOCUMENTS = List.of(
+            "Lucene builds an HNSW graph per segment for approximate nearest neighbour search.",
+            "The cat sat on the windowsill watching birds in the garden.",
+            "Spring Boot auto-configures beans based on the classpath and properties.",
+            "Quarterly revenue grew twelve percent, driven by subscription renewals.",
+            "Preheat the oven to 200 degrees and roast the vegetables for forty minutes.",
+            "The Treaty of Westphalia ended the Thirty Years' War in 1648.",
+            "Photosynthesis converts light energy into chemical energy stored in glucose.",
+            "Use a connection pool to avoid opening a new database connection per request.");
+
+    private static final List<String> QUERIES = List.of(
+            "vector similarity search index",
+            "pet animal at home",
+            "java dependency injection framework",
+            "company earnings report",
+            "how to cook vegetables",
+            "european history peace treaty",
+            "how plants make energy",
+            "database connection reuse");
+
+    private static OnnxEmbeddingProvider fp32;
+    private static OnnxEmbeddingProvider int8;
+    private static OnnxEmbeddingProvider fp32Ort;
+
+    @BeforeAll
+    static void setup() {
+        fp32 = provider("fp32", "djl");
+        int8 = provider("int8", "djl");
+        fp32Ort = provider("fp32", "ort");
+    }
+
+    @AfterAll
+    static void teardown() {
+        for (OnnxEmbeddingProvider provider : new OnnxEmbeddingProvider[]{fp32, int8, fp32Ort}) {
+            if (provider != null) {
+                provider.shutdown();
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("int8 vectors stay within the cosine drift bound of fp32")
+    void int8CosineDriftIsBounded() {
+        List<String> texts = allTexts();
+        List<float[]> reference = embed(fp32, texts);
+        List<float[]> quantized = embed(int8, texts);
+
+        double min = 1.0;
+        double sum = 0.0;
+        for (int i = 0; i < texts.size(); i++) {
+            double cosine = cosine(reference.get(i), quantized.get(i));
+            min = Math.min(min, cosine);
+            sum += cosine;
+        }
+        double mean = sum / texts.size();
+
+        assertTrue(min >= MIN_INT8_COSINE, "min cosine to fp32 was " + min);
+        assertTrue(mean >= MEAN_INT8_COSINE, "mean cosine to fp32 was " + mean);
+    }
+
+    @Test
+    @DisplayName("int8 keeps each query's nearest document")
+    void int8PreservesNearestNeighbours() {
+        List<float[]> fp32Docs = embed(fp32, DOCUMENTS);
+        List<float[]> int8Docs = embed(int8, DOCUMENTS);
+        List<float[]> fp32Queries = embed(fp32, QUERIES);
+        List<float[]> int8Queries = embed(int8, QUERIES);
+
+        for (int q = 0; q < QUERIES.size(); q++) {
+            assertEquals(nearest(fp32Queries.get(q), fp32Docs), nearest(int8Queries.get(q), int8Docs),
+                    "nearest document changed for query: " + QUERIES.get(q));
+        }
+    }
+
+    @Test
+    @DisplayName("direct ORT engine matches the DJL engine")
+    void ortEngineMatchesDjl() {
+        List<String> texts = allTexts();
+        List<float[]> djl = embed(fp32, texts);
+        List<float[]> ort = embed(fp32Ort, texts);
+
+        for (int i = 0; i < texts.size(); i++) {
+            assertTrue(cosine(djl.get(i), ort.get(i)) >= MIN_ENGINE_COSINE,
+                    "engines diverged for: " + texts.get(i));
+        }
+    }
+
+    // ── Helpers ──
+
+    private static OnnxEmbeddingProvider provider(String variant, String engine) {
+        OnnxEmbeddingProvider provider = new OnnxEmbeddingProvider();
+        ReflectionTestUtils.setField(provider, "variant", variant);
+        ReflectionTestUtils.setField(provider, "engineName", engine);
+        ReflectionTestUtils.setField(provider, "optimizationLevel", "all");
+        ReflectionTestUtils.setField(provider, "cpuArena", true);
+        provider.initialize();
+        return provider;
+    }
+
+    private static List<String> allTexts() {
+        return Stream.concat(DOCUMENTS.stream(), QUERIES.stream()).toList();
+    }
+
+    private static List<float[]> embed(OnnxEmbeddingProvider provider, List<String> texts) {
+        return provider.embedBatch(new EmbeddingBatchRequest(texts, null, null, Map.of())).stream()
+                .map(EmbeddingResult::vector)
+                .toList();
+    }
+
+    private static int nearest(float[] query, List<float[]> documents) {
+        int best = -1;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < documents.size(); i++) {
+            double score = cosine(query, documents.get(i));
+            if (score > bestScore) {
+                bestScore = score;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        double dot = 0, normA = 0, normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return dot / (Math.sqrt(normA) * Math.sqrt(normB));
+    }
+}
@@ -0,0 +1,252 @@
+package com.noetic.websearch.kernel;
+
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.LongBuffer;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("VectorKernels")
+class VectorKernelsTest {
+
+    // ── Mean pooling ──
+
+    @Test
+    @DisplayName("mean pooling averages only the unpadded positions of its row")
+    void meanPoolIgnoresPaddingPerRow() {
+        int seqLen = 3;
+        int hidden = 2;
+        // Row 0 has two real tokens, row 1 has one; padded positions hold garbage
+        FloatBuffer raw = FloatBuffer.wrap(new float[]{
+                1, 2, 3, 4, 99, 99,
+                5, 6, 99, 99, 99, 99
+        });
+        LongBuffer mask = LongBuffer.wrap(new long[]{1, 1, 0, 1, 0, 0});
+
+        assertArrayEquals(new float[]{2, 3}, VectorKernels.meanPool(raw, mask, 0, seqLen, hidden));
+        assertArrayEquals(new float[]{5, 6}, VectorKernels.meanPool(raw, mask, 1, seqLen, hidden));
+    }
+
+    @Test
+    @DisplayName("normalize scales to unit length in place and leaves zero vectors alone")
+    void normalizesInPlace() {
+        float[] v = {3, 4};
+
+        assertSame(v, VectorKernels.normalize(v));
+        assertArrayEquals(new float[]{0.6f, 0.8f}, v, 1e-6f);
+        assertArrayEquals(new float[]{0, 0}, VectorKernels.normalize(new float[]{0, 0}));
+    }
+
+    // ── Top-K ──
+
+    @Nested
+    @DisplayName("topK")
+    class TopK {
+
+        @Test
+        @DisplayName("returns the best indexes first")
+        void bestFirst() {
+            float[] scores = {0.1f, 0.9f, 0.5f, 0.7f, 0.3f};
+
+            assertArrayEquals(new int[]{1, 3, 2}, VectorKernels.topK(scores, scores.length, 3));
+        }
+
+        @Test
+        @DisplayName("breaks ties toward the lower index")
+        void tiesKeepLowerIndex() {
+            float[] scores = {0.5f, 0.8f, 0.5f, 0.8f, 0.5f};
+
+            assertArrayEquals(new int[]{1, 3, 0, 2}, VectorKernels.topK(scores, scores.length, 4));
+        }
+
+        @Test
+        @DisplayName("caps k at the candidate count and accepts zero")
+        void capsK() {
+            float[] scores = {0.2f, 0.4f};
+
+            assertArrayEquals(new int[]{1, 0}, VectorKernels.topK(scores, 2, 10));
+            assertArrayEquals(new int[0], VectorKernels.topK(scores, 2, 0));
+        }
+
+        @Test
+        @DisplayName("matches a full sort on random scores")
+        void matchesFullSort() {
+            Random random = new Random(7);
+            float[][] candidates = new float[500][];
+            for (int i = 0; i < candidates.length; i++) {
+                candidates[i] = randomVector(random, 37);
+            }
+            float[] query = randomVector(random, 37);
+            float[] scores = new float[candidates.length];
+
+            int[] top = VectorKernels.topK(query, candidates, 20, scores);
+
+            int[] sorted = IntStream.range(0, candidates.length).boxed()
+                    .sorted((a, b) -> Float.compare(scores[b], scores[a]))
+                    .mapToInt(Integer::intValue).limit(20).toArray();
+            assertArrayEquals(sorted, top);
+        }
+    }
+
+    // ── Scalar / SIMD parity ──
+
+    @Nested
+    @DisplayName("SIMD kernels")
+    class Simd {
+
+        private final Kernels scalar = VectorKernels.scalar();
+        private final Kernels simd = VectorKernels.simdOrNull();
+
+        @Test
+        @DisplayName("masked sums match the scalar loop for heap and direct buffers")
+        void maskedSumParity() {
+            assumeSimd();
+            Random random = new Random(1);
+            // 384 is MiniLM's width; 37 leaves a scalar tail at every vector size
+            for (int hidden : new int[]{384, 37}) {
+                int batch = 3;
+                int seqLen = 11;
+                float[] values = randomVector(random, batch * seqLen * hidden);
+                long[] mask = new long[batch * seqLen];
+                for (int i = 0; i < mask.length; i++) {
+                    mask[i] = random.nextInt(4) == 0 ? 0 : 1;
+                }
+                FloatBuffer direct = ByteBuffer.allocateDirect(values.length * Float.BYTES)
+                        .order(ByteOrder.nativeOrder()).asFloatBuffer().put(values);
+
+                for (int row = 0; row < batch; row++) {
+                    float[] expected = new float[hidden];
+                    float expectedMask = scalar.maskedSum(FloatBuffer.wrap(values), LongBuffer.wrap(mask), row, seqLen, expected);
+                    for (FloatBuffer buffer : new FloatBuffer[]{FloatBuffer.wrap(values), direct}) {
+                        float[] actual = new float[hidden];
+                        assertEquals(expectedMask, simd.maskedSum(buffer, LongBuffer.wrap(mask), row, seqLen, actual));
+                        assertArrayEquals(expected, actual, 1e-4f, "row " + row + ", hidden " + hidden);
+                    }
+                }
+            }
+        }
+
+        @Test
+        @DisplayName("dot products and scaling match the scalar loop")
+        void dotAndScaleParity() {
+            assumeSimd();
+            Random random = new Random(2);
+            for (int length : new int[]{1, 7, 384, 1027}) {
+                float[] a = randomVector(random, length);
+                float[] b = randomVector(random, length);
+
+                assertEquals(scalar.dot(a, b), simd.dot(a, b), 1e-3f, "length " + length);
+
+                float[] expected = a.clone();
+                float[] actual = a.clone();
+                scalar.scale(expected, 0.37f);
+                simd.scale(actual, 0.37f);
+                assertArrayEquals(expected, actual, "length " + length);
+            }
+        }
+
+        @Test
+        @Tag("benchmark")
+        @DisplayName("is faster than the scalar loop on embedding-sized vectors")
+        void throughput() {
+            assumeSimd();
+            Random random = new Random(3);
+            float[][] candidates = new float[2_000][];
+            for (int i = 0; i < candidates.length; i++) {
+                candidates[i] = randomVector(random, 384);
+            }
+            float[] query = randomVector(random, 384);
+
+            for (int warmup = 0; warmup < 50; warmup++) {
+                scoreAll(scalar, query, candidates);
+                scoreAll(simd, query, candidates);
+            }
+            long scalarNanos = time(scalar, query, candidates);
+            long simdNanos = time(simd, query, candidates);
+
+            assertTrue(simdNanos < scalarNanos, "SIMD " + simdNanos + " ns vs scalar " + scalarNanos + " ns");
+        }
+
+        private void assumeSimd() {
+            Assumptions.assumeTrue(simd != null, "Vector API not available in this JVM");
+        }
+
+        private static long time(Kernels kernels, float[] query, float[][] candidates) {
+            long start = System.nanoTime();
+            for (int i = 0; i < 100; i++) {
+                scoreAll(kernels, query, candidates);
+            }
+            return System.nanoTime() - start;
+        }
+
+        private static float scoreAll(Kernels kernels, float[] query, float[][] candidates) {
+            float best = Float.NEGATIVE_INFINITY;
+            for (float[] candidate : candidates) {
+                best = Math.max(best, kernels.dot(query, candidate));
+            }
+            return best;
+        }
+    }
+
+    // ── Without the Vector API module ──
+
+    @Test
+    @DisplayName("falls back to the scalar kernels in a JVM started without jdk.incubator.vector")
+    void loadsWithoutVectorModule() throws Exception {
+        // As java -jar runs the boot jar: a manifest cannot add modules, so only --enable-preview is passed
+        String classpath = Stream.of(VectorKernelsTest.class, VectorKernels.class, LoggerFactory.class)
+                .map(type -> {
+                    try {
+                        return Path.of(type.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+                    } catch (URISyntaxException e) {
+                        throw new IllegalStateException(e);
+                    }
+                })
+                .distinct()
+                .collect(Collectors.joining(File.pathSeparator));
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        Process child = new ProcessBuilder(java, "--enable-preview", "-cp", classpath, WithoutVectorModule.class.getName())
+                .redirectErrorStream(true)
+                .start();
+        String output = new String(child.getInputStream().readAllBytes());
+
+        assertTrue(child.waitFor(60, TimeUnit.SECONDS));
+        assertEquals(0, child.exitValue(), output);
+    }
+
+    /** Exits 0 if the kernels loaded on the scalar path and compute correctly, 1 otherwise. */
+    static final class WithoutVectorModule {
+        public static void main(String[] args) {
+            boolean scalar = ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty() && !VectorKernels.simd();
+            float[] v = VectorKernels.normalize(new float[]{3, 4});
+            System.exit(scalar && v[0] == 0.6f && v[1] == 0.8f ? 0 : 1);
+        }
+    }
+
+    // ── Helpers ──
+
+    private static float[] randomVector(Random random, int length) {
+        float[] v = new float[length];
+        for (int i = 0; i < length; i++) {
+            v[i] = random.nextFloat() * 2 - 1;
+        }
+        return v;
+    }
+}
@@ -0,0 +1,140 @@
+package com.noetic.websearch.provider.chunking;
+
+import com.noetic.websearch.model.ChunkRequest;
+import com.noetic.websearch.model.ContentChunk;
+
+import java.text.BreakIterator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * The original regex- and substring-based chunkers, kept as the reference the
+ * streaming strategies must match chunk for chunk. Chunk IDs are left empty.
+ */
+final class ReferenceChunkers {
+
+    private static final Pattern PARAGRAPH_SPLIT = Pattern.compile("\\n\\s*\\n");
+
+    private ReferenceChunkers() {
+    }
+
+    // ---- Sentence ----
+
+    static List<ContentChunk> sentence(ChunkRequest request) {
+        List<String> sentences = splitIntoSentences(request.content());
+        List<ContentChunk> chunks = new ArrayList<>();
+
+        StringBuilder current = new StringBuilder();
+
+        for (String sentence : sentences) {
+            int projectedLength = current.length() + sentence.length();
+
+            if (projectedLength > request.maxChunkSize() && !current.isEmpty()) {
+                chunks.add(createChunk(current.toString().trim()));
+                current = new StringBuilder();
+            }
+
+            current.append(sentence);
+        }
+
+        if (!current.isEmpty()) {
+            chunks.add(createChunk(current.toString().trim()));
+        }
+
+        return chunks;
+    }
+
+    private static List<String> splitIntoSentences(String text) {
+        List<String> sentences = new ArrayList<>();
+        BreakIterator iterator = BreakIterator.getSentenceInstance(Locale.US);
+        iterator.setText(text);
+
+        int start = iterator.first();
+        for (int end = iterator.next(); end != BreakIterator.DONE;
+             start = end, end = iterator.next()) {
+            String sentence = text.substring(start, end).trim();
+            if (!sentence.isEmpty()) {
+                sentences.add(sentence + " ");
+            }
+        }
+
+        return sentences;
+    }
+
+    // ---- Token ----
+
+    static List<ContentChunk> token(ChunkRequest request) {
+        String[] words = request.content().split("\\s+");
+        List<ContentChunk> chunks = new ArrayList<>();
+
+        int maxTokens = request.maxChunkSize();
+        int overlapTokens = request.overlap();
+
+        int i = 0;
+        while (i < words.length) {
+            int end = Math.min(i + maxTokens, words.length);
+            String chunkText = String.join(" ", java.util.Arrays.copyOfRange(words, i, end));
+
+            chunks.add(new ContentChunk("", chunkText, end - i, false));
+
+            i += maxTokens - overlapTokens;
+            if (i >= words.length) break;
+        }
+
+        return chunks;
+    }
+
+    // ---- Semantic ----
+
+    static List<ContentChunk> semantic(ChunkRequest request) {
+        String[] paragraphs = PARAGRAPH_SPLIT.split(request.content());
+        List<ContentChunk> chunks = new ArrayList<>();
+
+        StringBuilder current = new StringBuilder();
+
+        for (String para : paragraphs) {
+            String trimmed = para.trim();
+            if (trimmed.isEmpty()) continue;
+
+            if (current.length() + trimmed.length() > request.maxChunkSize()
+                    && !current.isEmpty()) {
+                chunks.add(createChunk(current.toString().trim()));
+                current = new StringBuilder();
+            }
+
+            if (trimmed.length() > request.maxChunkSize()) {
+                if (!current.isEmpty()) {
+                    chunks.add(createChunk(current.toString().trim()));
+                    current = new StringBuilder();
+                }
+                String[] sentences = trimmed.split("(?<=[.!?])\\s+");
+                StringBuilder sentBuf = new StringBuilder();
+                for (String sent : sentences) {
+                    if (sentBuf.length() + sent.length() > request.maxChunkSize()
+                            && !sentBuf.isEmpty()) {
+                        chunks.add(createChunk(sentBuf.toString().trim()));
+                        sentBuf = new StringBuilder();
+                    }
+                    sentBuf.append(sent).append(" ");
+                }
+                if (!sentBuf.isEmpty()) {
+                    current.append(sentBuf);
+                }
+            } else {
+                current.append(trimmed).append("\n\n");
+            }
+        }
+
+        if (!current.isEmpty()) {
+            chunks.add(createChunk(current.toString().trim()));
+        }
+
+        return chunks;
+    }
+
+    private static ContentChunk createChunk(String text) {
+        return new ContentChunk("", text, text.split("\\s+").length, false);
+    }
+}
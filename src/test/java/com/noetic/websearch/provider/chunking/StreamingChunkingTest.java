@@ -0,0 +1,165 @@
+package com.noetic.websearch.provider.chunking;
+
+import com.noetic.websearch.model.ChunkRequest;
+import com.noetic.websearch.model.ContentChunk;
+import com.noetic.websearch.provider.ChunkingStrategy;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the streaming chunkers against {@link ReferenceChunkers}, the
+ * regex-based implementations they replaced, and times both on a large page.
+ */
+@DisplayName("Streaming chunking strategies")
+class StreamingChunkingTest {
+
+    private static final String[] WORDS = {
+            "the", "embedding", "vector", "store", "Dr.", "Smith", "e.g.", "3.14", "U.S.", "caf\u00e9",
+            "\u6f22\u5b57", "end.", "why?", "stop!", "\"quoted.\"", "(aside)", "# Heading", "-", "x\u0001y",
+            "\u0001", "\u00a0", "tab\u2003space", "http://example.com/a.b"
+    };
+    private static final String[] GAPS = {
+            " ", " ", " ", " ", "  ", "\t", "\n", "\n\n", " \n \n ", "\r\n\r\n", "\n\u000b\n", "\f", "\n\u0001\n"
+    };
+
+    // ── Parity ──
+
+    @Nested
+    @DisplayName("match the reference chunkers")
+    class Parity {
+
+        @Test
+        @DisplayName("sentence")
+        void sentence() {
+            assertParity(new SentenceChunkingStrategy(), ReferenceChunkers::sentence);
+        }
+
+        @Test
+        @DisplayName("token")
+        void token() {
+            assertParity(new TokenChunkingStrategy(), ReferenceChunkers::token);
+        }
+
+        @Test
+        @DisplayName("semantic")
+        void semantic() {
+            assertParity(new SemanticChunkingStrategy(), ReferenceChunkers::semantic);
+        }
+
+        private void assertParity(ChunkingStrategy strategy, Function<ChunkRequest, List<ContentChunk>> reference) {
+            Random random = new Random(42);
+            List<String> inputs = new ArrayList<>(List.of(
+                    "One sentence.", "  leading and trailing  ", "\n\nStarts with breaks. Then text.\n\n",
+                    "no-breaks-at-all", "a\u0001 b. \u0001c", "First.\n\nSecond!\n\n\n\nThird?"));
+            for (int n = 0; n < 300; n++) {
+                inputs.add(randomText(random, 1 + random.nextInt(400)));
+            }
+            for (String input : inputs) {
+                if (input.isBlank()) continue;
+                for (int max : new int[]{1, 5, 20, 64, 200, 512}) {
+                    for (int overlap : new int[]{0, 1, 3}) {
+                        if (overlap >= max) continue;
+                        ChunkRequest request = new ChunkRequest(input, strategy.type(), max, overlap);
+                        assertEquals(summarize(reference.apply(request)), summarize(strategy.chunk(request)),
+                                () -> "max=" + max + ", overlap=" + overlap + ", input=" + escape(input));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("streamed chunks arrive in the same order as the list")
+    void streamsInOrder() {
+        ChunkRequest request = new ChunkRequest(randomText(new Random(3), 2_000), "semantic", 120, 0);
+        SemanticChunkingStrategy strategy = new SemanticChunkingStrategy();
+        List<ContentChunk> streamed = new ArrayList<>();
+
+        strategy.chunk(request, streamed::add);
+
+        assertEquals(summarize(strategy.chunk(request)), summarize(streamed));
+    }
+
+    @Test
+    @DisplayName("token counts match split on whitespace")
+    void tokenCountMatchesSplit() {
+        Random random = new Random(5);
+        for (String text : List.of("", " ", " a", "a ", "a  b", "\ta\nb\u000b", "\u0001", "\u00a0")) {
+            assertEquals(text.split("\\s+").length, TextScan.tokenCount(text), escape(text));
+        }
+        for (int n = 0; n < 500; n++) {
+            String text = randomText(random, random.nextInt(30));
+            assertEquals(text.split("\\s+").length, TextScan.tokenCount(text), escape(text));
+        }
+    }
+
+    // ── Throughput ──
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("are faster than the reference chunkers on a multi-megabyte page")
+    void throughput() {
+        String page = randomText(new Random(11), 600_000);
+        for (ChunkingStrategy strategy : List.of(
+                new SentenceChunkingStrategy(), new TokenChunkingStrategy(), new SemanticChunkingStrategy())) {
+            Function<ChunkRequest, List<ContentChunk>> reference = switch (strategy.type()) {
+                case "sentence" -> ReferenceChunkers::sentence;
+                case "token" -> ReferenceChunkers::token;
+                default -> ReferenceChunkers::semantic;
+            };
+            ChunkRequest request = new ChunkRequest(page, strategy.type(), 512, 50);
+            assertEquals(summarize(reference.apply(request)), summarize(strategy.chunk(request)));
+
+            for (int warmup = 0; warmup < 3; warmup++) {
+                reference.apply(request);
+                strategy.chunk(request);
+            }
+            long referenceNanos = time(() -> reference.apply(request));
+            long streamingNanos = time(() -> strategy.chunk(request));
+            assertTrue(streamingNanos < referenceNanos, strategy.type() + ": streaming " + streamingNanos
+                    + " ns vs reference " + referenceNanos + " ns");
+        }
+    }
+
+    // ── Helpers ──
+
+    private static long time(Runnable run) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            long start = System.nanoTime();
+            run.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    private static List<String> summarize(List<ContentChunk> chunks) {
+        return chunks.stream().map(c -> c.tokenCount() + "|" + c.text()).toList();
+    }
+
+    private static String randomText(Random random, int words) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+            text.append(GAPS[random.nextInt(GAPS.length)]);
+        }
+        return text.toString();
+    }
+
+    private static String escape(String text) {
+        StringBuilder escaped = new StringBuilder();
+        for (char c : text.toCharArray()) {
+            escaped.append(c < ' ' || c > '~' ? String.format("\\u%04x", (int) c) : String.valueOf(c));
+        }
+        return escaped.toString();
+    }
+}
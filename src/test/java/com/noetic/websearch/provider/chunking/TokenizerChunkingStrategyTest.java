@@ -0,0 +1,182 @@
+package com.noetic.websearch.provider.chunking;
+
+import com.noetic.websearch.model.ChunkRequest;
+import com.noetic.websearch.model.ContentChunk;
+import com.noetic.websearch.provider.EmbeddingProvider;
+import com.noetic.websearch.provider.embedding.BertWordPieceTokenizer;
+import com.noetic.websearch.provider.embedding.CachingEmbeddingProvider;
+import com.noetic.websearch.provider.embedding.CoalescingEmbeddingProvider;
+import com.noetic.websearch.provider.embedding.OnnxEmbeddingProvider;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs {@link TokenizerChunkingStrategy} with a small vocabulary in which every
+ * word is unique, so each chunk can be located in the source by its text.
+ */
+@DisplayName("TokenizerChunkingStrategy")
+class TokenizerChunkingStrategyTest {
+
+    private static final String[] GAPS = {" ", " ", " ", "\n", "\n\n", "\t", "  "};
+
+    @TempDir
+    static Path tempDir;
+
+    private static Path vocab;
+
+    @BeforeAll
+    static void writeVocab() throws IOException {
+        List<String> lines = new ArrayList<>(List.of("[PAD]", "[unused0]", "[UNK]", "[CLS]", "[SEP]", "[MASK]"));
+        for (char c = 33; c < 127; c++) {
+            lines.add(String.valueOf(c));
+            lines.add("##" + c);
+        }
+        vocab = tempDir.resolve("vocab.txt");
+        Files.write(vocab, lines);
+    }
+
+    // ── Sizing ──
+
+    @Test
+    @DisplayName("each chunk carries exactly the tokenizer's IDs for its text, within the size")
+    void idsMatchTokenizer() throws IOException {
+        BertWordPieceTokenizer tokenizer = new BertWordPieceTokenizer(vocab, 512);
+        String text = text(new Random(1), 2_000);
+
+        List<ContentChunk> chunks = strategy(tokenizer).chunk(new ChunkRequest(text, "tokenizer", 40, 10));
+
+        assertTrue(chunks.size() > 10);
+        for (ContentChunk chunk : chunks) {
+            assertArrayEquals(tokenizer.wordPieceIds(chunk.text()), chunk.tokenIds(), chunk.text());
+            assertEquals(chunk.tokenIds().length, chunk.tokenCount());
+            assertTrue(chunk.tokenCount() <= 40);
+            assertEquals(chunk.text().strip(), chunk.text());
+        }
+    }
+
+    @Test
+    @DisplayName("without overlap, chunks are full and tile the text's tokens")
+    void packsWithoutOverlap() throws IOException {
+        BertWordPieceTokenizer tokenizer = new BertWordPieceTokenizer(vocab, 512);
+        String text = text(new Random(2), 2_000);
+
+        List<ContentChunk> chunks = strategy(tokenizer).chunk(new ChunkRequest(text, "tokenizer", 50, 0));
+
+        int[] all = chunks.stream().flatMapToInt(c -> Arrays.stream(c.tokenIds())).toArray();
+        assertArrayEquals(tokenizer.wordPieceIds(text), all);
+        for (int i = 0; i + 1 < chunks.size(); i++) {
+            // The next chunk's first word would not have fit
+            String firstWord = chunks.get(i + 1).text().split("\\s+")[0];
+            assertTrue(chunks.get(i).tokenCount() + tokenizer.wordPieceIds(firstWord).length > 50);
+        }
+    }
+
+    @Test
+    @DisplayName("repeats the longest run of trailing words within the overlap")
+    void overlapsInTokens() throws IOException {
+        BertWordPieceTokenizer tokenizer = new BertWordPieceTokenizer(vocab, 512);
+        String text = text(new Random(3), 2_000);
+
+        List<ContentChunk> chunks = strategy(tokenizer).chunk(new ChunkRequest(text, "tokenizer", 60, 15));
+
+        int previousEnd = -1;
+        for (ContentChunk chunk : chunks) {
+            int start = text.indexOf(chunk.text());
+            int end = start + chunk.text().length();
+            assertTrue(start >= 0 && end > previousEnd);
+            if (previousEnd >= 0) {
+                String repeated = text.substring(start, previousEnd);
+                assertTrue(tokenizer.wordPieceIds(repeated).length <= 15);
+                String[] before = text.substring(0, start).strip().split("\\s+");
+                String longer = before[before.length - 1] + " " + repeated;
+                assertTrue(tokenizer.wordPieceIds(longer).length > 15);
+            }
+            previousEnd = end;
+        }
+        assertEquals(text.strip().length(), previousEnd);
+    }
+
+    @Test
+    @DisplayName("caps the size at the model window less [CLS] and [SEP]")
+    void capsAtModelWindow() throws IOException {
+        BertWordPieceTokenizer tokenizer = new BertWordPieceTokenizer(vocab, 32);
+
+        List<ContentChunk> chunks = strategy(tokenizer)
+                .chunk(new ChunkRequest(text(new Random(4), 500), "tokenizer", 512, 0));
+
+        assertTrue(chunks.stream().allMatch(c -> c.tokenCount() <= 30));
+        assertTrue(chunks.stream().anyMatch(c -> c.tokenCount() > 25));
+    }
+
+    @Test
+    @DisplayName("a word longer than the size is a chunk of its own with truncated IDs")
+    void truncatesOversizedWord() throws IOException {
+        BertWordPieceTokenizer tokenizer = new BertWordPieceTokenizer(vocab, 512);
+        String longWord = "w" + "9".repeat(20);
+
+        List<ContentChunk> chunks = strategy(tokenizer)
+                .chunk(new ChunkRequest("w1 w2 " + longWord + " w3", "tokenizer", 8, 2));
+
+        assertEquals(List.of("w1 w2", longWord, "w3"), chunks.stream().map(ContentChunk::text).toList());
+        assertArrayEquals(Arrays.copyOf(tokenizer.wordPieceIds(longWord), 8), chunks.get(1).tokenIds());
+    }
+
+    // ── Provider ──
+
+    @Test
+    @DisplayName("finds the tokenizer through the caching and coalescing decorators")
+    void tokenizerThroughDecorators() throws IOException {
+        BertWordPieceTokenizer tokenizer = new BertWordPieceTokenizer(vocab, 512);
+        EmbeddingProvider wrapped = new CachingEmbeddingProvider(
+                new CoalescingEmbeddingProvider(provider(tokenizer), 0, 8), 16, null, 0);
+
+        List<ContentChunk> chunks = new TokenizerChunkingStrategy(wrapped)
+                .chunk(new ChunkRequest("w1 w2 w3", "tokenizer", 8, 0));
+
+        assertArrayEquals(tokenizer.wordPieceIds("w1 w2 w3"), chunks.getFirst().tokenIds());
+    }
+
+    @Test
+    @DisplayName("fails when the embedding provider has no tokenizer")
+    void requiresTokenizer() {
+        TokenizerChunkingStrategy strategy = new TokenizerChunkingStrategy(new OnnxEmbeddingProvider());
+
+        assertThrows(IllegalStateException.class,
+                () -> strategy.chunk(new ChunkRequest("w1 w2", "tokenizer", 8, 0)));
+    }
+
+    // ── Helpers ──
+
+    private static TokenizerChunkingStrategy strategy(BertWordPieceTokenizer tokenizer) {
+        return new TokenizerChunkingStrategy(provider(tokenizer));
+    }
+
+    private static OnnxEmbeddingProvider provider(BertWordPieceTokenizer tokenizer) {
+        OnnxEmbeddingProvider provider = new OnnxEmbeddingProvider();
+        ReflectionTestUtils.setField(provider, "tokenizer", tokenizer);
+        return provider;
+    }
+
+    /** Unique words "w0", "w1", ... (one token per character), some ending a sentence, between assorted gaps. */
+    private static String text(Random random, int words) {
+        StringBuilder text = new StringBuilder();
+        IntStream.range(0, words).forEach(n -> text
+                .append('w').append(n).append(random.nextInt(5) == 0 ? "." : "")
+                .append(GAPS[random.nextInt(GAPS.length)]));
+        return text.toString();
+    }
+}
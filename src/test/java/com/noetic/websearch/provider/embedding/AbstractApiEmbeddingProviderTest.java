@@ -0,0 +1,280 @@
+package com.noetic.websearch.provider.embedding;
+
+import com.noetic.websearch.model.*;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs {@link AbstractApiEmbeddingProvider} against a local HTTP stand-in that
+ * embeds each line of the request body and can be told to rate-limit or fail.
+ */
+@DisplayName("AbstractApiEmbeddingProvider")
+class AbstractApiEmbeddingProviderTest {
+
+    private HttpServer server;
+    private ExecutorService serverThreads;
+    private StubApi api;
+    private StubProvider provider;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        api = new StubApi();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/embed", api::handle);
+        serverThreads = Executors.newFixedThreadPool(16);
+        server.setExecutor(serverThreads);
+        server.start();
+        provider = new StubProvider("http://127.0.0.1:" + server.getAddress().getPort(), 3);
+        ReflectionTestUtils.setField(provider, "initialBackoffMs", 20L);
+        ReflectionTestUtils.setField(provider, "maxBackoffMs", 200L);
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+        serverThreads.shutdownNow();
+    }
+
+    // ── Splitting and order ──
+
+    @Test
+    @DisplayName("splits by max batch size and returns results in request order")
+    void splitsByBatchSizeInOrder() {
+        List<EmbeddingResult> results = provider.embedBatch(EmbeddingBatchRequest.of(texts(10), InputType.DOCUMENT));
+
+        assertEquals(IntStream.range(0, 10).boxed().toList(),
+                results.stream().map(r -> (int) r.vector()[0]).toList());
+        assertEquals(List.of(3, 3, 3, 1), api.batchSizes.stream().sorted(Comparator.reverseOrder()).toList());
+    }
+
+    @Test
+    @DisplayName("splits by the token budget")
+    void splitsByTokenBudget() {
+        ReflectionTestUtils.setField(provider, "maxBatchTokens", 250);
+        List<String> texts = IntStream.range(0, 4).mapToObj(i -> i + " " + "x".repeat(400)).toList(); // ~100 tokens
+
+        List<EmbeddingResult> results = provider.embedBatch(EmbeddingBatchRequest.of(texts, InputType.DOCUMENT));
+
+        assertEquals(List.of(0, 1, 2, 3), results.stream().map(r -> (int) r.vector()[0]).toList());
+        assertEquals(List.of(2, 2), api.batchSizes.stream().toList());
+    }
+
+    @Test
+    @DisplayName("keeps at most max-concurrent-requests sub-batches in flight")
+    void limitsConcurrency() {
+        ReflectionTestUtils.setField(provider, "maxConcurrentRequests", 2);
+        api.latencyMs = 100;
+
+        provider.embedBatch(EmbeddingBatchRequest.of(texts(24), InputType.DOCUMENT));
+
+        assertEquals(8, api.requests.get());
+        assertEquals(2, api.maxInFlight.get());
+    }
+
+    // ── Retry ──
+
+    @Test
+    @DisplayName("waits out Retry-After on 429 before retrying")
+    void honorsRetryAfter() {
+        api.failures.add(new Failure(429, "1"));
+
+        long start = System.nanoTime();
+        List<EmbeddingResult> results = provider.embedBatch(EmbeddingBatchRequest.of(texts(2), InputType.DOCUMENT));
+        long elapsedMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        assertEquals(2, results.size());
+        assertEquals(2, api.requests.get());
+        assertTrue(elapsedMs >= 1_000, "retried after " + elapsedMs + " ms despite Retry-After: 1");
+    }
+
+    @Test
+    @DisplayName("backs off and retries server errors without Retry-After")
+    void retriesServerErrors() {
+        api.failures.add(new Failure(503, null));
+        api.failures.add(new Failure(502, null));
+
+        List<EmbeddingResult> results = provider.embedBatch(EmbeddingBatchRequest.of(texts(3), InputType.DOCUMENT));
+
+        assertEquals(3, results.size());
+        assertEquals(3, api.requests.get());
+    }
+
+    @Test
+    @DisplayName("gives up after max retries")
+    void givesUpAfterMaxRetries() {
+        ReflectionTestUtils.setField(provider, "maxRetries", 2);
+        for (int i = 0; i < 5; i++) {
+            api.failures.add(new Failure(429, "0"));
+        }
+
+        RuntimeException failure = assertThrows(RuntimeException.class,
+                () -> provider.embedBatch(EmbeddingBatchRequest.of(texts(3), InputType.DOCUMENT)));
+
+        assertTrue(failure.getMessage().contains("429"), failure.getMessage());
+        assertEquals(3, api.requests.get());
+    }
+
+    @Test
+    @DisplayName("does not retry client errors")
+    void doesNotRetryClientErrors() {
+        api.failures.add(new Failure(400, null));
+
+        RuntimeException failure = assertThrows(RuntimeException.class,
+                () -> provider.embed(EmbeddingRequest.of("text", InputType.QUERY)));
+
+        assertTrue(failure.getMessage().contains("400"), failure.getMessage());
+        assertEquals(1, api.requests.get());
+    }
+
+    @Test
+    @DisplayName("parses Retry-After as seconds or an HTTP date")
+    void parsesRetryAfter() {
+        Instant now = Instant.parse("2026-01-01T00:00:00Z");
+
+        assertEquals(Duration.ofSeconds(7), AbstractApiEmbeddingProvider.retryAfter("7", now));
+        assertEquals(Duration.ofSeconds(30),
+                AbstractApiEmbeddingProvider.retryAfter("Thu, 01 Jan 2026 00:00:30 GMT", now));
+        assertNull(AbstractApiEmbeddingProvider.retryAfter("soon", now));
+        assertNull(AbstractApiEmbeddingProvider.retryAfter(null, now));
+    }
+
+    // ── Helpers ──
+
+    private static List<String> texts(int count) {
+        return IntStream.range(0, count).mapToObj(i -> i + " text").toList();
+    }
+
+    private record Failure(int status, String retryAfter) {
+    }
+
+    /** Embeds each body line as [leading number]; queued failures are served first, one per request. */
+    private static final class StubApi {
+
+        final Queue<Failure> failures = new ConcurrentLinkedQueue<>();
+        final Queue<Integer> batchSizes = new ConcurrentLinkedQueue<>();
+        final AtomicInteger requests = new AtomicInteger();
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        volatile long latencyMs;
+
+        void handle(HttpExchange exchange) throws IOException {
+            requests.incrementAndGet();
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                String[] lines = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8).split("\n");
+                if (latencyMs > 0) {
+                    Thread.sleep(latencyMs);
+                }
+                Failure failure = failures.poll();
+                if (failure != null) {
+                    if (failure.retryAfter() != null) {
+                        exchange.getResponseHeaders().add("Retry-After", failure.retryAfter());
+                    }
+                    respond(exchange, failure.status(), "failure " + failure.status());
+                    return;
+                }
+                batchSizes.add(lines.length);
+                StringBuilder body = new StringBuilder();
+                for (String line : lines) {
+                    body.append(line, 0, line.indexOf(' ')).append('\n');
+                }
+                respond(exchange, 200, body.toString());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+
+        private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, bytes.length);
+            exchange.getResponseBody().write(bytes);
+            exchange.close();
+        }
+    }
+
+    /** Sends texts one per line and reads one number per line back. */
+    private static final class StubProvider extends AbstractApiEmbeddingProvider {
+
+        private final String baseUrl;
+        private final int maxBatchSize;
+
+        StubProvider(String baseUrl, int maxBatchSize) {
+            this.baseUrl = baseUrl;
+            this.maxBatchSize = maxBatchSize;
+        }
+
+        @Override
+        protected String baseUrl() {
+            return baseUrl;
+        }
+
+        @Override
+        protected String apiKey() {
+            return "test";
+        }
+
+        @Override
+        protected HttpRequest buildRequest(EmbeddingBatchRequest request) {
+            return HttpRequest.newBuilder(URI.create(baseUrl() + "/embed"))
+                    .header("Authorization", "Bearer " + apiKey())
+                    .POST(HttpRequest.BodyPublishers.ofString(String.join("\n", request.texts())))
+                    .build();
+        }
+
+        @Override
+        protected List<EmbeddingResult> parseResponse(HttpResponse<String> response) {
+            return response.body().lines()
+                    .map(line -> EmbeddingResult.of(new float[]{Float.parseFloat(line)}, model()))
+                    .toList();
+        }
+
+        @Override
+        protected String mapInputType(InputType inputType) {
+            return inputType.name().toLowerCase();
+        }
+
+        @Override
+        public String type() {
+            return "stub";
+        }
+
+        @Override
+        public EmbeddingCapabilities capabilities() {
+            return new EmbeddingCapabilities(true, false, true, maxBatchSize, 512, 1, AuthType.API_KEY);
+        }
+
+        @Override
+        public int dimensions() {
+            return 1;
+        }
+
+        @Override
+        public String model() {
+            return "stub-model";
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.noetic.websearch.provider.embedding;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Golden tests: the trie tokenizer must produce exactly the IDs of the original
+ * string-based implementation, kept as {@link ReferenceWordPieceTokenizer}.
+ */
+@DisplayName("BertWordPieceTokenizer")
+class BertWordPieceTokenizerTest {
+
+    private static final List<String> WORDS = List.of(
+            "the", "quick", "brown", "fox", "jump", "over", "lazy", "dog", "search", "engine",
+            "vector", "embed", "index", "lucene", "java", "spring", "boot", "un", "cafe", "naive",
+            "resume", "strasse", "page", "crawl", "web", "http", "www", "com", "html", "2024",
+            "中", "文", "ß", "é", "[", "]");
+    private static final List<String> SUFFIXES = List.of(
+            "s", "ed", "ing", "ding", "er", "believ", "able", "ly", "tion", "es", "ß", "ss", "0", "24");
+
+    @TempDir
+    static Path tempDir;
+
+    private static Path vocab;
+
+    @BeforeAll
+    static void writeVocab() throws IOException {
+        List<String> lines = new ArrayList<>(List.of("[PAD]", "[unused0]", "[UNK]", "[CLS]", "[SEP]", "[MASK]", ""));
+        for (char c = 33; c < 127; c++) {
+            lines.add(String.valueOf(c));
+            lines.add("##" + c);
+        }
+        lines.addAll(WORDS);
+        SUFFIXES.forEach(suffix -> lines.add("##" + suffix));
+        lines.add("the"); // a duplicate takes the later ID, as in the original map-based loader
+        vocab = tempDir.resolve("vocab.txt");
+        Files.write(vocab, lines);
+    }
+
+    // ── Golden IDs ──
+
+    @Nested
+    @DisplayName("matches the reference tokenizer")
+    class Golden {
+
+        @Test
+        @DisplayName("on hand-picked edge cases")
+        void edgeCases() throws IOException {
+            List<String> texts = List.of(
+                    "The quick brown fox jumped over the lazy dogs.",
+                    "UNBELIEVABLE! Searching, embedding & indexing...",
+                    "Café naïve résumé — Straße",
+                    "mixed\ttabs\nnew\u000Blines\r\nand\u00A0nbsp\u2003em-space",
+                    "control\u0000chars\u0007and\uFFFDreplacement\u200Bzero-width",
+                    "中文 search 中文文",
+                    "emoji 😀 and surrogates 𝔘𝔫𝔦𝔠𝔬𝔡𝔢",
+                    "İstanbul ǅ Ω ﬁ",
+                    "x".repeat(201) + " " + "y".repeat(200),
+                    "http://www.crawl.com/page?id=2024&index=vector#s",
+                    "   ",
+                    "[CLS] [SEP] ##s ##");
+            assertGolden(texts, 512);
+        }
+
+        @Test
+        @DisplayName("on random text")
+        void randomInputs() throws IOException {
+            Random random = new Random(17);
+            List<String> texts = new ArrayList<>();
+            for (int i = 0; i < 2_000; i++) {
+                texts.add(randomText(random, 1 + random.nextInt(40)));
+            }
+            assertGolden(texts, 512);
+        }
+
+        @Test
+        @DisplayName("when truncating to max length")
+        void truncation() throws IOException {
+            Random random = new Random(23);
+            List<String> texts = new ArrayList<>();
+            for (int i = 0; i < 500; i++) {
+                texts.add(randomText(random, 5 + random.nextInt(60)));
+            }
+            for (int maxLength : new int[]{2, 3, 8, 33}) {
+                assertGolden(texts, maxLength);
+            }
+        }
+    }
+
+    // ── Buffer API ──
+
+    @Test
+    @DisplayName("writes IDs into a caller buffer, truncating to its length")
+    void writesIntoBuffer() throws IOException {
+        BertWordPieceTokenizer tokenizer = new BertWordPieceTokenizer(vocab, 512);
+        long[] expected = tokenizer.tokenIds("the quick brown fox jumps over the lazy dog");
+
+        int[] buffer = new int[6];
+        int count = tokenizer.tokenIds("the quick brown fox jumps over the lazy dog", buffer);
+
+        assertEquals(6, count);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(expected[i], buffer[i]);
+        }
+        assertEquals(expected[expected.length - 1], buffer[5], "ends with [SEP]");
+    }
+
+    @Test
+    @DisplayName("untruncated pieces wrapped in [CLS]/[SEP] match tokenIds for text that fits")
+    void wordPieceIdsMatchTokenIds() throws IOException {
+        BertWordPieceTokenizer tokenizer = new BertWordPieceTokenizer(vocab, 512);
+        Random random = new Random(31);
+        for (int i = 0; i < 200; i++) {
+            String text = randomText(random, 1 + random.nextInt(40));
+            int[] pieces = tokenizer.wordPieceIds(text);
+            assertArrayEquals(tokenizer.tokenIds(text), tokenizer.sequence(pieces, 0, pieces.length), text);
+        }
+    }
+
+    @Test
+    @DisplayName("untruncated pieces continue past max length")
+    void wordPieceIdsAreNotTruncated() throws IOException {
+        BertWordPieceTokenizer tokenizer = new BertWordPieceTokenizer(vocab, 8);
+        String text = "the quick brown fox ".repeat(10);
+
+        assertEquals(40, tokenizer.wordPieceIds(text).length);
+        assertEquals(8, tokenizer.tokenIds(text).length);
+    }
+
+    // ── Throughput ──
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("tokenizes crawled pages and chunks faster than the reference")
+    void fasterOnCrawledPages() throws IOException {
+        Random random = new Random(5);
+        List<String> pages = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            pages.add(asciiPage(random, 2_000));
+        }
+        List<String> chunks = pages.stream().map(page -> page.substring(0, 1_500)).toList();
+
+        double pageSpeedup = speedup(pages);
+        double chunkSpeedup = speedup(chunks);
+
+        assertTrue(pageSpeedup > 1.0, "expected a speedup on whole pages, got " + pageSpeedup);
+        assertTrue(chunkSpeedup > 1.0, "expected a speedup on chunks, got " + chunkSpeedup);
+    }
+
+    // ── Helpers ──
+
+    private static void assertGolden(List<String> texts, int maxLength) throws IOException {
+        BertWordPieceTokenizer tokenizer = new BertWordPieceTokenizer(vocab, maxLength);
+        ReferenceWordPieceTokenizer reference = new ReferenceWordPieceTokenizer(vocab, maxLength);
+        for (String text : texts) {
+            assertArrayEquals(reference.tokenIds(text), tokenizer.tokenIds(text),
+                    () -> "IDs differ at maxLength " + maxLength + " for: " + text);
+        }
+    }
+
+    private static String randomText(Random random, int pieces) {
+        String[] extras = {" ", "  ", "\t", "\n", "\u00A0", ",", ".", "!", "'", "-", "é", "Ü", "ñ",
+                "中", "😀", "\u0000", "\u200B", "ß", "Ω", "#", "##", "İ"};
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < pieces; i++) {
+            switch (random.nextInt(4)) {
+                case 0 -> sb.append(WORDS.get(random.nextInt(WORDS.size())));
+                case 1 -> sb.append(WORDS.get(random.nextInt(WORDS.size())).toUpperCase())
+                        .append(SUFFIXES.get(random.nextInt(SUFFIXES.size())));
+                case 2 -> sb.append(extras[random.nextInt(extras.length)]);
+                default -> sb.append((char) ('a' + random.nextInt(26))).append(' ');
+            }
+        }
+        return sb.toString();
+    }
+
+    /** English-like ASCII text of {@code words} words, as extracted from a crawled page. */
+    private static String asciiPage(Random random, int words) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            String word = WORDS.get(random.nextInt(WORDS.size() - 6));
+            sb.append(i % 12 == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : word);
+            if (random.nextInt(3) == 0) {
+                sb.append(SUFFIXES.get(random.nextInt(SUFFIXES.size() - 4)));
+            }
+            sb.append(i % 15 == 14 ? ". " : " ");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Reference time over trie time for tokenizing {@code texts}, best of several rounds.
+     * Max length fits the longest text, so neither side stops early and both do the same work.
+     */
+    private static double speedup(List<String> texts) throws IOException {
+        BertWordPieceTokenizer sizing = new BertWordPieceTokenizer(vocab, 512);
+        int maxLength = texts.stream().mapToInt(text -> sizing.wordPieceIds(text).length + 2).max().orElse(2);
+        BertWordPieceTokenizer tokenizer = new BertWordPieceTokenizer(vocab, maxLength);
+        ReferenceWordPieceTokenizer reference = new ReferenceWordPieceTokenizer(vocab, maxLength);
+        for (String text : texts) {
+            assertArrayEquals(reference.tokenIds(text), tokenizer.tokenIds(text));
+        }
+
+        long best = Long.MAX_VALUE;
+        long bestReference = Long.MAX_VALUE;
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            for (String text : texts) {
+                tokenizer.tokenIds(text);
+            }
+            best = Math.min(best, System.nanoTime() - start);
+            start = System.nanoTime();
+            for (String text : texts) {
+                reference.tokenIds(text);
+            }
+            bestReference = Math.min(bestReference, System.nanoTime() - start);
+        }
+        return (double) bestReference / best;
+    }
+}
@@ -0,0 +1,241 @@
+package com.noetic.websearch.provider.embedding;
+
+import com.noetic.websearch.model.*;
+import com.noetic.websearch.provider.EmbeddingProvider;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("CachingEmbeddingProvider")
+class CachingEmbeddingProviderTest {
+
+    @TempDir
+    Path tempDir;
+
+    // ── Memory tier ──
+
+    @Nested
+    @DisplayName("memory tier")
+    class MemoryTier {
+
+        @Test
+        @DisplayName("a repeated text is embedded once")
+        void repeatedTextHitsCache() {
+            RecordingProvider delegate = new RecordingProvider("model-a");
+            CachingEmbeddingProvider provider = new CachingEmbeddingProvider(delegate, 100, null, 0);
+
+            EmbeddingResult first = provider.embed(EmbeddingRequest.of("hello", InputType.QUERY));
+            EmbeddingResult second = provider.embed(EmbeddingRequest.of("hello", InputType.QUERY));
+
+            assertArrayEquals(first.vector(), second.vector());
+            assertEquals(List.of("hello"), delegate.embedded);
+            assertEquals(1, provider.stats().memoryHits());
+            assertEquals(1, provider.stats().misses());
+        }
+
+        @Test
+        @DisplayName("input types are cached separately")
+        void separatesInputTypes() {
+            RecordingProvider delegate = new RecordingProvider("model-a");
+            CachingEmbeddingProvider provider = new CachingEmbeddingProvider(delegate, 100, null, 0);
+
+            provider.embed(EmbeddingRequest.of("hello", InputType.QUERY));
+            EmbeddingResult document = provider.embed(EmbeddingRequest.of("hello", InputType.DOCUMENT));
+
+            assertEquals(InputType.DOCUMENT.ordinal(), (int) document.vector()[1]);
+            assertEquals(2, delegate.embedded.size());
+        }
+
+        @Test
+        @DisplayName("evicts the least recently used entry beyond max-entries")
+        void evictsLeastRecentlyUsed() {
+            RecordingProvider delegate = new RecordingProvider("model-a");
+            CachingEmbeddingProvider provider = new CachingEmbeddingProvider(delegate, 2, null, 0);
+
+            provider.embed(EmbeddingRequest.of("a", InputType.QUERY));
+            provider.embed(EmbeddingRequest.of("b", InputType.QUERY));
+            provider.embed(EmbeddingRequest.of("a", InputType.QUERY)); // a is now most recent
+            provider.embed(EmbeddingRequest.of("c", InputType.QUERY)); // evicts b
+            provider.embed(EmbeddingRequest.of("a", InputType.QUERY));
+            provider.embed(EmbeddingRequest.of("b", InputType.QUERY));
+
+            assertEquals(List.of("a", "b", "c", "b"), delegate.embedded);
+        }
+
+        @Test
+        @DisplayName("callers mutating a returned vector do not corrupt the cache")
+        void returnedVectorsAreCopies() {
+            RecordingProvider delegate = new RecordingProvider("model-a");
+            CachingEmbeddingProvider provider = new CachingEmbeddingProvider(delegate, 100, null, 0);
+
+            provider.embed(EmbeddingRequest.of("hello", InputType.QUERY)).vector()[0] = -1f;
+            provider.embed(EmbeddingRequest.of("hello", InputType.QUERY)).vector()[0] = -1f;
+
+            assertEquals(5f, provider.embed(EmbeddingRequest.of("hello", InputType.QUERY)).vector()[0]);
+        }
+
+        @Test
+        @DisplayName("requests with extra parameters bypass the cache")
+        void extraBypassesCache() {
+            RecordingProvider delegate = new RecordingProvider("model-a");
+            CachingEmbeddingProvider provider = new CachingEmbeddingProvider(delegate, 100, null, 0);
+            EmbeddingRequest request = new EmbeddingRequest("hello", InputType.QUERY, null, Map.of("truncate", "END"));
+
+            provider.embed(request);
+            provider.embed(request);
+
+            assertEquals(2, delegate.embedded.size());
+        }
+    }
+
+    // ── Batches ──
+
+    @Test
+    @DisplayName("a batch sends only distinct misses to the provider and keeps input order")
+    void batchEmbedsDistinctMissesOnly() {
+        RecordingProvider delegate = new RecordingProvider("model-a");
+        CachingEmbeddingProvider provider = new CachingEmbeddingProvider(delegate, 100, null, 0);
+        provider.embed(EmbeddingRequest.of("cached", InputType.DOCUMENT));
+        delegate.embedded.clear();
+
+        List<EmbeddingResult> results = provider.embedBatch(EmbeddingBatchRequest.of(
+                List.of("new", "cached", "other", "new"), InputType.DOCUMENT));
+
+        assertEquals(List.of("new", "other"), delegate.embedded);
+        assertEquals(List.of(3f, 6f, 5f, 3f), results.stream().map(r -> r.vector()[0]).toList());
+    }
+
+    @Test
+    @DisplayName("pre-tokenized batches are still cached and pass on only the misses' token IDs")
+    void tokenIdsKeepCaching() {
+        RecordingProvider delegate = new RecordingProvider("model-a");
+        CachingEmbeddingProvider provider = new CachingEmbeddingProvider(delegate, 100, null, 0);
+        provider.embed(EmbeddingRequest.of("cached", InputType.DOCUMENT));
+        delegate.embedded.clear();
+        int[] newIds = {7, 8};
+
+        provider.embedBatch(new EmbeddingBatchRequest(List.of("cached", "new"), InputType.DOCUMENT, null,
+                Map.of(EmbeddingBatchRequest.EXTRA_TOKEN_IDS, List.of(new int[]{1}, newIds))));
+
+        assertEquals(List.of("new"), delegate.embedded);
+        List<?> forwarded = (List<?>) delegate.extras.getFirst().get(EmbeddingBatchRequest.EXTRA_TOKEN_IDS);
+        assertEquals(1, forwarded.size());
+        assertSame(newIds, forwarded.getFirst());
+    }
+
+    // ── Disk tier ──
+
+    @Test
+    @DisplayName("the disk tier serves vectors after a restart")
+    void diskTierSurvivesRestart() {
+        Path file = tempDir.resolve("cache.bin");
+        RecordingProvider first = new RecordingProvider("model-a");
+        CachingEmbeddingProvider before = new CachingEmbeddingProvider(first, 100, file, 64);
+        EmbeddingResult original = before.embed(EmbeddingRequest.of("persisted", InputType.DOCUMENT));
+        before.close();
+
+        RecordingProvider second = new RecordingProvider("model-a");
+        CachingEmbeddingProvider after = new CachingEmbeddingProvider(second, 100, file, 64);
+        EmbeddingResult restored = after.embed(EmbeddingRequest.of("persisted", InputType.DOCUMENT));
+        after.close();
+
+        assertArrayEquals(original.vector(), restored.vector());
+        assertEquals(original.tokenCount(), restored.tokenCount());
+        assertTrue(second.embedded.isEmpty());
+        assertEquals(1, after.stats().diskHits());
+    }
+
+    @Test
+    @DisplayName("a different model never reads another model's vectors")
+    void diskTierIsKeyedByModel() {
+        Path file = tempDir.resolve("cache.bin");
+        CachingEmbeddingProvider before = new CachingEmbeddingProvider(new RecordingProvider("model-a"), 100, file, 64);
+        before.embed(EmbeddingRequest.of("persisted", InputType.DOCUMENT));
+        before.close();
+
+        RecordingProvider other = new RecordingProvider("model-b");
+        CachingEmbeddingProvider after = new CachingEmbeddingProvider(other, 100, file, 64);
+        after.embed(EmbeddingRequest.of("persisted", InputType.DOCUMENT));
+        after.close();
+
+        assertEquals(List.of("persisted"), other.embedded);
+    }
+
+    @Test
+    @DisplayName("a full disk tier keeps serving correct vectors")
+    void fullDiskTierStaysCorrect() {
+        Path file = tempDir.resolve("cache.bin");
+        RecordingProvider delegate = new RecordingProvider("model-a");
+        CachingEmbeddingProvider provider = new CachingEmbeddingProvider(delegate, 0, file, 16);
+        for (int i = 0; i < 200; i++) {
+            provider.embed(EmbeddingRequest.of("text-" + i, InputType.DOCUMENT));
+        }
+        for (int i = 199; i >= 0; i--) { // newest first, before misses overwrite them
+            String text = "text-" + i;
+            assertEquals(text.length(), provider.embed(EmbeddingRequest.of(text, InputType.DOCUMENT)).vector()[0]);
+        }
+        provider.close();
+
+        assertTrue(provider.stats().diskHits() > 0);
+    }
+
+    // ── Helpers ──
+
+    /** Embeds a text as [length, inputType ordinal, model hash] and records what it was asked for. */
+    private static final class RecordingProvider implements EmbeddingProvider {
+
+        final List<String> embedded = new ArrayList<>();
+        final List<Map<String, Object>> extras = new ArrayList<>();
+        final String model;
+
+        RecordingProvider(String model) {
+            this.model = model;
+        }
+
+        @Override
+        public String type() {
+            return "recording";
+        }
+
+        @Override
+        public EmbeddingCapabilities capabilities() {
+            return new EmbeddingCapabilities(true, false, true, 64, 512, 3, AuthType.NONE);
+        }
+
+        @Override
+        public EmbeddingResult embed(EmbeddingRequest request) {
+            embedded.add(request.text());
+            return vector(request.text(), request.inputType());
+        }
+
+        @Override
+        public List<EmbeddingResult> embedBatch(EmbeddingBatchRequest request) {
+            embedded.addAll(request.texts());
+            extras.add(request.extra());
+            return request.texts().stream().map(text -> vector(text, request.inputType())).toList();
+        }
+
+        @Override
+        public int dimensions() {
+            return 3;
+        }
+
+        @Override
+        public String model() {
+            return model;
+        }
+
+        private EmbeddingResult vector(String text, InputType inputType) {
+            float[] vector = {text.length(), inputType.ordinal(), model.hashCode()};
+            return new EmbeddingResult(vector, vector.length, text.length() + 2, model, Map.of());
+        }
+    }
+}
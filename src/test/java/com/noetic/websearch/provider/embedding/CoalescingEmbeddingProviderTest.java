@@ -0,0 +1,188 @@
+package com.noetic.websearch.provider.embedding;
+
+import com.noetic.websearch.model.*;
+import com.noetic.websearch.provider.EmbeddingProvider;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("CoalescingEmbeddingProvider")
+class CoalescingEmbeddingProviderTest {
+
+    private static final int CALLERS = 16;
+
+    @Test
+    @DisplayName("concurrent embeds share batch calls and each caller gets its own vector")
+    void coalescesConcurrentCalls() throws Exception {
+        RecordingProvider delegate = new RecordingProvider(64);
+        CoalescingEmbeddingProvider provider = new CoalescingEmbeddingProvider(delegate, 200, 0);
+
+        List<EmbeddingResult> results = runConcurrently(CALLERS, i ->
+                provider.embed(EmbeddingRequest.of("text-" + i, InputType.DOCUMENT)));
+
+        for (int i = 0; i < CALLERS; i++) {
+            assertEquals(i, (int) results.get(i).vector()[0], "caller " + i + " got another caller's vector");
+        }
+        assertTrue(delegate.batchCalls.get() < CALLERS,
+                "expected fewer than " + CALLERS + " batch calls, got " + delegate.batchCalls.get());
+        assertEquals(0, delegate.singleCalls.get());
+    }
+
+    @Test
+    @DisplayName("never puts more than max-batch texts in one call")
+    void respectsMaxBatch() throws Exception {
+        RecordingProvider delegate = new RecordingProvider(64);
+        CoalescingEmbeddingProvider provider = new CoalescingEmbeddingProvider(delegate, 200, 3);
+
+        runConcurrently(CALLERS, i -> provider.embed(EmbeddingRequest.of("text-" + i, InputType.DOCUMENT)));
+
+        assertTrue(delegate.largestBatch.get() <= 3);
+    }
+
+    @Test
+    @DisplayName("requests with different input types are never mixed")
+    void separatesInputTypes() throws Exception {
+        RecordingProvider delegate = new RecordingProvider(64);
+        CoalescingEmbeddingProvider provider = new CoalescingEmbeddingProvider(delegate, 200, 0);
+
+        List<EmbeddingResult> results = runConcurrently(CALLERS, i -> provider.embed(EmbeddingRequest.of(
+                "text-" + i, i % 2 == 0 ? InputType.QUERY : InputType.DOCUMENT)));
+
+        for (int i = 0; i < CALLERS; i++) {
+            InputType expected = i % 2 == 0 ? InputType.QUERY : InputType.DOCUMENT;
+            assertEquals(expected.ordinal(), (int) results.get(i).vector()[1]);
+        }
+    }
+
+    @Test
+    @DisplayName("a lone caller is dispatched without waiting")
+    void loneCallerDoesNotWait() {
+        RecordingProvider delegate = new RecordingProvider(64);
+        CoalescingEmbeddingProvider provider = new CoalescingEmbeddingProvider(delegate, 5_000, 0);
+
+        long start = System.nanoTime();
+        provider.embed(EmbeddingRequest.of("text-0", InputType.DOCUMENT));
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1_000);
+    }
+
+    @Test
+    @DisplayName("a failed batch fails every caller in it")
+    void propagatesFailures() {
+        RecordingProvider delegate = new RecordingProvider(64);
+        delegate.fail = true;
+        CoalescingEmbeddingProvider provider = new CoalescingEmbeddingProvider(delegate, 200, 0);
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> runConcurrently(4, i ->
+                provider.embed(EmbeddingRequest.of("text-" + i, InputType.DOCUMENT))));
+        assertEquals("provider down", failure.getCause().getMessage());
+    }
+
+    @Test
+    @DisplayName("providers without batch support are called one text at a time")
+    void passesThroughWithoutBatchSupport() {
+        RecordingProvider delegate = new RecordingProvider(0);
+        CoalescingEmbeddingProvider provider = new CoalescingEmbeddingProvider(delegate, 200, 0);
+
+        provider.embed(EmbeddingRequest.of("text-0", InputType.DOCUMENT));
+
+        assertEquals(1, delegate.singleCalls.get());
+        assertEquals(0, delegate.batchCalls.get());
+    }
+
+    // ── Helpers ──
+
+    private interface Call {
+        EmbeddingResult run(int caller);
+    }
+
+    private static List<EmbeddingResult> runConcurrently(int callers, Call call) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<EmbeddingResult>> futures = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                int caller = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return call.run(caller);
+                }));
+            }
+            start.countDown();
+            List<EmbeddingResult> results = new ArrayList<>();
+            for (Future<EmbeddingResult> future : futures) {
+                results.add(future.get(10, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /** Embeds "text-N" as [N, inputType ordinal] and records how it was called. */
+    private static final class RecordingProvider implements EmbeddingProvider {
+
+        final AtomicInteger batchCalls = new AtomicInteger();
+        final AtomicInteger singleCalls = new AtomicInteger();
+        final AtomicInteger largestBatch = new AtomicInteger();
+        final int maxBatchSize;
+        volatile boolean fail;
+
+        RecordingProvider(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+        }
+
+        @Override
+        public String type() {
+            return "recording";
+        }
+
+        @Override
+        public EmbeddingCapabilities capabilities() {
+            return new EmbeddingCapabilities(true, false, maxBatchSize > 0, maxBatchSize, 512, 2, AuthType.NONE);
+        }
+
+        @Override
+        public EmbeddingResult embed(EmbeddingRequest request) {
+            singleCalls.incrementAndGet();
+            return vector(request.text(), request.inputType());
+        }
+
+        @Override
+        public List<EmbeddingResult> embedBatch(EmbeddingBatchRequest request) {
+            batchCalls.incrementAndGet();
+            largestBatch.accumulateAndGet(request.texts().size(), Math::max);
+            if (fail) {
+                throw new RuntimeException("provider down");
+            }
+            try {
+                Thread.sleep(20); // long enough for other callers to queue up behind this batch
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return request.texts().stream().map(text -> vector(text, request.inputType())).toList();
+        }
+
+        @Override
+        public int dimensions() {
+            return 2;
+        }
+
+        @Override
+        public String model() {
+            return "recording";
+        }
+
+        private static EmbeddingResult vector(String text, InputType inputType) {
+            float id = Integer.parseInt(text.substring("text-".length()));
+            return new EmbeddingResult(new float[]{id, inputType.ordinal()}, 2, 0, "recording", Map.of());
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.noetic.websearch.provider.embedding;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.LongBuffer;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("InputBuffers")
+class InputBuffersTest {
+
+    @Test
+    @DisplayName("pads each row to the longest sequence, row-major")
+    void padsToLongestSequence() {
+        InputBuffers buffers = new InputBuffers();
+
+        buffers.load(List.of(new long[]{101, 7, 102}, new long[]{101, 102}), 0);
+
+        assertEquals(2, buffers.batchSize());
+        assertEquals(3, buffers.seqLength());
+        assertArrayEquals(new long[]{101, 7, 102, 101, 102, 0}, drain(buffers.inputIds()));
+        assertArrayEquals(new long[]{1, 1, 1, 1, 1, 0}, drain(buffers.attentionMask()));
+        assertArrayEquals(new long[6], drain(buffers.tokenTypeIds()));
+    }
+
+    @Test
+    @DisplayName("reuses its buffers for smaller batches after growing")
+    void reusesBuffers() {
+        InputBuffers buffers = new InputBuffers();
+        buffers.load(List.of(new long[40], new long[40]), 0);
+        LongBuffer grown = buffers.inputIds();
+
+        buffers.load(List.of(new long[]{101, 5, 102}), 0);
+
+        assertSame(grown, buffers.inputIds());
+        assertTrue(buffers.inputIds().isDirect());
+        assertArrayEquals(new long[]{101, 5, 102}, drain(buffers.inputIds()));
+        assertArrayEquals(new long[3], drain(buffers.tokenTypeIds()));
+    }
+
+    private static long[] drain(LongBuffer buffer) {
+        long[] values = new long[buffer.remaining()];
+        buffer.duplicate().get(values);
+        return values;
+    }
+}
@@ -0,0 +1,132 @@
+package com.noetic.websearch.provider.embedding;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the batching and pooling logic of {@link OnnxEmbeddingProvider}.
+ * These run without the ONNX model.
+ */
+@DisplayName("OnnxEmbeddingProvider")
+class OnnxEmbeddingProviderTest {
+
+    // ── Length buckets ──
+
+    @Nested
+    @DisplayName("lengthBuckets")
+    class LengthBuckets {
+
+        @Test
+        @DisplayName("covers every input exactly once, shortest first")
+        void coversEveryInputOnce() {
+            long[][] sequences = sequencesOfLength(40, 3, 512, 7, 40, 128, 3);
+
+            List<int[]> buckets = OnnxEmbeddingProvider.lengthBuckets(sequences, 64, 100_000);
+
+            List<Integer> seen = new ArrayList<>();
+            buckets.forEach(bucket -> Arrays.stream(bucket).forEach(seen::add));
+            assertEquals(List.of(1, 6, 3, 0, 4, 5, 2), seen);
+        }
+
+        @Test
+        @DisplayName("splits at the batch size limit")
+        void splitsAtBatchSize() {
+            long[][] sequences = sequencesOfLength(10, 10, 10, 10, 10);
+
+            List<int[]> buckets = OnnxEmbeddingProvider.lengthBuckets(sequences, 2, 100_000);
+
+            assertEquals(List.of(2, 2, 1), buckets.stream().map(b -> b.length).toList());
+        }
+
+        @Test
+        @DisplayName("keeps padded positions under the token budget")
+        void respectsTokenBudget() {
+            long[][] sequences = sequencesOfLength(8, 8, 8, 8, 500, 500);
+
+            List<int[]> buckets = OnnxEmbeddingProvider.lengthBuckets(sequences, 64, 1024);
+
+            // The short texts must not be padded to 500 alongside the long ones
+            assertArrayEquals(new int[]{0, 1, 2, 3}, buckets.getFirst());
+            for (int[] bucket : buckets) {
+                int longest = Arrays.stream(bucket).map(i -> sequences[i].length).max().orElseThrow();
+                assertTrue(bucket.length == 1 || bucket.length * longest <= 1024);
+            }
+        }
+    }
+
+    // ── Long-text windows ──
+
+    @Nested
+    @DisplayName("windowRanges")
+    class WindowRanges {
+
+        @Test
+        @DisplayName("a text that fits is a single window")
+        void shortTextIsOneWindow() {
+            assertRanges(List.of(new int[]{0, 300}), OnnxEmbeddingProvider.windowRanges(300, 510, 64, 16));
+            assertRanges(List.of(new int[]{0, 0}), OnnxEmbeddingProvider.windowRanges(0, 510, 64, 16));
+        }
+
+        @Test
+        @DisplayName("long texts are covered by windows overlapping by the configured amount")
+        void overlappingWindowsCoverText() {
+            List<int[]> ranges = OnnxEmbeddingProvider.windowRanges(1200, 510, 64, 16);
+
+            assertRanges(List.of(new int[]{0, 510}, new int[]{446, 956}, new int[]{892, 1200}), ranges);
+        }
+
+        @Test
+        @DisplayName("stops at max windows, leaving the tail out")
+        void capsWindowCount() {
+            List<int[]> ranges = OnnxEmbeddingProvider.windowRanges(5000, 510, 64, 2);
+
+            assertRanges(List.of(new int[]{0, 510}, new int[]{446, 956}), ranges);
+        }
+
+        private static void assertRanges(List<int[]> expected, List<int[]> actual) {
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertArrayEquals(expected.get(i), actual.get(i), "window " + i);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("pooled windows are weighted by their token counts and normalized")
+    void poolWindowsWeightsByTokens() {
+        float[][] windows = {{1, 0}, {0, 1}};
+
+        float[] pooled = OnnxEmbeddingProvider.poolWindows(windows, new int[]{3, 1});
+
+        assertEquals(3f / (float) Math.sqrt(10), pooled[0], 1e-6);
+        assertEquals(1f / (float) Math.sqrt(10), pooled[1], 1e-6);
+    }
+
+    // ── Session threads ──
+
+    @Test
+    @DisplayName("default intra-op threads split the cores across the pool, at least one each")
+    void intraOpThreadsSplitCores() {
+        assertEquals(1, OnnxEmbeddingProvider.defaultIntraOpThreads(8, 8), "one inference per core");
+        assertEquals(4, OnnxEmbeddingProvider.defaultIntraOpThreads(8, 2));
+        assertEquals(8, OnnxEmbeddingProvider.defaultIntraOpThreads(8, 1));
+        assertEquals(1, OnnxEmbeddingProvider.defaultIntraOpThreads(4, 16), "oversized pools still get a thread");
+    }
+
+    // ── Helpers ──
+
+    private static long[][] sequencesOfLength(int... lengths) {
+        long[][] sequences = new long[lengths.length][];
+        for (int i = 0; i < lengths.length; i++) {
+            sequences[i] = new long[lengths[i]];
+        }
+        return sequences;
+    }
+}
@@ -0,0 +1,204 @@
+package com.noetic.websearch.provider.store;
+
+import com.noetic.websearch.model.MetadataFilter;
+import com.noetic.websearch.model.VectorEntry;
+import com.noetic.websearch.model.VectorSearchRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Concurrency stress test for {@link LuceneVectorStore}: searches must not queue
+ * behind bulk ingest or metadata deletes, and concurrent writers must leave the
+ * index consistent. The latency check is timing-based, so it runs in the
+ * {@code benchmark} task only.
+ */
+@DisplayName("LuceneVectorStore concurrency")
+class LuceneVectorStoreConcurrencyTest {
+
+    private static final int DIMENSIONS = 64;
+    private static final int SEED_DOCS = 2000;
+    private static final int WRITERS = 4;
+    private static final int BATCH_SIZE = 250;
+    private static final int QUERIES = 400;
+
+    @TempDir
+    Path tempDir;
+
+    private LuceneVectorStore store;
+
+    @BeforeEach
+    void openStore() {
+        store = new LuceneVectorStore();
+        ReflectionTestUtils.setField(store, "sharedIndexPath", tempDir.resolve("index").toString());
+        ReflectionTestUtils.setField(store, "agentsDir", tempDir.resolve("agents").toString());
+        ReflectionTestUtils.setField(store, "commitPolicyName", "group");
+        ReflectionTestUtils.setField(store, "commitMaxDocs", 1000);
+        ReflectionTestUtils.setField(store, "commitIntervalMs", 1000L);
+        ReflectionTestUtils.setField(store, "refreshIntervalMs", 100L);
+        store.initialize();
+    }
+
+    @AfterEach
+    void closeStore() {
+        store.close();
+    }
+
+    // ── Read latency ──
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("search latency stays flat during bulk ingest and deleteByMetadata")
+    void readLatencyStaysFlatDuringIngest() throws Exception {
+        Random random = new Random(7);
+        List<VectorEntry> seed = new ArrayList<>();
+        for (int i = 0; i < SEED_DOCS; i++) {
+            seed.add(entry("seed-" + i, random, "seed"));
+        }
+        store.upsertBatch(seed);
+
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS + 1);
+        AtomicBoolean running = new AtomicBoolean(true);
+        Queue<Long> batchNanos = new ConcurrentLinkedQueue<>();
+        List<Future<?>> writers = new ArrayList<>();
+        try {
+            for (int w = 0; w < WRITERS; w++) {
+                int writer = w;
+                writers.add(executor.submit(() -> {
+                    Random writerRandom = new Random(100 + writer);
+                    int round = 0;
+                    while (running.get()) {
+                        // Rewrites a fixed ID range so the index size stays comparable to the baseline
+                        List<VectorEntry> batch = new ArrayList<>(BATCH_SIZE);
+                        for (int i = 0; i < BATCH_SIZE; i++) {
+                            batch.add(entry("w" + writer + "-" + i, writerRandom, "round-" + round));
+                        }
+                        long start = System.nanoTime();
+                        store.upsertBatch(batch);
+                        batchNanos.add(System.nanoTime() - start);
+                        round++;
+                    }
+                    return null;
+                }));
+            }
+            writers.add(executor.submit(() -> {
+                int round = 0;
+                while (running.get()) {
+                    store.deleteByMetadata(new MetadataFilter(Map.of("batch", "round-" + round++), null, null, null));
+                    Thread.sleep(20);
+                }
+                return null;
+            }));
+
+            // Let ingest get going before measuring
+            while (batchNanos.size() < WRITERS) {
+                Thread.sleep(5);
+            }
+            long[] underLoad = measureSearches(new Random(11));
+            running.set(false);
+            for (Future<?> writer : writers) {
+                writer.get(30, TimeUnit.SECONDS); // rethrows any write failure
+            }
+
+            long loadP50 = percentile(underLoad, 50);
+            long batchP50 = percentile(batchNanos.stream().mapToLong(Long::longValue).toArray(), 50);
+
+            assertTrue(batchNanos.size() > WRITERS, "writers should make progress while searches run");
+            // Sharing CPU with the writers slows searches down; queuing behind a writer lock would
+            // make them wait out a large part of a batch. Comparing against the batch time keeps
+            // the check meaningful however many cores the machine has.
+            assertTrue(loadP50 * 4 < batchP50,
+                    "median search took " + loadP50 / 1e6 + " ms under load against "
+                            + batchP50 / 1e6 + " ms per batch");
+        } finally {
+            running.set(false);
+            executor.shutdownNow();
+        }
+    }
+
+    // ── Consistency ──
+
+    @Test
+    @DisplayName("concurrent upserts of the same IDs leave exactly one copy of each")
+    void concurrentUpsertsOfSameIdsStayUnique() throws Exception {
+        int ids = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int w = 0; w < WRITERS; w++) {
+                int writer = w;
+                writers.add(executor.submit(() -> {
+                    Random random = new Random(writer);
+                    for (int round = 0; round < 5; round++) {
+                        for (int i = 0; i < ids; i++) {
+                            store.upsert(entry("shared-" + i, random, "writer-" + writer));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(ids, store.count());
+    }
+
+    @Test
+    @DisplayName("a search after an upsert returns sees that upsert on the same thread")
+    void searchSeesCompletedWrites() {
+        Random random = new Random(3);
+        for (int i = 0; i < 50; i++) {
+            VectorEntry entry = entry("ryw-" + i, random, "ryw");
+            store.upsert(entry);
+            var matches = store.search(VectorSearchRequest.of(entry.vector(), 1, 0f, "default"));
+            assertEquals(entry.id(), matches.getFirst().id());
+        }
+    }
+
+    // ── Helpers ──
+
+    private long[] measureSearches(Random random) {
+        long[] latencies = new long[QUERIES];
+        for (int q = 0; q < QUERIES; q++) {
+            VectorSearchRequest request = VectorSearchRequest.of(vector(random), 10, 0f, "default");
+            long start = System.nanoTime();
+            store.search(request);
+            latencies[q] = System.nanoTime() - start;
+        }
+        return latencies;
+    }
+
+    private static long percentile(long[] values, int percentile) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[Math.min(sorted.length - 1, sorted.length * percentile / 100)];
+    }
+
+    private static VectorEntry entry(String id, Random random, String batch) {
+        return new VectorEntry(id, vector(random), "content " + id, "crawl_chunk", "default",
+                null, Map.of("batch", batch));
+    }
+
+    private static float[] vector(Random random) {
+        float[] v = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            v[i] = (float) random.nextGaussian();
+        }
+        return v;
+    }
+}
@@ -0,0 +1,451 @@
+package com.noetic.websearch.provider.store;
+
+import com.noetic.websearch.kernel.VectorKernels;
+import com.noetic.websearch.model.ContentHash;
+import com.noetic.websearch.model.MetadataFilter;
+import com.noetic.websearch.model.VectorEntry;
+import com.noetic.websearch.model.VectorMatch;
+import com.noetic.websearch.model.VectorSearchRequest;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.LRUQueryCache;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.WildcardQuery;
+import org.apache.lucene.store.FSDirectory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs {@link LuceneVectorStore} against a real index in a temp directory.
+ */
+@DisplayName("LuceneVectorStore")
+class LuceneVectorStoreTest {
+
+    private static final int DIMENSIONS = 16;
+
+    @TempDir
+    Path tempDir;
+
+    private LuceneVectorStore store;
+
+    @BeforeEach
+    void openStore() {
+        store = store("single");
+        store.initialize();
+    }
+
+    @AfterEach
+    void closeStore() {
+        store.close();
+    }
+
+    // ── Commit policy ──
+
+    @Test
+    @DisplayName("per-op commits every write before it returns")
+    void perOpCommitsEachWrite() throws Exception {
+        Random random = new Random(1);
+        store.upsert(entry("e0", random, "content 0", Map.of()));
+        assertEquals(1, committedDocs());
+        store.upsertBatch(List.of(entry("e1", random, "content 1", Map.of()), entry("e2", random, "content 2", Map.of())));
+        assertEquals(3, committedDocs());
+        store.delete("e0");
+        assertEquals(2, committedDocs());
+        assertEquals(Duration.ZERO, store.capabilities().durabilityWindow());
+    }
+
+    @Test
+    @DisplayName("group commits once enough documents are buffered")
+    void groupCommitsAtMaxDocs() throws Exception {
+        reopen("single", "group", 60_000L, 5);
+        Random random = new Random(2);
+        for (int i = 0; i < 4; i++) {
+            store.upsert(entry("e" + i, random, "content " + i, Map.of()));
+        }
+        assertEquals(0, committedDocs());
+        assertEquals(4, store.count(), "searches see uncommitted writes");
+
+        store.upsert(entry("e4", random, "content 4", Map.of()));
+        assertEquals(5, committedDocs());
+        assertEquals(Duration.ofMinutes(1), store.capabilities().durabilityWindow());
+    }
+
+    @Test
+    @DisplayName("group commits buffered documents once the interval passes")
+    void groupCommitsOnInterval() throws Exception {
+        reopen("single", "group", 50L, 1000);
+        store.upsert(entry("e0", new Random(3), "content 0", Map.of()));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (committedDocs() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(1, committedDocs());
+        assertEquals(Duration.ofMillis(50), store.capabilities().durabilityWindow());
+    }
+
+    @Test
+    @DisplayName("shutdown commits only when the store closes")
+    void shutdownCommitsOnClose() throws Exception {
+        reopen("single", "shutdown", 50L, 1);
+        Random random = new Random(4);
+        for (int i = 0; i < 10; i++) {
+            store.upsert(entry("e" + i, random, "content " + i, Map.of()));
+        }
+        Thread.sleep(150);
+        assertEquals(0, committedDocs());
+        assertNull(store.capabilities().durabilityWindow(), "no bound on what a crash can lose");
+
+        store.close();
+        assertEquals(10, committedDocs());
+        store = store("single");
+        store.initialize();
+        assertEquals(10, store.count());
+    }
+
+    // ── Hybrid search ──
+
+    @Test
+    @DisplayName("hybrid search ranks by reciprocal-rank fusion of the vector and lexical rankings")
+    void hybridFusesRankings() {
+        float[] query = axis(0);
+        float[] between = axis(0);
+        between[1] = 1f;
+        // Vector order: nearest, between, lexical. Lexical order: lexical, between
+        store.upsertBatch(List.of(
+                new VectorEntry("nearest", axis(0), "apple pear plum", "crawl_chunk", "default", Instant.now(), Map.of()),
+                new VectorEntry("between", VectorKernels.normalize(between), "zebra apple pear plum kiwi fig",
+                        "crawl_chunk", "default", Instant.now(), Map.of()),
+                new VectorEntry("lexical", axis(1), "zebra zebra zebra", "crawl_chunk", "default", Instant.now(), Map.of())));
+
+        List<VectorMatch> matches = store.hybridSearch(VectorSearchRequest.of(query, 3, 0f, "default"), "zebra");
+
+        assertEquals(List.of("lexical", "between", "nearest"), matches.stream().map(VectorMatch::id).toList());
+        assertEquals(rrf(3) + rrf(1), matches.get(0).score(), 1e-6f);
+        assertEquals(rrf(2) + rrf(2), matches.get(1).score(), 1e-6f);
+        assertEquals(rrf(1), matches.get(2).score(), 1e-6f);
+    }
+
+    @Test
+    @DisplayName("hybrid search without lexical terms falls back to vector search")
+    void hybridWithoutTermsIsVectorSearch() {
+        Random random = new Random(6);
+        store.upsertBatch(IntStream.range(0, 10)
+                .mapToObj(i -> entry("e" + i, random, "content " + i, Map.of()))
+                .toList());
+        VectorSearchRequest request = VectorSearchRequest.of(vector(random), 5, 0f, "default");
+
+        assertEquals(store.search(request), store.hybridSearch(request, "  "));
+    }
+
+    // ── Promote ──
+
+    @Test
+    @DisplayName("incremental promote copies only entries written since the recorded watermark")
+    void promoteCopiesOnlyNewEntries() throws Exception {
+        openAgent();
+        Random random = new Random(7);
+        store.upsertBatch(IntStream.range(0, 10).mapToObj(i -> entry("e" + i, random, "content " + i, Map.of())).toList());
+        Thread.sleep(5); // the watermark has millisecond resolution
+
+        assertEquals(10, store.promoteToShared(true));
+        assertEquals(10, committedDocs());
+        String watermark = sharedCommitData().get(LuceneVectorStore.PROMOTE_WATERMARK_PREFIX + "agent-1");
+        assertNotNull(watermark);
+
+        Thread.sleep(5);
+        assertEquals(0, store.promoteToShared(true), "nothing new to promote");
+        assertEquals(watermark, sharedCommitData().get(LuceneVectorStore.PROMOTE_WATERMARK_PREFIX + "agent-1"));
+
+        store.upsertBatch(List.of(entry("e0", random, "rewritten", Map.of()), entry("e10", random, "content 10", Map.of())));
+        Thread.sleep(5);
+        assertEquals(2, store.promoteToShared(true));
+        assertEquals(11, committedDocs(), "the rewritten entry replaces its shared copy");
+        assertEquals("rewritten", store.get("e0").orElseThrow().content());
+    }
+
+    @Test
+    @DisplayName("a promote that fails before its shared commit is redone in full by the next one, without duplicates")
+    void interruptedPromoteDoesNotDuplicate() throws Exception {
+        openAgent();
+        Random random = new Random(8);
+        store.upsertBatch(IntStream.range(0, 5).mapToObj(i -> entry("e" + i, random, "content " + i, Map.of())).toList());
+        Thread.sleep(5);
+        assertEquals(5, store.promoteToShared(true));
+        String watermark = sharedCommitData().get(LuceneVectorStore.PROMOTE_WATERMARK_PREFIX + "agent-1");
+
+        store.upsertBatch(IntStream.range(5, 8).mapToObj(i -> entry("e" + i, random, "content " + i, Map.of())).toList());
+        // Another writer holding the shared index stops the promote after the agent side has committed
+        try (FSDirectory dir = FSDirectory.open(tempDir.resolve("index"));
+             IndexWriter other = new IndexWriter(dir, LuceneVectorStore.newWriterConfig(VectorQuantization.FLOAT32))) {
+            assertThrows(RuntimeException.class, () -> store.promoteToShared(true));
+            other.rollback();
+        }
+        assertEquals(5, committedDocs());
+        assertEquals(watermark, sharedCommitData().get(LuceneVectorStore.PROMOTE_WATERMARK_PREFIX + "agent-1"));
+
+        Thread.sleep(5);
+        assertEquals(3, store.promoteToShared(true));
+        assertEquals(8, committedDocs());
+        assertEquals(8, store.promoteToShared(false), "a full promote resends everything");
+        assertEquals(8, committedDocs(), "resent entries replace their shared copies");
+    }
+
+    // ── Filters ──
+
+    @Test
+    @DisplayName("translates equals, contains and created bounds into non-scoring clauses")
+    void translatesFilter() {
+        Instant after = Instant.parse("2026-01-01T00:00:00Z");
+        Instant before = Instant.parse("2026-02-01T00:00:00Z");
+
+        Query query = LuceneVectorStore.toFilterQuery(new MetadataFilter(
+                Map.of("entryType", "crawl_chunk"), Map.of("sourceUrl", "a*b"), after, before));
+
+        Query expected = new BooleanQuery.Builder()
+                .add(new TermQuery(new Term("entryType", "crawl_chunk")), BooleanClause.Occur.FILTER)
+                .add(new WildcardQuery(new Term("sourceUrl", "*a\\*b*")), BooleanClause.Occur.FILTER)
+                .add(LongPoint.newRangeQuery("createdAt_epoch", after.toEpochMilli() + 1, before.toEpochMilli()),
+                        BooleanClause.Occur.FILTER)
+                .build();
+        assertEquals(expected, query);
+        assertNull(LuceneVectorStore.toFilterQuery(new MetadataFilter(null, null, null, null)));
+    }
+
+    @Test
+    @DisplayName("filtered searches return only matching entries")
+    void filtersSearch() {
+        Random random = new Random(3);
+        store.upsertBatch(IntStream.range(0, 20)
+                .mapToObj(i -> entry("e" + i, random, "content " + i, Map.of("site", i % 2 == 0 ? "even" : "odd")))
+                .toList());
+
+        List<VectorMatch> matches = store.search(new VectorSearchRequest(vector(random), 20, 0f,
+                new MetadataFilter(Map.of("site", "even"), null, null, null), "default"));
+
+        assertEquals(10, matches.size());
+        assertTrue(matches.stream().allMatch(m -> "even".equals(m.metadata().get("site"))));
+    }
+
+    @Test
+    @DisplayName("caches a repeated search pre-filter but not one-off lookups")
+    void cachesRepeatedFiltersOnly() {
+        Random random = new Random(5);
+        store.upsertBatch(IntStream.range(0, 200)
+                .mapToObj(i -> entry("e" + i, random, "content " + i, Map.of("site", "s" + (i % 4))))
+                .toList());
+        LRUQueryCache cache = (LRUQueryCache) ReflectionTestUtils.getField(store, "filterCache");
+        VectorSearchRequest request = new VectorSearchRequest(vector(random), 5, 0f,
+                new MetadataFilter(Map.of("site", "s1"), null, null, null), "default");
+
+        for (int i = 0; i < 10; i++) {
+            store.search(request);
+        }
+        long cached = cache.getCacheCount();
+        assertTrue(cached > 0, "the repeated pre-filter is cached");
+        assertTrue(cache.getHitCount() > 0, "later searches reuse it");
+
+        for (int i = 0; i < 50; i++) {
+            store.findByContentHash("default", null, List.of(ContentHash.of("content " + i)));
+            store.findBySource("default", "https://" + i + ".example");
+        }
+        assertEquals(cached, cache.getCacheCount(), "one-off lookups never enter the cache");
+        long hits = cache.getHitCount();
+        store.search(request);
+        assertTrue(cache.getHitCount() > hits, "the pre-filter is still cached");
+
+        cached = cache.getCacheCount();
+        for (int i = 0; i < 50; i++) {
+            store.touch(List.of("e" + i), Map.of());
+        }
+        assertEquals(cached, cache.getCacheCount(), "touch lookups never enter the cache");
+    }
+
+    // ── Per-namespace layout ──
+
+    @Test
+    @DisplayName("keeps each namespace in its own index directory and searches only that one")
+    void partitionsByNamespace() {
+        reopen("per-namespace");
+        Random random = new Random(10);
+        float[] shared = vector(random);
+        store.upsertBatch(List.of(
+                new VectorEntry("a-1", shared, "in a", "crawl_chunk", "a", Instant.now(), Map.of()),
+                new VectorEntry("b-1", shared, "in b", "crawl_chunk", "b", Instant.now(), Map.of()),
+                new VectorEntry("odd-1", shared, "in odd", "crawl_chunk", "team/odd ns", Instant.now(), Map.of())));
+
+        Path nsRoot = tempDir.resolve("index").resolve(LuceneVectorStore.NAMESPACE_DIR);
+        assertTrue(Files.isDirectory(nsRoot.resolve("a")));
+        assertTrue(Files.isDirectory(nsRoot.resolve("b")));
+        assertTrue(Files.isDirectory(nsRoot.resolve(LuceneVectorStore.partitionName("team/odd ns"))));
+        assertTrue(LuceneVectorStore.partitionName("team/odd ns").startsWith("ns-"), "unsafe names are hashed");
+
+        assertEquals(List.of("a-1"), searchIds(shared, "a"));
+        assertEquals(List.of("odd-1"), searchIds(shared, "team/odd ns"));
+        assertEquals(3, store.count());
+        assertEquals("in b", store.get("b-1").orElseThrow().content());
+    }
+
+    @Test
+    @DisplayName("reopening finds the namespace partitions already on disk")
+    void reopensPartitionsFromDisk() {
+        reopen("per-namespace");
+        Random random = new Random(11);
+        float[] shared = vector(random);
+        store.upsertBatch(List.of(
+                new VectorEntry("a-1", shared, "in a", "crawl_chunk", "a", Instant.now(), Map.of()),
+                new VectorEntry("b-1", shared, "in b", "crawl_chunk", "b", Instant.now(), Map.of())));
+
+        reopen("per-namespace");
+
+        assertTrue(openPartitions().isEmpty(), "partitions open lazily");
+        assertEquals(2, store.count());
+        assertEquals(List.of("b-1"), searchIds(shared, "b"));
+        store.deleteBatch(List.of("a-1"));
+        assertTrue(store.get("a-1").isEmpty());
+        assertEquals(List.of(), searchIds(shared, "a"));
+    }
+
+    @Test
+    @DisplayName("idle eviction waits until no operation has the partition pinned, then reopens it on use")
+    void evictsOnlyUnpinnedPartitions() throws Exception {
+        reopen("per-namespace");
+        ReflectionTestUtils.setField(store, "partitionIdleTimeoutMs", 50L);
+        Random random = new Random(9);
+        VectorEntry entry = new VectorEntry("a-1", vector(random), "in a", "crawl_chunk", "a", Instant.now(), Map.of());
+        store.upsert(entry);
+        IndexPartition partition = openPartitions().values().iterator().next();
+
+        assertTrue(partition.pin());
+        Thread.sleep(100);
+        ReflectionTestUtils.invokeMethod(store, "evictIdlePartitions");
+        assertSame(partition, openPartitions().values().iterator().next());
+        partition.unpin();
+
+        Thread.sleep(100);
+        ReflectionTestUtils.invokeMethod(store, "evictIdlePartitions");
+        assertTrue(openPartitions().isEmpty());
+        assertFalse(partition.pin());
+
+        assertEquals(List.of("a-1"), searchIds(entry.vector(), "a"));
+        assertEquals(1, openPartitions().size());
+    }
+
+    // ── Helpers ──
+
+    private List<String> searchIds(float[] query, String namespace) {
+        return store.search(VectorSearchRequest.of(query, 5, 0f, namespace)).stream().map(VectorMatch::id).toList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, IndexPartition> openPartitions() {
+        return (Map<String, IndexPartition>) ReflectionTestUtils.getField(store, "partitions");
+    }
+
+
+    /** Close the store opened for the test and open one with the given layout over the same directory. */
+    private void reopen(String layout) {
+        store.close();
+        store = store(layout);
+        store.initialize();
+    }
+
+    /** Close the store opened for the test and open one for agent {@code agent-1} over the same shared index. */
+    private void openAgent() {
+        store.close();
+        store = store("single");
+        ReflectionTestUtils.setField(store, "agentId", "agent-1");
+        store.initialize();
+    }
+
+    private Map<String, String> sharedCommitData() throws IOException {
+        try (FSDirectory dir = FSDirectory.open(tempDir.resolve("index"));
+             DirectoryReader reader = DirectoryReader.open(dir)) {
+            return reader.getIndexCommit().getUserData();
+        }
+    }
+
+    private void reopen(String layout, String commitPolicy, long commitIntervalMs, int commitMaxDocs) {
+        store.close();
+        store = store(layout);
+        ReflectionTestUtils.setField(store, "commitPolicyName", commitPolicy);
+        ReflectionTestUtils.setField(store, "commitIntervalMs", commitIntervalMs);
+        ReflectionTestUtils.setField(store, "commitMaxDocs", commitMaxDocs);
+        store.initialize();
+    }
+
+    /** Documents in the last commit of the index at {@code path}: what survives a crash. */
+    private static int committedDocs(Path path) throws IOException {
+        try (FSDirectory dir = FSDirectory.open(path)) {
+            if (!DirectoryReader.indexExists(dir)) {
+                return 0;
+            }
+            try (DirectoryReader reader = DirectoryReader.open(dir)) {
+                return reader.numDocs();
+            }
+        }
+    }
+
+    private int committedDocs() throws IOException {
+        return committedDocs(tempDir.resolve("index"));
+    }
+
+    private LuceneVectorStore store(String layout) {
+        LuceneVectorStore lucene = new LuceneVectorStore();
+        ReflectionTestUtils.setField(lucene, "sharedIndexPath", tempDir.resolve("index").toString());
+        ReflectionTestUtils.setField(lucene, "agentsDir", tempDir.resolve("agents").toString());
+        ReflectionTestUtils.setField(lucene, "commitPolicyName", "per-op");
+        ReflectionTestUtils.setField(lucene, "commitIntervalMs", 1000L);
+        ReflectionTestUtils.setField(lucene, "commitMaxDocs", 1000);
+        ReflectionTestUtils.setField(lucene, "refreshIntervalMs", 100L);
+        ReflectionTestUtils.setField(lucene, "layoutName", layout);
+        ReflectionTestUtils.setField(lucene, "vectorEncodingName", "float32");
+        ReflectionTestUtils.setField(lucene, "partitionIdleTimeoutMs", 300_000L);
+        return lucene;
+    }
+
+    private static VectorEntry entry(String id, Random random, String content, Map<String, String> metadata) {
+        return new VectorEntry(id, vector(random), content, "crawl_chunk", "default", Instant.now(), metadata);
+    }
+
+    /** Reciprocal-rank fusion contribution of a 1-based rank. */
+    private static float rrf(int rank) {
+        return 1f / (60 + rank);
+    }
+
+    private static float[] axis(int i) {
+        float[] v = new float[DIMENSIONS];
+        v[i] = 1f;
+        return v;
+    }
+
+    private static float[] vector(Random random) {
+        float[] v = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            v[i] = (float) random.nextGaussian();
+        }
+        return v;
+    }
+}
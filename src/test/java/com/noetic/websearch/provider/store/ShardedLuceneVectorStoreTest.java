@@ -0,0 +1,250 @@
+package com.noetic.websearch.provider.store;
+
+import com.noetic.websearch.model.VectorEntry;
+import com.noetic.websearch.model.VectorMatch;
+import com.noetic.websearch.model.VectorSearchRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs {@link ShardedLuceneVectorStore} over real shards: routing, merged search
+ * order, resharding, and that stopping a fan-out never interrupts a shard mid-write,
+ * which would close its writer.
+ */
+@DisplayName("ShardedLuceneVectorStore")
+class ShardedLuceneVectorStoreTest {
+
+    private static final int DIMENSIONS = 64;
+    private static final int SHARDS = 4;
+
+    @TempDir
+    Path tempDir;
+
+    private ShardedLuceneVectorStore store;
+
+    @BeforeEach
+    void openStore() {
+        store = open(SHARDS);
+    }
+
+    @AfterEach
+    void closeStore() {
+        store.close();
+    }
+
+    // ── Interrupts ──
+
+    @Test
+    @DisplayName("an interrupted caller leaves every shard writable")
+    void interruptedFanOutKeepsShardsOpen() {
+        Random random = new Random(1);
+        for (int round = 0; round < 5; round++) {
+            List<VectorEntry> batch = entries("r" + round + "-", 2_000, random);
+            Thread.currentThread().interrupt();
+            assertThrows(RuntimeException.class, () -> store.upsertBatch(batch));
+            assertTrue(Thread.interrupted());
+        }
+
+        store.upsertBatch(entries("after-", 200, random));
+
+        assertTrue(IntStream.range(0, 200).allMatch(i -> store.get("after-" + i).isPresent()));
+    }
+
+    // ── Routing and search ──
+
+    @Test
+    @DisplayName("routes each entry to the shard its id hashes to")
+    void routesById() {
+        List<VectorEntry> batch = entries("e", 100, new Random(2));
+        store.upsertBatch(batch);
+
+        List<LuceneVectorStore> shards = shards(store);
+        for (VectorEntry entry : batch) {
+            int owner = ShardedLuceneVectorStore.shardOf(entry.id(), SHARDS);
+            for (int i = 0; i < SHARDS; i++) {
+                assertEquals(i == owner, shards.get(i).get(entry.id()).isPresent(), entry.id() + " in shard " + i);
+            }
+            assertTrue(store.get(entry.id()).isPresent());
+        }
+        assertEquals(100, store.count());
+    }
+
+    @Test
+    @DisplayName("merges per-shard hits into one top-K ordered by score")
+    void mergesTopKAcrossShards() {
+        Random random = new Random(3);
+        store.upsertBatch(entries("e", 400, random));
+        VectorSearchRequest request = VectorSearchRequest.of(vector(random), 10, 0f);
+
+        List<VectorMatch> merged = store.search(request);
+
+        List<VectorMatch> expected = shards(store).stream()
+                .flatMap(shard -> shard.search(request).stream())
+                .sorted(Comparator.comparingDouble(VectorMatch::score).reversed())
+                .limit(10)
+                .toList();
+        assertEquals(ids(expected), ids(merged));
+        assertTrue(shards(store).stream().filter(shard -> merged.stream()
+                .anyMatch(m -> shard.get(m.id()).isPresent())).count() > 1, "hits come from several shards");
+    }
+
+    // ── Reshard ──
+
+    @Test
+    @DisplayName("resharding keeps every entry and the search results")
+    void reshardRoundTrip() throws Exception {
+        Random random = new Random(4);
+        List<VectorEntry> batch = entries("e", 300, random);
+        store.upsertBatch(batch);
+        List<float[]> queries = IntStream.range(0, 5).mapToObj(i -> batch.get(i * 60).vector()).toList();
+        List<List<String>> before = queries.stream().map(this::searchIds).toList();
+        store.close();
+
+        assertEquals(300, ShardedLuceneVectorStore.reshard(tempDir.resolve("index"), SHARDS, 2, VectorQuantization.FLOAT32));
+        store = open(2);
+
+        assertEquals(300, store.count());
+        for (VectorEntry entry : batch) {
+            int owner = ShardedLuceneVectorStore.shardOf(entry.id(), 2);
+            assertTrue(shards(store).get(owner).get(entry.id()).isPresent(), entry.id());
+            assertEquals(entry.content(), store.get(entry.id()).orElseThrow().content());
+        }
+        // The HNSW graphs are rebuilt for the new shards, so approximate neighbours may differ at the tail
+        for (int q = 0; q < queries.size(); q++) {
+            List<String> after = searchIds(queries.get(q));
+            assertEquals(batch.get(q * 60).id(), after.getFirst());
+            assertTrue(after.stream().filter(before.get(q)::contains).count() >= 8, before.get(q) + " vs " + after);
+        }
+    }
+
+    @Test
+    @DisplayName("resharding refuses a target that holds entries or is open in a running store")
+    void reshardRejectsBusyTarget() {
+        store.upsertBatch(entries("e", 50, new Random(5)));
+        store.close();
+        Path root = tempDir.resolve("index");
+
+        LuceneVectorStore unsharded = standalone();
+        unsharded.initialize();
+        try {
+            IllegalStateException open = assertThrows(IllegalStateException.class,
+                    () -> ShardedLuceneVectorStore.reshard(root, SHARDS, 1, VectorQuantization.FLOAT32));
+            assertTrue(open.getMessage().contains("open in a running store"), open.getMessage());
+            unsharded.upsert(entries("x", 1, new Random(6)).getFirst());
+        } finally {
+            unsharded.close();
+        }
+
+        IllegalStateException full = assertThrows(IllegalStateException.class,
+                () -> ShardedLuceneVectorStore.reshard(root, SHARDS, 1, VectorQuantization.FLOAT32));
+        assertTrue(full.getMessage().contains("already holds 1 entries"), full.getMessage());
+        store = open(SHARDS);
+    }
+
+    @Test
+    @DisplayName("resharding writes into the empty index a closed store left behind")
+    void reshardIntoEmptyTarget() throws Exception {
+        store.upsertBatch(entries("e", 50, new Random(7)));
+        store.close();
+        LuceneVectorStore unsharded = standalone();
+        unsharded.initialize();
+        unsharded.close();
+
+        assertEquals(50, ShardedLuceneVectorStore.reshard(tempDir.resolve("index"), SHARDS, 1, VectorQuantization.FLOAT32));
+
+        unsharded = standalone();
+        unsharded.initialize();
+        try {
+            assertEquals(50, unsharded.count());
+        } finally {
+            unsharded.close();
+        }
+        store = open(SHARDS);
+    }
+
+    @Test
+    @DisplayName("resharding rejects the per-namespace layout up front")
+    void reshardRejectsPerNamespaceLayout() throws Exception {
+        store.close();
+        Path root = tempDir.resolve("index");
+        Files.createDirectories(root.resolve(LuceneVectorStore.NAMESPACE_DIR).resolve("default"));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> ShardedLuceneVectorStore.reshard(root, 1, 2, VectorQuantization.FLOAT32));
+        assertTrue(e.getMessage().contains("per-namespace"), e.getMessage());
+        assertFalse(Files.exists(ShardedLuceneVectorStore.shardsRoot(root, 2)), "nothing was written");
+        store = open(SHARDS);
+    }
+
+    // ── Helpers ──
+
+    private ShardedLuceneVectorStore open(int shardCount) {
+        ShardedLuceneVectorStore sharded = new ShardedLuceneVectorStore(shardCount, () -> {
+            LuceneVectorStore shard = new LuceneVectorStore();
+            ReflectionTestUtils.setField(shard, "agentsDir", tempDir.resolve("agents").toString());
+            ReflectionTestUtils.setField(shard, "commitPolicyName", "group");
+            ReflectionTestUtils.setField(shard, "commitMaxDocs", 1000);
+            ReflectionTestUtils.setField(shard, "commitIntervalMs", 1000L);
+            ReflectionTestUtils.setField(shard, "refreshIntervalMs", 100L);
+            return shard;
+        });
+        ReflectionTestUtils.setField(sharded, "sharedIndexPath", tempDir.resolve("index").toString());
+        ReflectionTestUtils.setField(sharded, "agentsDir", tempDir.resolve("agents").toString());
+        sharded.initialize();
+        return sharded;
+    }
+
+    /** An unsharded store directly on the index root, as {@code --shards 1} leaves it. */
+    private LuceneVectorStore standalone() {
+        LuceneVectorStore lucene = new LuceneVectorStore();
+        ReflectionTestUtils.setField(lucene, "sharedIndexPath", tempDir.resolve("index").toString());
+        ReflectionTestUtils.setField(lucene, "agentsDir", tempDir.resolve("agents").toString());
+        ReflectionTestUtils.setField(lucene, "commitPolicyName", "per-op");
+        ReflectionTestUtils.setField(lucene, "commitMaxDocs", 1000);
+        ReflectionTestUtils.setField(lucene, "commitIntervalMs", 1000L);
+        ReflectionTestUtils.setField(lucene, "refreshIntervalMs", 100L);
+        return lucene;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<LuceneVectorStore> shards(ShardedLuceneVectorStore sharded) {
+        return (List<LuceneVectorStore>) ReflectionTestUtils.getField(sharded, "shards");
+    }
+
+    private List<String> searchIds(float[] query) {
+        return ids(store.search(VectorSearchRequest.of(query, 10, 0f)));
+    }
+
+    private static List<String> ids(List<VectorMatch> matches) {
+        return matches.stream().map(VectorMatch::id).toList();
+    }
+
+    private static List<VectorEntry> entries(String prefix, int count, Random random) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> new VectorEntry(prefix + i, vector(random), "content " + i, "crawl_chunk",
+                        "default", null, Map.of()))
+                .toList();
+    }
+
+    private static float[] vector(Random random) {
+        float[] v = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            v[i] = (float) random.nextGaussian();
+        }
+        return v;
+    }
+}
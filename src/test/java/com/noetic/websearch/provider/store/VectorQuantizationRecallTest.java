@@ -0,0 +1,161 @@
+package com.noetic.websearch.provider.store;
+
+import com.noetic.websearch.model.VectorEntry;
+import com.noetic.websearch.model.VectorMatch;
+import com.noetic.websearch.model.VectorSearchRequest;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Recall comparison of the {@link VectorQuantization} encodings.
+ *
+ * <p>Indexes the same clustered, L2-normalized 384-dim corpus (shaped like
+ * MiniLM embeddings) under each encoding and measures recall@10 against an
+ * exact brute-force ranking. The floors are what a safe
+ * {@code websearch.store.lucene.vector-encoding} and {@code rescore-oversample}
+ * setting must clear; recall does not depend on machine speed, so they run
+ * with every build.</p>
+ */
+@DisplayName("Vector encoding recall comparison")
+class VectorQuantizationRecallTest {
+
+    private static final int DIMENSIONS = 384;
+    private static final int CORPUS_SIZE = 3000;
+    private static final int CLUSTERS = 40;
+    private static final int QUERIES = 50;
+    private static final int K = 10;
+
+    private static List<float[]> corpus;
+    private static List<float[]> queries;
+    private static List<Set<String>> groundTruth;
+
+    @TempDir
+    static Path tempDir;
+
+    @BeforeAll
+    static void buildCorpus() {
+        Random random = new Random(42);
+        List<float[]> centroids = new ArrayList<>();
+        for (int c = 0; c < CLUSTERS; c++) {
+            centroids.add(gaussian(random, 1.0f));
+        }
+        corpus = new ArrayList<>();
+        for (int i = 0; i < CORPUS_SIZE; i++) {
+            corpus.add(around(random, centroids.get(random.nextInt(CLUSTERS)), 0.6f));
+        }
+        queries = new ArrayList<>();
+        for (int q = 0; q < QUERIES; q++) {
+            queries.add(around(random, centroids.get(random.nextInt(CLUSTERS)), 0.6f));
+        }
+        groundTruth = new ArrayList<>();
+        for (float[] query : queries) {
+            groundTruth.add(exactTopK(query));
+        }
+    }
+
+    @ParameterizedTest(name = "{0} with oversample {1}")
+    @CsvSource({
+            "float32, 0, 0.90",
+            "int8,    0, 0.85",
+            "int8,    3, 0.90",
+            "int4,    0, 0.70",
+            "int4,    3, 0.90",
+            "binary,  0, 0.30",
+            "binary,  5, 0.80"
+    })
+    void recallAboveFloor(String encoding, int oversample, double minRecall) {
+        Path dir = tempDir.resolve(encoding + "-" + oversample);
+        LuceneVectorStore store = newStore(dir, encoding, oversample);
+        try {
+            List<VectorEntry> entries = new ArrayList<>();
+            for (int i = 0; i < corpus.size(); i++) {
+                entries.add(new VectorEntry("doc-" + i, corpus.get(i), "content " + i,
+                        "crawl_chunk", "default", null, Map.of()));
+            }
+            store.upsertBatch(entries);
+
+            double recallSum = 0;
+            for (int q = 0; q < queries.size(); q++) {
+                List<VectorMatch> matches = store.search(VectorSearchRequest.of(queries.get(q), K, 0f));
+                Set<String> truth = groundTruth.get(q);
+                long hits = matches.stream().filter(m -> truth.contains(m.id())).count();
+                recallSum += (double) hits / K;
+            }
+            double recall = recallSum / queries.size();
+
+            assertTrue(recall >= minRecall,
+                    "recall@" + K + " for " + encoding + " (oversample " + oversample + ") was "
+                            + recall + ", expected >= " + minRecall);
+        } finally {
+            store.close();
+        }
+    }
+
+    // ── Helpers ──────────────────────────────────────────────────────────
+
+    static LuceneVectorStore newStore(Path dir, String encoding, int oversample) {
+        LuceneVectorStore store = new LuceneVectorStore();
+        ReflectionTestUtils.setField(store, "sharedIndexPath", dir.resolve("index").toString());
+        ReflectionTestUtils.setField(store, "agentsDir", dir.resolve("agents").toString());
+        ReflectionTestUtils.setField(store, "refreshIntervalMs", 0L);
+        ReflectionTestUtils.setField(store, "commitPolicyName", "shutdown");
+        ReflectionTestUtils.setField(store, "vectorEncodingName", encoding);
+        ReflectionTestUtils.setField(store, "rescoreOversample", oversample);
+        store.initialize();
+        return store;
+    }
+
+    /** Exact top-K by the field's similarity (Euclidean, the KnnFloatVectorField default). */
+    private static Set<String> exactTopK(float[] query) {
+        Integer[] order = new Integer[corpus.size()];
+        float[] distances = new float[corpus.size()];
+        for (int i = 0; i < corpus.size(); i++) {
+            order[i] = i;
+            float[] v = corpus.get(i);
+            float d = 0;
+            for (int j = 0; j < DIMENSIONS; j++) {
+                float diff = v[j] - query[j];
+                d += diff * diff;
+            }
+            distances[i] = d;
+        }
+        Arrays.sort(order, Comparator.comparingDouble(i -> distances[i]));
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < K; i++) {
+            ids.add("doc-" + order[i]);
+        }
+        return ids;
+    }
+
+    private static float[] gaussian(Random random, float scale) {
+        float[] v = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            v[i] = (float) random.nextGaussian() * scale;
+        }
+        return v;
+    }
+
+    private static float[] around(Random random, float[] centroid, float spread) {
+        float[] noise = gaussian(random, spread);
+        float[] v = new float[DIMENSIONS];
+        float norm = 0;
+        for (int i = 0; i < DIMENSIONS; i++) {
+            v[i] = centroid[i] + noise[i];
+            norm += v[i] * v[i];
+        }
+        norm = (float) Math.sqrt(norm);
+        for (int i = 0; i < DIMENSIONS; i++) {
+            v[i] /= norm;
+        }
+        return v;
+    }
+}
@@ -0,0 +1,509 @@
+package com.noetic.websearch.service;
+
+import com.noetic.websearch.model.*;
+import com.noetic.websearch.provider.ChunkingStrategy;
+import com.noetic.websearch.provider.EmbeddingProvider;
+import com.noetic.websearch.provider.VectorStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Drives {@link ChunkService} with a line-per-chunk strategy and in-memory
+ * embedding and store stand-ins that record how they were called.
+ */
+@DisplayName("ChunkService")
+class ChunkServiceTest {
+
+    private final StubEmbeddings embeddings = new StubEmbeddings(4);
+    private final StubStore store = new StubStore();
+    private ChunkService service;
+
+    @AfterEach
+    void shutdown() {
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    // ── Batching ──
+
+    @Test
+    @DisplayName("embeds in provider-sized batches and writes one upsertBatch per batch")
+    void batchesEmbedAndStore() {
+        service = service("off", 0);
+
+        List<ContentChunk> chunks = service.chunk(lines(10), "lines", null, null, "https://example.com", "ns");
+
+        assertEquals(List.of(4, 4, 2), embeddings.batchSizes);
+        assertEquals(List.of(4, 4, 2), store.batchSizes);
+        assertEquals(0, embeddings.singleCalls);
+        List<String> ids = IntStream.range(0, 10).mapToObj(i -> id("https://example.com", "line " + i)).toList();
+        assertEquals(ids, chunks.stream().map(ContentChunk::chunkId).toList());
+        assertTrue(chunks.stream().allMatch(ContentChunk::embeddingStored));
+        assertEquals(10, store.entries.size());
+        assertEquals("https://example.com", store.entries.get(ids.get(7)).metadata().get("sourceUrl"));
+    }
+
+    @Test
+    @DisplayName("caps batches at the configured embed batch size")
+    void honorsConfiguredBatchSize() {
+        service = service("off", 3);
+
+        service.chunk(lines(7), "lines", null, null, null, "ns");
+
+        assertEquals(List.of(3, 3, 1), embeddings.batchSizes);
+    }
+
+    @Test
+    @DisplayName("embeds the next batch while the previous one is being stored")
+    void overlapsEmbeddingAndStoring() {
+        service = service("off", 0);
+        embeddings.latencyMs = 50;
+        store.latencyMs = 50;
+
+        service.chunk(lines(16), "lines", null, null, null, "ns");
+
+        assertTrue(embeddings.embeddedWhileStoring, "no batch was embedded while another was being stored");
+        assertEquals(16, store.entries.size());
+    }
+
+    @Test
+    @DisplayName("an interrupted caller lets the store thread write what it was handed, uninterrupted")
+    void interruptDoesNotReachStoreThread() {
+        service = service("off", 0);
+        store.latencyMs = 50;
+        embeddings.interruptAfterBatches = 2;
+
+        List<ContentChunk> chunks = service.chunk(lines(16), "lines", null, null, null, "ns");
+
+        assertTrue(Thread.interrupted(), "the caller's interrupt was not restored");
+        assertFalse(store.interruptedWhileStoring);
+        assertEquals(List.of(4), store.batchSizes);
+        assertEquals(4, chunks.stream().filter(ContentChunk::embeddingStored).count());
+    }
+
+    @Test
+    @DisplayName("shutdown waits for an in-flight write instead of interrupting it")
+    void shutdownWaitsForStoreThread() throws Exception {
+        service = service("off", 0);
+        store.latencyMs = 100;
+        Thread caller = Thread.ofPlatform().start(() -> service.chunk(lines(8), "lines", null, null, null, "ns"));
+        while (!store.storing) {
+            Thread.onSpinWait();
+        }
+
+        service.shutdown();
+        caller.join();
+
+        assertFalse(store.interruptedWhileStoring);
+        assertEquals(8, store.entries.size());
+    }
+
+    // ── Failures ──
+
+    @Test
+    @DisplayName("a chunk that fails to embed fails only itself")
+    void embedFailureIsPerChunk() {
+        service = service("off", 0);
+
+        List<ContentChunk> chunks = service.chunk("a\nb\nbad\nc\nd\ne", "lines", null, null, null, "ns");
+
+        assertEquals(List.of(true, true, false, true, true, true),
+                chunks.stream().map(ContentChunk::embeddingStored).toList());
+        assertEquals(5, store.entries.size());
+        assertFalse(store.entries.containsKey("c2"));
+    }
+
+    @Test
+    @DisplayName("a failed batch upsert is retried one entry at a time")
+    void storeFailureIsPerChunk() {
+        service = service("off", 0);
+        store.rejectBatches = true;
+        store.rejectedIds.add("c1");
+
+        List<ContentChunk> chunks = service.chunk(lines(3), "lines", null, null, null, "ns");
+
+        assertEquals(List.of(true, false, true), chunks.stream().map(ContentChunk::embeddingStored).toList());
+        assertEquals(Set.of("c0", "c2"), store.entries.keySet());
+    }
+
+    // ── Deduplication ──
+
+    @Test
+    @DisplayName("repeats within one call are embedded once and share the first chunk's ID")
+    void dedupesWithinCall() {
+        service = service("skip", 0);
+
+        List<ContentChunk> chunks = service.chunk("same\nother\nsame", "lines", null, null, null, "ns");
+
+        assertEquals(List.of("c0", "c1", "c0"), chunks.stream().map(ContentChunk::chunkId).toList());
+        assertTrue(chunks.stream().allMatch(ContentChunk::embeddingStored));
+        assertEquals(List.of(2), embeddings.batchSizes);
+    }
+
+    @Test
+    @DisplayName("chunks already in the namespace are not embedded again")
+    void reusesStoredChunks() {
+        service = service("skip", 0);
+        store.byHash.put(ContentHash.of("known"), "stored-1");
+
+        List<ContentChunk> chunks = service.chunk("known\nnew", "lines", null, null, null, "ns");
+
+        assertEquals(List.of("stored-1", "c1"), chunks.stream().map(ContentChunk::chunkId).toList());
+        assertEquals(List.of(1), embeddings.batchSizes);
+    }
+
+    @Test
+    @DisplayName("passes chunks' token IDs to the provider, aligned with their texts")
+    void forwardsTokenIds() {
+        service = service("off", 0);
+
+        service.chunk("one\ntwo\nthree", "lines", null, null, null, "ns");
+
+        List<?> ids = (List<?>) embeddings.extras.getFirst().get(EmbeddingBatchRequest.EXTRA_TOKEN_IDS);
+        assertEquals(List.of(3, 3, 5), ids.stream().map(i -> ((int[]) i)[0]).toList());
+    }
+
+    // ── Re-ingest ──
+
+    @Test
+    @DisplayName("chunks of a source URL keep their IDs when the page is chunked again")
+    void stableChunkIds() {
+        service = service("off", 0);
+
+        List<ContentChunk> first = service.chunk("alpha\nbeta", "lines", null, null, "https://a.example", "ns");
+        List<ContentChunk> second = service.chunk("alpha\nbeta", "lines", null, null, "https://a.example", "ns");
+
+        assertEquals(List.of(id("https://a.example", "alpha"), id("https://a.example", "beta")),
+                first.stream().map(ContentChunk::chunkId).toList());
+        assertEquals(first.stream().map(ContentChunk::chunkId).toList(),
+                second.stream().map(ContentChunk::chunkId).toList());
+        assertEquals(2, store.entries.size());
+    }
+
+    @Test
+    @DisplayName("re-ingest embeds only new chunks and deletes vanished ones in one batch")
+    void reingestDiffsAgainstStoredChunks() {
+        service = service("refresh", 0);
+        service.chunk("one\ntwo\nthree", "lines", null, null, "https://a.example", "ns");
+        embeddings.batchSizes.clear();
+
+        List<ContentChunk> chunks = service.chunk(
+                new IngestRequest("one\nthree\nfour", "lines", null, null, "https://a.example", "ns", true));
+
+        assertEquals(List.of(1), embeddings.batchSizes);
+        assertEquals(List.of(List.of(id("https://a.example", "two"))), store.deletedBatches);
+        assertEquals(Set.of("one", "three", "four"),
+                store.entries.values().stream().map(VectorEntry::content).collect(Collectors.toSet()));
+        assertEquals(List.of(id("https://a.example", "one"), id("https://a.example", "three"),
+                id("https://a.example", "four")), chunks.stream().map(ContentChunk::chunkId).toList());
+        assertTrue(chunks.stream().allMatch(ContentChunk::embeddingStored));
+    }
+
+    @Test
+    @DisplayName("re-ingest keeps the vanished chunks when a new chunk fails to embed")
+    void reingestKeepsOldChunksOnFailure() {
+        service = service("refresh", 0);
+        service.chunk("one\ntwo", "lines", null, null, "https://a.example", "ns");
+
+        List<ContentChunk> chunks = service.chunk(
+                new IngestRequest("one\nthree\nbad", "lines", null, null, "https://a.example", "ns", true));
+
+        assertEquals(List.of(true, true, false), chunks.stream().map(ContentChunk::embeddingStored).toList());
+        assertEquals(List.of(), store.deletedBatches);
+        assertTrue(store.entries.containsKey(id("https://a.example", "two")));
+        assertTrue(store.entries.containsKey(id("https://a.example", "three")));
+    }
+
+    @Test
+    @DisplayName("a re-ingested page stores its own copy of text another page already has")
+    void reingestOwnsItsChunks() {
+        service = service("refresh", 0);
+        service.chunk("shared", "lines", null, null, "https://a.example", "ns");
+
+        List<ContentChunk> chunks = service.chunk(
+                new IngestRequest("shared", "lines", null, null, "https://b.example", "ns", true));
+
+        assertEquals(id("https://b.example", "shared"), chunks.getFirst().chunkId());
+        assertEquals(2, store.entries.size());
+        assertEquals(List.of(), store.deletedBatches);
+    }
+
+    @Test
+    @DisplayName("pages sharing a chunk each keep theirs when one of them is re-ingested")
+    void reingestLeavesOtherPagesChunks() {
+        service = service("refresh", 0);
+        service.chunk("shared\nonly a", "lines", null, null, "https://a.example", "ns");
+        List<ContentChunk> b = service.chunk("shared\nonly b", "lines", null, null, "https://b.example", "ns");
+
+        service.chunk(new IngestRequest("other", "lines", null, null, "https://a.example", "ns", true));
+
+        assertEquals(id("https://b.example", "shared"), b.getFirst().chunkId());
+        VectorEntry shared = store.entries.get(id("https://b.example", "shared"));
+        assertNotNull(shared);
+        assertEquals("https://b.example", shared.metadata().get("sourceUrl"));
+        assertFalse(store.entries.containsKey(id("https://a.example", "shared")));
+    }
+
+    @Test
+    @DisplayName("pages in one call do not share an entry for the same text")
+    void dedupesWithinSourceOnly() {
+        service = service("skip", 0);
+
+        List<List<ContentChunk>> results = service.chunkAll(List.of(
+                new IngestRequest("shared", "lines", null, null, "https://a.example", "ns"),
+                new IngestRequest("shared", "lines", null, null, "https://b.example", "ns")));
+
+        assertEquals(id("https://a.example", "shared"), results.get(0).getFirst().chunkId());
+        assertEquals(id("https://b.example", "shared"), results.get(1).getFirst().chunkId());
+        assertEquals(2, store.entries.size());
+    }
+
+    // ── Helpers ──
+
+    private static String id(String sourceUrl, String text) {
+        return ContentHash.chunkId("ns", sourceUrl, ContentHash.of(text));
+    }
+
+    private ChunkService service(String dedup, int embedBatchSize) {
+        return new ChunkService(List.of(new LineStrategy()), embeddings, store,
+                "lines", 512, 0, dedup, embedBatchSize, 2);
+    }
+
+    private static String lines(int count) {
+        return IntStream.range(0, count).mapToObj(i -> "line " + i).collect(Collectors.joining("\n"));
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** One chunk per line, numbered from c0, with the line's length as its only token ID. */
+    private static final class LineStrategy implements ChunkingStrategy {
+
+        @Override
+        public String type() {
+            return "lines";
+        }
+
+        @Override
+        public List<ContentChunk> chunk(ChunkRequest request) {
+            String[] lines = request.content().split("\n");
+            return IntStream.range(0, lines.length)
+                    .mapToObj(i -> new ContentChunk("c" + i, lines[i], 1, false, new int[]{lines[i].length()}))
+                    .toList();
+        }
+    }
+
+    /** Embeds a text as [length]; any text "bad" fails, and so does any batch containing it. */
+    private final class StubEmbeddings implements EmbeddingProvider {
+
+        private final int maxBatchSize;
+        final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        final List<Map<String, Object>> extras = new CopyOnWriteArrayList<>();
+        volatile int singleCalls;
+        volatile long latencyMs;
+        volatile boolean embeddedWhileStoring;
+        /** Interrupt the calling thread once this many batches were embedded; 0 never. */
+        volatile int interruptAfterBatches;
+
+        StubEmbeddings(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+        }
+
+        @Override
+        public List<EmbeddingResult> embedBatch(EmbeddingBatchRequest request) {
+            if (request.texts().contains("bad")) {
+                throw new IllegalArgumentException("bad text in batch");
+            }
+            if (store.storing) {
+                embeddedWhileStoring = true;
+            }
+            sleep(latencyMs);
+            batchSizes.add(request.texts().size());
+            extras.add(request.extra());
+            if (batchSizes.size() == interruptAfterBatches) {
+                Thread.currentThread().interrupt();
+            }
+            return request.texts().stream().map(this::vector).toList();
+        }
+
+        @Override
+        public EmbeddingResult embed(EmbeddingRequest request) {
+            singleCalls++;
+            if (request.text().equals("bad")) {
+                throw new IllegalArgumentException("bad text");
+            }
+            return vector(request.text());
+        }
+
+        private EmbeddingResult vector(String text) {
+            return EmbeddingResult.of(new float[]{text.length()}, model());
+        }
+
+        @Override
+        public String type() {
+            return "stub";
+        }
+
+        @Override
+        public EmbeddingCapabilities capabilities() {
+            return new EmbeddingCapabilities(false, false, true, maxBatchSize, 512, 1, AuthType.NONE);
+        }
+
+        @Override
+        public int dimensions() {
+            return 1;
+        }
+
+        @Override
+        public String model() {
+            return "stub-model";
+        }
+    }
+
+    /**
+     * Keeps entries in a map; can be told to reject batch writes or individual IDs.
+     * {@code byHash} seeds content-hash hits for entries without a source.
+     */
+    private static final class StubStore implements VectorStore {
+
+        final Map<String, VectorEntry> entries = new ConcurrentHashMap<>();
+        final Map<String, String> byHash = new HashMap<>();
+        final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        final List<List<String>> deletedBatches = new CopyOnWriteArrayList<>();
+        final Set<String> rejectedIds = ConcurrentHashMap.newKeySet();
+        volatile boolean rejectBatches;
+        volatile long latencyMs;
+        volatile boolean storing;
+        volatile boolean interruptedWhileStoring;
+
+        @Override
+        public void upsertBatch(List<VectorEntry> batch) {
+            if (rejectBatches) {
+                throw new IllegalStateException("batch rejected");
+            }
+            storing = true;
+            try {
+                sleep(latencyMs);
+                interruptedWhileStoring |= Thread.currentThread().isInterrupted();
+                batchSizes.add(batch.size());
+                batch.forEach(e -> entries.put(e.id(), e));
+            } finally {
+                storing = false;
+            }
+        }
+
+        @Override
+        public void upsert(VectorEntry entry) {
+            if (rejectedIds.contains(entry.id())) {
+                throw new IllegalStateException("entry rejected");
+            }
+            entries.put(entry.id(), entry);
+        }
+
+        @Override
+        public Map<String, String> findByContentHash(String namespace, String sourceUrl,
+                                                     Collection<String> contentHashes) {
+            Map<String, String> found = new HashMap<>();
+            for (String hash : contentHashes) {
+                if (sourceUrl == null && byHash.containsKey(hash)) {
+                    found.put(hash, byHash.get(hash));
+                }
+            }
+            entries.values().stream()
+                    .filter(e -> e.namespace().equals(namespace)
+                            && Objects.equals(sourceUrl, e.metadata().get("sourceUrl"))
+                            && contentHashes.contains(ContentHash.of(e.content())))
+                    .forEach(e -> found.putIfAbsent(ContentHash.of(e.content()), e.id()));
+            return found;
+        }
+
+        @Override
+        public Map<String, String> findBySource(String namespace, String sourceUrl) {
+            Map<String, String> found = new HashMap<>();
+            entries.values().stream()
+                    .filter(e -> e.namespace().equals(namespace) && sourceUrl.equals(e.metadata().get("sourceUrl")))
+                    .forEach(e -> found.put(e.id(), ContentHash.of(e.content())));
+            return found;
+        }
+
+        @Override
+        public int touch(Collection<String> ids, Map<String, String> metadata) {
+            int touched = 0;
+            for (String id : ids) {
+                VectorEntry old = entries.get(id);
+                if (old != null) {
+                    Map<String, String> merged = new HashMap<>(old.metadata());
+                    merged.putAll(metadata);
+                    entries.put(id, new VectorEntry(old.id(), old.vector(), old.content(), old.entryType(),
+                            old.namespace(), Instant.now(), merged));
+                    touched++;
+                }
+            }
+            return touched;
+        }
+
+        @Override
+        public String type() {
+            return "stub";
+        }
+
+        @Override
+        public StoreCapabilities capabilities() {
+            return new StoreCapabilities(true, false, true, true, false, false, false, 0, null);
+        }
+
+        @Override
+        public void initialize() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public Optional<VectorEntry> get(String id) {
+            return Optional.ofNullable(entries.get(id));
+        }
+
+        @Override
+        public void delete(String id) {
+            entries.remove(id);
+        }
+
+        @Override
+        public void deleteBatch(List<String> ids) {
+            deletedBatches.add(List.copyOf(ids));
+            ids.forEach(entries::remove);
+        }
+
+        @Override
+        public List<VectorMatch> search(VectorSearchRequest request) {
+            return List.of();
+        }
+
+        @Override
+        public long count() {
+            return entries.size();
+        }
+
+        @Override
+        public void deleteByMetadata(MetadataFilter filter) {
+        }
+    }
+}
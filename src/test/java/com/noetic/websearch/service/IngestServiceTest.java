@@ -0,0 +1,484 @@
+package com.noetic.websearch.service;
+
+import com.noetic.websearch.model.ContentChunk;
+import com.noetic.websearch.model.IngestRequest;
+import com.noetic.websearch.model.IngestStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("IngestService")
+class IngestServiceTest {
+
+    @TempDir
+    Path dir;
+
+    // ── Log ──
+
+    @Nested
+    @DisplayName("IngestLog")
+    class Log {
+
+        @Test
+        @DisplayName("replays requests that were never completed, oldest first")
+        void replaysPending() throws IOException {
+            IngestRequest full = new IngestRequest("first", "token", 256, 10, "https://example.com", "ns", true);
+            IngestRequest sparse = new IngestRequest("second \u00e9\u4e2d", null, null, null, null, null);
+            try (IngestLog log = IngestLog.open(dir, "shared", 1 << 20, false)) {
+                log.append("a", full);
+                log.append("b", request("done"));
+                log.append("c", sparse);
+                log.complete("b");
+            }
+
+            try (IngestLog log = IngestLog.open(dir, "shared", 1 << 20, false)) {
+                assertEquals(List.of(new IngestLog.Entry("a", full), new IngestLog.Entry("c", sparse)), log.replayed());
+                assertEquals(2, log.pending());
+            }
+        }
+
+        @Test
+        @DisplayName("drops a record torn by a crash mid-append")
+        void ignoresTornTail() throws IOException {
+            try (IngestLog log = IngestLog.open(dir, "shared", 1 << 20, false)) {
+                log.append("a", request("kept"));
+                log.append("b", request("torn"));
+            }
+            Path segment = segments().getFirst();
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+                channel.truncate(channel.size() - 3);
+            }
+
+            try (IngestLog log = IngestLog.open(dir, "shared", 1 << 20, false)) {
+                assertEquals(List.of("a"), log.replayed().stream().map(IngestLog.Entry::ticket).toList());
+                log.append("c", request("after"));
+            }
+            try (IngestLog log = IngestLog.open(dir, "shared", 1 << 20, false)) {
+                assertEquals(List.of("a", "c"), log.replayed().stream().map(IngestLog.Entry::ticket).toList());
+            }
+        }
+
+        @Test
+        @DisplayName("deletes segments only once they and all older ones are complete")
+        void deletesCompletedSegmentsInOrder() throws IOException {
+            try (IngestLog log = IngestLog.open(dir, "shared", 256, false)) {
+                for (int i = 0; i < 10; i++) {
+                    log.append("t" + i, request("x".repeat(100)));
+                }
+                assertTrue(segments().size() > 3);
+
+                // Completing newer requests keeps the oldest segment and everything after it
+                for (int i = 1; i < 10; i++) {
+                    log.complete("t" + i);
+                }
+                assertTrue(segments().size() > 3);
+
+                log.complete("t0");
+                assertEquals(1, segments().size());
+            }
+            try (IngestLog log = IngestLog.open(dir, "shared", 256, false)) {
+                assertEquals(List.of(), log.replayed());
+            }
+        }
+
+        @Test
+        @DisplayName("only one process at a time opens a directory")
+        void locksDirectory() throws IOException {
+            try (IngestLog log = IngestLog.open(dir, "shared", 1 << 20, false)) {
+                assertThrows(IngestLog.LockedException.class, () -> IngestLog.open(dir, "shared", 1 << 20, false));
+                assertTrue(IngestLog.inUse(dir));
+            }
+            assertFalse(IngestLog.inUse(dir));
+            IngestLog.open(dir, "shared", 1 << 20, false).close();
+        }
+
+        @Test
+        @DisplayName("replays only the requests submitted for its own store")
+        void replaysOwnStoreOnly() throws IOException {
+            try (IngestLog log = IngestLog.open(dir, "agent:a", 1 << 20, false)) {
+                log.append("a", request("for agent a"));
+            }
+            try (IngestLog log = IngestLog.open(dir, "shared", 1 << 20, false)) {
+                log.append("s", request("for shared"));
+                assertEquals(List.of(), log.replayed());
+            }
+
+            try (IngestLog log = IngestLog.open(dir, "agent:a", 1 << 20, false)) {
+                assertEquals(List.of("a"), log.replayed().stream().map(IngestLog.Entry::ticket).toList());
+            }
+        }
+
+        @Test
+        @DisplayName("another store's pending request never holds old segments, and stays for its owner")
+        void carriesForeignRequestsForward() throws IOException {
+            try (IngestLog log = IngestLog.open(dir, "agent:a", 1 << 20, false)) {
+                log.append("a", request("for agent a"));
+            }
+            try (IngestLog log = IngestLog.open(dir, "shared", 256, false)) {
+                for (int i = 0; i < 20; i++) {
+                    log.append("s" + i, request("x".repeat(100)));
+                    log.complete("s" + i);
+                }
+                assertEquals(1, segments().size());
+            }
+
+            try (IngestLog log = IngestLog.open(dir, "agent:a", 1 << 20, false)) {
+                assertEquals(List.of("a"), log.replayed().stream().map(IngestLog.Entry::ticket).toList());
+            }
+        }
+
+        @Test
+        @DisplayName("drops requests recorded without a store and deletes their segment")
+        void dropsOwnerlessRequests() throws IOException {
+            writeOwnerlessRecord(dir.resolve("ingest-00000001.log"), "old");
+
+            try (IngestLog log = IngestLog.open(dir, "shared", 1 << 20, false)) {
+                assertEquals(List.of(), log.replayed());
+                assertEquals(0, log.pending());
+                assertEquals(List.of(dir.resolve("ingest-00000002.log")), segments());
+            }
+        }
+
+        /** A submitted request as written before requests carried their store. */
+        private static void writeOwnerlessRecord(Path segment, String ticket) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(1);
+            for (String value : new String[]{ticket, "legacy content"}) {
+                byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(utf8.length);
+                out.write(utf8);
+            }
+            out.writeInt(-1); // strategy
+            out.writeBoolean(false);
+            out.writeInt(0); // maxChunkSize
+            out.writeBoolean(false);
+            out.writeInt(0); // overlap
+            out.writeInt(-1); // sourceUrl
+            out.writeInt(-1); // namespace
+            out.writeBoolean(false); // reingest
+            byte[] payload = bytes.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            Files.write(segment, ByteBuffer.allocate(8 + payload.length)
+                    .putInt(payload.length).putInt((int) crc.getValue()).put(payload).array());
+        }
+
+        private List<Path> segments() throws IOException {
+            try (Stream<Path> files = Files.list(dir)) {
+                return files.filter(p -> p.toString().endsWith(".log")).sorted().toList();
+            }
+        }
+    }
+
+    // ── Service ──
+
+    private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+    private final CountDownLatch busy = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private volatile boolean blockFirstBatch;
+    private volatile boolean workerInterrupted;
+    private IngestService service;
+
+    @AfterEach
+    void stop() {
+        release.countDown();
+        if (service != null) {
+            service.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("returns a queued ticket at once and completes it in the background")
+    void submitsAndAwaits() throws Exception {
+        blockFirstBatch = true;
+        service = start();
+
+        IngestStatus ticket = service.submit(request("one\ntwo"));
+
+        assertEquals(IngestStatus.State.QUEUED, ticket.state());
+        release.countDown();
+        List<ContentChunk> chunks = service.await(ticket.ticket(), Duration.ofSeconds(5)).orElseThrow();
+        assertEquals(List.of("one", "two"), chunks.stream().map(ContentChunk::text).toList());
+        IngestStatus done = service.status(ticket.ticket());
+        assertEquals(IngestStatus.State.COMPLETED, done.state());
+        assertEquals(2, done.stored());
+    }
+
+    @Test
+    @DisplayName("hands requests queued behind a busy worker to chunkAll together")
+    void batchesQueuedRequests() throws Exception {
+        blockFirstBatch = true;
+        service = start();
+
+        String first = service.submit(request("a")).ticket();
+        assertTrue(busy.await(5, TimeUnit.SECONDS));
+        List<String> tickets = Stream.of("b", "c", "d", "e")
+                .map(text -> service.submit(request(text)).ticket()).toList();
+        release.countDown();
+        service.await(first, Duration.ofSeconds(5));
+        for (String ticket : tickets) {
+            service.await(ticket, Duration.ofSeconds(5));
+        }
+
+        assertEquals(List.of(1, 4), batchSizes);
+    }
+
+    @Test
+    @DisplayName("a failing request fails only its own ticket")
+    void failuresArePerTicket() throws Exception {
+        blockFirstBatch = true;
+        service = start();
+
+        service.submit(request("first"));
+        assertTrue(busy.await(5, TimeUnit.SECONDS));
+        String good = service.submit(request("good")).ticket();
+        String bad = service.submit(request("bad")).ticket();
+        release.countDown();
+
+        assertEquals(List.of("good"), service.await(good, Duration.ofSeconds(5)).orElseThrow().stream().map(ContentChunk::text).toList());
+        assertThrows(RuntimeException.class, () -> service.await(bad, Duration.ofSeconds(5)));
+        assertEquals(IngestStatus.State.FAILED, service.status(bad).state());
+    }
+
+    @Test
+    @DisplayName("replays requests left in the log by a previous process")
+    void replaysAfterRestart() throws Exception {
+        service = start();
+        service.stop();
+        leaveInLog("left-over", "survived");
+
+        service = start();
+
+        assertEquals(List.of("survived"), service.await("left-over", Duration.ofSeconds(5)).orElseThrow().stream()
+                .map(ContentChunk::text).toList());
+        service.stop();
+        assertEquals(List.of(), pendingTickets(service));
+    }
+
+    @Test
+    @DisplayName("stop lets the running batch finish uninterrupted and leaves queued requests for replay")
+    void stopFinishesRunningBatch() throws Exception {
+        blockFirstBatch = true;
+        service = start();
+        String running = service.submit(request("running")).ticket();
+        assertTrue(busy.await(5, TimeUnit.SECONDS));
+        String queued = service.submit(request("queued")).ticket();
+
+        Thread stopper = Thread.ofPlatform().start(service::stop);
+        Thread.sleep(200);
+        release.countDown();
+        stopper.join();
+
+        assertFalse(workerInterrupted);
+        assertEquals(IngestStatus.State.COMPLETED, service.status(running).state());
+        assertThrows(IllegalStateException.class, () -> service.submit(request("late")));
+        assertEquals(List.of(queued), pendingTickets(service));
+    }
+
+    @Test
+    @DisplayName("a second process for the same store queues in the next free directory")
+    void fallsBackToFreeQueue() throws Exception {
+        service = start();
+        IngestService second = start();
+        try {
+            String ticket = second.submit(request("second")).ticket();
+
+            assertEquals(List.of("second"), second.await(ticket, Duration.ofSeconds(5)).orElseThrow().stream()
+                    .map(ContentChunk::text).toList());
+            Path first = directory(service);
+            assertEquals(first.resolveSibling(first.getFileName() + "-1"), directory(second));
+        } finally {
+            second.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("processes writing different indexes under one ingest root never replay each other's backlog")
+    void keepsIndexBacklogsApart() throws Exception {
+        service = service("index", null);
+        IngestService cli = service("cli-index", null);
+        try {
+            assertNotEquals(directory(service), directory(cli));
+            assertNotEquals(ReflectionTestUtils.getField(service, "store"), ReflectionTestUtils.getField(cli, "store"));
+        } finally {
+            cli.stop();
+        }
+        service.stop();
+        leaveInLog("server-work", "for the server's index");
+
+        cli = service("cli-index", null);
+        try {
+            assertNull(cli.status("server-work"));
+        } finally {
+            cli.stop();
+        }
+        service = service("index", null);
+        assertEquals(List.of("for the server's index"), service.await("server-work", Duration.ofSeconds(5)).orElseThrow()
+                .stream().map(ContentChunk::text).toList());
+    }
+
+    @Test
+    @DisplayName("an agent's left-over requests are not replayed into the shared store")
+    void keepsAgentBacklogOutOfSharedStore() throws Exception {
+        service = service("index", "a1");
+        service.stop();
+        leaveInLog("agent-work", "agent only");
+
+        service = start();
+        assertNull(service.status("agent-work"));
+        service.stop();
+
+        service = service("index", "a1");
+        assertEquals(List.of("agent only"), service.await("agent-work", Duration.ofSeconds(5)).orElseThrow().stream()
+                .map(ContentChunk::text).toList());
+        assertTrue(directory(service).startsWith(dir.resolve("ingest").resolve("agents")));
+    }
+
+    @Test
+    @DisplayName("an interrupted worker wakes waiters and leaves the request for replay")
+    void interruptedTicketWakesWaiters() throws Exception {
+        service = start();
+
+        String ticket = service.submit(request("interrupt")).ticket();
+
+        assertThrows(CancellationException.class, () -> service.await(ticket, Duration.ofSeconds(5)));
+        assertEquals(IngestStatus.State.INTERRUPTED, service.status(ticket).state());
+        service.stop();
+        assertEquals(List.of(ticket), pendingTickets(service));
+    }
+
+    @Test
+    @DisplayName("a ticket evicted from the completed history counts as done")
+    void evictedTicketCountsAsDone() throws Exception {
+        service = start();
+        ReflectionTestUtils.setField(service, "retainCompleted", 1);
+
+        String first = service.submit(request("first")).ticket();
+        service.await(first, Duration.ofSeconds(5));
+        String second = service.submit(request("second")).ticket();
+        service.await(second, Duration.ofSeconds(5));
+
+        assertNull(service.status(first));
+        assertEquals(Optional.empty(), service.await(first, Duration.ofSeconds(5)));
+        assertTrue(service.await(second, Duration.ofSeconds(5)).isPresent());
+    }
+
+    @Test
+    @DisplayName("rejects an unknown strategy at submit time")
+    void rejectsUnknownStrategy() {
+        service = start();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> service.submit(new IngestRequest("text", "nope", null, null, null, null)));
+    }
+
+    // ── Helpers ──
+
+    private IngestService start() {
+        return service("index", null);
+    }
+
+    /** A service writing {@code indexName} under the temp directory, or agent {@code agentId}'s index. */
+    private IngestService service(String indexName, String agentId) {
+        IngestService ingest = new IngestService(new RecordingChunkService());
+        ReflectionTestUtils.setField(ingest, "path", dir.resolve("ingest").toString());
+        ReflectionTestUtils.setField(ingest, "indexPath", dir.resolve(indexName).toString());
+        ReflectionTestUtils.setField(ingest, "agentsDir", dir.resolve("agents").toString());
+        ReflectionTestUtils.setField(ingest, "workers", 1);
+        ReflectionTestUtils.setField(ingest, "fsync", false);
+        ReflectionTestUtils.setField(ingest, "agentId", agentId);
+        ingest.start();
+        return ingest;
+    }
+
+    private static Path directory(IngestService ingest) {
+        return (Path) ReflectionTestUtils.getField(ingest, "directory");
+    }
+
+    /** Append a request to the stopped {@link #service}'s log, as a crashed process would leave it. */
+    private void leaveInLog(String ticket, String content) throws IOException {
+        try (IngestLog log = IngestLog.open(directory(service), (String) ReflectionTestUtils.getField(service, "store"),
+                1 << 20, true)) {
+            log.append(ticket, request(content));
+        }
+    }
+
+    /** Tickets still pending in the stopped service's log. */
+    private static List<String> pendingTickets(IngestService stopped) throws IOException {
+        try (IngestLog log = IngestLog.open(directory(stopped), (String) ReflectionTestUtils.getField(stopped, "store"),
+                1 << 20, true)) {
+            return log.replayed().stream().map(IngestLog.Entry::ticket).toList();
+        }
+    }
+
+    private static IngestRequest request(String content) {
+        return new IngestRequest(content, null, null, null, null, null);
+    }
+
+    /**
+     * Splits on newlines and stores everything; fails any batch containing "bad"
+     * and interrupts its worker for any batch containing "interrupt".
+     */
+    private final class RecordingChunkService extends ChunkService {
+
+        RecordingChunkService() {
+            super(List.of(), null, null, "lines", 512, 0, "off", 0, 1);
+        }
+
+        @Override
+        public void checkStrategy(String strategy) {
+            if (strategy != null) {
+                throw new IllegalArgumentException("Unknown chunking strategy: " + strategy);
+            }
+        }
+
+        @Override
+        public List<List<ContentChunk>> chunkAll(List<IngestRequest> requests) {
+            if (blockFirstBatch && batchSizes.isEmpty()) {
+                busy.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    workerInterrupted = true;
+                    Thread.currentThread().interrupt();
+                }
+            }
+            batchSizes.add(requests.size());
+            if (requests.stream().anyMatch(r -> r.content().equals("interrupt"))) {
+                Thread.currentThread().interrupt();
+            }
+            if (requests.stream().anyMatch(r -> r.content().equals("bad"))) {
+                throw new IllegalStateException("bad content");
+            }
+            return requests.stream()
+                    .map(r -> Stream.of(r.content().split("\n"))
+                            .map(text -> new ContentChunk(text, text, 1, true)).toList())
+                    .toList();
+        }
+    }
+}